@@ -98,7 +98,13 @@ CREATE TABLE IF NOT EXISTS tePicture
     INDEX idx_space_id (space_id),
     INDEX idx_review_status (review_status),
     INDEX idx_reviewer_user (reviewer_user),
-    INDEX idx_resource_status (resource_status)
+    INDEX idx_resource_status (resource_status),
+    -- 游标分页: 按 (空间, 排序字段, id) 定位下一页, InnoDB 二级索引隐含主键 id
+    INDEX idx_space_id_create_time (space_id, create_time),
+    INDEX idx_space_id_edit_time (space_id, edit_time),
+    -- 首页和空间列表: 先只查询 id, 条件和排序列都在索引中时不需要回表
+    INDEX idx_space_id_review_status_is_delete_create_time (space_id, review_status, is_delete, create_time),
+    INDEX idx_space_id_is_delete_create_time (space_id, is_delete, create_time)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = utf8mb4
   COLLATE = utf8mb4_unicode_ci COMMENT = '图片表';
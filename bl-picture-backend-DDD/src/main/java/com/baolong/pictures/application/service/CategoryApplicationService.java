@@ -10,6 +10,7 @@ import com.baolong.pictures.interfaces.vo.category.CategoryVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * 分类应用服务接口
@@ -65,6 +66,14 @@ public interface CategoryApplicationService {
 	 */
 	PageVO<Category> getCategoryPageListAsAdmin(CategoryQueryRequest categoryQueryRequest);
 
+	/**
+	 * 根据分类 ID 集合获取分类列表
+	 *
+	 * @param categoryIds 分类 ID 集合
+	 * @return 分类列表
+	 */
+	List<Category> getCategoryListByIds(Set<Long> categoryIds);
+
 	// endregion 查询相关
 
 	// region 其他方法
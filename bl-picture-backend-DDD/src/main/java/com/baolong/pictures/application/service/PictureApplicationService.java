@@ -4,6 +4,7 @@ import com.baolong.pictures.domain.picture.entity.Picture;
 import com.baolong.pictures.domain.user.entity.User;
 import com.baolong.pictures.infrastructure.common.DeleteRequest;
 import com.baolong.pictures.infrastructure.common.page.PageVO;
+import com.baolong.pictures.infrastructure.manager.cache.CacheStats;
 import com.baolong.pictures.interfaces.dto.picture.PictureBatchEditRequest;
 import com.baolong.pictures.interfaces.dto.picture.PictureEditRequest;
 import com.baolong.pictures.interfaces.dto.picture.PictureQueryRequest;
@@ -108,6 +109,13 @@ public interface PictureApplicationService {
 	 */
 	PageVO<Picture> getPicturePageListAsAdmin(PictureQueryRequest pictureQueryRequest);
 
+	/**
+	 * 获取首页图片列表缓存统计信息
+	 *
+	 * @return 缓存统计信息
+	 */
+	CacheStats getPictureListCacheStats();
+
 	// /**
 	//  * 根据颜色搜索图片
 	//  *
@@ -10,6 +10,7 @@ import com.baolong.pictures.interfaces.vo.tag.TagVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * 标签应用服务接口
@@ -65,6 +66,14 @@ public interface TagApplicationService {
 	 */
 	PageVO<Tag> getTagPageListAsAdmin(TagQueryRequest tagQueryRequest);
 
+	/**
+	 * 根据标签 ID 集合获取标签列表
+	 *
+	 * @param tagIds 标签 ID 集合
+	 * @return 标签列表
+	 */
+	List<Tag> getTagListByIds(Set<Long> tagIds);
+
 	// endregion 查询相关
 
 	// region 其他方法
@@ -20,6 +20,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -104,6 +105,17 @@ public class CategoryApplicationServiceImpl implements CategoryApplicationServic
 		return PageVO.from(picturePage);
 	}
 
+	/**
+	 * 根据分类 ID 集合获取分类列表
+	 *
+	 * @param categoryIds 分类 ID 集合
+	 * @return 分类列表
+	 */
+	@Override
+	public List<Category> getCategoryListByIds(Set<Long> categoryIds) {
+		return categoryDomainService.getCategoryListByIds(categoryIds);
+	}
+
 	// endregion 查询相关
 
 	// region 其他方法
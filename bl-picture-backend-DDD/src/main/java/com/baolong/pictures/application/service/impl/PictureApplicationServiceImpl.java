@@ -1,16 +1,27 @@
 package com.baolong.pictures.application.service.impl;
 
+import cn.hutool.core.lang.TypeReference;
 import cn.hutool.core.util.ObjectUtil;
+import com.baolong.pictures.application.service.CategoryApplicationService;
 import com.baolong.pictures.application.service.PictureApplicationService;
 import com.baolong.pictures.application.service.SpaceApplicationService;
+import com.baolong.pictures.application.service.TagApplicationService;
 import com.baolong.pictures.application.service.UserApplicationService;
+import com.baolong.pictures.domain.category.entity.Category;
 import com.baolong.pictures.domain.picture.entity.Picture;
+import com.baolong.pictures.domain.picture.event.PictureChangeEvent;
 import com.baolong.pictures.domain.picture.service.PictureDomainService;
+import com.baolong.pictures.domain.tag.entity.Tag;
 import com.baolong.pictures.domain.user.entity.User;
 import com.baolong.pictures.infrastructure.common.DeleteRequest;
+import com.baolong.pictures.infrastructure.common.page.PageCursor;
+import com.baolong.pictures.infrastructure.common.page.PageRequest;
 import com.baolong.pictures.infrastructure.common.page.PageVO;
 import com.baolong.pictures.infrastructure.exception.ErrorCode;
 import com.baolong.pictures.infrastructure.exception.ThrowUtils;
+import com.baolong.pictures.infrastructure.manager.cache.CacheStats;
+import com.baolong.pictures.infrastructure.manager.cache.PictureListCache;
+import com.baolong.pictures.infrastructure.utils.PageCursorUtils;
 import com.baolong.pictures.interfaces.assembler.PictureAssembler;
 import com.baolong.pictures.interfaces.dto.picture.PictureBatchEditRequest;
 import com.baolong.pictures.interfaces.dto.picture.PictureEditRequest;
@@ -23,11 +34,14 @@ import com.baolong.pictures.interfaces.vo.picture.PictureVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -41,9 +55,18 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PictureApplicationServiceImpl implements PictureApplicationService {
 
+	/**
+	 * 游标分页支持的排序字段（非空且有索引的列）
+	 */
+	private static final List<String> CURSOR_SORT_FIELDS = Arrays.asList("id", "createTime", "editTime");
+
 	private final PictureDomainService pictureDomainService;
 	private final UserApplicationService userApplicationService;
 	private final SpaceApplicationService spaceApplicationService;
+	private final CategoryApplicationService categoryApplicationService;
+	private final TagApplicationService tagApplicationService;
+	private final PictureListCache pictureListCache;
+	private final ApplicationEventPublisher applicationEventPublisher;
 
 	@Resource
 	private TransactionTemplate transactionTemplate;
@@ -102,6 +125,7 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 			}
 			return picture;
 		});
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(resultPicture.getId()));
 
 		return PictureAssembler.toPictureVO(resultPicture);
 	}
@@ -135,6 +159,7 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 			pictureDomainService.clearPictureFile(picture);
 			return true;
 		});
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(picture.getId()));
 		return true;
 	}
 
@@ -178,6 +203,7 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 		tePicture.setTags(inputTagListStr);*/
 		Boolean flag = pictureDomainService.updatePicture(picture);
 		ThrowUtils.throwIf(!flag, ErrorCode.OPERATION_ERROR, "更新图片失败");
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(picture.getId()));
 		return true;
 	}
 
@@ -225,6 +251,7 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 		tePicture.setTags(inputTagListStr);*/
 		Boolean flag = pictureDomainService.editPicture(picture);
 		ThrowUtils.throwIf(!flag, ErrorCode.OPERATION_ERROR, "编辑图片失败");
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(picture.getId()));
 		return true;
 	}
 
@@ -266,6 +293,8 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 		});*/
 		Boolean flag = pictureDomainService.editPictureBatch(pictureList);
 		ThrowUtils.throwIf(!flag, ErrorCode.OPERATION_ERROR, "图片批量编辑失败");
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(
+				pictureList.stream().map(Picture::getId).collect(Collectors.toList())));
 		return false;
 	}
 
@@ -283,6 +312,8 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 		pictureList.forEach(picture -> picture.setReviewerUser(loginUser.getId()));
 		Boolean flag = pictureDomainService.reviewPicture(pictureList);
 		ThrowUtils.throwIf(!flag, ErrorCode.OPERATION_ERROR, "审核图片失败");
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(
+				pictureList.stream().map(Picture::getId).collect(Collectors.toList())));
 		return true;
 	}
 
@@ -319,45 +350,112 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 		} else {
 			pictureVO.setUserName("未知用户");
 		}
-		// TODO 查询分类信息、标签信息
+		// 查询分类信息、标签信息
+		List<Picture> pictureList = Collections.singletonList(picture);
+		Map<Long, String> categoryNameMap = this.getCategoryNameMap(pictureList);
+		Map<Long, String> tagNameMap = this.getTagNameMap(pictureList);
+		pictureVO.setCategoryName(categoryNameMap.get(picture.getCategory()));
+		pictureVO.setTagNameList(this.toTagNameList(picture, tagNameMap));
 		return pictureVO;
 	}
 
 	/**
 	 * 获取首页图片分页列表（简单字段）
+	 * <p>
+	 * 传入游标时按 (排序字段, id) 定位下一页, 不使用偏移量, 也不统计总条数; 否则按页码分页;
+	 * 排序字段支持游标时两种方式都返回下一页的游标, 前端可以从任意一页切换到游标分页
 	 *
 	 * @param pictureQueryRequest 图片查询请求
 	 * @return 图片分页列表
 	 */
 	@Override
 	public PageVO<PictureSimpleVO> getPicturePageListAsSimple(PictureQueryRequest pictureQueryRequest) {
-		Page<Picture> picturePage = pictureDomainService.getPicturePageListAsSimple(
-				pictureQueryRequest.getPage(Picture.class), this.getLambdaQueryWrapper(pictureQueryRequest)
-		);
-		List<PictureSimpleVO> simpleVOS = picturePage.getRecords().stream()
-				.map(PictureAssembler::toPictureSimpleVO)
-				.collect(Collectors.toList());
-		// 查询图片的用户信息
-		Set<Long> userIds = simpleVOS.stream().map(PictureSimpleVO::getUserId).collect(Collectors.toSet());
-		Map<Long, List<User>> userListMap = userApplicationService.getUserListByIds(userIds)
-				.stream()
-				.collect(Collectors.groupingBy(User::getId));
-		simpleVOS.forEach(picture -> {
-			Long userId = picture.getUserId();
-			if (userListMap.containsKey(userId)) {
-				picture.setUserName(userListMap.get(userId).get(0).getUserName());
-				picture.setUserAvatar(userListMap.get(userId).get(0).getUserAvatar());
+		// 缓存 key 包含游标, 图片变更后由 PictureChangeEvent 失效
+		return pictureListCache.get(pictureQueryRequest, PictureListCache.Level.MULTI, new TypeReference<PageVO<PictureSimpleVO>>() {
+		}, () -> {
+			PageCursor pageCursor = PageCursorUtils.decode(pictureQueryRequest.getCursor(), CURSOR_SORT_FIELDS);
+			if (pageCursor != null) {
+				// 排序由游标决定, 不使用请求中的排序
+				PageRequest.Sort sort = new PageRequest.Sort();
+				sort.setField(pageCursor.getSortField());
+				sort.setAsc(pageCursor.isAsc());
+				pictureQueryRequest.setMultipleSort(false);
+				pictureQueryRequest.setSort(sort);
+			}
+			// 与查询条件中的排序规则一致: 没有指定排序时按创建时间降序
+			PageRequest.Sort sort = pictureQueryRequest.isMultipleSort() ? null : pictureQueryRequest.getSort();
+			String sortField = sort != null ? sort.getField() : (pictureQueryRequest.isMultipleSort() ? null : "createTime");
+			boolean asc = sort != null && sort.isAsc();
+			boolean cursorSupported = CURSOR_SORT_FIELDS.contains(sortField);
+			LambdaQueryWrapper<Picture> lambdaQueryWrapper = this.getLambdaQueryWrapper(pictureQueryRequest);
+			// 排序字段的值相同时再按 id 排序, 顺序稳定才能用游标定位
+			lambdaQueryWrapper.orderBy(cursorSupported && !"id".equals(sortField), asc, Picture::getId);
+
+			int pageSize = pictureQueryRequest.getPageSize();
+			List<Picture> pictureList;
+			boolean hasMore;
+			PageVO<PictureSimpleVO> pageVO = new PageVO<>();
+			if (pageCursor != null) {
+				// 多查一条判断是否还有下一页
+				pictureList = pictureDomainService.getPictureListAsSimpleByCursor(lambdaQueryWrapper, pageCursor, pageSize + 1);
+				hasMore = pictureList.size() > pageSize;
+				if (hasMore) {
+					pictureList = pictureList.subList(0, pageSize);
+				}
+				pageVO.setPageSize(pageSize);
+			} else {
+				Page<Picture> picturePage = pictureDomainService.getPicturePageListAsSimple(
+						pictureQueryRequest.getPage(Picture.class), lambdaQueryWrapper
+				);
+				pictureList = picturePage.getRecords();
+				hasMore = picturePage.getCurrent() < picturePage.getPages();
+				pageVO.setCurrent(picturePage.getCurrent());
+				pageVO.setPageSize(picturePage.getSize());
+				pageVO.setTotal(picturePage.getTotal());
+				pageVO.setPages(picturePage.getPages());
+			}
+			if (hasMore && cursorSupported && !pictureList.isEmpty()) {
+				pageVO.setNextCursor(PageCursorUtils.encode(toPageCursor(pictureList.get(pictureList.size() - 1), sortField, asc)));
 			}
-			// TODO 分类和标签的处理
+			// 查询图片的用户信息
+			Set<Long> userIds = pictureList.stream().map(Picture::getUserId).collect(Collectors.toSet());
+			Map<Long, List<User>> userListMap = userApplicationService.getUserListByIds(userIds)
+					.stream()
+					.collect(Collectors.groupingBy(User::getId));
+			// 查询图片的分类和标签信息（整页各只查询一次）
+			Map<Long, String> categoryNameMap = this.getCategoryNameMap(pictureList);
+			Map<Long, String> tagNameMap = this.getTagNameMap(pictureList);
+			List<PictureSimpleVO> simpleVOS = pictureList.stream().map(picture -> {
+				PictureSimpleVO simpleVO = PictureAssembler.toPictureSimpleVO(picture);
+				Long userId = picture.getUserId();
+				if (userListMap.containsKey(userId)) {
+					simpleVO.setUserName(userListMap.get(userId).get(0).getUserName());
+					simpleVO.setUserAvatar(userListMap.get(userId).get(0).getUserAvatar());
+				}
+				simpleVO.setCategoryName(categoryNameMap.get(picture.getCategory()));
+				simpleVO.setTagNameList(this.toTagNameList(picture, tagNameMap));
+				return simpleVO;
+			}).collect(Collectors.toList());
+
+			pageVO.setRecords(simpleVOS);
+			return pageVO;
 		});
+	}
 
-		// TODO 是否需要加入到缓存?
-		return new PageVO<>(picturePage.getCurrent()
-				, picturePage.getSize()
-				, picturePage.getTotal()
-				, picturePage.getPages()
-				, simpleVOS
-		);
+	/**
+	 * 根据一页的最后一条图片生成下一页的游标
+	 */
+	private static PageCursor toPageCursor(Picture picture, String sortField, boolean asc) {
+		PageCursor pageCursor = new PageCursor();
+		pageCursor.setSortField(sortField);
+		pageCursor.setAsc(asc);
+		pageCursor.setId(picture.getId());
+		if ("createTime".equals(sortField)) {
+			pageCursor.setValue(picture.getCreateTime().getTime());
+		} else if ("editTime".equals(sortField)) {
+			pageCursor.setValue(picture.getEditTime().getTime());
+		}
+		return pageCursor;
 	}
 
 	/**
@@ -374,6 +472,16 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 		return PageVO.from(picturePage);
 	}
 
+	/**
+	 * 获取首页图片列表缓存统计信息
+	 *
+	 * @return 缓存统计信息
+	 */
+	@Override
+	public CacheStats getPictureListCacheStats() {
+		return pictureListCache.getStats();
+	}
+
 	// /**
 	//  * 根据颜色搜索图片
 	//  *
@@ -421,6 +529,56 @@ public class PictureApplicationServiceImpl implements PictureApplicationService
 
 	// region 其他方法
 
+	/**
+	 * 批量获取图片的分类名称
+	 *
+	 * @param pictureList 图片列表
+	 * @return 分类 ID => 分类名称
+	 */
+	private Map<Long, String> getCategoryNameMap(List<Picture> pictureList) {
+		Set<Long> categoryIds = pictureList.stream()
+				.map(Picture::getCategory)
+				.filter(ObjectUtil::isNotNull)
+				.collect(Collectors.toSet());
+		if (categoryIds.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		return categoryApplicationService.getCategoryListByIds(categoryIds).stream()
+				.collect(Collectors.toMap(Category::getId, Category::getName, (a, b) -> a));
+	}
+
+	/**
+	 * 批量获取图片的标签名称
+	 *
+	 * @param pictureList 图片列表
+	 * @return 标签 ID => 标签名称
+	 */
+	private Map<Long, String> getTagNameMap(List<Picture> pictureList) {
+		Set<Long> tagIds = pictureList.stream()
+				.flatMap(picture -> picture.parseTagIds().stream())
+				.collect(Collectors.toSet());
+		if (tagIds.isEmpty()) {
+			return Collections.emptyMap();
+		}
+		return tagApplicationService.getTagListByIds(tagIds).stream()
+				.collect(Collectors.toMap(Tag::getId, Tag::getName, (a, b) -> a));
+	}
+
+	/**
+	 * 按图片的标签顺序转换为标签名称列表
+	 *
+	 * @param picture    图片
+	 * @param tagNameMap 标签 ID => 标签名称
+	 * @return 标签名称列表
+	 */
+	private List<String> toTagNameList(Picture picture, Map<Long, String> tagNameMap) {
+		return picture.parseTagIds().stream()
+				.map(tagNameMap::get)
+				.filter(ObjectUtil::isNotNull)
+				.collect(Collectors.toList());
+	}
+
+
 	/**
 	 * 获取查询条件对象（Lambda）
 	 *
@@ -20,6 +20,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -107,6 +108,17 @@ public class TagApplicationServiceImpl implements TagApplicationService {
 		return PageVO.from(picturePage);
 	}
 
+	/**
+	 * 根据标签 ID 集合获取标签列表
+	 *
+	 * @param tagIds 标签 ID 集合
+	 * @return 标签列表
+	 */
+	@Override
+	public List<Tag> getTagListByIds(Set<Long> tagIds) {
+		return tagDomainService.getTagListByIds(tagIds);
+	}
+
 	// endregion 查询相关
 
 	// region 其他方法
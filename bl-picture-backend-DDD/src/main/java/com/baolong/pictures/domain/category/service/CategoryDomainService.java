@@ -6,6 +6,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * 分类领域服务接口
@@ -62,6 +63,14 @@ public interface CategoryDomainService {
 	 */
 	Page<Category> getPicturePageListAsAdmin(Page<Category> page, LambdaQueryWrapper<Category> lambdaQueryWrapper);
 
+	/**
+	 * 根据分类 ID 集合获取分类列表
+	 *
+	 * @param categoryIds 分类 ID 集合
+	 * @return 分类列表
+	 */
+	List<Category> getCategoryListByIds(Set<Long> categoryIds);
+
 	// endregion 查询相关
 
 	// region 其他方法
@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 分类领域服务实现
@@ -90,6 +91,17 @@ public class CategoryDomainServiceImpl implements CategoryDomainService {
 		return categoryRepository.page(page, lambdaQueryWrapper);
 	}
 
+	/**
+	 * 根据分类 ID 集合获取分类列表
+	 *
+	 * @param categoryIds 分类 ID 集合
+	 * @return 分类列表
+	 */
+	@Override
+	public List<Category> getCategoryListByIds(Set<Long> categoryIds) {
+		return categoryRepository.listByIds(categoryIds);
+	}
+
 	// endregion 查询相关
 
 	// region 其他方法
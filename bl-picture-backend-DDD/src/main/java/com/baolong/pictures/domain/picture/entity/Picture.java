@@ -1,5 +1,6 @@
 package com.baolong.pictures.domain.picture.entity;
 
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baolong.pictures.infrastructure.exception.ErrorCode;
@@ -11,7 +12,10 @@ import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * 图片表
@@ -199,5 +203,20 @@ public class Picture implements Serializable {
 		}
 	}
 
+	/**
+	 * 解析标签 ID 列表
+	 *
+	 * @return 标签 ID 列表
+	 */
+	public List<Long> parseTagIds() {
+		if (StrUtil.isBlank(this.getTags())) {
+			return new ArrayList<>();
+		}
+		return StrUtil.split(this.getTags(), ",", true, true).stream()
+				.filter(NumberUtil::isLong)
+				.map(Long::valueOf)
+				.collect(Collectors.toList());
+	}
+
 	// endregion 行为
 }
@@ -0,0 +1,46 @@
+package com.baolong.pictures.domain.picture.event;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 图片变更事件
+ * <p>
+ * 图片上传、编辑、删除、审核后发布, 用于失效图片列表缓存
+ */
+@Getter
+public class PictureChangeEvent {
+
+	/**
+	 * 变更的图片 ID
+	 */
+	private final List<Long> pictureIds;
+
+	private PictureChangeEvent(List<Long> pictureIds) {
+		this.pictureIds = pictureIds;
+	}
+
+	/**
+	 * 构建图片变更事件
+	 *
+	 * @param pictureId 图片 ID
+	 * @return 图片变更事件
+	 */
+	public static PictureChangeEvent of(Long pictureId) {
+		return new PictureChangeEvent(Collections.singletonList(pictureId));
+	}
+
+	/**
+	 * 构建图片变更事件
+	 *
+	 * @param pictureIds 图片 ID 列表
+	 * @return 图片变更事件
+	 */
+	public static PictureChangeEvent of(Collection<Long> pictureIds) {
+		return new PictureChangeEvent(pictureIds.stream().distinct().collect(Collectors.toList()));
+	}
+}
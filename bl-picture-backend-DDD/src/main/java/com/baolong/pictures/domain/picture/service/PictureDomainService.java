@@ -2,6 +2,7 @@ package com.baolong.pictures.domain.picture.service;
 
 import com.baolong.pictures.domain.picture.entity.Picture;
 import com.baolong.pictures.domain.user.entity.User;
+import com.baolong.pictures.infrastructure.common.page.PageCursor;
 import com.baolong.pictures.interfaces.dto.picture.PictureQueryRequest;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -93,6 +94,16 @@ public interface PictureDomainService {
 	 */
 	Page<Picture> getPicturePageListAsSimple(Page<Picture> page, LambdaQueryWrapper<Picture> lambdaQueryWrapper);
 
+	/**
+	 * 获取图片列表（游标分页, 简单固定字段）
+	 *
+	 * @param lambdaQueryWrapper 查询条件（已按游标的排序字段和 id 排序）
+	 * @param pageCursor         游标
+	 * @param limit              最多返回条数
+	 * @return 图片列表
+	 */
+	List<Picture> getPictureListAsSimpleByCursor(LambdaQueryWrapper<Picture> lambdaQueryWrapper, PageCursor pageCursor, int limit);
+
 	/**
 	 * 获取图片分页列表（管理员, 条件查询）
 	 *
@@ -9,11 +9,12 @@ import com.baolong.pictures.domain.picture.entity.Picture;
 import com.baolong.pictures.domain.picture.enums.PictureReviewStatusEnum;
 import com.baolong.pictures.domain.picture.service.PictureDomainService;
 import com.baolong.pictures.domain.user.entity.User;
-import com.baolong.pictures.infrastructure.api.CosManager;
 import com.baolong.pictures.infrastructure.api.aliyunai.AliYunAiApi;
+import com.baolong.pictures.infrastructure.common.page.PageCursor;
 import com.baolong.pictures.infrastructure.common.page.PageRequest;
 import com.baolong.pictures.infrastructure.exception.BusinessException;
 import com.baolong.pictures.infrastructure.exception.ErrorCode;
+import com.baolong.pictures.infrastructure.manager.storage.ObjectStore;
 import com.baolong.pictures.infrastructure.manager.upload.UploadPicture;
 import com.baolong.pictures.infrastructure.manager.upload.picture.UploadPictureFile;
 import com.baolong.pictures.infrastructure.manager.upload.picture.UploadPictureUrl;
@@ -29,9 +30,13 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * 图片领域服务实现类
@@ -48,7 +53,7 @@ public class PictureDomainServiceImpl implements PictureDomainService {
 	private UploadPictureUrl uploadPictureUrl;
 
 	@Resource
-	private CosManager cosManager;
+	private ObjectStore objectStore;
 	@Resource
 	private AliYunAiApi aliYunAiApi;
 
@@ -161,6 +166,8 @@ public class PictureDomainServiceImpl implements PictureDomainService {
 
 	/**
 	 * 获取图片分页列表（条件查询, 简单固定字段）
+	 * <p>
+	 * 先只查询这一页的图片 id（条件和排序列都在索引中时不需要回表）, 再按主键查询列表需要的列
 	 *
 	 * @param page               分页对象
 	 * @param lambdaQueryWrapper 查询条件
@@ -168,10 +175,60 @@ public class PictureDomainServiceImpl implements PictureDomainService {
 	 */
 	@Override
 	public Page<Picture> getPicturePageListAsSimple(Page<Picture> page, LambdaQueryWrapper<Picture> lambdaQueryWrapper) {
-		lambdaQueryWrapper.select(
-				Picture::getId, Picture::getPicUrl, Picture::getThumbnailUrl, Picture::getCategory, Picture::getUserId
-		);
-		return pictureRepository.page(page, lambdaQueryWrapper);
+		lambdaQueryWrapper.select(Picture::getId);
+		Page<Picture> picturePage = pictureRepository.page(page, lambdaQueryWrapper);
+		picturePage.setRecords(this.listSimpleByIds(picturePage.getRecords()));
+		return picturePage;
+	}
+
+	/**
+	 * 获取图片列表（游标分页, 简单固定字段）
+	 * <p>
+	 * 按 (排序字段, id) 定位到上一页最后一条之后, 不使用偏移量, 翻到多深都只扫描一页的数据
+	 *
+	 * @param lambdaQueryWrapper 查询条件（已按游标的排序字段和 id 排序）
+	 * @param pageCursor         游标
+	 * @param limit              最多返回条数
+	 * @return 图片列表
+	 */
+	@Override
+	public List<Picture> getPictureListAsSimpleByCursor(LambdaQueryWrapper<Picture> lambdaQueryWrapper, PageCursor pageCursor, int limit) {
+		lambdaQueryWrapper.select(Picture::getId);
+		String sortField = pageCursor.getSortField();
+		boolean asc = pageCursor.isAsc();
+		if ("id".equals(sortField)) {
+			lambdaQueryWrapper.gt(asc, Picture::getId, pageCursor.getId());
+			lambdaQueryWrapper.lt(!asc, Picture::getId, pageCursor.getId());
+		} else {
+			// 排序字段已校验过白名单; 行比较可以直接使用 (排序字段, id) 的索引顺序定位
+			lambdaQueryWrapper.apply("(" + StrUtil.toUnderlineCase(sortField) + ", id) " + (asc ? ">" : "<") + " ({0}, {1})",
+					new Date(pageCursor.getValue()), pageCursor.getId());
+		}
+		lambdaQueryWrapper.last("limit " + limit);
+		return this.listSimpleByIds(pictureRepository.list(lambdaQueryWrapper));
+	}
+
+	/**
+	 * 按主键查询列表展示需要的字段（以及生成游标需要的排序字段）, 保持传入的顺序
+	 *
+	 * @param pictureIdList 只包含 id 的图片列表
+	 * @return 图片列表
+	 */
+	private List<Picture> listSimpleByIds(List<Picture> pictureIdList) {
+		List<Long> ids = pictureIdList.stream().map(Picture::getId).collect(Collectors.toList());
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Map<Long, Picture> pictureMap = pictureRepository.list(new LambdaQueryWrapper<Picture>()
+						.select(Picture::getId, Picture::getPicUrl, Picture::getThumbnailUrl, Picture::getCategory,
+								Picture::getTags, Picture::getUserId, Picture::getCreateTime, Picture::getEditTime)
+						.in(Picture::getId, ids))
+				.stream()
+				.collect(Collectors.toMap(Picture::getId, picture -> picture));
+		return ids.stream()
+				.map(pictureMap::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
 	}
 
 	/**
@@ -340,15 +397,15 @@ public class PictureDomainServiceImpl implements PictureDomainService {
 		String thumbnailPath = picture.getThumbnailPath();
 		if (StrUtil.isNotEmpty(originPath)) {
 			log.info("删除图片: {}", originPath);
-			cosManager.deleteObject(originPath);
+			objectStore.deleteObject(originPath);
 		}
 		if (StrUtil.isNotEmpty(compressPath)) {
 			log.info("删除图片: {}", compressPath);
-			cosManager.deleteObject(compressPath);
+			objectStore.deleteObject(compressPath);
 		}
 		if (StrUtil.isNotEmpty(thumbnailPath)) {
 			log.info("删除图片: {}", thumbnailPath);
-			cosManager.deleteObject(thumbnailPath);
+			objectStore.deleteObject(thumbnailPath);
 		}
 	}
 
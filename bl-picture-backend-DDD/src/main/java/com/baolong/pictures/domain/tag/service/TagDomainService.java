@@ -6,6 +6,7 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * 标签领域服务接口
@@ -72,6 +73,14 @@ public interface TagDomainService {
 	 */
 	Page<Tag> getPicturePageListAsAdmin(Page<Tag> page, LambdaQueryWrapper<Tag> lambdaQueryWrapper);
 
+	/**
+	 * 根据标签 ID 集合获取标签列表
+	 *
+	 * @param tagIds 标签 ID 集合
+	 * @return 标签列表
+	 */
+	List<Tag> getTagListByIds(Set<Long> tagIds);
+
 	// endregion 查询相关
 
 	// region 其他方法
@@ -15,6 +15,7 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 标签领域服务实现
@@ -102,6 +103,17 @@ public class TagDomainServiceImpl implements TagDomainService {
 		return tagRepository.page(page, lambdaQueryWrapper);
 	}
 
+	/**
+	 * 根据标签 ID 集合获取标签列表
+	 *
+	 * @param tagIds 标签 ID 集合
+	 * @return 标签列表
+	 */
+	@Override
+	public List<Tag> getTagListByIds(Set<Long> tagIds) {
+		return tagRepository.listByIds(tagIds);
+	}
+
 	// endregion 查询相关
 
 	// region 其他方法
@@ -9,23 +9,22 @@ import com.qcloud.cos.COSClient;
 import com.qcloud.cos.model.COSObject;
 import com.qcloud.cos.model.COSObjectInputStream;
 import com.qcloud.cos.model.GetObjectRequest;
-import com.qcloud.cos.model.PutObjectRequest;
-import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.ciModel.common.ImageProcessRequest;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
 import com.qcloud.cos.model.ciModel.persistence.PicOperations;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * 腾讯云对象存储服务
+ * 腾讯云数据万象服务（图片处理）
  * <p>
- * 叫做 XXXManager 主要是做区分, 表示这个类是可以单独抽取出去的
+ * 叫做 XXXManager 主要是做区分, 表示这个类是可以单独抽取出去的; 对象的读写删除见 ObjectStore
  */
 @Slf4j
 @Component
@@ -38,45 +37,15 @@ public class CosManager {
 	private COSClient cosClient;
 
 	/**
-	 * 上传对象
-	 *
-	 * @param key  唯一键
-	 * @param file 文件
-	 */
-	public PutObjectResult putObject(String key, File file) {
-		PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key, file);
-		return cosClient.putObject(putObjectRequest);
-	}
-
-	/**
-	 * 下载对象
-	 *
-	 * @param key 唯一键
-	 */
-	public COSObject getObject(String key) {
-		GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
-		return cosClient.getObject(getObjectRequest);
-	}
-
-	/**
-	 * 删除对象
-	 *
-	 * @param key 文件 key
-	 */
-	public void deleteObject(String key) {
-		cosClient.deleteObject(cosClientConfig.getBucket(), key);
-	}
-
-	/**
-	 * 上传对象（附带图片信息）
+	 * 处理已上传的图片（格式转换、生成缩略图）
 	 * <p>
-	 * <a href="https://cloud.tencent.com/document/product/436/115609">腾讯 COS 数据万象</a>
+	 * <a href="https://cloud.tencent.com/document/product/436/55377">腾讯 COS 云上数据处理</a>
 	 *
-	 * @param key  唯一键
-	 * @param file 文件
+	 * @param key           原图 key
+	 * @param contentLength 原图大小
 	 */
-	public PutObjectResult putPictureObject(String key, File file) {
-		PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key, file);
+	public CIUploadResult processPictureObject(String key, long contentLength) {
+		ImageProcessRequest imageProcessRequest = new ImageProcessRequest(cosClientConfig.getBucket(), key);
 		// 对图片进行处理（获取基本信息也被视作为一种处理）
 		PicOperations picOperations = new PicOperations();
 		// 1 表示返回原图信息
@@ -87,14 +56,14 @@ public class CosManager {
 		// 处理图片格式为 webp 格式
 		rules.add(ciFormatConversion(key, "webp"));
 		// 针对大于 20KB 的图片, 需要生成缩略图
-		if (file.length() > 2 * 1024) {
+		if (contentLength > 2 * 1024) {
 			rules.add(ciThumbnailConversion(key));
 		}
 
 		// 构造处理参数
-		putObjectRequest.setPicOperations(picOperations);
 		picOperations.setRules(rules);
-		return cosClient.putObject(putObjectRequest);
+		imageProcessRequest.setPicOperations(picOperations);
+		return cosClient.processImage(imageProcessRequest);
 	}
 
 	/**
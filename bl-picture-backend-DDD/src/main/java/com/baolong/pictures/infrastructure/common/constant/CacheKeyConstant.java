@@ -17,4 +17,19 @@ public interface CacheKeyConstant {
 	 * 图形验证码缓存 KEY 前缀
 	 */
 	String CAPTCHA_CODE_KEY = "CAPTCHA_CODE_KEY:%s";
+
+	/**
+	 * 图片列表缓存 KEY 前缀（版本号、查询条件摘要）
+	 */
+	String PICTURE_LIST_KEY = "PICTURE_LIST_KEY:%s:%s";
+
+	/**
+	 * 图片列表缓存版本号 KEY, 图片变更后递增
+	 */
+	String PICTURE_LIST_VERSION_KEY = "PICTURE_LIST_VERSION_KEY";
+
+	/**
+	 * 图片列表缓存失效通知频道
+	 */
+	String PICTURE_LIST_EVICT_CHANNEL = "PICTURE_LIST_EVICT_CHANNEL";
 }
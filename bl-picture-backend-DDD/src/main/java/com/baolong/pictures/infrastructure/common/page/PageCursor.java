@@ -0,0 +1,34 @@
+package com.baolong.pictures.infrastructure.common.page;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分页游标, 记录上一页最后一条数据的排序字段值和 id, 编码后返回给前端
+ */
+@Data
+public class PageCursor implements Serializable {
+
+	/**
+	 * 排序字段
+	 */
+	private String sortField;
+
+	/**
+	 * 是否升序
+	 */
+	private boolean asc;
+
+	/**
+	 * 排序字段的值（时间为毫秒时间戳, 按 id 排序时为空）
+	 */
+	private Long value;
+
+	/**
+	 * id
+	 */
+	private Long id;
+
+	private static final long serialVersionUID = 1L;
+}
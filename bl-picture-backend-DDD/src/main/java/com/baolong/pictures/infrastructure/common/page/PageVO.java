@@ -44,6 +44,11 @@ public class PageVO<T> implements Serializable {
 	 */
 	private List<T> records = Collections.emptyList();
 
+	/**
+	 * 下一页的游标（支持游标分页的列表返回, 没有下一页时为空）
+	 */
+	private String nextCursor;
+
 	public PageVO() {
 	}
 
@@ -0,0 +1,59 @@
+package com.baolong.pictures.infrastructure.manager.cache;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 缓存统计信息
+ */
+@Data
+public class CacheStats implements Serializable {
+
+	/**
+	 * 本地缓存命中次数
+	 */
+	private long localHitCount;
+
+	/**
+	 * Redis 缓存命中次数
+	 */
+	private long remoteHitCount;
+
+	/**
+	 * 未命中次数（需要查询数据库）
+	 */
+	private long missCount;
+
+	/**
+	 * 命中率
+	 */
+	private double hitRate;
+
+	/**
+	 * 加载（查询数据库）次数
+	 */
+	private long loadCount;
+
+	/**
+	 * 加载失败次数
+	 */
+	private long loadErrorCount;
+
+	/**
+	 * 平均加载耗时（毫秒）
+	 */
+	private double averageLoadMillis;
+
+	/**
+	 * 本地缓存条数
+	 */
+	private long localSize;
+
+	/**
+	 * 失效次数（本节点清除本地缓存的次数）
+	 */
+	private long invalidationCount;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,323 @@
+package com.baolong.pictures.infrastructure.manager.cache;
+
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baolong.pictures.domain.picture.event.PictureChangeEvent;
+import com.baolong.pictures.infrastructure.common.constant.CacheKeyConstant;
+import com.baolong.pictures.infrastructure.manager.redis.RedisCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 图片列表多级缓存
+ * <p>
+ * 一级缓存为本地 Caffeine（直接存放对象, 命中时无需反序列化）, 二级缓存为 Redis（JSON, 按类型反序列化）;
+ * 同一个 key 在本节点同时只会有一个请求去查询 Redis 和数据库, 其他请求等待该结果
+ * <p>
+ * 缓存失效: 图片变更后递增版本号, Redis 缓存 key 中带有版本号, 版本号变化后自然失效;
+ * 本地缓存则通过 Redis 发布订阅通知各节点清除
+ */
+@Slf4j
+@Component
+public class PictureListCache implements MessageListener {
+
+	/**
+	 * 节点 ID, 用于忽略自己发出的失效通知
+	 */
+	private static final String NODE_ID = IdUtil.fastSimpleUUID();
+
+	/**
+	 * Redis 缓存基础过期时间（秒）, 实际过期时间再加上随机值, 防止雪崩
+	 */
+	private static final int REMOTE_EXPIRE_SECONDS = 300;
+
+	@Resource
+	private RedisCache redisCache;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 本地缓存
+	 */
+	private final Cache<String, Object> localCache = Caffeine.newBuilder()
+			.initialCapacity(1024)
+			// 最多一万条数据
+			.maximumSize(10000L)
+			// 缓存 5 分钟移除
+			.expireAfterWrite(5L, TimeUnit.MINUTES)
+			.build();
+
+	/**
+	 * 正在加载中的 key
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<Object>> loadingMap = new ConcurrentHashMap<>();
+
+	/**
+	 * 本地缓存失效次数, 用于丢弃失效前开始加载的旧数据
+	 */
+	private final AtomicLong invalidationEpoch = new AtomicLong();
+
+	// region 统计
+
+	private final LongAdder localHitCount = new LongAdder();
+	private final LongAdder remoteHitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder loadCount = new LongAdder();
+	private final LongAdder loadErrorCount = new LongAdder();
+	private final LongAdder loadTimeNanos = new LongAdder();
+	private final LongAdder invalidationCount = new LongAdder();
+
+	// endregion 统计
+
+	/**
+	 * 缓存级别
+	 */
+	public enum Level {
+		/**
+		 * 仅本地缓存
+		 */
+		LOCAL,
+		/**
+		 * 仅 Redis 缓存
+		 */
+		REMOTE,
+		/**
+		 * 本地缓存 + Redis 缓存
+		 */
+		MULTI;
+
+		private boolean useLocal() {
+			return this != REMOTE;
+		}
+
+		private boolean useRemote() {
+			return this != LOCAL;
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CacheKeyConstant.PICTURE_LIST_EVICT_CHANNEL));
+	}
+
+	/**
+	 * 获取缓存, 不存在时通过 loader 加载并写入缓存
+	 *
+	 * @param query         查询条件（序列化后计算缓存 key）
+	 * @param level         缓存级别
+	 * @param typeReference 缓存值类型
+	 * @param loader        缓存不存在时的加载方法
+	 * @return 缓存值（本地缓存中的对象为共享对象, 不要修改）
+	 */
+	public <T> T get(Object query, Level level, TypeReference<T> typeReference, Supplier<T> loader) {
+		String hashKey = this.buildHashKey(query);
+		// 1. 从本地缓存中查询
+		if (level.useLocal()) {
+			Object cachedValue = localCache.getIfPresent(hashKey);
+			if (cachedValue != null) {
+				localHitCount.increment();
+				return this.cast(cachedValue);
+			}
+		}
+		// 2. 同一个 key 只有一个请求去查询 Redis 和数据库
+		long epoch = invalidationEpoch.get();
+		return this.cast(this.singleFlight(level + ":" + hashKey + ":" + epoch,
+				() -> this.loadValue(hashKey, epoch, level, typeReference, loader)));
+	}
+
+	/**
+	 * 图片变更后失效列表缓存（事务提交后执行）
+	 *
+	 * @param event 图片变更事件
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPictureChange(PictureChangeEvent event) {
+		// 先清除本节点, 保证自己的修改立即可见
+		this.evictLocal();
+		try {
+			// 递增版本号, 使 Redis 中的旧缓存失效
+			stringRedisTemplate.opsForValue().increment(CacheKeyConstant.PICTURE_LIST_VERSION_KEY);
+			// 通知其他节点清除本地缓存
+			stringRedisTemplate.convertAndSend(CacheKeyConstant.PICTURE_LIST_EVICT_CHANNEL,
+					NODE_ID + ":" + JSONUtil.toJsonStr(event.getPictureIds()));
+		} catch (Exception e) {
+			log.error("图片列表缓存失效失败, pictureIds = {}", event.getPictureIds(), e);
+		}
+	}
+
+	/**
+	 * 收到其他节点的失效通知
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		if (NODE_ID.equals(StrUtil.subBefore(body, ":", false))) {
+			return;
+		}
+		this.evictLocal();
+	}
+
+	/**
+	 * 获取缓存统计信息
+	 *
+	 * @return 缓存统计信息
+	 */
+	public CacheStats getStats() {
+		CacheStats cacheStats = new CacheStats();
+		long localHit = localHitCount.sum();
+		long remoteHit = remoteHitCount.sum();
+		long miss = missCount.sum();
+		long load = loadCount.sum();
+		long total = localHit + remoteHit + miss;
+		cacheStats.setLocalHitCount(localHit);
+		cacheStats.setRemoteHitCount(remoteHit);
+		cacheStats.setMissCount(miss);
+		cacheStats.setHitRate(total == 0 ? 0 : (double) (localHit + remoteHit) / total);
+		cacheStats.setLoadCount(load);
+		cacheStats.setLoadErrorCount(loadErrorCount.sum());
+		cacheStats.setAverageLoadMillis(load == 0 ? 0 : loadTimeNanos.sum() / 1_000_000.0 / load);
+		cacheStats.setLocalSize(localCache.estimatedSize());
+		cacheStats.setInvalidationCount(invalidationCount.sum());
+		return cacheStats;
+	}
+
+	/**
+	 * 从 Redis 或数据库中加载缓存值
+	 */
+	private <T> Object loadValue(String hashKey, long epoch, Level level, TypeReference<T> typeReference, Supplier<T> loader) {
+		// 在查询数据库之前确定 Redis key, 加载期间版本号变化时旧数据写入旧版本的 key, 不会被读到
+		String remoteKey = level.useRemote() ? this.buildRemoteKey(hashKey) : null;
+		// 1. 从 Redis 缓存中查询
+		if (remoteKey != null) {
+			String cachedValue = redisCache.get(remoteKey);
+			if (cachedValue != null) {
+				remoteHitCount.increment();
+				T value = JSONUtil.toBean(cachedValue, typeReference, false);
+				if (level.useLocal()) {
+					this.putLocal(hashKey, value, epoch);
+				}
+				return value;
+			}
+		}
+		// 2. 查询数据库
+		missCount.increment();
+		long start = System.nanoTime();
+		T value;
+		try {
+			value = loader.get();
+		} catch (RuntimeException e) {
+			loadErrorCount.increment();
+			throw e;
+		} finally {
+			loadCount.increment();
+			loadTimeNanos.add(System.nanoTime() - start);
+		}
+		if (value == null) {
+			return null;
+		}
+		// 3. 更新缓存
+		if (level.useLocal()) {
+			this.putLocal(hashKey, value, epoch);
+		}
+		if (remoteKey != null) {
+			int expireSeconds = REMOTE_EXPIRE_SECONDS + RandomUtil.randomInt(0, REMOTE_EXPIRE_SECONDS);
+			redisCache.set(remoteKey, JSONUtil.toJsonStr(value), expireSeconds, TimeUnit.SECONDS);
+		}
+		return value;
+	}
+
+	/**
+	 * 查询条件摘要, 作为本地缓存 key
+	 */
+	private String buildHashKey(Object query) {
+		String queryCondition = JSONUtil.toJsonStr(query);
+		return DigestUtils.md5DigestAsHex(queryCondition.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Redis 缓存 key, 带有当前版本号
+	 */
+	private String buildRemoteKey(String hashKey) {
+		String version = stringRedisTemplate.opsForValue().get(CacheKeyConstant.PICTURE_LIST_VERSION_KEY);
+		return String.format(CacheKeyConstant.PICTURE_LIST_KEY, StrUtil.blankToDefault(version, "0"), hashKey);
+	}
+
+	/**
+	 * 写入本地缓存, 加载期间发生过失效则丢弃
+	 */
+	private void putLocal(String hashKey, Object value, long epoch) {
+		localCache.put(hashKey, value);
+		if (invalidationEpoch.get() != epoch) {
+			localCache.invalidate(hashKey);
+		}
+	}
+
+	/**
+	 * 清除本节点的本地缓存
+	 */
+	private void evictLocal() {
+		invalidationEpoch.incrementAndGet();
+		invalidationCount.increment();
+		localCache.invalidateAll();
+	}
+
+	/**
+	 * 同一个 key 同时只执行一次加载, 其他线程等待并共享结果
+	 */
+	private Object singleFlight(String cacheKey, Supplier<Object> supplier) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> loadingFuture = loadingMap.putIfAbsent(cacheKey, future);
+		if (loadingFuture != null) {
+			try {
+				return loadingFuture.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+		try {
+			Object value = supplier.get();
+			future.complete(value);
+			return value;
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loadingMap.remove(cacheKey, future);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T cast(Object value) {
+		return (T) value;
+	}
+}
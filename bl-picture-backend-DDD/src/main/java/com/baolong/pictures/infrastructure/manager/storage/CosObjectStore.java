@@ -0,0 +1,156 @@
+package com.baolong.pictures.infrastructure.manager.storage;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.pictures.infrastructure.config.CosClientConfig;
+import com.baolong.pictures.infrastructure.exception.BusinessException;
+import com.baolong.pictures.infrastructure.exception.ErrorCode;
+import com.qcloud.cos.COSClient;
+import com.qcloud.cos.exception.CosServiceException;
+import com.qcloud.cos.exception.MultiObjectDeleteException;
+import com.qcloud.cos.http.HttpMethodName;
+import com.qcloud.cos.model.DeleteObjectsRequest;
+import com.qcloud.cos.model.GetObjectRequest;
+import com.qcloud.cos.model.ObjectMetadata;
+import com.qcloud.cos.model.PutObjectRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 腾讯云对象存储
+ */
+@Component
+@ConditionalOnProperty(prefix = "picture.storage", name = "type", havingValue = "cos", matchIfMissing = true)
+public class CosObjectStore implements ObjectStore {
+
+	/**
+	 * 单次批量删除的最大数量（COS 限制）
+	 */
+	private static final int DELETE_BATCH_SIZE = 1000;
+
+	@Resource
+	private CosClientConfig cosClientConfig;
+
+	@Resource
+	private COSClient cosClient;
+
+	@Override
+	public void putObject(String key, InputStream inputStream, long contentLength) {
+		ObjectMetadata objectMetadata = new ObjectMetadata();
+		objectMetadata.setContentLength(contentLength);
+		cosClient.putObject(new PutObjectRequest(cosClientConfig.getBucket(), ObjectStore.normalizeKey(key), inputStream, objectMetadata));
+	}
+
+	@Override
+	public InputStream getObject(String key) {
+		return getObject(new GetObjectRequest(cosClientConfig.getBucket(), ObjectStore.normalizeKey(key)));
+	}
+
+	@Override
+	public InputStream getObject(String key, long start, long end) {
+		GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), ObjectStore.normalizeKey(key));
+		getObjectRequest.setRange(start, end);
+		return getObject(getObjectRequest);
+	}
+
+	private InputStream getObject(GetObjectRequest getObjectRequest) {
+		try {
+			return cosClient.getObject(getObjectRequest).getObjectContent();
+		} catch (CosServiceException e) {
+			if (e.getStatusCode() == 404) {
+				throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+			}
+			throw e;
+		}
+	}
+
+	@Override
+	public ObjectStat statObject(String key) {
+		String normalizedKey = ObjectStore.normalizeKey(key);
+		ObjectMetadata objectMetadata;
+		try {
+			objectMetadata = cosClient.getObjectMetadata(cosClientConfig.getBucket(), normalizedKey);
+		} catch (CosServiceException e) {
+			if (e.getStatusCode() == 404) {
+				throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+			}
+			throw e;
+		}
+		ObjectStat objectStat = new ObjectStat();
+		objectStat.setKey(normalizedKey);
+		objectStat.setSize(objectMetadata.getContentLength());
+		objectStat.setEtag(StrUtil.strip(objectMetadata.getETag(), "\""));
+		objectStat.setLastModified(objectMetadata.getLastModified());
+		objectStat.setContentType(objectMetadata.getContentType());
+		return objectStat;
+	}
+
+	@Override
+	public void deleteObject(String key) {
+		cosClient.deleteObject(cosClientConfig.getBucket(), ObjectStore.normalizeKey(key));
+	}
+
+	@Override
+	public List<String> deleteObjects(Collection<String> keys) {
+		List<String> failedKeys = new ArrayList<>();
+		if (CollUtil.isEmpty(keys)) {
+			return failedKeys;
+		}
+		List<String> keyList = keys.stream().map(ObjectStore::normalizeKey).distinct().collect(Collectors.toList());
+		for (List<String> batch : CollUtil.split(keyList, DELETE_BATCH_SIZE)) {
+			DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(cosClientConfig.getBucket());
+			deleteObjectsRequest.setKeys(batch.stream().map(DeleteObjectsRequest.KeyVersion::new).collect(Collectors.toList()));
+			// 不需要返回删除成功的对象
+			deleteObjectsRequest.setQuiet(true);
+			try {
+				cosClient.deleteObjects(deleteObjectsRequest);
+			} catch (MultiObjectDeleteException e) {
+				// 部分对象删除失败
+				e.getErrors().forEach(error -> failedKeys.add(error.getKey()));
+			}
+		}
+		return failedKeys;
+	}
+
+	@Override
+	public String presignGetUrl(String key, long expireSeconds) {
+		return presign(key, expireSeconds, HttpMethodName.GET);
+	}
+
+	@Override
+	public String presignPutUrl(String key, long expireSeconds) {
+		return presign(key, expireSeconds, HttpMethodName.PUT);
+	}
+
+	private String presign(String key, long expireSeconds, HttpMethodName method) {
+		return cosClient.generatePresignedUrl(cosClientConfig.getBucket(), ObjectStore.normalizeKey(key),
+				DateUtil.offsetSecond(DateUtil.date(), (int) expireSeconds), method).toString();
+	}
+
+	@Override
+	public String getUrl(String key) {
+		return cosClientConfig.getHost() + "/" + ObjectStore.normalizeKey(key);
+	}
+
+	@Override
+	public String getKey(String url) {
+		if (StrUtil.isBlank(url)) {
+			return null;
+		}
+		if (StrUtil.startWith(url, cosClientConfig.getHost())) {
+			return ObjectStore.normalizeKey(StrUtil.removePrefix(url, cosClientConfig.getHost()));
+		}
+		// 兼容其他域名（如 COS 默认域名）的地址, 取域名后面的路径部分
+		String path = ReUtil.get("https?://[^/]+(/[^?#]*)", url, 1);
+		return path == null ? null : ObjectStore.normalizeKey(path);
+	}
+}
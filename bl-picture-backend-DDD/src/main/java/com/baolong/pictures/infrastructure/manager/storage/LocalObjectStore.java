@@ -0,0 +1,263 @@
+package com.baolong.pictures.infrastructure.manager.storage;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import com.baolong.pictures.infrastructure.exception.BusinessException;
+import com.baolong.pictures.infrastructure.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 本地文件系统存储
+ * <p>
+ * 对象保存在 picture.storage.local.root 目录下, 读取时使用内存映射, 不经过堆内存拷贝;
+ * 访问地址和预签名地址指向 LocalObjectController, 用于无网络环境下的压测和集成测试
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "picture.storage", name = "type", havingValue = "local")
+public class LocalObjectStore implements ObjectStore {
+
+	/**
+	 * 存储根目录
+	 */
+	@Value("${picture.storage.local.root:./storage}")
+	private String root;
+
+	/**
+	 * 访问地址前缀
+	 */
+	@Value("${picture.storage.local.url-prefix:http://localhost:8123/api/storage/local}")
+	private String urlPrefix;
+
+	/**
+	 * 预签名密钥, 为空时每次启动随机生成（重启后之前的预签名地址失效）
+	 */
+	@Value("${picture.storage.local.secret:}")
+	private String secret;
+
+	private Path rootPath;
+
+	@PostConstruct
+	public void init() throws IOException {
+		rootPath = Paths.get(root).toAbsolutePath().normalize();
+		Files.createDirectories(rootPath);
+		if (StrUtil.isBlank(secret)) {
+			secret = RandomUtil.randomString(32);
+		}
+		log.info("本地对象存储目录: {}", rootPath);
+	}
+
+	@Override
+	public void putObject(String key, InputStream inputStream, long contentLength) {
+		Path path = resolve(key);
+		try {
+			Files.createDirectories(path.getParent());
+			// 先写入临时文件再重命名, 避免读到写了一半的文件
+			Path tempPath = Files.createTempFile(path.getParent(), ".upload-", ".tmp");
+			try {
+				Files.copy(inputStream, tempPath, StandardCopyOption.REPLACE_EXISTING);
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempPath);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("本地存储写入失败, key = " + key, e);
+		}
+	}
+
+	@Override
+	public InputStream getObject(String key) {
+		return getObject(key, 0, Long.MAX_VALUE - 1);
+	}
+
+	@Override
+	public InputStream getObject(String key, long start, long end) {
+		Path path = resolve(key);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = Math.min(start, size);
+			long length = Math.min(end + 1, size) - position;
+			// 映射在通道关闭后仍然有效
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.max(length, 0));
+			return new ByteBufferInputStream(buffer);
+		} catch (NoSuchFileException e) {
+			throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+		} catch (IOException e) {
+			throw new UncheckedIOException("本地存储读取失败, key = " + key, e);
+		}
+	}
+
+	@Override
+	public ObjectStat statObject(String key) {
+		Path path = resolve(key);
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+			long lastModified = attributes.lastModifiedTime().toMillis();
+			ObjectStat objectStat = new ObjectStat();
+			objectStat.setKey(ObjectStore.normalizeKey(key));
+			objectStat.setSize(attributes.size());
+			// 文件写入时整体替换, 修改时间和大小可以标识内容
+			objectStat.setEtag(Long.toHexString(lastModified) + "-" + Long.toHexString(attributes.size()));
+			objectStat.setLastModified(new Date(lastModified));
+			objectStat.setContentType(FileUtil.getMimeType(path.toString()));
+			return objectStat;
+		} catch (NoSuchFileException e) {
+			throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+		} catch (IOException e) {
+			throw new UncheckedIOException("本地存储读取失败, key = " + key, e);
+		}
+	}
+
+	@Override
+	public void deleteObject(String key) {
+		try {
+			Files.deleteIfExists(resolve(key));
+		} catch (IOException e) {
+			throw new UncheckedIOException("本地存储删除失败, key = " + key, e);
+		}
+	}
+
+	@Override
+	public List<String> deleteObjects(Collection<String> keys) {
+		List<String> failedKeys = new ArrayList<>();
+		if (CollUtil.isEmpty(keys)) {
+			return failedKeys;
+		}
+		for (String key : keys) {
+			try {
+				deleteObject(key);
+			} catch (Exception e) {
+				log.warn("本地存储删除失败, key = {}", key, e);
+				failedKeys.add(key);
+			}
+		}
+		return failedKeys;
+	}
+
+	@Override
+	public String presignGetUrl(String key, long expireSeconds) {
+		return presign("GET", key, expireSeconds);
+	}
+
+	@Override
+	public String presignPutUrl(String key, long expireSeconds) {
+		return presign("PUT", key, expireSeconds);
+	}
+
+	private String presign(String method, String key, long expireSeconds) {
+		long expires = System.currentTimeMillis() / 1000 + expireSeconds;
+		return getUrl(key) + "?expires=" + expires + "&sign=" + sign(method, ObjectStore.normalizeKey(key), expires);
+	}
+
+	/**
+	 * 校验预签名地址
+	 *
+	 * @param method  请求方法
+	 * @param key     唯一键
+	 * @param expires 过期时间（秒级时间戳）
+	 * @param sign    签名
+	 * @return 是否有效
+	 */
+	public boolean verifySign(String method, String key, Long expires, String sign) {
+		if (expires == null || StrUtil.isBlank(sign) || expires < System.currentTimeMillis() / 1000) {
+			return false;
+		}
+		return sign.equals(sign(method, ObjectStore.normalizeKey(key), expires));
+	}
+
+	private String sign(String method, String key, long expires) {
+		return SecureUtil.hmacSha256(secret).digestHex(method + "\n" + key + "\n" + expires);
+	}
+
+	@Override
+	public String getUrl(String key) {
+		return urlPrefix + "/" + ObjectStore.normalizeKey(key);
+	}
+
+	@Override
+	public String getKey(String url) {
+		if (StrUtil.isBlank(url) || !url.startsWith(urlPrefix)) {
+			return null;
+		}
+		return ObjectStore.normalizeKey(StrUtil.subBefore(StrUtil.removePrefix(url, urlPrefix), "?", false));
+	}
+
+	/**
+	 * 解析对象路径, 禁止访问根目录之外的文件
+	 */
+	private Path resolve(String key) {
+		String normalizedKey = ObjectStore.normalizeKey(key);
+		Path path = rootPath.resolve(normalizedKey).normalize();
+		if (StrUtil.isBlank(normalizedKey) || !path.startsWith(rootPath)) {
+			throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件路径错误");
+		}
+		return path;
+	}
+
+	/**
+	 * 内存映射缓冲区的输入流
+	 */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public long skip(long n) {
+			int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+			buffer.position(buffer.position() + count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.baolong.pictures.infrastructure.manager.storage;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 对象存储
+ * <p>
+ * 屏蔽具体的存储服务, 通过 picture.storage.type 选择实现: cos（腾讯云对象存储, 默认）或 local（本地文件系统）;
+ * key 统一不以 "/" 开头, 访问地址由存储实现生成, 调用方不再拼接域名
+ */
+public interface ObjectStore {
+
+	/**
+	 * 上传对象
+	 *
+	 * @param key           唯一键
+	 * @param inputStream   输入流
+	 * @param contentLength 内容长度
+	 */
+	void putObject(String key, InputStream inputStream, long contentLength);
+
+	/**
+	 * 下载对象, 调用方负责关闭输入流
+	 *
+	 * @param key 唯一键
+	 * @return 输入流
+	 */
+	InputStream getObject(String key);
+
+	/**
+	 * 下载对象的一部分, 调用方负责关闭输入流
+	 *
+	 * @param key   唯一键
+	 * @param start 起始位置（包含）
+	 * @param end   结束位置（包含）
+	 * @return 输入流
+	 */
+	InputStream getObject(String key, long start, long end);
+
+	/**
+	 * 获取对象元信息, 对象不存在时抛出 NOT_FOUND_ERROR
+	 *
+	 * @param key 唯一键
+	 * @return 元信息
+	 */
+	ObjectStat statObject(String key);
+
+	/**
+	 * 删除对象, 对象不存在时忽略
+	 *
+	 * @param key 唯一键
+	 */
+	void deleteObject(String key);
+
+	/**
+	 * 批量删除对象, 对象不存在时忽略
+	 *
+	 * @param keys 唯一键列表
+	 * @return 删除失败的唯一键
+	 */
+	List<String> deleteObjects(Collection<String> keys);
+
+	/**
+	 * 生成预签名下载地址
+	 *
+	 * @param key           唯一键
+	 * @param expireSeconds 有效期（秒）
+	 * @return 下载地址
+	 */
+	String presignGetUrl(String key, long expireSeconds);
+
+	/**
+	 * 生成预签名上传地址（PUT 请求）
+	 *
+	 * @param key           唯一键
+	 * @param expireSeconds 有效期（秒）
+	 * @return 上传地址
+	 */
+	String presignPutUrl(String key, long expireSeconds);
+
+	/**
+	 * 获取对象的访问地址
+	 *
+	 * @param key 唯一键
+	 * @return 访问地址
+	 */
+	String getUrl(String key);
+
+	/**
+	 * 根据访问地址获取对象的唯一键
+	 *
+	 * @param url 访问地址
+	 * @return 唯一键, 无法解析返回 null
+	 */
+	String getKey(String url);
+
+	/**
+	 * 规范化唯一键, 去掉开头的 "/"
+	 */
+	static String normalizeKey(String key) {
+		return StrUtil.trimStart(StrUtil.nullToEmpty(key)).replaceFirst("^/+", "");
+	}
+}
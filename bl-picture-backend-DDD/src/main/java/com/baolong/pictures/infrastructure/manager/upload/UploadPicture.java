@@ -6,19 +6,29 @@ import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baolong.pictures.infrastructure.api.CosManager;
-import com.baolong.pictures.infrastructure.config.CosClientConfig;
 import com.baolong.pictures.infrastructure.exception.BusinessException;
 import com.baolong.pictures.infrastructure.exception.ErrorCode;
+import com.baolong.pictures.infrastructure.manager.storage.ObjectStore;
 import com.baolong.pictures.infrastructure.manager.upload.picture.model.UploadPictureResult;
-import com.qcloud.cos.model.PutObjectResult;
+import com.baolong.pictures.infrastructure.utils.ImageHeaderUtils;
 import com.qcloud.cos.model.ciModel.persistence.CIObject;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
 import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
-import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 
 import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -31,11 +41,22 @@ import java.util.List;
 @Slf4j
 public abstract class UploadPicture {
 
+	/**
+	 * 本地读取主色调时缩小到的最长边（像素）
+	 */
+	private static final int COLOR_SAMPLE_SIZE = 256;
+
 	@Resource
 	protected CosManager cosManager;
 
 	@Resource
-	protected CosClientConfig cosClientConfig;
+	protected ObjectStore objectStore;
+
+	/**
+	 * 对象存储类型, 只有腾讯云对象存储可以使用数据万象处理图片
+	 */
+	@Value("${picture.storage.type:cos}")
+	private String storageType;
 
 	/**
 	 * 允许上传的图片格式
@@ -74,8 +95,8 @@ public abstract class UploadPicture {
 			file = File.createTempFile(uploadPath, null);
 			// 5. 处理文件输入源
 			handleFile(fileInputSource, file);
-			// 6. 上传文件到对象存储服务  Tips: 后续可以改为多种存储
-			return uploadFileToStore(uploadPath, file);
+			// 6. 上传文件到对象存储服务（由 picture.storage.type 选择存储实现）
+			return uploadFileToStore(ObjectStore.normalizeKey(uploadPath), file);
 		} catch (Exception e) {
 			log.error("文件上传到对象存储失败", e);
 			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件上传失败");
@@ -107,29 +128,90 @@ public abstract class UploadPicture {
 	 * @param file       文件对象
 	 * @return 图片上传结果
 	 */
-	protected UploadPictureResult uploadFileToStore(String uploadPath, File file) {
+	protected UploadPictureResult uploadFileToStore(String uploadPath, File file) throws IOException {
 		// 获取原图名称, 不包含后缀
 		String originName = getFileNameWithoutSuffix(file);
 		// 上传图片到对象存储
-		PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, file);
+		try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+			objectStore.putObject(uploadPath, inputStream, file.length());
+		}
+		if (!"cos".equals(storageType)) {
+			// 其他存储不能使用数据万象, 在本地读取原图信息, 压缩图和缩略图均使用原图
+			return buildLocalPictureResult(file, uploadPath, originName);
+		}
+		// 使用数据万象处理已上传的原图
+		CIUploadResult ciUploadResult = cosManager.processPictureObject(uploadPath, file.length());
 		// 图片原图信息
-		ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
+		ImageInfo imageInfo = ciUploadResult.getOriginalInfo().getImageInfo();
+		String originColor = cosManager.getImageAve(uploadPath);
 		// 获取处理后的结果信息
-		ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
-		List<CIObject> objectList = processResults.getObjectList();
+		List<CIObject> objectList = ciUploadResult.getProcessResults() == null ? null
+				: ciUploadResult.getProcessResults().getObjectList();
 		if (CollUtil.isEmpty(objectList)) {
-			return buildPictureResult(file, uploadPath, originName, imageInfo);
+			return buildPictureResult(file, uploadPath, originName, imageInfo.getFormat(),
+					imageInfo.getWidth(), imageInfo.getHeight(), originColor, null, null);
 		}
 		// 根据图片处理规则的顺序获取, 获取压缩图信息
 		CIObject compressedCiObject = objectList.get(0);
-		CIObject thumbnailCiObject = null;
-		if (objectList.size() > 1) {
-			// 获取压缩图信息
-			thumbnailCiObject = objectList.get(1);
-			return buildPictureResult(file, uploadPath, originName, imageInfo, compressedCiObject, thumbnailCiObject);
-		} else {
-			return buildPictureResult(file, uploadPath, originName, imageInfo, compressedCiObject);
+		// 有生成缩略图，才得到缩略图
+		CIObject thumbnailCiObject = objectList.size() > 1 ? objectList.get(1) : null;
+		return buildPictureResult(file, uploadPath, originName, imageInfo.getFormat(),
+				imageInfo.getWidth(), imageInfo.getHeight(), originColor, compressedCiObject, thumbnailCiObject);
+	}
+
+	/**
+	 * 在本地读取原图信息（宽高、格式、主色调）构造图片上传结果
+	 * <p>
+	 * 按比例抽样解码, 不解码完整的大图; ImageIO 无法解码的格式（如 webp）从文件头读取宽高, 没有主色调
+	 */
+	private UploadPictureResult buildLocalPictureResult(File file, String uploadPath, String originName) throws IOException {
+		String format = FileUtil.getSuffix(uploadPath);
+		try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(file)) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+			if (readers.hasNext()) {
+				ImageReader reader = readers.next();
+				try {
+					reader.setInput(imageInputStream, true, true);
+					int width = reader.getWidth(0);
+					int height = reader.getHeight(0);
+					int step = Math.max(1, Math.max(width, height) / COLOR_SAMPLE_SIZE);
+					ImageReadParam readParam = reader.getDefaultReadParam();
+					readParam.setSourceSubsampling(step, step, 0, 0);
+					String originColor = averageColor(reader.read(0, readParam));
+					return buildPictureResult(file, uploadPath, originName, reader.getFormatName().toLowerCase(),
+							width, height, originColor, null, null);
+				} finally {
+					reader.dispose();
+				}
+			}
+		}
+		int[] size;
+		try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+			size = ImageHeaderUtils.readSize(inputStream);
+		}
+		if (size == null) {
+			throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的图片格式");
 		}
+		return buildPictureResult(file, uploadPath, originName, format, size[0], size[1], null, null, null);
+	}
+
+	/**
+	 * 计算图片平均颜色, 格式与数据万象主色调一致（0xRRGGBB）
+	 */
+	private static String averageColor(BufferedImage image) {
+		long red = 0, green = 0, blue = 0;
+		int width = image.getWidth();
+		int height = image.getHeight();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int rgb = image.getRGB(x, y);
+				red += (rgb >> 16) & 0xFF;
+				green += (rgb >> 8) & 0xFF;
+				blue += rgb & 0xFF;
+			}
+		}
+		long count = (long) width * height;
+		return String.format("0x%02X%02X%02X", red / count, green / count, blue / count);
 	}
 
 	/**
@@ -161,67 +243,40 @@ public abstract class UploadPicture {
 		}
 	}
 
-	/**
-	 * 构造图片上传结果
-	 *
-	 * @param file           文件对象
-	 * @param uploadPath     上传路径
-	 * @param originFilename 原始文件名, 不包含后缀
-	 * @param imageInfo      图片信息
-	 * @return 图片上传结果
-	 */
-	private UploadPictureResult buildPictureResult(File file, String uploadPath, String originFilename, ImageInfo imageInfo) {
-		return buildPictureResult(file, uploadPath, originFilename, imageInfo, null, null);
-	}
-
-	/**
-	 * 构造图片上传结果
-	 *
-	 * @param file               文件对象
-	 * @param uploadPath         上传路径
-	 * @param originFilename     原始文件名, 不包含后缀
-	 * @param imageInfo          图片信息
-	 * @param compressedCiObject 压缩图信息
-	 * @return 图片上传结果
-	 */
-	private UploadPictureResult buildPictureResult(File file, String uploadPath, String originFilename,
-												   ImageInfo imageInfo, CIObject compressedCiObject) {
-		return buildPictureResult(file, uploadPath, originFilename, imageInfo, compressedCiObject, null);
-	}
-
 	/**
 	 * 构造图片上传结果
 	 *
 	 * @param file               文件对象
 	 * @param uploadPath         上传路径
 	 * @param originFilename     原始文件名, 不包含后缀
-	 * @param imageInfo          图片信息
-	 * @param compressedCiObject 压缩图信息
-	 * @param thumbnailCiObject  缩略图信息
+	 * @param originFormat       原图格式
+	 * @param width              原图宽度
+	 * @param height             原图高度
+	 * @param originColor        原图主色调, 可为空
+	 * @param compressedCiObject 压缩图信息, 为空时使用原图
+	 * @param thumbnailCiObject  缩略图信息, 为空时使用原图
 	 * @return 图片上传结果
 	 */
-	private UploadPictureResult buildPictureResult(File file, String uploadPath, String originFilename
-			, ImageInfo imageInfo, CIObject compressedCiObject, CIObject thumbnailCiObject) {
-		String prefix = cosClientConfig.getHost() + "/";
+	private UploadPictureResult buildPictureResult(File file, String uploadPath, String originFilename, String originFormat,
+												   int width, int height, String originColor,
+												   CIObject compressedCiObject, CIObject thumbnailCiObject) {
 		UploadPictureResult uploadPictureResult = new UploadPictureResult();
 		uploadPictureResult.setOriginName(originFilename);
-		String originUrl = prefix + uploadPath;
+		// 访问地址由存储实现生成
+		String originUrl = objectStore.getUrl(uploadPath);
 		uploadPictureResult.setOriginUrl(originUrl);
 		long originSize = FileUtil.size(file);
 		uploadPictureResult.setOriginSize(originSize);
-		String originFormat = imageInfo.getFormat();
 		uploadPictureResult.setOriginFormat(originFormat);
-		int width = imageInfo.getWidth();
 		uploadPictureResult.setOriginWidth(width);
-		int height = imageInfo.getHeight();
 		uploadPictureResult.setOriginHeight(height);
 		uploadPictureResult.setOriginScale(NumberUtil.round(width * 1.0 / height, 2).doubleValue());
-		uploadPictureResult.setOriginColor(cosManager.getImageAve(uploadPath));
+		uploadPictureResult.setOriginColor(originColor);
 		uploadPictureResult.setOriginPath(uploadPath);
 		uploadPictureResult.setPicName(originFilename);
 		// 压缩图数据填充
 		if (compressedCiObject != null) {
-			uploadPictureResult.setPicUrl(prefix + compressedCiObject.getKey());
+			uploadPictureResult.setPicUrl(objectStore.getUrl(compressedCiObject.getKey()));
 			uploadPictureResult.setCompressSize(compressedCiObject.getSize().longValue());
 			uploadPictureResult.setCompressFormat(compressedCiObject.getFormat());
 			uploadPictureResult.setCompressPath(compressedCiObject.getKey());
@@ -233,7 +288,7 @@ public abstract class UploadPicture {
 		}
 		// 缩略图数据填充
 		if (thumbnailCiObject != null) {
-			uploadPictureResult.setThumbnailUrl(prefix + thumbnailCiObject.getKey());
+			uploadPictureResult.setThumbnailUrl(objectStore.getUrl(thumbnailCiObject.getKey()));
 			uploadPictureResult.setThumbnailPath(thumbnailCiObject.getKey());
 		} else {
 			uploadPictureResult.setThumbnailUrl(originUrl);
@@ -0,0 +1,57 @@
+package com.baolong.pictures.infrastructure.utils;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baolong.pictures.infrastructure.common.page.PageCursor;
+import com.baolong.pictures.infrastructure.exception.BusinessException;
+import com.baolong.pictures.infrastructure.exception.ErrorCode;
+import com.baolong.pictures.infrastructure.exception.ThrowUtils;
+
+import java.util.Collection;
+
+/**
+ * 工具类：分页游标的编码和解析
+ * <p>
+ * 游标是 URL 安全的 Base64 JSON, 前端原样传回; 解析时校验排序字段和必填值, 排序字段会拼接到 SQL 中, 只能是白名单中的列
+ */
+public class PageCursorUtils {
+
+	private PageCursorUtils() {
+		// 工具类不需要实例化
+	}
+
+	/**
+	 * 编码游标
+	 *
+	 * @param pageCursor 游标
+	 * @return 返回给前端的游标字符串
+	 */
+	public static String encode(PageCursor pageCursor) {
+		return Base64.encodeUrlSafe(JSONUtil.toJsonStr(pageCursor));
+	}
+
+	/**
+	 * 解析前端传回的游标
+	 *
+	 * @param cursor     游标字符串
+	 * @param sortFields 支持的排序字段
+	 * @return 游标, 为空时返回 null
+	 */
+	public static PageCursor decode(String cursor, Collection<String> sortFields) {
+		if (StrUtil.isBlank(cursor)) {
+			return null;
+		}
+		PageCursor pageCursor;
+		try {
+			pageCursor = JSONUtil.toBean(Base64.decodeStr(cursor), PageCursor.class);
+		} catch (Exception e) {
+			throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标格式错误");
+		}
+		ThrowUtils.throwIf(!sortFields.contains(pageCursor.getSortField()), ErrorCode.PARAMS_ERROR, "不支持的排序字段");
+		ThrowUtils.throwIf(pageCursor.getId() == null
+						|| (!"id".equals(pageCursor.getSortField()) && pageCursor.getValue() == null),
+				ErrorCode.PARAMS_ERROR, "游标格式错误");
+		return pageCursor;
+	}
+}
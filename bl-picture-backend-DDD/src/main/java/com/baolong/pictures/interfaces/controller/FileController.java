@@ -6,9 +6,7 @@ import com.baolong.pictures.infrastructure.common.ResultUtils;
 import com.baolong.pictures.domain.user.constant.UserConstant;
 import com.baolong.pictures.infrastructure.exception.BusinessException;
 import com.baolong.pictures.infrastructure.exception.ErrorCode;
-import com.baolong.pictures.infrastructure.api.CosManager;
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.COSObjectInputStream;
+import com.baolong.pictures.infrastructure.manager.storage.ObjectStore;
 import com.qcloud.cos.utils.IOUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,6 +20,8 @@ import javax.annotation.Resource;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 
 @Slf4j
 @RestController
@@ -29,7 +29,7 @@ import java.io.IOException;
 public class FileController {
 
 	@Resource
-	private CosManager cosManager;
+	private ObjectStore objectStore;
 
 	/**
 	 * 测试文件上传
@@ -48,7 +48,9 @@ public class FileController {
 			// 上传文件
 			file = File.createTempFile(filepath, null);
 			multipartFile.transferTo(file);
-			cosManager.putObject(filepath, file);
+			try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+				objectStore.putObject(filepath, inputStream, file.length());
+			}
 			// 返回可访问地址
 			return ResultUtils.success(filepath);
 		} catch (Exception e) {
@@ -74,12 +76,11 @@ public class FileController {
 	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
 	@GetMapping("/test/download/")
 	public void testDownloadFile(String filepath, HttpServletResponse response) throws IOException {
-		COSObjectInputStream cosObjectInput = null;
+		InputStream objectInput = null;
 		try {
-			COSObject cosObject = cosManager.getObject(filepath);
-			cosObjectInput = cosObject.getObjectContent();
+			objectInput = objectStore.getObject(filepath);
 			// 处理下载到的流
-			byte[] bytes = IOUtils.toByteArray(cosObjectInput);
+			byte[] bytes = IOUtils.toByteArray(objectInput);
 			// 设置响应头
 			response.setContentType("application/octet-stream;charset=UTF-8");
 			response.setHeader("Content-Disposition", "attachment; filename=" + filepath);
@@ -90,8 +91,8 @@ public class FileController {
 			log.error("file download error, filepath = " + filepath, e);
 			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "下载失败");
 		} finally {
-			if (cosObjectInput != null) {
-				cosObjectInput.close();
+			if (objectInput != null) {
+				objectInput.close();
 			}
 		}
 	}
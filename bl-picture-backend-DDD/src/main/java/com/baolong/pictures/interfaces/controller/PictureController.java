@@ -13,6 +13,7 @@ import com.baolong.pictures.infrastructure.common.ResultUtils;
 import com.baolong.pictures.infrastructure.common.page.PageVO;
 import com.baolong.pictures.infrastructure.exception.ErrorCode;
 import com.baolong.pictures.infrastructure.exception.ThrowUtils;
+import com.baolong.pictures.infrastructure.manager.cache.CacheStats;
 import com.baolong.pictures.interfaces.dto.picture.PictureBatchEditRequest;
 import com.baolong.pictures.interfaces.dto.picture.PictureEditRequest;
 import com.baolong.pictures.interfaces.dto.picture.PictureQueryRequest;
@@ -131,7 +132,7 @@ public class PictureController {
 	}
 
 	/**
-	 * 获取首页图片分页列表（简单字段）
+	 * 获取首页图片分页列表（简单字段）, 传入上一页返回的 nextCursor 时按游标分页
 	 */
 	@GetMapping("/list")
 	public BaseResponse<PageVO<PictureSimpleVO>> getPicturePageListAsSimple(PictureQueryRequest pictureQueryRequest) {
@@ -148,6 +149,15 @@ public class PictureController {
 		return ResultUtils.success(pictureApplicationService.getPicturePageListAsAdmin(pictureQueryRequest));
 	}
 
+	/**
+	 * 获取首页图片列表缓存统计信息（管理员）
+	 */
+	@GetMapping("/list/cache/stats")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<CacheStats> getPictureListCacheStats() {
+		return ResultUtils.success(pictureApplicationService.getPictureListCacheStats());
+	}
+
 	// /**
 	//  * 根据颜色搜索图片
 	//  */
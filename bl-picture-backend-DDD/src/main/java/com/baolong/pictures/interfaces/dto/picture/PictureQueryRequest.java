@@ -104,5 +104,10 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
 	 */
 	private Date endEditTime;
 
+	/**
+	 * 游标（上一页返回的 nextCursor）, 传入时按游标分页, 排序由游标决定, 不统计总条数
+	 */
+	private String cursor;
+
 	private static final long serialVersionUID = 1L;
 }
@@ -3,6 +3,7 @@ package com.baolong.pictures.interfaces.vo.picture;
 import lombok.Data;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * 图片简单 VO
@@ -29,6 +30,16 @@ public class PictureSimpleVO implements Serializable {
 	 */
 	private Long category;
 
+	/**
+	 * 分类名称
+	 */
+	private String categoryName;
+
+	/**
+	 * 标签名称列表
+	 */
+	private List<String> tagNameList;
+
 	/**
 	 * 创建用户 ID
 	 */
@@ -4,6 +4,7 @@ import lombok.Data;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.List;
 
 /**
  * 图片 VO
@@ -80,11 +81,21 @@ public class PictureVO implements Serializable {
 	 */
 	private Long category;
 
+	/**
+	 * 分类名称
+	 */
+	private String categoryName;
+
 	/**
 	 * 标签（逗号分隔的标签 ID 列表）
 	 */
 	private String tags;
 
+	/**
+	 * 标签名称列表
+	 */
+	private List<String> tagNameList;
+
 	/**
 	 * 创建用户 ID
 	 */
@@ -151,3 +151,101 @@ ALTER TABLE user
     ADD COLUMN userPhone varchar(255) NULL COMMENT '用户手机号';
 ALTER TABLE `bl_picture`.`user`
     ADD COLUMN `birthday` date NULL COMMENT '出生日期' AFTER `userRole`;
+
+-- 图片感知哈希, 用于重复图片校验和相似图片搜索
+ALTER TABLE picture
+    ADD COLUMN picHash bigint null comment '图片感知哈希（dHash）';
+CREATE INDEX idx_spaceId_picHash ON picture (spaceId, picHash);
+
+-- 图片调色板, 用于按颜色搜索
+ALTER TABLE picture
+    ADD COLUMN picPalette varchar(128) null comment '图片调色板（逗号分隔的十六进制颜色）';
+
+-- 图片资源状态增加处理中、处理失败
+ALTER TABLE picture
+    MODIFY COLUMN `resourceStatus` tinyint DEFAULT 0 NOT NULL COMMENT '资源状态：0-存在存储服务器中、1-从存储服务器中删除、2-处理中、3-处理失败';
+
+-- 图片处理任务表（上传后异步进行格式转换、生成缩略图）
+create table if not exists picture_process_job
+(
+    id           bigint auto_increment comment 'id' primary key,
+    pictureId    bigint                             not null comment '图片 id',
+    originKey    varchar(512)                       not null comment '原图在存储服务器中的 key',
+    status       tinyint  default 0                 not null comment '任务状态：0-待处理 1-处理中 2-成功 3-失败 4-已取消',
+    retryCount   int      default 0                 not null comment '重试次数',
+    errorMessage varchar(512)                       null comment '错误信息',
+    createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    INDEX idx_pictureId (pictureId),
+    INDEX idx_status_updateTime (status, updateTime)
+) comment '图片处理任务' collate = utf8mb4_unicode_ci;
+
+-- 对象删除任务表（图片删除、重新上传后异步批量删除存储服务器中的文件）
+create table if not exists object_delete_task
+(
+    id            bigint auto_increment comment 'id' primary key,
+    objectKey     varchar(512)                       not null comment '对象在存储服务器中的 key',
+    pictureId     bigint                             null comment '图片 id（图片被删除时记录）',
+    status        tinyint  default 0                 not null comment '任务状态：0-待删除 1-已删除 2-删除失败',
+    retryCount    int      default 0                 not null comment '重试次数',
+    nextRetryTime datetime default CURRENT_TIMESTAMP not null comment '下次执行时间',
+    errorMessage  varchar(512)                       null comment '错误信息',
+    createTime    datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime    datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    INDEX idx_status_nextRetryTime (status, nextRetryTime),
+    INDEX idx_pictureId (pictureId)
+) comment '对象删除任务' collate = utf8mb4_unicode_ci;
+
+-- 图片直传会话表（客户端通过预签名地址直传到存储服务器, 确认后入库）
+create table if not exists picture_upload_session
+(
+    id           bigint                             not null comment 'id' primary key,
+    objectKey    varchar(512)                       not null comment '对象在存储服务器中的 key',
+    userId       bigint                             not null comment '上传用户 id',
+    spaceId      bigint                             null comment '空间 id（为空表示公共图库）',
+    pictureId    bigint                             null comment '图片 id（重新上传时记录）',
+    fileSize     bigint                             not null comment '申请上传的文件大小（预留的空间额度）',
+    status       tinyint  default 0                 not null comment '会话状态：0-待上传 1-确认中 2-已确认 3-确认失败 4-已过期',
+    expireTime   datetime                           not null comment '过期时间',
+    errorMessage varchar(512)                       null comment '错误信息',
+    createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    INDEX idx_status_expireTime (status, expireTime)
+) comment '图片直传会话' collate = utf8mb4_unicode_ci;
+
+-- 图片标签关联表（picture.tags 的规范化, 按标签筛选和统计时走索引）
+create table if not exists picture_tag
+(
+    id         bigint auto_increment comment 'id' primary key,
+    pictureId  bigint                             not null comment '图片 id',
+    tagId      bigint                             not null comment '标签 id',
+    spaceId    bigint                             null comment '图片所属空间 id（为空表示公共图库）',
+    createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    UNIQUE KEY uk_pictureId_tagId (pictureId, tagId),
+    INDEX idx_tagId_spaceId_pictureId (tagId, spaceId, pictureId),
+    INDEX idx_spaceId_tagId (spaceId, tagId)
+) comment '图片标签关联' collate = utf8mb4_unicode_ci;
+
+-- 存量数据迁移: 建表后由管理员调用 POST /api/picture/tag/backfill 按 picture.tags 回填, 可重复执行
+
+-- 图片名称和简介全文索引（ngram 分词, 支持中文; 分词长度由 MySQL 参数 ngram_token_size 控制, 默认 2）
+-- 也可以由管理员调用 POST /api/picture/search/rebuild 创建, 已存在时重建; 索引已存在时跳过, 可重复执行
+SET @ddl = IF((SELECT COUNT(*)
+               FROM information_schema.statistics
+               WHERE table_schema = DATABASE()
+                 AND table_name = 'picture'
+                 AND index_name = 'ft_name_introduction') = 0,
+              'ALTER TABLE picture ADD FULLTEXT INDEX ft_name_introduction (name, introduction) WITH PARSER ngram',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 游标分页: 按 (空间, 排序字段, id) 定位下一页, InnoDB 二级索引隐含主键 id
+CREATE INDEX idx_spaceId_createTime ON picture (spaceId, createTime);
+CREATE INDEX idx_spaceId_editTime ON picture (spaceId, editTime);
+
+-- 图片卡片列表: 先只查询 id, 公共图库（spaceId 为空、已过审）按创建时间排序时条件和排序列都在索引中, 不需要回表
+CREATE INDEX idx_spaceId_reviewStatus_isDelete_createTime ON picture (spaceId, reviewStatus, isDelete, createTime);
+-- 空间的图片卡片列表不按审核状态筛选, 同样只查询 id 时不需要回表
+CREATE INDEX idx_spaceId_isDelete_createTime ON picture (spaceId, isDelete, createTime);
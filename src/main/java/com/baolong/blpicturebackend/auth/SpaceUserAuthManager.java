@@ -1,10 +1,15 @@
 package com.baolong.blpicturebackend.auth;
 
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.baolong.blpicturebackend.auth.model.SpaceUserAuthConfig;
-import com.baolong.blpicturebackend.auth.model.SpaceUserRole;
+import com.baolong.blpicturebackend.auth.model.SpaceUserAuthTable;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.cache.SpacePermissionCache;
 import com.baolong.blpicturebackend.model.entity.Space;
 import com.baolong.blpicturebackend.model.entity.SpaceUser;
 import com.baolong.blpicturebackend.model.entity.User;
@@ -12,18 +17,40 @@ import com.baolong.blpicturebackend.model.enums.SpaceRoleEnum;
 import com.baolong.blpicturebackend.model.enums.SpaceTypeEnum;
 import com.baolong.blpicturebackend.service.SpaceUserService;
 import com.baolong.blpicturebackend.service.UserService;
-import org.springframework.context.annotation.Lazy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * 空间用户权限管理
+ * <p>
+ * 权限配置重新加载后通过 Redis 发布订阅通知其他节点, 各节点重新编译权限表并清空空间权限缓存
  */
+@Slf4j
 @Component
-public class SpaceUserAuthManager {
+public class SpaceUserAuthManager implements MessageListener {
+
+	/**
+	 * 权限配置重新加载通知频道
+	 */
+	private static final String CHANNEL = "baolong:spaceUserAuth:reload";
+
+	/**
+	 * 节点 ID, 用于忽略自己发出的通知
+	 */
+	private static final String NODE_ID = IdUtil.fastSimpleUUID();
 
 	@Resource
 	private UserService userService;
@@ -31,70 +58,197 @@ public class SpaceUserAuthManager {
 	@Resource
 	private SpaceUserService spaceUserService;
 
-	public static final SpaceUserAuthConfig SPACE_USER_AUTH_CONFIG;
+	@Resource
+	private SpacePermissionCache spacePermissionCache;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 权限配置文件（类路径）
+	 */
+	private static final String AUTH_CONFIG_PATH = "biz/spaceUserAuthConfig.json";
+
+	/**
+	 * 外部权限配置文件路径, 配置后优先从该文件加载, 便于不重新打包修改权限
+	 */
+	@Value("${space.auth-config-location:}")
+	private String authConfigLocation;
+
+	/**
+	 * 编译后的权限表, 重新加载时整体替换
+	 */
+	private volatile SpaceUserAuthTable authTable;
+
+	/**
+	 * 外部权限配置文件上次加载时的修改时间
+	 */
+	private volatile long authConfigLastModified;
+
+	@PostConstruct
+	public void init() {
+		this.authTable = loadAuthTable();
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	/**
+	 * 重新加载权限配置并通知其他节点, 配置不合法时保留原有权限表
+	 *
+	 * @return 新的权限配置
+	 */
+	public SpaceUserAuthConfig reloadAuthConfig() {
+		SpaceUserAuthConfig authConfig = reloadLocal();
+		try {
+			stringRedisTemplate.convertAndSend(CHANNEL, NODE_ID + ":reload");
+		} catch (Exception e) {
+			log.error("空间权限配置重新加载通知失败", e);
+		}
+		return authConfig;
+	}
+
+	/**
+	 * 收到其他节点的重新加载通知
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		if (NODE_ID.equals(StrUtil.subBefore(body, ":", false))) {
+			return;
+		}
+		try {
+			reloadLocal();
+		} catch (Exception e) {
+			log.error("空间权限配置重新加载失败, 保留原有权限表", e);
+		}
+	}
+
+	/**
+	 * 外部权限配置文件修改后自动重新加载（仅本节点, 各节点各自检查自己的文件）
+	 */
+	@Scheduled(fixedDelay = 30 * 1000L, initialDelay = 30 * 1000L)
+	public void watchAuthConfig() {
+		if (StrUtil.isBlank(authConfigLocation) || !FileUtil.isFile(authConfigLocation)
+				|| FileUtil.lastModifiedTime(authConfigLocation).getTime() == authConfigLastModified) {
+			return;
+		}
+		try {
+			reloadLocal();
+		} catch (Exception e) {
+			log.error("空间权限配置文件已修改, 但重新加载失败, 保留原有权限表", e);
+		}
+	}
+
+	/**
+	 * 获取当前权限配置
+	 */
+	public SpaceUserAuthConfig getAuthConfig() {
+		return authTable.getConfig();
+	}
+
+	/**
+	 * 重新编译本节点的权限表, 并清空按旧配置解析的空间权限缓存
+	 */
+	private SpaceUserAuthConfig reloadLocal() {
+		SpaceUserAuthTable newAuthTable = loadAuthTable();
+		this.authTable = newAuthTable;
+		spacePermissionCache.invalidateAll();
+		log.info("空间权限配置重新加载完成, 角色数 = {}", newAuthTable.getConfig().getRoles().size());
+		return newAuthTable.getConfig();
+	}
 
-	static {
-		String json = ResourceUtil.readUtf8Str("biz/spaceUserAuthConfig.json");
-		SPACE_USER_AUTH_CONFIG = JSONUtil.toBean(json, SpaceUserAuthConfig.class);
+	/**
+	 * 读取并编译权限配置
+	 */
+	private SpaceUserAuthTable loadAuthTable() {
+		String json;
+		if (StrUtil.isNotBlank(authConfigLocation)) {
+			ThrowUtils.throwIf(!FileUtil.isFile(authConfigLocation), ErrorCode.SYSTEM_ERROR, "空间权限配置文件不存在");
+			// 先记录修改时间再读取, 读取期间的修改会在下一次检查时重新加载
+			this.authConfigLastModified = FileUtil.lastModifiedTime(authConfigLocation).getTime();
+			json = FileUtil.readUtf8String(authConfigLocation);
+		} else {
+			json = ResourceUtil.readUtf8Str(AUTH_CONFIG_PATH);
+		}
+		return SpaceUserAuthTable.compile(JSONUtil.toBean(json, SpaceUserAuthConfig.class));
 	}
 
 	/**
-	 * 根据角色获取权限列表
+	 * 根据角色获取权限列表（只读）
 	 */
 	public List<String> getPermissionsByRole(String spaceUserRole) {
 		if (StrUtil.isBlank(spaceUserRole)) {
 			return new ArrayList<>();
 		}
-		// 找到匹配的角色
-		SpaceUserRole role = SPACE_USER_AUTH_CONFIG.getRoles().stream()
-				.filter(r -> spaceUserRole.equals(r.getKey()))
-				.findFirst()
-				.orElse(null);
-		if (role == null) {
+		return authTable.getPermissions(spaceUserRole);
+	}
+
+	/**
+	 * 判断角色是否拥有权限
+	 */
+	public boolean hasPermissionByRole(String spaceUserRole, String permission) {
+		return authTable.hasPermission(spaceUserRole, permission);
+	}
+
+	public List<String> getPermissionList(Space space, User loginUser) {
+		String spaceRole = getSpaceRole(space, loginUser);
+		if (spaceRole == null) {
 			return new ArrayList<>();
 		}
-		return role.getPermissions();
+		return getPermissionsByRole(spaceRole);
 	}
 
-	public List<String> getPermissionList(Space space, User loginUser) {
+	/**
+	 * 判断登录用户在空间中是否拥有权限
+	 */
+	public boolean hasPermission(Space space, User loginUser, String permission) {
+		return hasPermissionByRole(getSpaceRole(space, loginUser), permission);
+	}
+
+	/**
+	 * 获取登录用户在空间中的角色, 没有权限返回 null
+	 */
+	private String getSpaceRole(Space space, User loginUser) {
 		if (loginUser == null) {
-			return new ArrayList<>();
+			return null;
 		}
 		// 管理员权限
-		List<String> ADMIN_PERMISSIONS = getPermissionsByRole(SpaceRoleEnum.ADMIN.getValue());
+		String ADMIN_ROLE = SpaceRoleEnum.ADMIN.getValue();
 		// 公共图库
 		if (space == null) {
 			if (userService.isAdmin(loginUser)) {
-				return ADMIN_PERMISSIONS;
+				return ADMIN_ROLE;
 			}
-			return new ArrayList<>();
+			return null;
 		}
 		SpaceTypeEnum spaceTypeEnum = SpaceTypeEnum.getEnumByValue(space.getSpaceType());
 		if (spaceTypeEnum == null) {
-			return new ArrayList<>();
+			return null;
 		}
-		// 根据空间获取对应的权限
+		// 根据空间获取对应的角色
 		switch (spaceTypeEnum) {
 			case PRIVATE:
 				// 私有空间，仅本人或管理员有所有权限
 				if (space.getUserId().equals(loginUser.getId()) || userService.isAdmin(loginUser)) {
-					return ADMIN_PERMISSIONS;
+					return ADMIN_ROLE;
 				} else {
-					return new ArrayList<>();
+					return null;
 				}
 			case TEAM:
-				// 团队空间，查询 SpaceUser 并获取角色和权限
+				// 团队空间，查询 SpaceUser 并获取角色
 				SpaceUser spaceUser = spaceUserService.lambdaQuery()
 						.eq(SpaceUser::getSpaceId, space.getId())
 						.eq(SpaceUser::getUserId, loginUser.getId())
 						.one();
 				if (spaceUser == null) {
-					return new ArrayList<>();
+					return null;
 				} else {
-					return getPermissionsByRole(spaceUser.getSpaceRole());
+					return spaceUser.getSpaceRole();
 				}
 		}
-		return new ArrayList<>();
+		return null;
 	}
 
 }
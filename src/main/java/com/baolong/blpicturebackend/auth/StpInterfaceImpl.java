@@ -4,7 +4,6 @@ import cn.dev33.satoken.stp.StpInterface;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.ObjectUtil;
-import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.extra.servlet.ServletUtil;
 import cn.hutool.http.ContentType;
@@ -13,6 +12,7 @@ import cn.hutool.json.JSONUtil;
 import com.baolong.blpicturebackend.auth.model.SpaceUserPermissionConstant;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.manager.cache.SpacePermissionCache;
 import com.baolong.blpicturebackend.model.entity.Picture;
 import com.baolong.blpicturebackend.model.entity.Space;
 import com.baolong.blpicturebackend.model.entity.SpaceUser;
@@ -31,7 +31,6 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -54,20 +53,44 @@ public class StpInterfaceImpl implements StpInterface {
 	private SpaceService spaceService;
 	@Resource
 	private UserService userService;
+	@Resource
+	private SpacePermissionCache spacePermissionCache;
+
+	/**
+	 * 请求内权限列表缓存的属性名前缀
+	 */
+	private static final String PERMISSION_LIST_ATTRIBUTE = StpInterfaceImpl.class.getName() + ".permissionList.";
 
 	/**
 	 * 返回一个账号所拥有的权限码集合
 	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public List<String> getPermissionList(Object loginId, String loginType) {
 		// 判断 loginType，仅对类型为 "space" 进行权限校验
 		if (!StpKit.SPACE_TYPE.equals(loginType)) {
 			return new ArrayList<>();
 		}
+		// 同一个请求中的多次权限校验只解析一次
+		HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+		String attributeName = PERMISSION_LIST_ATTRIBUTE + loginId;
+		Object cachedPermissionList = request.getAttribute(attributeName);
+		if (cachedPermissionList != null) {
+			return (List<String>) cachedPermissionList;
+		}
+		List<String> permissionList = Collections.unmodifiableList(resolvePermissionList(loginId, request));
+		request.setAttribute(attributeName, permissionList);
+		return permissionList;
+	}
+
+	/**
+	 * 解析当前请求中账号所拥有的权限码集合
+	 */
+	private List<String> resolvePermissionList(Object loginId, HttpServletRequest request) {
 		// 管理员权限，表示权限校验通过
 		List<String> ADMIN_PERMISSIONS = spaceUserAuthManager.getPermissionsByRole(SpaceRoleEnum.ADMIN.getValue());
 		// 获取上下文对象
-		SpaceUserAuthContext authContext = getAuthContextByRequest();
+		SpaceUserAuthContext authContext = getAuthContextByRequest(request);
 		// 如果所有字段都为空，表示查询公共图库，可以通过
 		if (isAllFieldsNull(authContext)) {
 			return ADMIN_PERMISSIONS;
@@ -83,27 +106,19 @@ public class StpInterfaceImpl implements StpInterface {
 		if (spaceUser != null) {
 			return spaceUserAuthManager.getPermissionsByRole(spaceUser.getSpaceRole());
 		}
-		// 如果有 spaceUserId，必然是团队空间，通过数据库查询 SpaceUser 对象
+		// 如果有 spaceUserId，必然是团队空间，通过 SpaceUser 对象得到 spaceId
+		Long spaceId = authContext.getSpaceId();
 		Long spaceUserId = authContext.getSpaceUserId();
 		if (spaceUserId != null) {
-			spaceUser = spaceUserService.getById(spaceUserId);
+			spaceUser = spaceUserService.lambdaQuery()
+					.eq(SpaceUser::getId, spaceUserId)
+					.select(SpaceUser::getId, SpaceUser::getSpaceId)
+					.one();
 			if (spaceUser == null) {
 				throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到空间用户信息");
 			}
-			// 取出当前登录用户对应的 spaceUser
-			SpaceUser loginSpaceUser = spaceUserService.lambdaQuery()
-					.eq(SpaceUser::getSpaceId, spaceUser.getSpaceId())
-					.eq(SpaceUser::getUserId, userId)
-					.one();
-			if (loginSpaceUser == null) {
-				return new ArrayList<>();
-			}
-			// 这里会导致管理员在私有空间没有权限，可以再查一次库处理
-			return spaceUserAuthManager.getPermissionsByRole(loginSpaceUser.getSpaceRole());
-		}
-		// 如果没有 spaceUserId，尝试通过 spaceId 或 pictureId 获取 Space 对象并处理
-		Long spaceId = authContext.getSpaceId();
-		if (spaceId == null) {
+			spaceId = spaceUser.getSpaceId();
+		} else if (spaceId == null) {
 			// 如果没有 spaceId，通过 pictureId 获取 Picture 对象和 Space 对象
 			Long pictureId = authContext.getPictureId();
 			// 图片 id 也没有，则默认通过权限校验
@@ -128,8 +143,21 @@ public class StpInterfaceImpl implements StpInterface {
 				}
 			}
 		}
+		// 空间权限按 (userId, spaceId) 缓存，空间成员变更时失效
+		Long finalSpaceId = spaceId;
+		return spacePermissionCache.get(userId, spaceId, () -> getSpacePermissionList(loginUser, finalSpaceId, ADMIN_PERMISSIONS));
+	}
+
+	/**
+	 * 查询用户在指定空间中的权限码集合
+	 */
+	private List<String> getSpacePermissionList(User loginUser, Long spaceId, List<String> adminPermissions) {
+		Long userId = loginUser.getId();
 		// 获取 Space 对象
-		Space space = spaceService.getById(spaceId);
+		Space space = spaceService.lambdaQuery()
+				.eq(Space::getId, spaceId)
+				.select(Space::getId, Space::getUserId, Space::getSpaceType)
+				.one();
 		if (space == null) {
 			throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到空间信息");
 		}
@@ -137,15 +165,16 @@ public class StpInterfaceImpl implements StpInterface {
 		if (space.getSpaceType() == SpaceTypeEnum.PRIVATE.getValue()) {
 			// 私有空间，仅本人或管理员有权限
 			if (space.getUserId().equals(userId) || userService.isAdmin(loginUser)) {
-				return ADMIN_PERMISSIONS;
+				return adminPermissions;
 			} else {
 				return new ArrayList<>();
 			}
 		} else {
 			// 团队空间，查询 SpaceUser 并获取角色和权限
-			spaceUser = spaceUserService.lambdaQuery()
+			SpaceUser spaceUser = spaceUserService.lambdaQuery()
 					.eq(SpaceUser::getSpaceId, spaceId)
 					.eq(SpaceUser::getUserId, userId)
+					.select(SpaceUser::getId, SpaceUser::getSpaceRole)
 					.one();
 			if (spaceUser == null) {
 				return new ArrayList<>();
@@ -166,16 +195,15 @@ public class StpInterfaceImpl implements StpInterface {
 		return list;
 	}
 
-	private boolean isAllFieldsNull(Object object) {
-		if (object == null) {
+	/**
+	 * 判断上下文对象是否所有字段都为空
+	 */
+	private boolean isAllFieldsNull(SpaceUserAuthContext authContext) {
+		if (authContext == null) {
 			return true; // 对象本身为空
 		}
-		// 获取所有字段并判断是否所有字段都为空
-		return Arrays.stream(ReflectUtil.getFields(object.getClass()))
-				// 获取字段值
-				.map(field -> ReflectUtil.getFieldValue(object, field))
-				// 检查是否所有字段都为空
-				.allMatch(ObjectUtil::isEmpty);
+		return ObjectUtil.isAllEmpty(authContext.getId(), authContext.getPictureId(), authContext.getSpaceId(),
+				authContext.getSpaceUserId(), authContext.getPicture(), authContext.getSpace(), authContext.getSpaceUser());
 	}
 
 	@Value("${server.servlet.context-path}")
@@ -184,8 +212,7 @@ public class StpInterfaceImpl implements StpInterface {
 	/**
 	 * 从请求中获取上下文对象
 	 */
-	private SpaceUserAuthContext getAuthContextByRequest() {
-		HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+	private SpaceUserAuthContext getAuthContextByRequest(HttpServletRequest request) {
 		String contentType = request.getHeader(Header.CONTENT_TYPE.getValue());
 		SpaceUserAuthContext authRequest;
 		// 兼容 get 和 post 操作
@@ -0,0 +1,116 @@
+package com.baolong.blpicturebackend.auth.model;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的空间用户权限表（不可变）
+ * <p>
+ * 每个权限分配一个二进制位, 每个角色编译为一个 long 掩码, 权限校验只需要一次位运算;
+ * 角色对应的权限列表也预先生成只读列表, 不再每次查找和复制
+ */
+public final class SpaceUserAuthTable {
+
+	/**
+	 * 原始配置
+	 */
+	@Getter
+	private final SpaceUserAuthConfig config;
+
+	/**
+	 * 权限键 => 权限位
+	 */
+	private final Map<String, Long> permissionBitMap;
+
+	/**
+	 * 角色键 => 权限掩码
+	 */
+	private final Map<String, Long> roleMaskMap;
+
+	/**
+	 * 角色键 => 权限列表（只读）
+	 */
+	private final Map<String, List<String>> rolePermissionMap;
+
+	private SpaceUserAuthTable(SpaceUserAuthConfig config, Map<String, Long> permissionBitMap,
+							   Map<String, Long> roleMaskMap, Map<String, List<String>> rolePermissionMap) {
+		this.config = config;
+		this.permissionBitMap = permissionBitMap;
+		this.roleMaskMap = roleMaskMap;
+		this.rolePermissionMap = rolePermissionMap;
+	}
+
+	/**
+	 * 编译权限配置, 配置不合法时抛出异常
+	 *
+	 * @param config 权限配置
+	 * @return 编译后的权限表
+	 */
+	public static SpaceUserAuthTable compile(SpaceUserAuthConfig config) {
+		ThrowUtils.throwIf(config == null || CollUtil.isEmpty(config.getPermissions()) || CollUtil.isEmpty(config.getRoles()),
+				ErrorCode.SYSTEM_ERROR, "空间权限配置为空");
+		List<SpaceUserPermission> permissions = config.getPermissions();
+		ThrowUtils.throwIf(permissions.size() > Long.SIZE, ErrorCode.SYSTEM_ERROR, "空间权限数量不能超过 " + Long.SIZE);
+		// 为每个权限分配一个二进制位
+		Map<String, Long> permissionBitMap = new HashMap<>();
+		for (SpaceUserPermission permission : permissions) {
+			String key = permission.getKey();
+			ThrowUtils.throwIf(StrUtil.isBlank(key), ErrorCode.SYSTEM_ERROR, "空间权限键不能为空");
+			ThrowUtils.throwIf(permissionBitMap.containsKey(key), ErrorCode.SYSTEM_ERROR, "空间权限键重复: " + key);
+			permissionBitMap.put(key, 1L << permissionBitMap.size());
+		}
+		// 将每个角色的权限编译为掩码
+		Map<String, Long> roleMaskMap = new HashMap<>();
+		Map<String, List<String>> rolePermissionMap = new HashMap<>();
+		for (SpaceUserRole role : config.getRoles()) {
+			String roleKey = role.getKey();
+			ThrowUtils.throwIf(StrUtil.isBlank(roleKey), ErrorCode.SYSTEM_ERROR, "空间角色键不能为空");
+			ThrowUtils.throwIf(roleMaskMap.containsKey(roleKey), ErrorCode.SYSTEM_ERROR, "空间角色键重复: " + roleKey);
+			long mask = 0L;
+			List<String> rolePermissions = new ArrayList<>();
+			for (String permissionKey : CollUtil.emptyIfNull(role.getPermissions())) {
+				Long bit = permissionBitMap.get(permissionKey);
+				ThrowUtils.throwIf(bit == null, ErrorCode.SYSTEM_ERROR, "角色 " + roleKey + " 引用了不存在的权限: " + permissionKey);
+				if ((mask & bit) == 0) {
+					mask |= bit;
+					rolePermissions.add(permissionKey);
+				}
+			}
+			roleMaskMap.put(roleKey, mask);
+			rolePermissionMap.put(roleKey, Collections.unmodifiableList(rolePermissions));
+		}
+		return new SpaceUserAuthTable(config, Collections.unmodifiableMap(permissionBitMap),
+				Collections.unmodifiableMap(roleMaskMap), Collections.unmodifiableMap(rolePermissionMap));
+	}
+
+	/**
+	 * 获取角色的权限列表（只读）, 角色不存在时返回空列表
+	 */
+	public List<String> getPermissions(String roleKey) {
+		if (roleKey == null) {
+			return Collections.emptyList();
+		}
+		return rolePermissionMap.getOrDefault(roleKey, Collections.emptyList());
+	}
+
+	/**
+	 * 判断角色是否拥有权限
+	 */
+	public boolean hasPermission(String roleKey, String permissionKey) {
+		if (roleKey == null || permissionKey == null) {
+			return false;
+		}
+		Long mask = roleMaskMap.get(roleKey);
+		Long bit = permissionBitMap.get(permissionKey);
+		return mask != null && bit != null && (mask & bit) != 0;
+	}
+}
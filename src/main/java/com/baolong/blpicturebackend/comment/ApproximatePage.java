@@ -0,0 +1,41 @@
+package com.baolong.blpicturebackend.comment;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * 分页结果, 在 MyBatis-Plus 分页对象的基础上标记总条数是否为近似值
+ */
+@Getter
+@Setter
+public class ApproximatePage<T> extends Page<T> {
+
+	/**
+	 * 总条数是否为近似值（实际条数超过统计上限）
+	 */
+	private boolean totalApproximate;
+
+	public ApproximatePage() {
+	}
+
+	public ApproximatePage(long current, long size, long total, boolean totalApproximate) {
+		super(current, size, total, false);
+		this.totalApproximate = totalApproximate;
+	}
+
+	/**
+	 * 以另一个分页对象的页号、页大小和总条数创建（不复制数据）, 保留总条数是否为近似值
+	 *
+	 * @param page 分页对象
+	 * @param <T>  泛型
+	 * @return 分页结果
+	 */
+	public static <T> ApproximatePage<T> of(IPage<?> page) {
+		boolean totalApproximate = page instanceof ApproximatePage && ((ApproximatePage<?>) page).isTotalApproximate();
+		return new ApproximatePage<>(page.getCurrent(), page.getSize(), page.getTotal(), totalApproximate);
+	}
+
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,41 @@
+package com.baolong.blpicturebackend.comment;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 游标分页结果
+ */
+@Data
+public class CursorPage<T> implements Serializable {
+
+	/**
+	 * 当前页数据
+	 */
+	private List<T> records = new ArrayList<>();
+
+	/**
+	 * 下一页游标, 没有更多数据时为空
+	 */
+	private String nextCursor;
+
+	/**
+	 * 是否还有更多数据
+	 */
+	private boolean hasMore;
+
+	/**
+	 * 总条数, 只有请求时要求才统计
+	 */
+	private Long total;
+
+	/**
+	 * 总条数是否为近似值（实际条数超过统计上限）
+	 */
+	private boolean totalApproximate;
+
+	private static final long serialVersionUID = 1L;
+}
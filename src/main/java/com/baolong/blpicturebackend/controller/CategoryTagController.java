@@ -10,6 +10,7 @@ import com.baolong.blpicturebackend.constant.UserConstant;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.cache.CategoryTagDictionary;
 import com.baolong.blpicturebackend.model.dto.category.CategoryAddRequest;
 import com.baolong.blpicturebackend.model.dto.category.CategoryQueryRequest;
 import com.baolong.blpicturebackend.model.dto.category.CategoryUpdateRequest;
@@ -46,13 +47,16 @@ public class CategoryTagController {
 	private UserService userService;
 	@Resource
 	private CategoryTagService categoryTagService;
+	@Resource
+	private CategoryTagDictionary categoryTagDictionary;
 
 	/**
 	 * 获取分类标签数据
 	 */
 	@GetMapping("/data/vo")
 	public BaseResponse<PictureTagCategory> pictureCategoryTagData() {
-		List<CategoryTag> categoryTagList = categoryTagService.list();
+		// 从本地字典中获取, 不再查询数据库
+		List<CategoryTag> categoryTagList = categoryTagDictionary.list();
 		List<CategoryTagVO> voList = categoryTagList.stream().map(CategoryTagVO::objToVo).collect(Collectors.toList());
 		Map<Integer, List<CategoryTagVO>> typeMap = voList.stream().collect(Collectors.groupingBy(CategoryTagVO::getType));
 		PictureTagCategory pictureTagCategory = new PictureTagCategory();
@@ -94,6 +98,8 @@ public class CategoryTagController {
 		// 操作数据库
 		boolean result = categoryTagService.removeById(id);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 刷新分类标签字典
+		categoryTagDictionary.refresh();
 		return ResultUtils.success(true);
 	}
 
@@ -119,6 +125,8 @@ public class CategoryTagController {
 		// 操作数据库
 		boolean result = categoryTagService.updateById(categoryTag);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 刷新分类标签字典
+		categoryTagDictionary.refresh();
 		return ResultUtils.success(true);
 	}
 
@@ -140,6 +148,8 @@ public class CategoryTagController {
 		// 操作数据库
 		boolean result = categoryTagService.save(categoryTag);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 刷新分类标签字典
+		categoryTagDictionary.refresh();
 		return ResultUtils.success(true);
 	}
 
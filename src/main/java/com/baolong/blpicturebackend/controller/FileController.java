@@ -1,15 +1,16 @@
 package com.baolong.blpicturebackend.controller;
 
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
 import com.baolong.blpicturebackend.annotation.AuthCheck;
 import com.baolong.blpicturebackend.comment.BaseResponse;
 import com.baolong.blpicturebackend.comment.ResultUtils;
 import com.baolong.blpicturebackend.constant.UserConstant;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
-import com.baolong.blpicturebackend.manager.CosManager;
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.COSObjectInputStream;
-import com.qcloud.cos.utils.IOUtils;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.storage.ObjectDownloadManager;
+import com.baolong.blpicturebackend.manager.storage.ObjectStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,9 +20,9 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
-import java.io.IOException;
+import java.io.InputStream;
 
 @Slf4j
 @RestController
@@ -29,7 +30,10 @@ import java.io.IOException;
 public class FileController {
 
 	@Resource
-	private CosManager cosManager;
+	private ObjectStore objectStore;
+
+	@Resource
+	private ObjectDownloadManager objectDownloadManager;
 
 	/**
 	 * 测试文件上传
@@ -43,25 +47,14 @@ public class FileController {
 		// 文件目录
 		String filename = multipartFile.getOriginalFilename();
 		String filepath = String.format("/test/%s", filename);
-		File file = null;
-		try {
+		try (InputStream inputStream = multipartFile.getInputStream()) {
 			// 上传文件
-			file = File.createTempFile(filepath, null);
-			multipartFile.transferTo(file);
-			cosManager.putObject(filepath, file);
+			objectStore.putObject(filepath, inputStream, multipartFile.getSize());
 			// 返回可访问地址
-			return ResultUtils.success(filepath);
+			return ResultUtils.success(objectStore.getUrl(filepath));
 		} catch (Exception e) {
 			log.error("file upload error, filepath = " + filepath, e);
 			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
-		} finally {
-			if (file != null) {
-				// 删除临时文件
-				boolean delete = file.delete();
-				if (!delete) {
-					log.error("file delete error, filepath = {}", filepath);
-				}
-			}
 		}
 	}
 
@@ -69,31 +62,14 @@ public class FileController {
 	 * 测试文件下载
 	 *
 	 * @param filepath 文件路径
+	 * @param request  请求对象
 	 * @param response 响应对象
 	 */
 	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
 	@GetMapping("/test/download/")
-	public void testDownloadFile(String filepath, HttpServletResponse response) throws IOException {
-		COSObjectInputStream cosObjectInput = null;
-		try {
-			COSObject cosObject = cosManager.getObject(filepath);
-			cosObjectInput = cosObject.getObjectContent();
-			// 处理下载到的流
-			byte[] bytes = IOUtils.toByteArray(cosObjectInput);
-			// 设置响应头
-			response.setContentType("application/octet-stream;charset=UTF-8");
-			response.setHeader("Content-Disposition", "attachment; filename=" + filepath);
-			// 写入响应
-			response.getOutputStream().write(bytes);
-			response.getOutputStream().flush();
-		} catch (Exception e) {
-			log.error("file download error, filepath = " + filepath, e);
-			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "下载失败");
-		} finally {
-			if (cosObjectInput != null) {
-				cosObjectInput.close();
-			}
-		}
+	public void testDownloadFile(String filepath, HttpServletRequest request, HttpServletResponse response) {
+		ThrowUtils.throwIf(StrUtil.isBlank(filepath), ErrorCode.PARAMS_ERROR);
+		objectDownloadManager.download(filepath, FileUtil.getName(filepath), "no-cache", request, response);
 	}
 
 }
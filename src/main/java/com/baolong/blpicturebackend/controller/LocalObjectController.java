@@ -0,0 +1,70 @@
+package com.baolong.blpicturebackend.controller;
+
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.comment.BaseResponse;
+import com.baolong.blpicturebackend.comment.ResultUtils;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.storage.LocalObjectStore;
+import com.baolong.blpicturebackend.manager.storage.ObjectDownloadManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 本地对象存储访问接口（picture.storage.type = local 时启用）
+ * <p>
+ * 读取与公有读的存储桶一致, 不需要签名; 上传需要预签名地址
+ */
+@RestController
+@RequestMapping("/storage/local")
+@ConditionalOnProperty(prefix = "picture.storage", name = "type", havingValue = "local")
+public class LocalObjectController {
+
+	private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+	@Resource
+	private LocalObjectStore localObjectStore;
+
+	@Resource
+	private ObjectDownloadManager objectDownloadManager;
+
+	/**
+	 * 下载对象
+	 */
+	@GetMapping("/**")
+	public void getObject(HttpServletRequest request, HttpServletResponse response) {
+		objectDownloadManager.download(getKey(request), null, null, request, response);
+	}
+
+	/**
+	 * 通过预签名地址上传对象
+	 */
+	@PutMapping("/**")
+	public BaseResponse<Boolean> putObject(Long expires, String sign, HttpServletRequest request) throws IOException {
+		String key = getKey(request);
+		ThrowUtils.throwIf(!localObjectStore.verifySign("PUT", key, expires, sign), ErrorCode.NO_AUTH_ERROR, "签名无效或已过期");
+		try (InputStream inputStream = request.getInputStream()) {
+			localObjectStore.putObject(key, inputStream, request.getContentLengthLong());
+		}
+		return ResultUtils.success(true);
+	}
+
+	private String getKey(HttpServletRequest request) {
+		String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+		String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String key = PATH_MATCHER.extractPathWithinPattern(pattern, path);
+		ThrowUtils.throwIf(StrUtil.isBlank(key), ErrorCode.PARAMS_ERROR, "文件路径错误");
+		return key;
+	}
+}
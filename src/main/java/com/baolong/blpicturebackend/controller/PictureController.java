@@ -1,6 +1,8 @@
 package com.baolong.blpicturebackend.controller;
 
-import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.baolong.blpicturebackend.annotation.AuthCheck;
@@ -15,20 +17,39 @@ import com.baolong.blpicturebackend.auth.SpaceUserAuthManager;
 import com.baolong.blpicturebackend.auth.StpKit;
 import com.baolong.blpicturebackend.auth.annotation.SaSpaceCheckPermission;
 import com.baolong.blpicturebackend.auth.model.SpaceUserPermissionConstant;
+import com.baolong.blpicturebackend.comment.ApproximatePage;
 import com.baolong.blpicturebackend.comment.BaseResponse;
+import com.baolong.blpicturebackend.comment.CursorPage;
 import com.baolong.blpicturebackend.comment.DeleteRequest;
 import com.baolong.blpicturebackend.comment.ResultUtils;
 import com.baolong.blpicturebackend.constant.UserConstant;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.cache.CacheStats;
+import com.baolong.blpicturebackend.manager.cache.PictureCount;
+import com.baolong.blpicturebackend.manager.cache.PictureCountCache;
+import com.baolong.blpicturebackend.manager.cache.PictureHashIndex;
+import com.baolong.blpicturebackend.manager.cache.PictureListCache;
+import com.baolong.blpicturebackend.manager.crawler.PictureGrabJobManager;
+import com.baolong.blpicturebackend.manager.search.PictureSearchManager;
+import com.baolong.blpicturebackend.manager.search.PictureSearchStats;
+import com.baolong.blpicturebackend.manager.storage.ObjectDeleteQueue;
+import com.baolong.blpicturebackend.manager.storage.ObjectDeleteQueueStats;
+import com.baolong.blpicturebackend.manager.storage.ObjectDownloadManager;
+import com.baolong.blpicturebackend.manager.storage.ObjectDownloadStats;
+import com.baolong.blpicturebackend.manager.storage.ObjectStore;
+import com.baolong.blpicturebackend.manager.tag.PictureTagManager;
 import com.baolong.blpicturebackend.model.dto.picture.CreatePictureOutPaintingTaskRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureCursorQueryRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureEditByBatchRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureEditRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureQueryRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureReviewRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureUpdateRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureUploadByBatchRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureUploadConfirmRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureUploadPresignRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureUploadRequest;
 import com.baolong.blpicturebackend.model.dto.picture.SearchPictureByColorRequest;
 import com.baolong.blpicturebackend.model.dto.picture.SearchPictureByPictureRequest;
@@ -37,22 +58,25 @@ import com.baolong.blpicturebackend.model.entity.Picture;
 import com.baolong.blpicturebackend.model.entity.Space;
 import com.baolong.blpicturebackend.model.entity.User;
 import com.baolong.blpicturebackend.model.enums.CategoryTagEnum;
+import com.baolong.blpicturebackend.model.enums.PictureDownloadVariantEnum;
 import com.baolong.blpicturebackend.model.enums.PictureReviewStatusEnum;
+import com.baolong.blpicturebackend.model.event.PictureChangeEvent;
+import com.baolong.blpicturebackend.model.vo.PictureGrabJobVO;
 import com.baolong.blpicturebackend.model.vo.PictureTagCategory;
+import com.baolong.blpicturebackend.model.vo.PictureUploadPresignVO;
+import com.baolong.blpicturebackend.model.vo.PictureCardVO;
 import com.baolong.blpicturebackend.model.vo.PictureVO;
 import com.baolong.blpicturebackend.service.CategoryTagService;
 import com.baolong.blpicturebackend.service.PictureService;
 import com.baolong.blpicturebackend.service.SpaceService;
 import com.baolong.blpicturebackend.service.UserService;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
-import org.springframework.util.DigestUtils;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -63,11 +87,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -82,13 +108,33 @@ public class PictureController {
 	@Resource
 	private CategoryTagService categoryTagService;
 	@Resource
-	private StringRedisTemplate stringRedisTemplate;
-	@Resource
 	private SpaceService spaceService;
 	@Resource
 	private AliYunAiApi aliYunAiApi;
 	@Resource
 	private SpaceUserAuthManager spaceUserAuthManager;
+	@Resource
+	private PictureListCache pictureListCache;
+	@Resource
+	private PictureCountCache pictureCountCache;
+	@Resource
+	private PictureHashIndex pictureHashIndex;
+	@Resource
+	private ObjectDeleteQueue objectDeleteQueue;
+	@Resource
+	private PictureGrabJobManager pictureGrabJobManager;
+	@Resource
+	private ObjectStore objectStore;
+	@Resource
+	private ObjectDownloadManager objectDownloadManager;
+	@Resource
+	private ApplicationEventPublisher applicationEventPublisher;
+	@Resource
+	private PictureTagManager pictureTagManager;
+	@Resource
+	private PictureSearchManager pictureSearchManager;
+	@Resource
+	private TransactionTemplate transactionTemplate;
 
 	/**
 	 * 上传图片（可重新上传）
@@ -119,6 +165,29 @@ public class PictureController {
 		return ResultUtils.success(pictureVO);
 	}
 
+	/**
+	 * 申请图片直传地址, 客户端上传完成后调用 /upload/confirm 确认
+	 */
+	@PostMapping("/upload/presign")
+	@SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+	public BaseResponse<PictureUploadPresignVO> presignUploadPicture(
+			@RequestBody PictureUploadPresignRequest pictureUploadPresignRequest,
+			HttpServletRequest request) {
+		User loginUser = userService.getLoginUser(request);
+		return ResultUtils.success(pictureService.presignUpload(pictureUploadPresignRequest, loginUser));
+	}
+
+	/**
+	 * 确认图片直传（权限已在申请直传地址时校验, 仅申请人可确认）
+	 */
+	@PostMapping("/upload/confirm")
+	public BaseResponse<PictureVO> confirmUploadPicture(
+			@RequestBody PictureUploadConfirmRequest pictureUploadConfirmRequest,
+			HttpServletRequest request) {
+		User loginUser = userService.getLoginUser(request);
+		return ResultUtils.success(pictureService.confirmUpload(pictureUploadConfirmRequest, loginUser));
+	}
+
 	/**
 	 * 删除图片
 	 */
@@ -154,15 +223,7 @@ public class PictureController {
 		// 使用分类标签表的方式
 		if (pictureUpdateRequest.getInputTagList() != null && !pictureUpdateRequest.getInputTagList().isEmpty()) {
 			// 需要把这个里面的标签新增到数据库中
-			for (String tag : pictureUpdateRequest.getInputTagList()) {
-				CategoryTag categoryTag = new CategoryTag();
-				categoryTag.setName(tag);
-				categoryTag.setType(CategoryTagEnum.TAG.getValue());
-				categoryTag.setUserId(loginUser.getId());
-				categoryTagService.save(categoryTag);
-				// 把新增的id放到 inputTagList 中
-				inputTagList.add(String.valueOf(categoryTag.getId()));
-			}
+			inputTagList.addAll(categoryTagService.saveInputTags(pictureUpdateRequest.getInputTagList(), loginUser.getId()));
 		}
 		// 把 inputTagList 转为逗号分隔的字符串
 		String inputTagListStr = String.join(",", inputTagList);
@@ -176,9 +237,16 @@ public class PictureController {
 		ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
 		// 补充审核参数
 		pictureService.fillReviewParams(picture, loginUser);
-		// 操作数据库
-		boolean result = pictureService.updateById(picture);
-		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 操作数据库, 同时同步标签关联
+		transactionTemplate.execute(status -> {
+			boolean result = pictureService.updateById(picture);
+			ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+			pictureTagManager.syncTags(id, oldPicture.getSpaceId(), picture.getTags());
+			return true;
+		});
+		// 发布图片变更事件, 失效图片列表缓存
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(oldPicture.getSpaceId(), oldPicture, picture));
+		pictureHashIndex.updateReviewStatus(oldPicture, picture.getReviewStatus());
 		return ResultUtils.success(true);
 	}
 
@@ -238,6 +306,66 @@ public class PictureController {
 		return ResultUtils.success(pictureVO);
 	}
 
+	/**
+	 * 下载图片（支持范围请求和协商缓存）
+	 *
+	 * @param id      图片 id
+	 * @param variant 图片版本: origin（原图, 默认）、compressed（压缩图）、thumbnail（缩略图）
+	 */
+	@GetMapping("/download")
+	public void downloadPicture(long id, String variant, HttpServletRequest request, HttpServletResponse response) {
+		ThrowUtils.throwIf(id <= 0, ErrorCode.PARAMS_ERROR);
+		PictureDownloadVariantEnum variantEnum = StrUtil.isBlank(variant)
+				? PictureDownloadVariantEnum.ORIGIN : PictureDownloadVariantEnum.getEnumByValue(variant);
+		ThrowUtils.throwIf(variantEnum == null, ErrorCode.PARAMS_ERROR, "图片版本错误");
+		// 查询数据库
+		Picture picture = pictureService.getById(id);
+		ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR);
+		// 空间的图片，需要校验权限
+		Long spaceId = picture.getSpaceId();
+		if (spaceId != null) {
+			boolean hasPermission = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
+			ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR);
+		}
+		// 历史图片可能没有原图或缩略图, 使用压缩图代替
+		String url;
+		switch (variantEnum) {
+			case ORIGIN:
+				url = StrUtil.blankToDefault(picture.getOriginUrl(), picture.getUrl());
+				break;
+			case THUMBNAIL:
+				url = StrUtil.blankToDefault(picture.getThumbnailUrl(), picture.getUrl());
+				break;
+			default:
+				url = picture.getUrl();
+		}
+		String key = objectStore.getKey(url);
+		ThrowUtils.throwIf(StrUtil.isBlank(key), ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+		String fileName = picture.getName() + "." + FileUtil.getSuffix(key);
+		// 空间的图片每次都需要回源校验权限, 公共图库的图片允许共享缓存
+		String cacheControl = spaceId != null ? "private, no-cache" : "public, max-age=3600";
+		objectDownloadManager.download(key, fileName, cacheControl, request, response);
+	}
+
+	/**
+	 * 获取图片下载统计信息（管理员可用）
+	 */
+	@GetMapping("/download/stats")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<ObjectDownloadStats> getPictureDownloadStats() {
+		return ResultUtils.success(objectDownloadManager.getStats());
+	}
+
+	/**
+	 * 按 picture.tags 回填图片标签关联（管理员可用）, 后台执行, 可重复调用
+	 */
+	@PostMapping("/tag/backfill")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<Boolean> backfillPictureTag() {
+		ThrowUtils.throwIf(!pictureTagManager.startBackfill(), ErrorCode.OPERATION_ERROR, "标签关联回填任务正在执行");
+		return ResultUtils.success(true);
+	}
+
 	/**
 	 * 分页获取图片列表（仅管理员可用）
 	 */
@@ -246,34 +374,38 @@ public class PictureController {
 	public BaseResponse<Page<Picture>> listPictureByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
 		long current = pictureQueryRequest.getCurrent();
 		long size = pictureQueryRequest.getPageSize();
-		// 查询数据库
-		Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-				pictureService.getQueryWrapper(pictureQueryRequest));
-		// 处理分类和标签
+		// 查询数据库（管理员表格需要精确的总条数）
+		Page<Picture> picturePage = this.pagePicture(pictureQueryRequest, current, size, true);
+		// 处理分类和标签（整页只查询一次分类标签表）
+		Set<Long> ctIdSet = new HashSet<>();
 		for (Picture picture : picturePage.getRecords()) {
-			// 查询当前图片的分类和标签的信息
-			List<String> ctIds = new ArrayList<>();
 			if (StrUtil.isNotBlank(picture.getTags())) {
-				ctIds.addAll(Arrays.stream(picture.getTags().split(",")).collect(Collectors.toList()));
+				Arrays.stream(picture.getTags().split(","))
+						.filter(NumberUtil::isLong)
+						.map(Long::valueOf)
+						.forEach(ctIdSet::add);
 			}
-			if (StrUtil.isNotBlank(picture.getCategory())) {
-				ctIds.add(picture.getCategory());
+			if (NumberUtil.isLong(picture.getCategory())) {
+				ctIdSet.add(Long.valueOf(picture.getCategory()));
 			}
-			if (!ctIds.isEmpty()) {
-				List<CategoryTag> categoryTagList = categoryTagService.list(new LambdaQueryWrapper<CategoryTag>()
-						.in(CategoryTag::getId, ctIds)
-				);
-				Map<Integer, List<CategoryTag>> typeMap = categoryTagList.stream().collect(Collectors.groupingBy(CategoryTag::getType));
-				if (typeMap.get(CategoryTagEnum.CATEGORY.getValue()) != null) {
-					picture.setCategory(typeMap.get(CategoryTagEnum.CATEGORY.getValue()).get(0).getName());
+		}
+		Map<Long, CategoryTag> categoryTagMap = categoryTagService.getCategoryTagMapByIds(ctIdSet);
+		for (Picture picture : picturePage.getRecords()) {
+			if (NumberUtil.isLong(picture.getCategory())) {
+				CategoryTag category = categoryTagMap.get(Long.valueOf(picture.getCategory()));
+				if (category != null && CategoryTagEnum.CATEGORY.getValue().equals(category.getType())) {
+					picture.setCategory(category.getName());
 				}
-				if (typeMap.get(CategoryTagEnum.TAG.getValue()) != null) {
-					picture.setTags(JSONUtil.toJsonStr(
-							typeMap.get(CategoryTagEnum.TAG.getValue())
-									.stream()
-									.map(CategoryTag::getName)
-									.collect(Collectors.toList())
-					));
+			}
+			if (StrUtil.isNotBlank(picture.getTags())) {
+				List<String> tagNameList = Arrays.stream(picture.getTags().split(","))
+						.filter(NumberUtil::isLong)
+						.map(tagId -> categoryTagMap.get(Long.valueOf(tagId)))
+						.filter(tag -> tag != null && CategoryTagEnum.TAG.getValue().equals(tag.getType()))
+						.map(CategoryTag::getName)
+						.collect(Collectors.toList());
+				if (!tagNameList.isEmpty()) {
+					picture.setTags(JSONUtil.toJsonStr(tagNameList));
 				}
 			}
 		}
@@ -293,6 +425,55 @@ public class PictureController {
 		ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
 
 		// 空间权限校验
+		this.checkListPictureScope(pictureQueryRequest, request);
+
+		// 查询数据库
+		Page<Picture> picturePage = this.pagePicture(pictureQueryRequest, current, size, false);
+		// 获取封装类
+		Page<PictureVO> pictureVOPage = pictureService.getPictureVOPage(picturePage, request);
+		pictureSearchManager.highlight(pictureVOPage.getRecords(), pictureQueryRequest.getSearchText());
+		return ResultUtils.success(pictureVOPage);
+	}
+
+	/**
+	 * 分页获取图片卡片列表（公共图库和空间的列表页）, 先按索引查询 id, 再按主键查询卡片需要的列
+	 */
+	@PostMapping("/list/page/card")
+	public BaseResponse<Page<PictureCardVO>> listPictureCardByPage(@RequestBody PictureQueryRequest pictureQueryRequest,
+																   HttpServletRequest request) {
+		long current = pictureQueryRequest.getCurrent();
+		long size = pictureQueryRequest.getPageSize();
+		// 限制爬虫
+		ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
+
+		// 空间权限校验
+		this.checkListPictureScope(pictureQueryRequest, request);
+
+		// 查询这一页的图片 id
+		Page<Picture> pictureIdPage = this.pagePicture(pictureQueryRequest, current, size, false, "id");
+		// 获取卡片
+		return ResultUtils.success(pictureService.getPictureCardPage(pictureIdPage));
+	}
+
+	/**
+	 * 游标分页获取图片列表（封装类）, 用于无限滚动, 翻页深度不影响查询速度
+	 */
+	@PostMapping("/list/cursor/vo")
+	public BaseResponse<CursorPage<PictureVO>> listPictureVOByCursor(@RequestBody PictureCursorQueryRequest pictureCursorQueryRequest,
+																	 HttpServletRequest request) {
+		ThrowUtils.throwIf(pictureCursorQueryRequest == null, ErrorCode.PARAMS_ERROR);
+		// 空间权限校验
+		this.checkListPictureScope(pictureCursorQueryRequest, request);
+		// 查询数据库
+		CursorPage<PictureVO> cursorPage = pictureService.listPictureVOByCursor(pictureCursorQueryRequest, request);
+		pictureSearchManager.highlight(cursorPage.getRecords(), pictureCursorQueryRequest.getSearchText());
+		return ResultUtils.success(cursorPage);
+	}
+
+	/**
+	 * 校验查询范围的权限: 公共图库只能查看已过审的数据, 空间需要查看权限
+	 */
+	private void checkListPictureScope(PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
 		Long spaceId = pictureQueryRequest.getSpaceId();
 		// 公开图库
 		if (spaceId == null) {
@@ -310,12 +491,6 @@ public class PictureController {
 			// 	throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
 			// }
 		}
-
-		// 查询数据库
-		Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-				pictureService.getQueryWrapper(pictureQueryRequest));
-		// 获取封装类
-		return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
 	}
 
 	/**
@@ -324,95 +499,49 @@ public class PictureController {
 	@PostMapping("/list/page/vo/cacheRedis")
 	public BaseResponse<Page<PictureVO>> listPictureVOByPageWithCache(@RequestBody PictureQueryRequest pictureQueryRequest,
 																	  HttpServletRequest request) {
-		long current = pictureQueryRequest.getCurrent();
-		long size = pictureQueryRequest.getPageSize();
-		// 限制爬虫
-		ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
-		// 普通用户默认只能查看已过审的数据
-		pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
-
-		// 构建缓存 key
-		String queryCondition = JSONUtil.toJsonStr(pictureQueryRequest);
-		String hashKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes());
-		String redisKey = "baolong:listPictureVOByPage:" + hashKey;
-		// 从 Redis 缓存中查询
-		ValueOperations<String, String> valueOps = stringRedisTemplate.opsForValue();
-		String cachedValue = valueOps.get(redisKey);
-		if (cachedValue != null) {
-			// 如果缓存命中，返回结果
-			Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue, Page.class);
-			return ResultUtils.success(cachedPage);
-		}
-
-		// 查询数据库
-		Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-				pictureService.getQueryWrapper(pictureQueryRequest));
-		// 获取封装类
-		Page<PictureVO> pictureVOPage = pictureService.getPictureVOPage(picturePage, request);
-
-		// 存入 Redis 缓存
-		String cacheValue = JSONUtil.toJsonStr(pictureVOPage);
-		// 5 - 10 分钟随机过期，防止雪崩
-		int cacheExpireTime = 300 + RandomUtil.randomInt(0, 300);
-		valueOps.set(redisKey, cacheValue, cacheExpireTime, TimeUnit.SECONDS);
-
-		// 返回结果
-		return ResultUtils.success(pictureVOPage);
+		return ResultUtils.success(this.getPictureVOPageWithCache(pictureQueryRequest, PictureListCache.Level.REMOTE));
 	}
 
-	private final Cache<String, String> LOCAL_CACHE =
-			Caffeine.newBuilder().initialCapacity(1024)
-					// 最多一万条数据
-					.maximumSize(10000L)
-					// 缓存 5 分钟移除
-					.expireAfterWrite(5L, TimeUnit.MINUTES)
-					.build();
-
 	/**
 	 * 分页获取图片列表（封装类）集成 Caffeine 缓存
 	 */
 	@PostMapping("/list/page/vo/cacheCaffeine")
 	public BaseResponse<Page<PictureVO>> listPictureVOByPageWithCacheCaffeine(@RequestBody PictureQueryRequest pictureQueryRequest,
 																			  HttpServletRequest request) {
-		long current = pictureQueryRequest.getCurrent();
-		long size = pictureQueryRequest.getPageSize();
-		// 限制爬虫
-		ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
-		// 普通用户默认只能查看已过审的数据
-		pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
-
-		// 构建缓存 key
-		String queryCondition = JSONUtil.toJsonStr(pictureQueryRequest);
-		String hashKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes());
-		String caffeineKey = "baolong:listPictureVOByPage:" + hashKey;
-		// 从本地缓存中查询
-		String cachedValue = LOCAL_CACHE.getIfPresent(caffeineKey);
-		if (cachedValue != null) {
-			// 如果缓存命中，返回结果
-			Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue, Page.class);
-			return ResultUtils.success(cachedPage);
-		}
-
-		// 查询数据库
-		Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-				pictureService.getQueryWrapper(pictureQueryRequest));
-		// 获取封装类
-		Page<PictureVO> pictureVOPage = pictureService.getPictureVOPage(picturePage, request);
-
-		// 存入本地缓存
-		String cacheValue = JSONUtil.toJsonStr(pictureVOPage);
-		LOCAL_CACHE.put(caffeineKey, cacheValue);
-
-		// 返回结果
-		return ResultUtils.success(pictureVOPage);
+		return ResultUtils.success(this.getPictureVOPageWithCache(pictureQueryRequest, PictureListCache.Level.LOCAL));
 	}
 
 	/**
-	 * 分页获取图片列表（封装类）集成 Caffeine 缓存
+	 * 分页获取图片列表（封装类）集成 Caffeine + Redis 多级缓存
 	 */
 	@PostMapping("/list/page/vo/cacheLevels")
 	public BaseResponse<Page<PictureVO>> listPictureVOByPageWithCacheLevels(@RequestBody PictureQueryRequest pictureQueryRequest,
 																			HttpServletRequest request) {
+		return ResultUtils.success(this.getPictureVOPageWithCache(pictureQueryRequest, PictureListCache.Level.MULTI));
+	}
+
+	/**
+	 * 获取图片列表缓存统计信息（管理员可用）
+	 */
+	@GetMapping("/list/page/vo/cache/stats")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<CacheStats> getPictureListCacheStats() {
+		return ResultUtils.success(pictureListCache.getStats());
+	}
+
+	/**
+	 * 获取文件删除队列统计信息（管理员可用）
+	 */
+	@GetMapping("/delete/queue/stats")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<ObjectDeleteQueueStats> getObjectDeleteQueueStats() {
+		return ResultUtils.success(objectDeleteQueue.getStats());
+	}
+
+	/**
+	 * 分页获取图片列表（封装类）, 按指定的缓存级别缓存
+	 */
+	private Page<PictureVO> getPictureVOPageWithCache(PictureQueryRequest pictureQueryRequest, PictureListCache.Level level) {
 		long current = pictureQueryRequest.getCurrent();
 		long size = pictureQueryRequest.getPageSize();
 		// 限制爬虫
@@ -420,45 +549,68 @@ public class PictureController {
 		// 普通用户默认只能查看已过审的数据
 		pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
 
-		// 构建缓存 key
-		String queryCondition = JSONUtil.toJsonStr(pictureQueryRequest);
-		String hashKey = DigestUtils.md5DigestAsHex(queryCondition.getBytes());
-		String cacheKey = "baolong:listPictureVOByPage:" + hashKey;
-		// 1.从本地缓存中查询
-		String cachedValue = LOCAL_CACHE.getIfPresent(cacheKey);
-		if (cachedValue != null) {
-			log.info("本地缓存命中, key = {}", cacheKey);
-			// 如果缓存命中，返回结果
-			Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue, Page.class);
-			return ResultUtils.success(cachedPage);
+		return pictureListCache.get(pictureQueryRequest, level, new TypeReference<ApproximatePage<PictureVO>>() {
+		}, () -> {
+			// 查询数据库
+			Page<Picture> picturePage = this.pagePicture(pictureQueryRequest, current, size, false);
+			// 获取封装类（缓存可能在请求结束后异步刷新, 不能依赖当前请求）
+			ApproximatePage<PictureVO> pictureVOPage = ApproximatePage.of(picturePage);
+			pictureVOPage.setRecords(pictureService.getPictureVOPage(picturePage, null).getRecords());
+			pictureSearchManager.highlight(pictureVOPage.getRecords(), pictureQueryRequest.getSearchText());
+			return pictureVOPage;
+		});
+	}
+
+	/**
+	 * 分页查询图片, 总条数使用缓存（超过上限时为近似值, 结果中标记）, 带搜索词时记录查询耗时, 没有指定排序时按相关度排序
+	 *
+	 * @param exactTotal 是否精确统计总条数（不使用统计上限）
+	 * @param columns    只查询指定的列, 为空时查询全部列
+	 */
+	private ApproximatePage<Picture> pagePicture(PictureQueryRequest pictureQueryRequest, long current, long size,
+												 boolean exactTotal, String... columns) {
+		PictureCount pictureCount = pictureCountCache.get(pictureQueryRequest, pictureService::getQueryWrapper, exactTotal);
+		// 已有总条数, 数据查询不再执行 count
+		ApproximatePage<Picture> page = new ApproximatePage<>(current, size, pictureCount.getTotal(), pictureCount.isApproximate());
+		// 精确总条数下超出范围的页不需要查询
+		if (!pictureCount.isApproximate() && pictureCount.getTotal() <= (current - 1) * size) {
+			return page;
 		}
-		// 2.从 Redis 缓存中查询
-		ValueOperations<String, String> valueOps = stringRedisTemplate.opsForValue();
-		cachedValue = valueOps.get(cacheKey);
-		if (cachedValue != null) {
-			log.info("Redis 缓存命中, key = {}", cacheKey);
-			// 存入本地缓存
-			LOCAL_CACHE.put(cacheKey, cachedValue);
-			// 如果缓存命中，返回结果
-			Page<PictureVO> cachedPage = JSONUtil.toBean(cachedValue, Page.class);
-			return ResultUtils.success(cachedPage);
+		QueryWrapper<Picture> queryWrapper = pictureService.getQueryWrapper(pictureQueryRequest);
+		if (columns.length > 0) {
+			queryWrapper.select(columns);
 		}
+		String searchText = pictureQueryRequest.getSearchText();
+		if (StrUtil.isBlank(searchText)) {
+			return pictureService.page(page, queryWrapper);
+		}
+		// 没有指定排序时按相关度排序, 只用于数据查询, 总条数查询不需要排序
+		if (StrUtil.isEmpty(pictureQueryRequest.getSortField())) {
+			pictureSearchManager.orderByRelevance(queryWrapper, searchText);
+		}
+		long startTime = System.nanoTime();
+		ApproximatePage<Picture> picturePage = pictureService.page(page, queryWrapper);
+		pictureSearchManager.recordQuery(searchText, System.nanoTime() - startTime);
+		return picturePage;
+	}
 
-		// 3.查询数据库
-		Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-				pictureService.getQueryWrapper(pictureQueryRequest));
-		// 获取封装类
-		Page<PictureVO> pictureVOPage = pictureService.getPictureVOPage(picturePage, request);
-
-		// 4.更新缓存
-		String cacheValue = JSONUtil.toJsonStr(pictureVOPage);
-		// 存入本地缓存
-		LOCAL_CACHE.put(cacheKey, cacheValue);
-		// 存入 Redis 缓存
-		valueOps.set(cacheKey, cacheValue, 300 + RandomUtil.randomInt(0, 300), TimeUnit.SECONDS);
+	/**
+	 * 创建或重建图片全文索引（管理员可用）, 后台执行
+	 */
+	@PostMapping("/search/rebuild")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<Boolean> rebuildPictureSearchIndex() {
+		ThrowUtils.throwIf(!pictureSearchManager.startRebuild(), ErrorCode.OPERATION_ERROR, "全文索引重建任务正在执行");
+		return ResultUtils.success(true);
+	}
 
-		// 返回结果
-		return ResultUtils.success(pictureVOPage);
+	/**
+	 * 获取图片搜索统计信息（管理员可用）
+	 */
+	@GetMapping("/search/stats")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<PictureSearchStats> getPictureSearchStats() {
+		return ResultUtils.success(pictureSearchManager.getStats());
 	}
 
 	/**
@@ -502,11 +654,11 @@ public class PictureController {
 	}
 
 	/**
-	 * 上传图片（根据条件批量爬取上传）
+	 * 上传图片（根据条件批量爬取上传）, 异步执行, 返回任务 id
 	 */
 	@PostMapping("/upload/batch")
 	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
-	public BaseResponse<Integer> uploadPictureByBatch(
+	public BaseResponse<String> uploadPictureByBatch(
 			@RequestBody PictureUploadByBatchRequest pictureUploadByBatchRequest,
 			HttpServletRequest request) {
 		ThrowUtils.throwIf(pictureUploadByBatchRequest == null, ErrorCode.PARAMS_ERROR);
@@ -516,20 +668,21 @@ public class PictureController {
 		// 使用分类标签表的方式
 		if (pictureUploadByBatchRequest.getInputTagList() != null && !pictureUploadByBatchRequest.getInputTagList().isEmpty()) {
 			// 需要把这个里面的标签新增到数据库中
-			for (String tag : pictureUploadByBatchRequest.getInputTagList()) {
-				CategoryTag categoryTag = new CategoryTag();
-				categoryTag.setName(tag);
-				categoryTag.setType(CategoryTagEnum.TAG.getValue());
-				categoryTag.setUserId(loginUser.getId());
-				categoryTagService.save(categoryTag);
-				// 把新增的id放到 inputTagList 中
-				tagList.add(String.valueOf(categoryTag.getId()));
-			}
+			tagList.addAll(categoryTagService.saveInputTags(pictureUploadByBatchRequest.getInputTagList(), loginUser.getId()));
 		}
 		pictureUploadByBatchRequest.setTags(tagList);
 
-		int uploadCount = pictureService.uploadPictureByBatch(pictureUploadByBatchRequest, loginUser);
-		return ResultUtils.success(uploadCount);
+		String jobId = pictureGrabJobManager.submit(pictureUploadByBatchRequest, loginUser);
+		return ResultUtils.success(jobId);
+	}
+
+	/**
+	 * 获取批量爬取上传任务进度
+	 */
+	@GetMapping("/upload/batch/job")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<PictureGrabJobVO> getPictureGrabJob(String jobId) {
+		return ResultUtils.success(pictureGrabJobManager.getJob(jobId));
 	}
 
 	/**
@@ -542,7 +695,28 @@ public class PictureController {
 		ThrowUtils.throwIf(pictureId == null || pictureId <= 0, ErrorCode.PARAMS_ERROR);
 		Picture oldPicture = pictureService.getById(pictureId);
 		ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
-		List<ImageSearchResult> resultList = ImageSearchApiFacade.searchImage(oldPicture.getOriginUrl());
+		// 空间的图片，需要校验权限
+		if (oldPicture.getSpaceId() != null) {
+			boolean hasPermission = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
+			ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR);
+		}
+		// 优先返回本站同一空间中的相似图片
+		List<ImageSearchResult> resultList = new ArrayList<>();
+		for (Picture similarPicture : pictureService.listSimilarPicture(oldPicture, 20)) {
+			ImageSearchResult imageSearchResult = new ImageSearchResult();
+			imageSearchResult.setThumbUrl(StrUtil.blankToDefault(similarPicture.getThumbnailUrl(), similarPicture.getUrl()));
+			imageSearchResult.setFromUrl(similarPicture.getUrl());
+			resultList.add(imageSearchResult);
+		}
+		try {
+			resultList.addAll(ImageSearchApiFacade.searchImage(oldPicture.getOriginUrl()));
+		} catch (BusinessException e) {
+			// 已有本站结果时，外部搜索失败不影响返回
+			if (resultList.isEmpty()) {
+				throw e;
+			}
+			log.warn("以图搜图外部接口调用失败, pictureId = {}", pictureId, e);
+		}
 		return ResultUtils.success(resultList);
 	}
 
@@ -9,6 +9,7 @@ import com.baolong.blpicturebackend.constant.UserConstant;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.quota.SpaceQuotaManager;
 import com.baolong.blpicturebackend.model.dto.space.SpaceAddRequest;
 import com.baolong.blpicturebackend.model.dto.space.SpaceEditRequest;
 import com.baolong.blpicturebackend.model.dto.space.SpaceLevel;
@@ -47,6 +48,8 @@ public class SpaceController {
 	private SpaceService spaceService;
 	@Resource
 	private SpaceUserAuthManager spaceUserAuthManager;
+	@Resource
+	private SpaceQuotaManager spaceQuotaManager;
 
 	/**
 	 * 创建空间
@@ -76,6 +79,7 @@ public class SpaceController {
 		// 操作数据库
 		boolean result = spaceService.removeById(id);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		spaceQuotaManager.evict(id);
 		return ResultUtils.success(true);
 	}
 
@@ -102,6 +106,8 @@ public class SpaceController {
 		// 操作数据库
 		boolean result = spaceService.updateById(space);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 空间等级可能变化, 同步额度上限
+		spaceQuotaManager.refreshLimit(id);
 		return ResultUtils.success(true);
 	}
 
@@ -193,6 +199,8 @@ public class SpaceController {
 		// 操作数据库
 		boolean result = spaceService.updateById(space);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 空间等级可能变化, 同步额度上限
+		spaceQuotaManager.refreshLimit(id);
 		return ResultUtils.success(true);
 	}
 
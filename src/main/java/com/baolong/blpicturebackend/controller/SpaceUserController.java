@@ -1,14 +1,19 @@
 package com.baolong.blpicturebackend.controller;
 
 import cn.hutool.core.util.ObjectUtil;
+import com.baolong.blpicturebackend.annotation.AuthCheck;
+import com.baolong.blpicturebackend.auth.SpaceUserAuthManager;
 import com.baolong.blpicturebackend.auth.annotation.SaSpaceCheckPermission;
+import com.baolong.blpicturebackend.auth.model.SpaceUserAuthConfig;
 import com.baolong.blpicturebackend.auth.model.SpaceUserPermissionConstant;
 import com.baolong.blpicturebackend.comment.BaseResponse;
 import com.baolong.blpicturebackend.comment.DeleteRequest;
 import com.baolong.blpicturebackend.comment.ResultUtils;
+import com.baolong.blpicturebackend.constant.UserConstant;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.cache.SpacePermissionCache;
 import com.baolong.blpicturebackend.model.dto.spaceUser.SpaceUserAddRequest;
 import com.baolong.blpicturebackend.model.dto.spaceUser.SpaceUserEditRequest;
 import com.baolong.blpicturebackend.model.dto.spaceUser.SpaceUserQueryRequest;
@@ -39,6 +44,12 @@ public class SpaceUserController {
 	@Resource
 	private UserService userService;
 
+	@Resource
+	private SpacePermissionCache spacePermissionCache;
+
+	@Resource
+	private SpaceUserAuthManager spaceUserAuthManager;
+
 	/**
 	 * 添加成员到空间
 	 */
@@ -47,6 +58,7 @@ public class SpaceUserController {
 	public BaseResponse<Long> addSpaceUser(@RequestBody SpaceUserAddRequest spaceUserAddRequest, HttpServletRequest request) {
 		ThrowUtils.throwIf(spaceUserAddRequest == null, ErrorCode.PARAMS_ERROR);
 		long id = spaceUserService.addSpaceUser(spaceUserAddRequest);
+		spacePermissionCache.invalidate(spaceUserAddRequest.getUserId(), spaceUserAddRequest.getSpaceId());
 		return ResultUtils.success(id);
 	}
 
@@ -67,6 +79,7 @@ public class SpaceUserController {
 		// 操作数据库
 		boolean result = spaceUserService.removeById(id);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		spacePermissionCache.invalidate(oldSpaceUser.getUserId(), oldSpaceUser.getSpaceId());
 		return ResultUtils.success(true);
 	}
 
@@ -123,6 +136,7 @@ public class SpaceUserController {
 		// 操作数据库
 		boolean result = spaceUserService.updateById(spaceUser);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		spacePermissionCache.invalidate(oldSpaceUser.getUserId(), oldSpaceUser.getSpaceId());
 		return ResultUtils.success(true);
 	}
 
@@ -139,4 +153,13 @@ public class SpaceUserController {
 		);
 		return ResultUtils.success(spaceUserService.getSpaceUserVOList(spaceUserList));
 	}
+
+	/**
+	 * 重新加载空间权限配置（仅管理员可用, 通知所有节点重新加载）
+	 */
+	@PostMapping("/auth/reload")
+	@AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+	public BaseResponse<SpaceUserAuthConfig> reloadSpaceUserAuthConfig() {
+		return ResultUtils.success(spaceUserAuthManager.reloadAuthConfig());
+	}
 }
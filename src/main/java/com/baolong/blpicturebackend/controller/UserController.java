@@ -8,6 +8,7 @@ import com.baolong.blpicturebackend.constant.UserConstant;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.cache.LoginUserCache;
 import com.baolong.blpicturebackend.model.dto.user.UserAddRequest;
 import com.baolong.blpicturebackend.model.dto.user.UserLoginRequest;
 import com.baolong.blpicturebackend.model.dto.user.UserQueryRequest;
@@ -37,6 +38,8 @@ import java.util.List;
 public class UserController {
 	@Resource
 	private UserService userService;
+	@Resource
+	private LoginUserCache loginUserCache;
 
 	/**
 	 * 用户注册
@@ -143,6 +146,8 @@ public class UserController {
 			throw new BusinessException(ErrorCode.PARAMS_ERROR);
 		}
 		boolean b = userService.removeById(deleteRequest.getId());
+		// 清除登录用户缓存
+		loginUserCache.invalidate(deleteRequest.getId());
 		return ResultUtils.success(b);
 	}
 
@@ -159,6 +164,8 @@ public class UserController {
 		BeanUtils.copyProperties(userUpdateRequest, user);
 		boolean result = userService.updateById(user);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 清除登录用户缓存（包括角色变更）
+		loginUserCache.invalidate(user.getId());
 		return ResultUtils.success(true);
 	}
 
@@ -178,6 +185,8 @@ public class UserController {
 		BeanUtils.copyProperties(userUpdateRequest, user);
 		boolean result = userService.updateById(user);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 清除登录用户缓存
+		loginUserCache.invalidate(user.getId());
 		return ResultUtils.success(true);
 	}
 
@@ -1,6 +1,7 @@
 package com.baolong.blpicturebackend.manager;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
 import com.baolong.blpicturebackend.config.CosClientConfig;
 import com.baolong.blpicturebackend.exception.BusinessException;
@@ -11,6 +12,8 @@ import com.qcloud.cos.model.COSObjectInputStream;
 import com.qcloud.cos.model.GetObjectRequest;
 import com.qcloud.cos.model.PutObjectRequest;
 import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.ciModel.common.ImageProcessRequest;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
 import com.qcloud.cos.model.ciModel.persistence.PicOperations;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -23,9 +26,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * 腾讯云对象存储服务
+ * 腾讯云数据万象服务（图片处理）
  * <p>
- * 叫做 XXXManager 主要是做区分, 表示这个类是可以单独抽取出去的
+ * 叫做 XXXManager 主要是做区分, 表示这个类是可以单独抽取出去的; 对象的读写删除见 ObjectStore
  */
 @Slf4j
 @Component
@@ -38,45 +41,37 @@ public class CosManager {
 	private COSClient cosClient;
 
 	/**
-	 * 上传对象
+	 * 上传对象（附带图片信息）
+	 * <p>
+	 * <a href="https://cloud.tencent.com/document/product/436/115609">腾讯 COS 数据万象</a>
 	 *
 	 * @param key  唯一键
 	 * @param file 文件
 	 */
-	public PutObjectResult putObject(String key, File file) {
+	public PutObjectResult putPictureObject(String key, File file) {
 		PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key, file);
+		putObjectRequest.setPicOperations(buildPicOperations(key, file.length()));
 		return cosClient.putObject(putObjectRequest);
 	}
 
 	/**
-	 * 下载对象
-	 *
-	 * @param key 唯一键
-	 */
-	public COSObject getObject(String key) {
-		GetObjectRequest getObjectRequest = new GetObjectRequest(cosClientConfig.getBucket(), key);
-		return cosClient.getObject(getObjectRequest);
-	}
-
-	/**
-	 * 删除对象
+	 * 处理已上传的图片（格式转换、生成缩略图）
+	 * <p>
+	 * <a href="https://cloud.tencent.com/document/product/436/55377">腾讯 COS 云上数据处理</a>
 	 *
-	 * @param key 文件 key
+	 * @param key           原图 key
+	 * @param contentLength 原图大小
 	 */
-	public void deleteObject(String key) {
-		cosClient.deleteObject(cosClientConfig.getBucket(), key);
+	public CIUploadResult processPictureObject(String key, long contentLength) {
+		ImageProcessRequest imageProcessRequest = new ImageProcessRequest(cosClientConfig.getBucket(), key);
+		imageProcessRequest.setPicOperations(buildPicOperations(key, contentLength));
+		return cosClient.processImage(imageProcessRequest);
 	}
 
 	/**
-	 * 上传对象（附带图片信息）
-	 * <p>
-	 * <a href="https://cloud.tencent.com/document/product/436/115609">腾讯 COS 数据万象</a>
-	 *
-	 * @param key  唯一键
-	 * @param file 文件
+	 * 构造图片处理参数
 	 */
-	public PutObjectResult putPictureObject(String key, File file) {
-		PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key, file);
+	private PicOperations buildPicOperations(String key, long contentLength) {
 		// 对图片进行处理（获取基本信息也被视作为一种处理）
 		PicOperations picOperations = new PicOperations();
 		// 1 表示返回原图信息
@@ -87,14 +82,11 @@ public class CosManager {
 		// 处理图片格式为 webp 格式
 		rules.add(ciFormatConversion(key, "webp"));
 		// 针对大于 20KB 的图片, 需要生成缩略图
-		if (file.length() > 2 * 1024) {
+		if (contentLength > 2 * 1024) {
 			rules.add(ciThumbnailConversion(key));
 		}
-
-		// 构造处理参数
-		putObjectRequest.setPicOperations(picOperations);
 		picOperations.setRules(rules);
-		return cosClient.putObject(putObjectRequest);
+		return picOperations;
 	}
 
 	/**
@@ -130,6 +122,16 @@ public class CosManager {
 		return thumbnailRule;
 	}
 
+	/**
+	 * 获取图片基本信息
+	 *
+	 * @param imageKey 图片 key
+	 * @return 图片基本信息（format、width、height、size）
+	 */
+	public JSONObject getImageInfo(String imageKey) {
+		return JSONUtil.parseObj(getImageProcessResult(imageKey, "imageInfo", "获取图片基本信息失败"));
+	}
+
 	/**
 	 * 获取图片主色调
 	 *
@@ -137,9 +139,16 @@ public class CosManager {
 	 * @return 图片主色调
 	 */
 	public String getImageAve(String imageKey) {
+		return JSONUtil.parseObj(getImageProcessResult(imageKey, "imageAve", "获取图片主色调失败")).getStr("RGB");
+	}
+
+	/**
+	 * 请求数据万象图片处理接口, 返回响应内容
+	 */
+	private String getImageProcessResult(String imageKey, String rule, String errorMessage) {
 		GetObjectRequest objectRequest = new GetObjectRequest(cosClientConfig.getBucket(), imageKey);
-		// 设置图片处理规则为获取主色调
-		objectRequest.putCustomQueryParameter("imageAve", null);
+		// 设置图片处理规则
+		objectRequest.putCustomQueryParameter(rule, null);
 		// 获取对象
 		COSObject cosObject = cosClient.getObject(objectRequest);
 		try (
@@ -153,11 +162,10 @@ public class CosManager {
 				op.write(bytes, 0, len);
 			}
 			// 将字节数组转换为字符串
-			String aveColor = op.toString(StandardCharsets.UTF_8);
-			return JSONUtil.parseObj(aveColor).getStr("RGB");
+			return op.toString(StandardCharsets.UTF_8);
 		} catch (Exception e) {
-			log.error("获取图片主色调失败", e);
-			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "获取图片主色调失败");
+			log.error(errorMessage, e);
+			throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
 		}
 	}
 }
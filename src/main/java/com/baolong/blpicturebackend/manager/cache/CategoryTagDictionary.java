@@ -0,0 +1,233 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.mapper.CategoryTagMapper;
+import com.baolong.blpicturebackend.model.entity.CategoryTag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分类标签本地字典
+ * <p>
+ * 分类标签表数据量小且很少修改, 启动时整表加载到内存, 提供 id => 分类标签、(类型, 名称) => id 的查询;
+ * 修改分类标签后递增 Redis 中的版本号并发布消息, 各节点收到更高的版本号后重新加载
+ */
+@Slf4j
+@Component
+public class CategoryTagDictionary implements MessageListener {
+
+	/**
+	 * 字典版本号 key
+	 */
+	private static final String VERSION_KEY = "baolong:categoryTag:version";
+
+	/**
+	 * 字典变更通知频道
+	 */
+	private static final String CHANNEL = "baolong:categoryTag:change";
+
+	@Resource
+	private CategoryTagMapper categoryTagMapper;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 当前字典快照, 整体替换保证读取时的一致性
+	 */
+	private volatile Snapshot snapshot;
+
+	@PostConstruct
+	public void init() {
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+		try {
+			this.reload(this.getRemoteVersion());
+		} catch (Exception e) {
+			// 启动时加载失败不影响服务启动, 首次使用时再加载
+			log.error("分类标签字典加载失败", e);
+		}
+	}
+
+	// region 查询
+
+	/**
+	 * 获取全部分类标签（只读）
+	 *
+	 * @return 分类标签列表
+	 */
+	public List<CategoryTag> list() {
+		return this.getSnapshot().list;
+	}
+
+	/**
+	 * 根据 id 获取分类标签（只读）
+	 *
+	 * @param id 分类标签 id
+	 * @return 分类标签, 不存在返回 null
+	 */
+	public CategoryTag getById(Long id) {
+		return id == null ? null : this.getSnapshot().idMap.get(id);
+	}
+
+	/**
+	 * 根据类型和名称获取分类标签 id
+	 *
+	 * @param type 类型（0-分类 1-标签）
+	 * @param name 名称
+	 * @return 分类标签 id, 不存在返回 null
+	 */
+	public Long getIdByName(Integer type, String name) {
+		if (type == null || StrUtil.isBlank(name)) {
+			return null;
+		}
+		return this.getSnapshot().nameMap.getOrDefault(type, Collections.emptyMap()).get(name);
+	}
+
+	// endregion 查询
+
+	// region 刷新
+
+	/**
+	 * 分类标签变更后刷新字典
+	 * <p>
+	 * 在事务中调用时, 等事务提交后再刷新, 避免其他节点读到未提交的数据
+	 */
+	public void refresh() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					doRefresh();
+				}
+			});
+		} else {
+			this.doRefresh();
+		}
+	}
+
+	/**
+	 * 递增版本号, 重新加载本地字典并通知其他节点
+	 */
+	private void doRefresh() {
+		long version = -1;
+		try {
+			Long newVersion = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+			version = newVersion == null ? -1 : newVersion;
+			this.reload(version);
+			stringRedisTemplate.convertAndSend(CHANNEL, String.valueOf(version));
+		} catch (Exception e) {
+			log.error("分类标签字典刷新失败, version = {}", version, e);
+			// Redis 不可用时至少保证本节点数据最新
+			this.reload(version);
+		}
+	}
+
+	/**
+	 * 收到其他节点的变更通知
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		if (!NumberUtil.isLong(body)) {
+			return;
+		}
+		long version = Long.parseLong(body);
+		Snapshot current = this.snapshot;
+		if (current == null || version > current.version) {
+			this.reload(version);
+		}
+	}
+
+	/**
+	 * 定时对比版本号, 兜底发布订阅消息丢失的情况
+	 */
+	@Scheduled(fixedDelay = 60 * 1000L, initialDelay = 60 * 1000L)
+	public void checkVersion() {
+		try {
+			long remoteVersion = this.getRemoteVersion();
+			Snapshot current = this.snapshot;
+			if (current == null || remoteVersion > current.version) {
+				this.reload(remoteVersion);
+			}
+		} catch (Exception e) {
+			log.warn("分类标签字典版本检查失败: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 从数据库整表加载字典
+	 *
+	 * @param version 加载对应的版本号
+	 */
+	private synchronized void reload(long version) {
+		List<CategoryTag> categoryTagList = categoryTagMapper.selectList(null);
+		Map<Long, CategoryTag> idMap = new HashMap<>(categoryTagList.size() * 2);
+		Map<Integer, Map<String, Long>> nameMap = new HashMap<>();
+		for (CategoryTag categoryTag : categoryTagList) {
+			idMap.put(categoryTag.getId(), categoryTag);
+			nameMap.computeIfAbsent(categoryTag.getType(), key -> new HashMap<>())
+					.putIfAbsent(categoryTag.getName(), categoryTag.getId());
+		}
+		this.snapshot = new Snapshot(version, Collections.unmodifiableList(categoryTagList),
+				Collections.unmodifiableMap(idMap), Collections.unmodifiableMap(nameMap));
+		log.info("分类标签字典已加载, version = {}, size = {}", version, categoryTagList.size());
+	}
+
+	private Snapshot getSnapshot() {
+		Snapshot current = this.snapshot;
+		if (current == null) {
+			synchronized (this) {
+				if (this.snapshot == null) {
+					this.reload(-1);
+				}
+				current = this.snapshot;
+			}
+		}
+		return current;
+	}
+
+	private long getRemoteVersion() {
+		String version = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+		return NumberUtil.isLong(version) ? Long.parseLong(version) : 0;
+	}
+
+	// endregion 刷新
+
+	/**
+	 * 字典快照
+	 */
+	private static class Snapshot {
+		private final long version;
+		private final List<CategoryTag> list;
+		private final Map<Long, CategoryTag> idMap;
+		private final Map<Integer, Map<String, Long>> nameMap;
+
+		private Snapshot(long version, List<CategoryTag> list, Map<Long, CategoryTag> idMap,
+						 Map<Integer, Map<String, Long>> nameMap) {
+			this.version = version;
+			this.list = list;
+			this.idMap = idMap;
+			this.nameMap = nameMap;
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.model.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 登录用户本地缓存
+ * <p>
+ * 获取登录用户时不再每次查询数据库, 按用户 id 在本地短时间缓存;
+ * 用户信息修改后递增 Redis 中的全局版本号并广播 "版本号:用户 id", 各节点清除对应用户,
+ * 收到的版本号不连续说明中间有通知丢失, 直接清空本地缓存
+ */
+@Slf4j
+@Component
+public class LoginUserCache implements MessageListener {
+
+	/**
+	 * 失效版本号 key
+	 */
+	private static final String VERSION_KEY = "baolong:loginUser:version";
+
+	/**
+	 * 失效通知频道
+	 */
+	private static final String CHANNEL = "baolong:loginUser:evict";
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 本地缓存, 过期时间较短, 兜底通知丢失的情况
+	 */
+	private final Cache<Long, User> localCache = Caffeine.newBuilder()
+			.initialCapacity(1024)
+			.maximumSize(10000L)
+			.expireAfterWrite(60L, TimeUnit.SECONDS)
+			.build();
+
+	/**
+	 * 本节点最后收到的失效版本号
+	 */
+	private final AtomicLong lastVersion = new AtomicLong(-1);
+
+	@PostConstruct
+	public void init() {
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	/**
+	 * 获取用户, 不存在时通过 loader 查询
+	 *
+	 * @param userId 用户 id
+	 * @param loader 查询方法
+	 * @return 用户副本, 不存在返回 null
+	 */
+	public User get(Long userId, Function<Long, User> loader) {
+		User user = localCache.get(userId, loader);
+		if (user == null) {
+			return null;
+		}
+		// 返回副本, 避免调用方修改缓存中的对象
+		User copy = new User();
+		BeanUtils.copyProperties(user, copy);
+		return copy;
+	}
+
+	/**
+	 * 用户信息变更后清除缓存（所有节点）
+	 *
+	 * @param userId 用户 id
+	 */
+	public void invalidate(Long userId) {
+		if (userId == null) {
+			return;
+		}
+		localCache.invalidate(userId);
+		try {
+			Long version = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+			stringRedisTemplate.convertAndSend(CHANNEL, version + ":" + userId);
+		} catch (Exception e) {
+			log.error("登录用户缓存失效通知失败, userId = {}", userId, e);
+		}
+	}
+
+	/**
+	 * 收到其他节点的失效通知
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		List<String> parts = StrUtil.split(body, ":");
+		if (parts.size() != 2) {
+			return;
+		}
+		long version;
+		long userId;
+		try {
+			version = Long.parseLong(parts.get(0));
+			userId = Long.parseLong(parts.get(1));
+		} catch (NumberFormatException e) {
+			log.warn("登录用户缓存失效通知格式错误, body = {}", body);
+			return;
+		}
+		long previous = lastVersion.getAndAccumulate(version, Math::max);
+		if (previous >= 0 && version > previous + 1) {
+			// 版本号不连续, 中间有通知丢失, 清空本地缓存
+			localCache.invalidateAll();
+		} else {
+			localCache.invalidate(userId);
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.mapper.PictureMapper;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.awt.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 空间图片主色调索引
+ * <p>
+ * 按空间在内存中保存 (图片 id, RGB 列表) 的紧凑数组, 以颜色欧氏距离做 top-K 查询, 只用固定大小的堆, 不再整表查询和排序;
+ * 每张图片的颜色为主色调加调色板, 与目标颜色的距离取其中最小值;
+ * 首次查询某个空间时只加载 id、主色调和调色板, 之后在上传、删除图片时增量维护, 并通过 Redis 通知其他节点;
+ * 索引写入后定时过期重新加载, 兜底通知丢失的情况
+ */
+@Slf4j
+@Component
+public class PictureColorIndex implements MessageListener {
+
+	/**
+	 * 索引变更通知频道
+	 */
+	private static final String CHANNEL = "baolong:pictureColor:change";
+
+	/**
+	 * 当前节点标识, 忽略自己发出的通知
+	 */
+	private static final String NODE_ID = IdUtil.fastSimpleUUID();
+
+	@Resource
+	private PictureMapper pictureMapper;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 空间 id => 空间主色调索引
+	 */
+	private final Cache<Long, SpaceColorIndex> indexCache = Caffeine.newBuilder()
+			.maximumSize(1000L)
+			.expireAfterWrite(30L, TimeUnit.MINUTES)
+			.build();
+
+	@PostConstruct
+	public void init() {
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	/**
+	 * 查询空间中与目标颜色最相似的图片
+	 *
+	 * @param spaceId 空间 id
+	 * @param rgb     目标颜色
+	 * @param limit   返回数量
+	 * @return 图片 id 列表, 按相似度从高到低排序
+	 */
+	public List<Long> searchTopK(Long spaceId, int rgb, int limit) {
+		SpaceColorIndex index = indexCache.get(spaceId, this::loadIndex);
+		return index.topK(rgb, limit);
+	}
+
+	/**
+	 * 新增或更新图片主色调（所有节点）
+	 *
+	 * @param picture 图片
+	 */
+	public void put(Picture picture) {
+		if (picture == null || picture.getSpaceId() == null || picture.getId() == null) {
+			return;
+		}
+		int[] colors = parseColors(picture);
+		if (colors.length == 0) {
+			this.remove(picture.getSpaceId(), picture.getId());
+			return;
+		}
+		this.applyPut(picture.getSpaceId(), picture.getId(), colors);
+		this.publish("put:" + picture.getSpaceId() + ":" + picture.getId() + ":"
+				+ Arrays.stream(colors).mapToObj(String::valueOf).collect(Collectors.joining(",")));
+	}
+
+	/**
+	 * 删除图片主色调（所有节点）
+	 *
+	 * @param spaceId   空间 id
+	 * @param pictureId 图片 id
+	 */
+	public void remove(Long spaceId, Long pictureId) {
+		if (spaceId == null || pictureId == null) {
+			return;
+		}
+		this.applyRemove(spaceId, pictureId);
+		this.publish("remove:" + spaceId + ":" + pictureId);
+	}
+
+	/**
+	 * 解析十六进制颜色, 格式错误返回 null
+	 *
+	 * @param hexColor 十六进制颜色（如 0xFF0000）
+	 * @return RGB 值
+	 */
+	public static Integer parseColor(String hexColor) {
+		if (StrUtil.isBlank(hexColor)) {
+			return null;
+		}
+		try {
+			return Color.decode(hexColor).getRGB() & 0xFFFFFF;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 解析图片的主色调和调色板, 忽略格式错误和重复的颜色
+	 *
+	 * @param picture 图片
+	 * @return RGB 值数组, 主色调在前
+	 */
+	public static int[] parseColors(Picture picture) {
+		List<String> hexColorList = new ArrayList<>();
+		hexColorList.add(picture.getPicColor());
+		hexColorList.addAll(StrUtil.split(picture.getPicPalette(), ",", true, true));
+		return hexColorList.stream()
+				.map(PictureColorIndex::parseColor)
+				.filter(Objects::nonNull)
+				.mapToInt(Integer::intValue)
+				.distinct()
+				.toArray();
+	}
+
+	/**
+	 * 收到其他节点的变更通知, 格式: 节点标识:put:空间 id:图片 id:逗号分隔的 RGB 或 节点标识:remove:空间 id:图片 id
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		List<String> parts = StrUtil.split(body, ":");
+		if (parts.size() < 4 || NODE_ID.equals(parts.get(0))) {
+			return;
+		}
+		try {
+			long spaceId = Long.parseLong(parts.get(2));
+			long pictureId = Long.parseLong(parts.get(3));
+			if ("put".equals(parts.get(1)) && parts.size() == 5) {
+				int[] colors = StrUtil.split(parts.get(4), ",").stream().mapToInt(Integer::parseInt).toArray();
+				this.applyPut(spaceId, pictureId, colors);
+			} else if ("remove".equals(parts.get(1))) {
+				this.applyRemove(spaceId, pictureId);
+			}
+		} catch (NumberFormatException e) {
+			log.warn("图片主色调索引通知格式错误, body = {}", body);
+		}
+	}
+
+	private void applyPut(long spaceId, long pictureId, int[] colors) {
+		// 索引未加载时不需要处理, 下次查询会从数据库加载
+		SpaceColorIndex index = indexCache.getIfPresent(spaceId);
+		if (index != null) {
+			index.put(pictureId, colors);
+		}
+	}
+
+	private void applyRemove(long spaceId, long pictureId) {
+		SpaceColorIndex index = indexCache.getIfPresent(spaceId);
+		if (index != null) {
+			index.remove(pictureId);
+		}
+	}
+
+	private void publish(String message) {
+		try {
+			stringRedisTemplate.convertAndSend(CHANNEL, NODE_ID + ":" + message);
+		} catch (Exception e) {
+			log.error("图片主色调索引变更通知失败, message = {}", message, e);
+		}
+	}
+
+	/**
+	 * 从数据库加载空间主色调索引, 只查询 id、主色调和调色板
+	 */
+	private SpaceColorIndex loadIndex(Long spaceId) {
+		List<Picture> pictureList = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+				.select(Picture::getId, Picture::getPicColor, Picture::getPicPalette)
+				.eq(Picture::getSpaceId, spaceId)
+				.isNotNull(Picture::getPicColor));
+		SpaceColorIndex index = new SpaceColorIndex(pictureList.size());
+		for (Picture picture : pictureList) {
+			int[] colors = parseColors(picture);
+			if (colors.length > 0) {
+				index.put(picture.getId(), colors);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * 单个空间的主色调索引, id 和颜色分别存放在基本类型数组中, 每张图片有一个或多个颜色
+	 */
+	private static final class SpaceColorIndex {
+
+		private long[] ids;
+
+		private int[][] colors;
+
+		private int size;
+
+		/**
+		 * 图片 id => 数组下标
+		 */
+		private final Map<Long, Integer> positionMap;
+
+		SpaceColorIndex(int expectedSize) {
+			int capacity = Math.max(16, expectedSize);
+			this.ids = new long[capacity];
+			this.colors = new int[capacity][];
+			this.positionMap = new HashMap<>(capacity * 4 / 3 + 1);
+		}
+
+		synchronized void put(long pictureId, int[] rgbs) {
+			Integer position = positionMap.get(pictureId);
+			if (position != null) {
+				colors[position] = rgbs;
+				return;
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+				colors = Arrays.copyOf(colors, size * 2);
+			}
+			ids[size] = pictureId;
+			colors[size] = rgbs;
+			positionMap.put(pictureId, size);
+			size++;
+		}
+
+		synchronized void remove(long pictureId) {
+			Integer position = positionMap.remove(pictureId);
+			if (position == null) {
+				return;
+			}
+			// 用最后一个元素填补空位
+			int last = --size;
+			if (position != last) {
+				ids[position] = ids[last];
+				colors[position] = colors[last];
+				positionMap.put(ids[position], position);
+			}
+			colors[last] = null;
+		}
+
+		/**
+		 * 取颜色距离最小的 limit 个图片 id
+		 */
+		synchronized List<Long> topK(int rgb, int limit) {
+			if (size == 0 || limit <= 0) {
+				return Collections.emptyList();
+			}
+			int r = (rgb >> 16) & 0xFF;
+			int g = (rgb >> 8) & 0xFF;
+			int b = rgb & 0xFF;
+			// 大顶堆, 堆顶为当前候选中距离最大的; 距离平方和下标打包成一个 long, 距离相同时按下标排序
+			PriorityQueue<Long> heap = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+			for (int i = 0; i < size; i++) {
+				// 取图片各颜色中与目标颜色最近的距离
+				int minDistance = Integer.MAX_VALUE;
+				for (int color : colors[i]) {
+					int dr = ((color >> 16) & 0xFF) - r;
+					int dg = ((color >> 8) & 0xFF) - g;
+					int db = (color & 0xFF) - b;
+					minDistance = Math.min(minDistance, dr * dr + dg * dg + db * db);
+				}
+				long packed = ((long) minDistance << 32) | i;
+				if (heap.size() < limit) {
+					heap.offer(packed);
+				} else if (packed < heap.peek()) {
+					heap.poll();
+					heap.offer(packed);
+				}
+			}
+			// 距离平方越小越相似, 与欧氏距离相似度的排序一致
+			Long[] result = new Long[heap.size()];
+			for (int i = result.length - 1; i >= 0; i--) {
+				result[i] = ids[(int) (heap.poll() & 0xFFFFFFFFL)];
+			}
+			return new ArrayList<>(Arrays.asList(result));
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 图片查询的总条数
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PictureCount implements Serializable {
+
+	/**
+	 * 总条数, 近似值时为统计上限
+	 */
+	private long total;
+
+	/**
+	 * 是否为近似值（实际条数超过统计上限）
+	 */
+	private boolean approximate;
+
+	private static final long serialVersionUID = 1L;
+}
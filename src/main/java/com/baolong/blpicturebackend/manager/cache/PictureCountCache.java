@@ -0,0 +1,201 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONUtil;
+import com.baolong.blpicturebackend.mapper.PictureMapper;
+import com.baolong.blpicturebackend.model.dto.picture.PictureQueryRequest;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baolong.blpicturebackend.model.event.PictureChangeEvent;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 图片查询总条数缓存
+ * <p>
+ * 分页查询的总条数按查询条件（不含页号、页大小和排序）缓存在本节点, 翻页时不再重复统计;
+ * 统计时最多数到上限, 超过上限（未筛选或筛选范围很大）时返回近似值, 前端显示为 "10000+"（管理员表格可以要求精确统计）;
+ * 图片变更后（事务提交后）按空间失效, 并通过 Redis 通知其他节点
+ */
+@Slf4j
+@Component
+public class PictureCountCache implements MessageListener {
+
+	/**
+	 * 缓存失效通知频道
+	 */
+	private static final String CHANNEL = "baolong:pictureCount:evict";
+
+	/**
+	 * 当前节点标识, 忽略自己发出的通知
+	 */
+	private static final String NODE_ID = IdUtil.fastSimpleUUID();
+
+	/**
+	 * 范围: 空间、公共图库、不限空间（管理员查询）
+	 */
+	private static final String SCOPE_SPACE = "space:";
+	private static final String SCOPE_SPACE_PUBLIC = "public";
+	private static final String SCOPE_SPACE_ALL = "all";
+
+	/**
+	 * 缓存时间（秒）, 兜底通知丢失的情况, 0 表示不缓存
+	 */
+	@Value("${picture.count.cache-seconds:30}")
+	private long cacheSeconds;
+
+	/**
+	 * 统计上限, 超过时返回近似值, 0 表示总是精确统计
+	 */
+	@Value("${picture.count.approximate-threshold:10000}")
+	private long approximateThreshold;
+
+	@Resource
+	private PictureMapper pictureMapper;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 范围:查询条件摘要 => 总条数
+	 */
+	private Cache<String, PictureCount> countCache;
+
+	@PostConstruct
+	public void init() {
+		countCache = Caffeine.newBuilder()
+				.maximumSize(10_000L)
+				.expireAfterWrite(cacheSeconds, TimeUnit.SECONDS)
+				.build();
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	/**
+	 * 获取查询条件的总条数, 缓存不存在时统计并写入缓存
+	 *
+	 * @param query          查询条件
+	 * @param wrapperBuilder 根据查询条件构造统计用的查询条件（传入的查询条件已去掉分页和排序）
+	 * @return 总条数
+	 */
+	public PictureCount get(PictureQueryRequest query, Function<PictureQueryRequest, QueryWrapper<Picture>> wrapperBuilder) {
+		return this.get(query, wrapperBuilder, false);
+	}
+
+	/**
+	 * 获取查询条件的总条数, 缓存不存在时统计并写入缓存
+	 *
+	 * @param query          查询条件
+	 * @param wrapperBuilder 根据查询条件构造统计用的查询条件（传入的查询条件已去掉分页和排序）
+	 * @param exact          是否精确统计（不使用统计上限）
+	 * @return 总条数
+	 */
+	public PictureCount get(PictureQueryRequest query, Function<PictureQueryRequest, QueryWrapper<Picture>> wrapperBuilder,
+							boolean exact) {
+		PictureQueryRequest countQuery = this.normalize(query);
+		if (cacheSeconds <= 0) {
+			return this.count(wrapperBuilder.apply(countQuery), exact);
+		}
+		// 精确统计和近似统计分开缓存, 都在范围前缀下, 按范围失效时一起清除
+		String key = this.getScope(countQuery) + ":" + (exact ? "exact:" : "")
+				+ DigestUtils.md5DigestAsHex(JSONUtil.toJsonStr(countQuery).getBytes(StandardCharsets.UTF_8));
+		return countCache.get(key, k -> this.count(wrapperBuilder.apply(countQuery), exact));
+	}
+
+	/**
+	 * 图片变更后（事务提交后）失效所在空间的总条数
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPictureChange(PictureChangeEvent event) {
+		String scope = event.getSpaceId() == null ? SCOPE_SPACE_PUBLIC : SCOPE_SPACE + event.getSpaceId();
+		this.evictLocal(scope);
+		try {
+			stringRedisTemplate.convertAndSend(CHANNEL, NODE_ID + ":" + scope);
+		} catch (Exception e) {
+			log.error("总条数缓存失效通知失败, scope = {}", scope, e);
+		}
+	}
+
+	/**
+	 * 收到其他节点的失效通知, 格式: 节点标识:范围
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		int index = body.indexOf(':');
+		if (index < 0 || NODE_ID.equals(body.substring(0, index))) {
+			return;
+		}
+		this.evictLocal(body.substring(index + 1));
+	}
+
+	/**
+	 * 清除范围内及不限空间的总条数
+	 */
+	private void evictLocal(String scope) {
+		if (countCache == null) {
+			return;
+		}
+		Set<String> prefixes = new HashSet<>();
+		prefixes.add(scope + ":");
+		prefixes.add(SCOPE_SPACE_ALL + ":");
+		countCache.asMap().keySet().removeIf(key -> prefixes.stream().anyMatch(key::startsWith));
+	}
+
+	/**
+	 * 统计总条数, 不要求精确统计时最多数到上限
+	 */
+	private PictureCount count(QueryWrapper<Picture> queryWrapper, boolean exact) {
+		if (exact || approximateThreshold <= 0) {
+			return new PictureCount(pictureMapper.selectCount(queryWrapper), false);
+		}
+		// 自定义 SQL 不会自动拼接逻辑删除条件
+		queryWrapper.eq("isDelete", 0);
+		long total = pictureMapper.selectCountLimited(queryWrapper, approximateThreshold + 1);
+		if (total > approximateThreshold) {
+			return new PictureCount(approximateThreshold, true);
+		}
+		return new PictureCount(total, false);
+	}
+
+	/**
+	 * 去掉与总条数无关的分页和排序参数（以及子类中的游标等参数）
+	 */
+	private PictureQueryRequest normalize(PictureQueryRequest query) {
+		PictureQueryRequest countQuery = new PictureQueryRequest();
+		BeanUtil.copyProperties(query, countQuery);
+		countQuery.setCurrent(1);
+		countQuery.setPageSize(0);
+		countQuery.setSortField(null);
+		countQuery.setSortOrder(null);
+		return countQuery;
+	}
+
+	private String getScope(PictureQueryRequest query) {
+		if (query.getSpaceId() != null) {
+			return SCOPE_SPACE + query.getSpaceId();
+		}
+		return query.isNullSpaceId() ? SCOPE_SPACE_PUBLIC : SCOPE_SPACE_ALL;
+	}
+}
@@ -0,0 +1,344 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.mapper.PictureMapper;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baolong.blpicturebackend.model.enums.PictureReviewStatusEnum;
+import com.baolong.blpicturebackend.utils.ImageHashUtils;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 图片感知哈希索引
+ * <p>
+ * 按空间（公共图库为一个范围, 只包含已过审的图片）在内存中维护 dHash 的 BK 树, 按汉明距离查询相似图片和重复图片;
+ * 首次使用某个范围时只加载 id 和哈希两列, 之后在上传、删除图片时增量维护, 并通过 Redis 通知其他节点;
+ * 索引写入后定时过期重新加载, 兜底通知丢失的情况, 同时清理已删除的节点
+ */
+@Slf4j
+@Component
+public class PictureHashIndex implements MessageListener {
+
+	/**
+	 * 汉明距离不超过该值视为重复图片
+	 */
+	public static final int DUPLICATE_DISTANCE = 2;
+
+	/**
+	 * 汉明距离不超过该值视为相似图片
+	 */
+	public static final int SIMILAR_DISTANCE = 10;
+
+	/**
+	 * 公共图库的范围 id
+	 */
+	private static final long PUBLIC_SCOPE = 0L;
+
+	/**
+	 * 索引变更通知频道
+	 */
+	private static final String CHANNEL = "baolong:pictureHash:change";
+
+	/**
+	 * 当前节点标识, 忽略自己发出的通知
+	 */
+	private static final String NODE_ID = IdUtil.fastSimpleUUID();
+
+	@Resource
+	private PictureMapper pictureMapper;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 范围 id => BK 树
+	 */
+	private final Cache<Long, BkTree> indexCache = Caffeine.newBuilder()
+			.maximumSize(1000L)
+			.expireAfterWrite(30L, TimeUnit.MINUTES)
+			.build();
+
+	@PostConstruct
+	public void init() {
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	/**
+	 * 查询空间中与哈希相近的图片
+	 *
+	 * @param spaceId     空间 id, 为空表示公共图库
+	 * @param hash        图片哈希
+	 * @param maxDistance 最大汉明距离
+	 * @param excludeId   排除的图片 id, 可为空
+	 * @param limit       返回数量
+	 * @return 图片 id 列表, 按汉明距离从小到大排序
+	 */
+	public List<Long> search(Long spaceId, long hash, int maxDistance, Long excludeId, int limit) {
+		long scope = toScope(spaceId);
+		List<long[]> matches = indexCache.get(scope, this::loadIndex).search(hash, maxDistance);
+		return matches.stream()
+				.filter(match -> excludeId == null || match[0] != excludeId)
+				.sorted(Comparator.comparingLong(match -> match[1]))
+				.limit(limit)
+				.map(match -> match[0])
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * 查询空间中的重复图片
+	 *
+	 * @param spaceId   空间 id, 为空表示公共图库
+	 * @param hash      图片哈希
+	 * @param excludeId 排除的图片 id（重新上传时为原图片 id）, 可为空
+	 * @return 重复图片 id, 不存在返回 null
+	 */
+	public Long findDuplicate(Long spaceId, long hash, Long excludeId) {
+		List<Long> pictureIdList = this.search(spaceId, hash, DUPLICATE_DISTANCE, excludeId, 1);
+		return pictureIdList.isEmpty() ? null : pictureIdList.get(0);
+	}
+
+	/**
+	 * 新增或更新图片哈希（所有节点）, 公共图库中未过审的图片从索引中移除
+	 *
+	 * @param picture 图片（需要 id、spaceId、picHash、reviewStatus）
+	 */
+	public void put(Picture picture) {
+		if (picture == null || picture.getId() == null) {
+			return;
+		}
+		long scope = toScope(picture.getSpaceId());
+		if (picture.getPicHash() == null || !isIndexed(picture)) {
+			this.applyRemove(scope, picture.getId());
+			this.publish("remove:" + scope + ":" + picture.getId());
+			return;
+		}
+		this.applyPut(scope, picture.getId(), picture.getPicHash());
+		this.publish("put:" + scope + ":" + picture.getId() + ":" + picture.getPicHash());
+	}
+
+	/**
+	 * 图片审核状态变化后更新索引（只影响公共图库）
+	 *
+	 * @param oldPicture   变化前的图片
+	 * @param reviewStatus 新的审核状态, 为空表示未变化
+	 */
+	public void updateReviewStatus(Picture oldPicture, Integer reviewStatus) {
+		if (oldPicture == null || oldPicture.getSpaceId() != null || reviewStatus == null
+				|| reviewStatus.equals(oldPicture.getReviewStatus())) {
+			return;
+		}
+		Picture picture = new Picture();
+		picture.setId(oldPicture.getId());
+		picture.setPicHash(oldPicture.getPicHash());
+		picture.setReviewStatus(reviewStatus);
+		this.put(picture);
+	}
+
+	/**
+	 * 删除图片哈希（所有节点）
+	 *
+	 * @param spaceId   空间 id, 为空表示公共图库
+	 * @param pictureId 图片 id
+	 */
+	public void remove(Long spaceId, Long pictureId) {
+		if (pictureId == null) {
+			return;
+		}
+		long scope = toScope(spaceId);
+		this.applyRemove(scope, pictureId);
+		this.publish("remove:" + scope + ":" + pictureId);
+	}
+
+	/**
+	 * 收到其他节点的变更通知, 格式: 节点标识:put:范围 id:图片 id:哈希 或 节点标识:remove:范围 id:图片 id
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		List<String> parts = StrUtil.split(body, ":");
+		if (parts.size() < 4 || NODE_ID.equals(parts.get(0))) {
+			return;
+		}
+		try {
+			long scope = Long.parseLong(parts.get(2));
+			long pictureId = Long.parseLong(parts.get(3));
+			if ("put".equals(parts.get(1)) && parts.size() == 5) {
+				this.applyPut(scope, pictureId, Long.parseLong(parts.get(4)));
+			} else if ("remove".equals(parts.get(1))) {
+				this.applyRemove(scope, pictureId);
+			}
+		} catch (NumberFormatException e) {
+			log.warn("图片哈希索引通知格式错误, body = {}", body);
+		}
+	}
+
+	private void applyPut(long scope, long pictureId, long hash) {
+		// 索引未加载时不需要处理, 下次查询会从数据库加载
+		BkTree tree = indexCache.getIfPresent(scope);
+		if (tree != null) {
+			tree.put(pictureId, hash);
+		}
+	}
+
+	private void applyRemove(long scope, long pictureId) {
+		BkTree tree = indexCache.getIfPresent(scope);
+		if (tree != null) {
+			tree.remove(pictureId);
+		}
+	}
+
+	private void publish(String message) {
+		try {
+			stringRedisTemplate.convertAndSend(CHANNEL, NODE_ID + ":" + message);
+		} catch (Exception e) {
+			log.error("图片哈希索引变更通知失败, message = {}", message, e);
+		}
+	}
+
+	/**
+	 * 空间中的图片都建立索引, 公共图库只对已过审的图片建立索引, 避免通过重复提示和相似搜索暴露未过审的图片
+	 */
+	private static boolean isIndexed(Picture picture) {
+		return picture.getSpaceId() != null
+				|| Integer.valueOf(PictureReviewStatusEnum.PASS.getValue()).equals(picture.getReviewStatus());
+	}
+
+	private static long toScope(Long spaceId) {
+		return spaceId == null ? PUBLIC_SCOPE : spaceId;
+	}
+
+	/**
+	 * 从数据库加载范围内的图片哈希, 只查询 id 和哈希
+	 */
+	private BkTree loadIndex(Long scope) {
+		LambdaQueryWrapper<Picture> queryWrapper = new LambdaQueryWrapper<Picture>()
+				.select(Picture::getId, Picture::getPicHash)
+				.isNotNull(Picture::getPicHash);
+		if (scope == PUBLIC_SCOPE) {
+			queryWrapper.isNull(Picture::getSpaceId)
+					.eq(Picture::getReviewStatus, PictureReviewStatusEnum.PASS.getValue());
+		} else {
+			queryWrapper.eq(Picture::getSpaceId, scope);
+		}
+		BkTree tree = new BkTree();
+		for (Picture picture : pictureMapper.selectList(queryWrapper)) {
+			tree.put(picture.getId(), picture.getPicHash());
+		}
+		return tree;
+	}
+
+	/**
+	 * 以汉明距离为度量的 BK 树, 删除时只做标记
+	 */
+	static final class BkTree {
+
+		private Node root;
+
+		/**
+		 * 图片 id => 有效节点
+		 */
+		private final Map<Long, Node> nodeMap = new HashMap<>();
+
+		synchronized void put(long pictureId, long hash) {
+			Node oldNode = nodeMap.get(pictureId);
+			if (oldNode != null) {
+				if (oldNode.hash == hash) {
+					return;
+				}
+				oldNode.removed = true;
+			}
+			Node node = new Node(pictureId, hash);
+			nodeMap.put(pictureId, node);
+			if (root == null) {
+				root = node;
+				return;
+			}
+			Node current = root;
+			while (true) {
+				int distance = ImageHashUtils.hammingDistance(current.hash, hash);
+				Node child = current.children.get(distance);
+				if (child == null) {
+					current.children.put(distance, node);
+					return;
+				}
+				current = child;
+			}
+		}
+
+		synchronized void remove(long pictureId) {
+			Node node = nodeMap.remove(pictureId);
+			if (node != null) {
+				node.removed = true;
+			}
+		}
+
+		/**
+		 * 查询汉明距离不超过 maxDistance 的图片
+		 *
+		 * @return [图片 id, 距离] 列表
+		 */
+		synchronized List<long[]> search(long hash, int maxDistance) {
+			List<long[]> result = new ArrayList<>();
+			if (root == null) {
+				return result;
+			}
+			Deque<Node> stack = new ArrayDeque<>();
+			stack.push(root);
+			while (!stack.isEmpty()) {
+				Node node = stack.pop();
+				int distance = ImageHashUtils.hammingDistance(node.hash, hash);
+				if (distance <= maxDistance && !node.removed) {
+					result.add(new long[]{node.pictureId, distance});
+				}
+				// 三角不等式: 只有与当前节点距离在 [d - max, d + max] 内的子树可能命中
+				for (Map.Entry<Integer, Node> entry : node.children.entrySet()) {
+					if (Math.abs(entry.getKey() - distance) <= maxDistance) {
+						stack.push(entry.getValue());
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	private static final class Node {
+
+		private final long pictureId;
+
+		private final long hash;
+
+		private boolean removed;
+
+		private final Map<Integer, Node> children = new HashMap<>(4);
+
+		Node(long pictureId, long hash) {
+			this.pictureId = pictureId;
+			this.hash = hash;
+		}
+	}
+}
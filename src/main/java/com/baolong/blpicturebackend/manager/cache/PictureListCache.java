@@ -0,0 +1,634 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.baolong.blpicturebackend.model.dto.picture.PictureQueryRequest;
+import com.baolong.blpicturebackend.model.event.PictureChangeEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 图片列表多级缓存
+ * <p>
+ * 一级缓存为本地 Caffeine（直接存放对象, 命中时无需反序列化）, 二级缓存为 Redis（JSON, 按类型反序列化）;
+ * 同一个 key 在本节点同时只会有一个请求去查询 Redis 和数据库, 其他请求等待该结果
+ * <p>
+ * 缓存失效: 每个查询按条件归属到若干个范围（分类、标签或空间）, 图片变更后递增受影响范围的版本号,
+ * Redis 缓存 key 中带有版本号, 版本号变化后自然失效; 本地缓存则通过 Redis 发布订阅通知各节点按范围清除
+ * <p>
+ * 过期刷新: 缓存值带有软过期时间, 超过软过期时间后仍返回旧值, 同时只提交一次异步刷新;
+ * 访问频率最高的查询会被识别为热点 key, 固定在本地的热点缓存中, 不受本地缓存容量淘汰的影响
+ */
+@Slf4j
+@Component
+public class PictureListCache implements MessageListener {
+
+	/**
+	 * 缓存 key 前缀
+	 */
+	private static final String KEY_PREFIX = "baolong:listPictureVOByPage:";
+
+	/**
+	 * 范围版本号 key 前缀
+	 */
+	private static final String GENERATION_KEY_PREFIX = "baolong:listPictureVOByPage:gen:";
+
+	/**
+	 * 缓存失效通知频道
+	 */
+	private static final String CHANNEL = "baolong:listPictureVOByPage:evict";
+
+	/**
+	 * Redis 缓存值中的软过期时间字段和数据字段
+	 */
+	private static final String REMOTE_SOFT_EXPIRE_FIELD = "softExpireAt";
+	private static final String REMOTE_VALUE_FIELD = "value";
+
+	/**
+	 * Redis 缓存基础过期时间（秒）, 实际过期时间再加上随机值, 防止雪崩
+	 */
+	private static final int REMOTE_EXPIRE_SECONDS = 60 * 60;
+
+	/**
+	 * 本地缓存（包括热点缓存）过期时间（毫秒）, 变更时会主动清除, 过期时间可以设置得更长
+	 */
+	private static final long LOCAL_EXPIRE_MILLIS = 30 * 60 * 1000L;
+
+	/**
+	 * 软过期时间（毫秒）, 超过后返回旧值并异步刷新
+	 */
+	private static final long SOFT_EXPIRE_MILLIS = 5 * 60 * 1000L;
+
+	/**
+	 * 热点 key 统计周期（毫秒）
+	 */
+	private static final long HOT_KEY_WINDOW_MILLIS = 10 * 1000L;
+
+	/**
+	 * 一个统计周期内访问次数达到该值才算热点 key
+	 */
+	private static final long HOT_KEY_THRESHOLD = 100;
+
+	/**
+	 * 最多固定的热点 key 数量
+	 */
+	private static final int HOT_KEY_MAX_SIZE = 20;
+
+	/**
+	 * 访问计数最多统计的 key 数量, 防止随机查询条件撑大内存
+	 */
+	private static final int ACCESS_COUNTER_MAX_SIZE = 10000;
+
+	// region 缓存范围
+
+	private static final String SCOPE_CATEGORY = "category:";
+	private static final String SCOPE_TAG = "tag:";
+	private static final String SCOPE_SPACE = "space:";
+	private static final String SCOPE_SPACE_PUBLIC = SCOPE_SPACE + "public";
+	private static final String SCOPE_SPACE_ALL = SCOPE_SPACE + "all";
+
+	// endregion 缓存范围
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 本地缓存
+	 */
+	private final Cache<String, LocalEntry> localCache = Caffeine.newBuilder()
+			.initialCapacity(1024)
+			// 最多一万条数据
+			.maximumSize(10000L)
+			.expireAfterWrite(LOCAL_EXPIRE_MILLIS, TimeUnit.MILLISECONDS)
+			.build();
+
+	/**
+	 * 热点缓存, 不受本地缓存容量淘汰影响, 条目与本地缓存相同的写入后过期时间
+	 */
+	private final ConcurrentHashMap<String, LocalEntry> hotCache = new ConcurrentHashMap<>();
+
+	/**
+	 * 当前的热点 key
+	 */
+	private volatile Set<String> hotKeys = Collections.emptySet();
+
+	/**
+	 * 当前统计周期内各 key 的访问次数
+	 */
+	private final ConcurrentHashMap<String, LongAdder> accessCounter = new ConcurrentHashMap<>();
+
+	/**
+	 * 正在异步刷新的 key
+	 */
+	private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * 异步刷新线程池
+	 */
+	private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(
+			2, 2, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(200),
+			ThreadFactoryBuilder.create().setNamePrefix("picture-list-cache-refresh-").setDaemon(true).build(),
+			new ThreadPoolExecutor.AbortPolicy());
+
+	/**
+	 * 正在加载中的 key
+	 */
+	private final ConcurrentHashMap<String, CompletableFuture<Object>> loadingMap = new ConcurrentHashMap<>();
+
+	/**
+	 * 本地缓存失效次数, 用于丢弃失效前开始加载的旧数据
+	 */
+	private final AtomicLong invalidationEpoch = new AtomicLong();
+
+	// region 统计
+
+	private final LongAdder localHitCount = new LongAdder();
+	private final LongAdder remoteHitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder loadCount = new LongAdder();
+	private final LongAdder loadErrorCount = new LongAdder();
+	private final LongAdder loadTimeNanos = new LongAdder();
+	private final LongAdder invalidationCount = new LongAdder();
+	private final LongAdder staleServeCount = new LongAdder();
+	private final LongAdder refreshCount = new LongAdder();
+	private final LongAdder refreshErrorCount = new LongAdder();
+	private final LongAdder refreshTimeNanos = new LongAdder();
+
+	// endregion 统计
+
+	/**
+	 * 缓存级别
+	 */
+	public enum Level {
+		/**
+		 * 仅本地缓存
+		 */
+		LOCAL,
+		/**
+		 * 仅 Redis 缓存
+		 */
+		REMOTE,
+		/**
+		 * 本地缓存 + Redis 缓存
+		 */
+		MULTI;
+
+		private boolean useLocal() {
+			return this != REMOTE;
+		}
+
+		private boolean useRemote() {
+			return this != LOCAL;
+		}
+	}
+
+	@PostConstruct
+	public void init() {
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	@PreDestroy
+	public void destroy() {
+		refreshExecutor.shutdown();
+	}
+
+	/**
+	 * 获取缓存, 不存在时通过 loader 加载并写入缓存
+	 *
+	 * @param query         查询条件（序列化后计算缓存 key）
+	 * @param level         缓存级别
+	 * @param typeReference 缓存值类型
+	 * @param loader        缓存不存在时的加载方法
+	 * @return 缓存值（本地缓存中的对象为共享对象, 不要修改）
+	 */
+	public <T> T get(PictureQueryRequest query, Level level, TypeReference<T> typeReference, Supplier<T> loader) {
+		String hashKey = this.buildHashKey(query);
+		this.recordAccess(hashKey);
+		Set<String> scopes = this.getQueryScopes(query);
+		// 1. 从本地缓存中查询（优先热点缓存）
+		if (level.useLocal()) {
+			LocalEntry localEntry = hotCache.get(hashKey);
+			if (localEntry != null && localEntry.isExpired()) {
+				hotCache.remove(hashKey, localEntry);
+				localEntry = null;
+			}
+			if (localEntry == null) {
+				localEntry = localCache.getIfPresent(hashKey);
+			}
+			if (localEntry != null) {
+				localHitCount.increment();
+				if (localEntry.isSoftExpired()) {
+					// 返回旧值, 异步刷新
+					staleServeCount.increment();
+					this.refreshAsync(hashKey, scopes, level, loader);
+				}
+				return this.cast(localEntry.value);
+			}
+		}
+		// 2. 同一个 key 只有一个请求去查询 Redis 和数据库
+		long epoch = invalidationEpoch.get();
+		return this.cast(this.singleFlight(level + ":" + hashKey + ":" + epoch,
+				() -> this.loadValue(hashKey, scopes, epoch, level, typeReference, loader)));
+	}
+
+	/**
+	 * 图片变更后失效相关的列表缓存（事务提交后执行）
+	 *
+	 * @param event 图片变更事件
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPictureChange(PictureChangeEvent event) {
+		Set<String> scopes = this.getEventScopes(event);
+		// 先清除本节点, 保证自己的修改立即可见
+		this.evictLocal(scopes);
+		try {
+			// 递增范围版本号, 使 Redis 中的旧缓存失效
+			for (String scope : scopes) {
+				stringRedisTemplate.opsForValue().increment(GENERATION_KEY_PREFIX + scope);
+			}
+			// 通知其他节点清除本地缓存
+			stringRedisTemplate.convertAndSend(CHANNEL, JSONUtil.toJsonStr(scopes));
+		} catch (Exception e) {
+			log.error("图片列表缓存失效失败, scopes = {}", scopes, e);
+		}
+	}
+
+	/**
+	 * 收到其他节点的失效通知
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		try {
+			this.evictLocal(new HashSet<>(JSONUtil.toList(body, String.class)));
+		} catch (Exception e) {
+			log.warn("图片列表缓存失效通知解析失败, body = {}", body);
+		}
+	}
+
+	/**
+	 * 获取缓存统计信息
+	 *
+	 * @return 缓存统计信息
+	 */
+	public CacheStats getStats() {
+		CacheStats cacheStats = new CacheStats();
+		long localHit = localHitCount.sum();
+		long remoteHit = remoteHitCount.sum();
+		long miss = missCount.sum();
+		long load = loadCount.sum();
+		long total = localHit + remoteHit + miss;
+		cacheStats.setLocalHitCount(localHit);
+		cacheStats.setRemoteHitCount(remoteHit);
+		cacheStats.setMissCount(miss);
+		cacheStats.setHitRate(total == 0 ? 0 : (double) (localHit + remoteHit) / total);
+		cacheStats.setLoadCount(load);
+		cacheStats.setLoadErrorCount(loadErrorCount.sum());
+		cacheStats.setAverageLoadMillis(load == 0 ? 0 : loadTimeNanos.sum() / 1_000_000.0 / load);
+		cacheStats.setLocalSize(localCache.estimatedSize());
+		cacheStats.setInvalidationCount(invalidationCount.sum());
+		long refresh = refreshCount.sum();
+		cacheStats.setStaleServeCount(staleServeCount.sum());
+		cacheStats.setRefreshCount(refresh);
+		cacheStats.setRefreshErrorCount(refreshErrorCount.sum());
+		cacheStats.setAverageRefreshMillis(refresh == 0 ? 0 : refreshTimeNanos.sum() / 1_000_000.0 / refresh);
+		cacheStats.setHotKeyCount(hotKeys.size());
+		return cacheStats;
+	}
+
+	/**
+	 * 从 Redis 或数据库中加载缓存值
+	 */
+	private <T> Object loadValue(String hashKey, Set<String> scopes, long epoch, Level level,
+								 TypeReference<T> typeReference, Supplier<T> loader) {
+		// 在查询数据库之前确定 Redis key（范围版本号）, 加载期间发生失效时旧数据写入旧版本的 key, 不会被读到
+		String remoteKey = level.useRemote() ? this.buildRemoteKey(hashKey, scopes) : null;
+		// 1. 从 Redis 缓存中查询
+		if (remoteKey != null) {
+			String cachedValue = stringRedisTemplate.opsForValue().get(remoteKey);
+			JSONObject remoteEntry = cachedValue == null ? null : JSONUtil.parseObj(cachedValue);
+			// 没有数据字段的旧格式缓存按未命中处理
+			if (remoteEntry != null && remoteEntry.containsKey(REMOTE_VALUE_FIELD)) {
+				remoteHitCount.increment();
+				long softExpireAt = remoteEntry.getLong(REMOTE_SOFT_EXPIRE_FIELD, 0L);
+				T value = remoteEntry.getJSONObject(REMOTE_VALUE_FIELD).toBean(typeReference);
+				if (level.useLocal()) {
+					this.putLocal(hashKey, new LocalEntry(value, scopes, softExpireAt), epoch);
+				}
+				if (System.currentTimeMillis() > softExpireAt) {
+					// 返回旧值, 异步刷新
+					staleServeCount.increment();
+					this.refreshAsync(hashKey, scopes, level, loader);
+				}
+				return value;
+			}
+		}
+		// 2. 查询数据库
+		missCount.increment();
+		long start = System.nanoTime();
+		T value;
+		try {
+			value = loader.get();
+		} catch (RuntimeException e) {
+			loadErrorCount.increment();
+			throw e;
+		} finally {
+			loadCount.increment();
+			loadTimeNanos.add(System.nanoTime() - start);
+		}
+		// 3. 更新缓存
+		this.putValue(hashKey, remoteKey, scopes, epoch, level, value);
+		return value;
+	}
+
+	/**
+	 * 异步刷新缓存, 同一个 key 同时只有一次刷新
+	 */
+	private <T> void refreshAsync(String hashKey, Set<String> scopes, Level level, Supplier<T> loader) {
+		String refreshKey = level + ":" + hashKey;
+		if (!refreshingKeys.add(refreshKey)) {
+			return;
+		}
+		long epoch = invalidationEpoch.get();
+		try {
+			refreshExecutor.execute(() -> {
+				long start = System.nanoTime();
+				try {
+					// 与首次加载相同, 在查询数据库之前确定 Redis key
+					String remoteKey = level.useRemote() ? this.buildRemoteKey(hashKey, scopes) : null;
+					this.putValue(hashKey, remoteKey, scopes, epoch, level, loader.get());
+				} catch (Exception e) {
+					refreshErrorCount.increment();
+					log.error("图片列表缓存刷新失败, key = {}", hashKey, e);
+				} finally {
+					refreshCount.increment();
+					refreshTimeNanos.add(System.nanoTime() - start);
+					refreshingKeys.remove(refreshKey);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// 刷新任务过多时放弃本次刷新, 下次访问再尝试
+			refreshingKeys.remove(refreshKey);
+		}
+	}
+
+	/**
+	 * 写入缓存
+	 *
+	 * @param remoteKey 加载前构建的 Redis key, 只使用本地缓存时为 null
+	 */
+	private void putValue(String hashKey, String remoteKey, Set<String> scopes, long epoch, Level level, Object value) {
+		if (value == null) {
+			return;
+		}
+		long softExpireAt = System.currentTimeMillis() + SOFT_EXPIRE_MILLIS;
+		if (level.useLocal()) {
+			this.putLocal(hashKey, new LocalEntry(value, scopes, softExpireAt), epoch);
+		}
+		if (remoteKey != null) {
+			JSONObject remoteEntry = new JSONObject();
+			remoteEntry.set(REMOTE_SOFT_EXPIRE_FIELD, softExpireAt);
+			remoteEntry.set(REMOTE_VALUE_FIELD, value);
+			int expireSeconds = REMOTE_EXPIRE_SECONDS + RandomUtil.randomInt(0, REMOTE_EXPIRE_SECONDS / 2);
+			stringRedisTemplate.opsForValue().set(remoteKey, remoteEntry.toString(),
+					expireSeconds, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * 写入本地缓存（热点 key 同时写入热点缓存）, 加载期间发生过失效则丢弃
+	 */
+	private void putLocal(String hashKey, LocalEntry localEntry, long epoch) {
+		localCache.put(hashKey, localEntry);
+		if (hotKeys.contains(hashKey)) {
+			hotCache.put(hashKey, localEntry);
+		}
+		if (invalidationEpoch.get() != epoch) {
+			localCache.invalidate(hashKey);
+			hotCache.remove(hashKey);
+		}
+	}
+
+	/**
+	 * 清除本地缓存中与指定范围相关的数据
+	 */
+	private void evictLocal(Set<String> scopes) {
+		if (CollUtil.isEmpty(scopes)) {
+			return;
+		}
+		invalidationEpoch.incrementAndGet();
+		invalidationCount.increment();
+		localCache.asMap().values().removeIf(entry -> !Collections.disjoint(entry.scopes, scopes));
+		hotCache.values().removeIf(entry -> !Collections.disjoint(entry.scopes, scopes));
+	}
+
+	// region 热点 key
+
+	/**
+	 * 记录访问次数
+	 */
+	private void recordAccess(String hashKey) {
+		LongAdder counter = accessCounter.get(hashKey);
+		if (counter == null) {
+			if (accessCounter.size() >= ACCESS_COUNTER_MAX_SIZE) {
+				return;
+			}
+			counter = accessCounter.computeIfAbsent(hashKey, key -> new LongAdder());
+		}
+		counter.increment();
+	}
+
+	/**
+	 * 定时统计热点 key, 将访问最多的 key 固定到热点缓存中
+	 */
+	@Scheduled(fixedRate = HOT_KEY_WINDOW_MILLIS)
+	public void detectHotKeys() {
+		Map<String, Long> accessCountMap = new HashMap<>(accessCounter.size() * 2);
+		accessCounter.forEach((key, counter) -> accessCountMap.put(key, counter.sum()));
+		accessCounter.clear();
+		Set<String> newHotKeys = accessCountMap.entrySet().stream()
+				.filter(entry -> entry.getValue() >= HOT_KEY_THRESHOLD)
+				.sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+				.limit(HOT_KEY_MAX_SIZE)
+				.map(Map.Entry::getKey)
+				.collect(Collectors.toSet());
+		this.hotKeys = newHotKeys;
+		// 移除不再是热点的 key, 新的热点 key 从本地缓存中复制
+		hotCache.entrySet().removeIf(entry -> !newHotKeys.contains(entry.getKey()) || entry.getValue().isExpired());
+		for (String hotKey : newHotKeys) {
+			LocalEntry localEntry = localCache.getIfPresent(hotKey);
+			if (localEntry != null) {
+				hotCache.putIfAbsent(hotKey, localEntry);
+			}
+		}
+	}
+
+	// endregion 热点 key
+
+	/**
+	 * 同一个 key 同时只执行一次加载, 其他线程等待并共享结果
+	 */
+	private Object singleFlight(String flightKey, Supplier<Object> supplier) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		CompletableFuture<Object> loadingFuture = loadingMap.putIfAbsent(flightKey, future);
+		if (loadingFuture != null) {
+			try {
+				return loadingFuture.join();
+			} catch (CompletionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw e;
+			}
+		}
+		try {
+			Object value = supplier.get();
+			future.complete(value);
+			return value;
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loadingMap.remove(flightKey, future);
+		}
+	}
+
+	// region 缓存 key 和范围
+
+	/**
+	 * 根据查询条件计算哈希 key
+	 */
+	private String buildHashKey(PictureQueryRequest query) {
+		String queryCondition = JSONUtil.toJsonStr(query);
+		return DigestUtils.md5DigestAsHex(queryCondition.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * 构建 Redis 缓存 key, 带上查询所属范围的当前版本号
+	 */
+	private String buildRemoteKey(String hashKey, Set<String> scopes) {
+		List<String> generationKeys = new ArrayList<>();
+		for (String scope : new TreeSet<>(scopes)) {
+			generationKeys.add(GENERATION_KEY_PREFIX + scope);
+		}
+		List<String> generations = stringRedisTemplate.opsForValue().multiGet(generationKeys);
+		StringBuilder remoteKey = new StringBuilder(KEY_PREFIX).append(hashKey).append(":");
+		for (int i = 0; i < generationKeys.size(); i++) {
+			String generation = generations == null ? null : generations.get(i);
+			remoteKey.append(i == 0 ? "" : "_").append(generation == null ? "0" : generation);
+		}
+		return remoteKey.toString();
+	}
+
+	/**
+	 * 查询条件所属的范围
+	 * <p>
+	 * 按分类或标签查询时, 结果中的图片一定带有该分类或标签, 只受这些分类标签下图片变更的影响; 否则受整个空间的影响
+	 */
+	private Set<String> getQueryScopes(PictureQueryRequest query) {
+		Set<String> scopes = new HashSet<>();
+		if (StrUtil.isNotBlank(query.getCategory())) {
+			scopes.add(SCOPE_CATEGORY + query.getCategory());
+		}
+		if (CollUtil.isNotEmpty(query.getTags())) {
+			query.getTags().forEach(tag -> scopes.add(SCOPE_TAG + tag));
+		}
+		if (scopes.isEmpty()) {
+			if (query.getSpaceId() != null) {
+				scopes.add(SCOPE_SPACE + query.getSpaceId());
+			} else if (query.isNullSpaceId()) {
+				scopes.add(SCOPE_SPACE_PUBLIC);
+			} else {
+				scopes.add(SCOPE_SPACE_ALL);
+			}
+		}
+		return scopes;
+	}
+
+	/**
+	 * 图片变更影响的范围
+	 */
+	private Set<String> getEventScopes(PictureChangeEvent event) {
+		Set<String> scopes = new HashSet<>();
+		scopes.add(SCOPE_SPACE_ALL);
+		scopes.add(event.getSpaceId() == null ? SCOPE_SPACE_PUBLIC : SCOPE_SPACE + event.getSpaceId());
+		event.getCategories().forEach(category -> scopes.add(SCOPE_CATEGORY + category));
+		event.getTags().forEach(tag -> scopes.add(SCOPE_TAG + tag));
+		return scopes;
+	}
+
+	// endregion 缓存 key 和范围
+
+	@SuppressWarnings("unchecked")
+	private <T> T cast(Object value) {
+		return (T) value;
+	}
+
+	/**
+	 * 本地缓存条目
+	 */
+	private static class LocalEntry {
+		private final Object value;
+		private final Set<String> scopes;
+		private final long softExpireAt;
+		private final long expireAt;
+
+		private LocalEntry(Object value, Set<String> scopes, long softExpireAt) {
+			this.value = value;
+			this.scopes = scopes;
+			this.softExpireAt = softExpireAt;
+			this.expireAt = System.currentTimeMillis() + LOCAL_EXPIRE_MILLIS;
+		}
+
+		private boolean isExpired() {
+			return System.currentTimeMillis() > expireAt;
+		}
+
+		private boolean isSoftExpired() {
+			return System.currentTimeMillis() > softExpireAt;
+		}
+	}
+}
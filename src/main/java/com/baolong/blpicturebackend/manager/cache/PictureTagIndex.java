@@ -0,0 +1,230 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.mapper.PictureTagMapper;
+import com.baolong.blpicturebackend.model.enums.PictureReviewStatusEnum;
+import com.baolong.blpicturebackend.model.event.PictureChangeEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * 公共图库标签倒排索引
+ * <p>
+ * 在内存中按标签维护公共图库图片 id 的有序数组, 多标签筛选时直接求交集（同时包含）或并集（包含任一）,
+ * 命中的图片不多时以 id 列表查询, 不需要再关联 picture_tag 表;
+ * 首次使用某个标签时从 picture_tag 加载（只包含审核通过的图片）, 图片数超过上限的标签只记录为过大, 不保存倒排表;
+ * 公共图库图片变更后按标签失效, 并通过 Redis 通知其他节点
+ */
+@Slf4j
+@Component
+public class PictureTagIndex implements MessageListener {
+
+	/**
+	 * 索引失效通知频道
+	 */
+	private static final String CHANNEL = "baolong:pictureTag:evict";
+
+	/**
+	 * 通知中表示失效全部标签
+	 */
+	private static final String ALL_TAGS = "*";
+
+	/**
+	 * 当前节点标识, 忽略自己发出的通知
+	 */
+	private static final String NODE_ID = IdUtil.fastSimpleUUID();
+
+	/**
+	 * 图片数超过上限的标签的倒排表占位（按引用比较）
+	 */
+	private static final long[] TOO_LARGE = new long[0];
+
+	/**
+	 * 是否启用索引, 关闭后按标签筛选全部走 picture_tag 子查询
+	 */
+	@Value("${picture.tag.index-enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * 命中的图片数超过该值时不使用索引结果, 避免 in 列表过长
+	 */
+	@Value("${picture.tag.index-max-candidates:1000}")
+	private int maxCandidates;
+
+	@Resource
+	private PictureTagMapper pictureTagMapper;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 标签 id => 公共图库中带有该标签的审核通过的图片 id（升序）或 TOO_LARGE, 按图片数计算容量
+	 */
+	private final Cache<Long, long[]> postingCache = Caffeine.newBuilder()
+			.maximumWeight(5_000_000L)
+			.weigher((Long tagId, long[] pictureIds) -> pictureIds.length + 1)
+			// 兜底通知丢失的情况
+			.expireAfterWrite(10L, TimeUnit.MINUTES)
+			.build();
+
+	@PostConstruct
+	public void init() {
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	/**
+	 * 查询公共图库中带有指定标签的图片
+	 *
+	 * @param tagIds   标签 id 列表
+	 * @param matchAll 是否需要同时包含所有标签, 否则包含任一标签即可
+	 * @return 图片 id 列表（升序）; 索引未启用或命中的图片过多时返回 null, 由调用方改用子查询
+	 */
+	public List<Long> matchPublic(Collection<Long> tagIds, boolean matchAll) {
+		if (!enabled || tagIds == null || tagIds.isEmpty()) {
+			return null;
+		}
+		List<long[]> postings = tagIds.stream()
+				.distinct()
+				.map(tagId -> postingCache.get(tagId, this::loadPosting))
+				.collect(Collectors.toList());
+		boolean hasTooLarge = postings.stream().anyMatch(pictureIds -> pictureIds == TOO_LARGE);
+		long[] result;
+		if (matchAll) {
+			// 有标签没有图片时结果一定为空; 否则过大的标签没有完整的倒排表, 无法求交集
+			if (postings.stream().anyMatch(pictureIds -> pictureIds != TOO_LARGE && pictureIds.length == 0)) {
+				return Collections.emptyList();
+			}
+			if (hasTooLarge) {
+				return null;
+			}
+			// 从最短的倒排表开始求交集, 中途为空时提前结束
+			postings.sort(Comparator.comparingInt(pictureIds -> pictureIds.length));
+			result = postings.get(0);
+			for (int i = 1; i < postings.size() && result.length > 0; i++) {
+				result = intersect(result, postings.get(i));
+			}
+		} else {
+			// 并集不会小于任一倒排表
+			if (hasTooLarge) {
+				return null;
+			}
+			result = postings.stream().flatMapToLong(LongStream::of).sorted().distinct().toArray();
+		}
+		if (result.length > maxCandidates) {
+			return null;
+		}
+		return Arrays.stream(result).boxed().collect(Collectors.toList());
+	}
+
+	/**
+	 * 失效全部标签（所有节点）, 例如回填关联之后
+	 */
+	public void invalidateAll() {
+		postingCache.invalidateAll();
+		this.publish(ALL_TAGS);
+	}
+
+	/**
+	 * 公共图库的图片变更后（事务提交后）失效变更前后的标签
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPictureChange(PictureChangeEvent event) {
+		if (event.getSpaceId() != null || event.getTags().isEmpty()) {
+			return;
+		}
+		Set<Long> tagIds = event.getTags().stream()
+				.filter(NumberUtil::isLong)
+				.map(Long::valueOf)
+				.collect(Collectors.toSet());
+		postingCache.invalidateAll(tagIds);
+		this.publish(StrUtil.join(",", tagIds));
+	}
+
+	/**
+	 * 收到其他节点的失效通知, 格式: 节点标识:标签 id,标签 id 或 节点标识:*
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		int index = body.indexOf(':');
+		if (index < 0 || NODE_ID.equals(body.substring(0, index))) {
+			return;
+		}
+		String payload = body.substring(index + 1);
+		if (ALL_TAGS.equals(payload)) {
+			postingCache.invalidateAll();
+			return;
+		}
+		postingCache.invalidateAll(StrUtil.split(payload, ",", true, true).stream()
+				.filter(NumberUtil::isLong)
+				.map(Long::valueOf)
+				.collect(Collectors.toList()));
+	}
+
+	private void publish(String message) {
+		try {
+			stringRedisTemplate.convertAndSend(CHANNEL, NODE_ID + ":" + message);
+		} catch (Exception e) {
+			log.error("标签索引失效通知失败, message = {}", message, e);
+		}
+	}
+
+	/**
+	 * 从 picture_tag 加载标签下审核通过的公共图库图片, 最多多查一条用于判断是否超过上限
+	 */
+	private long[] loadPosting(Long tagId) {
+		List<Long> pictureIdList = pictureTagMapper.listPublicPictureIdByTag(tagId,
+				PictureReviewStatusEnum.PASS.getValue(), maxCandidates + 1);
+		if (pictureIdList.size() > maxCandidates) {
+			return TOO_LARGE;
+		}
+		return pictureIdList.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	/**
+	 * 两个升序数组求交集
+	 */
+	private static long[] intersect(long[] a, long[] b) {
+		long[] result = new long[Math.min(a.length, b.length)];
+		int i = 0, j = 0, size = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[size++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+}
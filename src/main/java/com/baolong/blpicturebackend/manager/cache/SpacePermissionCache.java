@@ -0,0 +1,109 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 空间权限本地缓存
+ * <p>
+ * 按 "用户 id:空间 id" 缓存解析好的权限列表, 避免每次权限校验都查询空间和空间成员;
+ * 空间成员变更后清除本地缓存并广播 "用户 id:空间 id", 各节点清除对应的缓存
+ */
+@Slf4j
+@Component
+public class SpacePermissionCache implements MessageListener {
+
+	/**
+	 * 失效通知频道
+	 */
+	private static final String CHANNEL = "baolong:spacePermission:evict";
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	/**
+	 * 本地缓存, 过期时间较短, 兜底通知丢失的情况
+	 */
+	private final Cache<String, List<String>> localCache = Caffeine.newBuilder()
+			.initialCapacity(1024)
+			.maximumSize(10000L)
+			.expireAfterWrite(30L, TimeUnit.SECONDS)
+			.build();
+
+	@PostConstruct
+	public void init() {
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	/**
+	 * 获取用户在空间中的权限, 不存在时通过 loader 解析
+	 *
+	 * @param userId  用户 id
+	 * @param spaceId 空间 id
+	 * @param loader  解析方法
+	 * @return 权限列表（只读）
+	 */
+	public List<String> get(Long userId, Long spaceId, Supplier<List<String>> loader) {
+		return localCache.get(buildKey(userId, spaceId), key -> Collections.unmodifiableList(loader.get()));
+	}
+
+	/**
+	 * 空间成员变更后清除缓存（所有节点）
+	 *
+	 * @param userId  用户 id
+	 * @param spaceId 空间 id
+	 */
+	public void invalidate(Long userId, Long spaceId) {
+		if (userId == null || spaceId == null) {
+			return;
+		}
+		String key = buildKey(userId, spaceId);
+		localCache.invalidate(key);
+		try {
+			stringRedisTemplate.convertAndSend(CHANNEL, key);
+		} catch (Exception e) {
+			log.error("空间权限缓存失效通知失败, key = {}", key, e);
+		}
+	}
+
+	/**
+	 * 清空本节点的缓存（权限配置重新加载后使用）
+	 */
+	public void invalidateAll() {
+		localCache.invalidateAll();
+	}
+
+	/**
+	 * 收到其他节点的失效通知
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String key = new String(message.getBody(), StandardCharsets.UTF_8);
+		if (StrUtil.isNotBlank(key)) {
+			localCache.invalidate(key);
+		}
+	}
+
+	private String buildKey(Long userId, Long spaceId) {
+		return userId + ":" + spaceId;
+	}
+}
@@ -0,0 +1,74 @@
+package com.baolong.blpicturebackend.manager.crawler;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import cn.hutool.json.JSONUtil;
+import com.baolong.blpicturebackend.exception.BusinessException;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 必应图片来源
+ * <p>
+ * 抓取地址可通过 picture.grab.bing-url 配置, 指向本地的 HTML 样例页面即可离线测试
+ */
+@Slf4j
+@Component
+public class BingPictureSourceParser implements PictureSourceParser {
+
+	/**
+	 * 抓取地址, %s 为关键词
+	 */
+	@Value("${picture.grab.bing-url:https://cn.bing.com/images/async?q=%s&mmasync=1}")
+	private String fetchUrl;
+
+	@Override
+	public String getSource() {
+		return "bing";
+	}
+
+	@Override
+	public List<String> search(String searchText) throws IOException {
+		Document document = Jsoup.connect(String.format(fetchUrl, URLUtil.encodeAll(searchText))).get();
+		return parse(document);
+	}
+
+	/**
+	 * 解析页面中的图片地址
+	 *
+	 * @param document 必应图片搜索结果页面
+	 * @return 图片地址列表
+	 */
+	public List<String> parse(Document document) {
+		Element div = document.getElementsByClass("dgControl").first();
+		if (div == null) {
+			throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取元素失败");
+		}
+		List<String> urlList = new ArrayList<>();
+		// 高清图片地址在 .iusc 元素的 m 属性中
+		for (Element imgElement : div.select(".iusc")) {
+			String fileUrl;
+			try {
+				fileUrl = JSONUtil.parseObj(imgElement.attr("m")).getStr("murl");
+			} catch (Exception e) {
+				log.error("解析图片数据失败", e);
+				continue;
+			}
+			if (StrUtil.isBlank(fileUrl)) {
+				continue;
+			}
+			// 处理图片上传地址，防止出现转义问题
+			urlList.add(StrUtil.subBefore(fileUrl, "?", false));
+		}
+		return urlList;
+	}
+}
@@ -0,0 +1,373 @@
+package com.baolong.blpicturebackend.manager.crawler;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import cn.hutool.json.JSONUtil;
+import com.baolong.blpicturebackend.exception.BusinessException;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.model.dto.picture.PictureUploadByBatchRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureUploadRequest;
+import com.baolong.blpicturebackend.model.entity.User;
+import com.baolong.blpicturebackend.model.enums.PictureGrabJobStatusEnum;
+import com.baolong.blpicturebackend.model.vo.PictureGrabJobVO;
+import com.baolong.blpicturebackend.service.PictureService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 批量抓取图片任务
+ * <p>
+ * 提交后立即返回任务 id, 由后台线程获取候选图片地址, 在有界线程池中并发下载上传, 同一域名同时只下载少量图片
+ * （域名已满的候选由任务线程延后提交, 下载线程不会等待许可）;
+ * 进行中和成功的图片数不超过抓取数量, 失败时再取下一个候选, 成功的图片按来源顺序返回;
+ * 任务进度保存在 Redis 中, 任意节点都可以查询
+ */
+@Slf4j
+@Component
+public class PictureGrabJobManager {
+
+	/**
+	 * 任务进度 key 前缀
+	 */
+	private static final String JOB_KEY_PREFIX = "baolong:pictureGrab:job:";
+
+	/**
+	 * 任务进度保存时间（小时）
+	 */
+	private static final long JOB_EXPIRE_HOURS = 24;
+
+	/**
+	 * 单次最多抓取数量
+	 */
+	private static final int MAX_COUNT = 30;
+
+	/**
+	 * 同一域名同时下载的图片数
+	 */
+	private static final int HOST_PARALLELISM = 2;
+
+	/**
+	 * 有候选因域名已满或线程池已满而延后时, 等待下载结果的最长时间（毫秒）, 超时后重新尝试提交
+	 */
+	private static final long RETRY_SUBMIT_MILLIS = 200;
+
+	@Resource
+	private PictureService pictureService;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private List<PictureSourceParser> pictureSourceParsers;
+
+	private Map<String, PictureSourceParser> parserMap;
+
+	/**
+	 * 任务线程池, 每个任务占用一个线程负责调度, 队列满时拒绝提交
+	 */
+	private final ThreadPoolExecutor jobExecutor = new ThreadPoolExecutor(
+			2, 2, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(8),
+			ThreadFactoryBuilder.create().setNamePrefix("picture-grab-job-").setDaemon(true).build(),
+			new ThreadPoolExecutor.AbortPolicy());
+
+	/**
+	 * 下载上传线程池, 所有任务共用, 队列满时拒绝, 候选延后由任务线程重新提交
+	 */
+	private final ThreadPoolExecutor downloadExecutor = new ThreadPoolExecutor(
+			8, 8, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(64),
+			ThreadFactoryBuilder.create().setNamePrefix("picture-grab-download-").setDaemon(true).build(),
+			new ThreadPoolExecutor.AbortPolicy());
+
+	/**
+	 * 每个域名正在下载的图片数, 所有任务共用; 下载数归零时移除, 不会在占用期间被淘汰
+	 */
+	private final Map<String, Integer> hostRunning = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	public void init() {
+		parserMap = pictureSourceParsers.stream()
+				.collect(Collectors.toMap(PictureSourceParser::getSource, Function.identity()));
+	}
+
+	@PreDestroy
+	public void destroy() {
+		jobExecutor.shutdownNow();
+		downloadExecutor.shutdownNow();
+	}
+
+	/**
+	 * 提交批量抓取任务
+	 *
+	 * @param pictureUploadByBatchRequest 批量抓取请求
+	 * @param loginUser                   登录用户
+	 * @return 任务 id
+	 */
+	public String submit(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+		String searchText = pictureUploadByBatchRequest.getSearchText();
+		Integer count = pictureUploadByBatchRequest.getCount();
+		ThrowUtils.throwIf(StrUtil.isBlank(searchText), ErrorCode.PARAMS_ERROR, "关键词不能为空");
+		ThrowUtils.throwIf(count == null || count <= 0, ErrorCode.PARAMS_ERROR, "抓取数量错误");
+		ThrowUtils.throwIf(count > MAX_COUNT, ErrorCode.PARAMS_ERROR, "最多 " + MAX_COUNT + " 条");
+		PictureSourceParser parser = parserMap.get(pictureUploadByBatchRequest.getSource());
+		ThrowUtils.throwIf(parser == null, ErrorCode.PARAMS_ERROR, "不支持的图片来源");
+
+		PictureGrabJobVO job = new PictureGrabJobVO();
+		job.setJobId(IdUtil.fastSimpleUUID());
+		job.setUserId(loginUser.getId());
+		job.setSearchText(searchText);
+		job.setCount(count);
+		job.setStatus(PictureGrabJobStatusEnum.PENDING.getValue());
+		job.setCandidateCount(0);
+		job.setSucceedCount(0);
+		job.setFailedCount(0);
+		job.setCreateTime(new Date());
+		this.saveJob(job);
+		try {
+			jobExecutor.execute(() -> this.run(job, parser, pictureUploadByBatchRequest, loginUser));
+		} catch (RejectedExecutionException e) {
+			stringRedisTemplate.delete(JOB_KEY_PREFIX + job.getJobId());
+			throw new BusinessException(ErrorCode.OPERATION_ERROR, "抓取任务过多, 请稍后重试");
+		}
+		return job.getJobId();
+	}
+
+	/**
+	 * 获取任务进度
+	 *
+	 * @param jobId 任务 id
+	 * @return 任务进度
+	 */
+	public PictureGrabJobVO getJob(String jobId) {
+		ThrowUtils.throwIf(StrUtil.isBlank(jobId), ErrorCode.PARAMS_ERROR);
+		String json = stringRedisTemplate.opsForValue().get(JOB_KEY_PREFIX + jobId);
+		ThrowUtils.throwIf(json == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在或已过期");
+		return JSONUtil.toBean(json, PictureGrabJobVO.class);
+	}
+
+	/**
+	 * 执行任务
+	 */
+	private void run(PictureGrabJobVO job, PictureSourceParser parser,
+					 PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+		try {
+			job.setStatus(PictureGrabJobStatusEnum.RUNNING.getValue());
+			List<String> candidateList = parser.search(job.getSearchText());
+			job.setCandidateCount(candidateList.size());
+			this.saveJob(job);
+
+			int count = job.getCount();
+			// 图片名称序号, 上传失败后归还给下一张图片, 保证序号尽量连续
+			PriorityQueue<Integer> freeNumbers = new PriorityQueue<>();
+			for (int i = 1; i <= count; i++) {
+				freeNumbers.add(i);
+			}
+			// 候选序号 -> 图片 id, 用于按来源顺序返回
+			TreeMap<Integer, Long> succeedMap = new TreeMap<>();
+			CompletionService<GrabResult> completionService = new ExecutorCompletionService<>(downloadExecutor);
+			// 域名下载数已满或线程池已满而延后的候选序号, 优先于后面的候选重新提交
+			Deque<Integer> deferred = new ArrayDeque<>();
+			int next = 0;
+			int running = 0;
+			while (true) {
+				// 进行中和成功的图片数不超过抓取数量
+				int deferredSize = deferred.size();
+				for (int i = 0; i < deferredSize && running + succeedMap.size() < count; i++) {
+					int index = deferred.poll();
+					if (this.submitGrab(completionService, index, candidateList.get(index), freeNumbers, pictureUploadByBatchRequest, loginUser)) {
+						running++;
+					} else {
+						deferred.add(index);
+					}
+				}
+				while (running + succeedMap.size() < count && next < candidateList.size()) {
+					int index = next++;
+					if (this.submitGrab(completionService, index, candidateList.get(index), freeNumbers, pictureUploadByBatchRequest, loginUser)) {
+						running++;
+					} else {
+						deferred.add(index);
+					}
+				}
+				if (running == 0 && (deferred.isEmpty() || succeedMap.size() >= count)) {
+					break;
+				}
+				// 有延后的候选时限时等待, 以便其他任务释放域名许可后继续提交
+				Future<GrabResult> future = deferred.isEmpty() ? completionService.take()
+						: completionService.poll(RETRY_SUBMIT_MILLIS, TimeUnit.MILLISECONDS);
+				if (future == null) {
+					continue;
+				}
+				GrabResult result = future.get();
+				running--;
+				if (result.pictureId != null) {
+					succeedMap.put(result.index, result.pictureId);
+				} else {
+					freeNumbers.add(result.number);
+					job.setFailedCount(job.getFailedCount() + 1);
+				}
+				job.setSucceedCount(succeedMap.size());
+				job.setPictureIds(new ArrayList<>(succeedMap.values()));
+				this.saveJob(job);
+			}
+			job.setStatus(PictureGrabJobStatusEnum.SUCCEED.getValue());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			job.setStatus(PictureGrabJobStatusEnum.FAILED.getValue());
+			job.setErrorMessage("任务已中断");
+		} catch (Exception e) {
+			log.error("批量抓取图片失败, jobId = {}", job.getJobId(), e);
+			job.setStatus(PictureGrabJobStatusEnum.FAILED.getValue());
+			job.setErrorMessage(e instanceof BusinessException ? e.getMessage() : "获取页面失败");
+		}
+		job.setFinishTime(new Date());
+		this.saveJob(job);
+	}
+
+	/**
+	 * 提交一张图片的下载上传, 域名下载数已满或线程池已满时不提交
+	 *
+	 * @return 是否已提交
+	 */
+	private boolean submitGrab(CompletionService<GrabResult> completionService, int index, String fileUrl,
+							   PriorityQueue<Integer> freeNumbers, PictureUploadByBatchRequest pictureUploadByBatchRequest,
+							   User loginUser) {
+		String host = getHost(fileUrl);
+		if (!this.tryAcquireHost(host)) {
+			return false;
+		}
+		int number = freeNumbers.poll();
+		PictureUploadRequest pictureUploadRequest = buildUploadRequest(pictureUploadByBatchRequest, number);
+		try {
+			completionService.submit(() -> this.grab(index, number, host, fileUrl, pictureUploadRequest, loginUser));
+			return true;
+		} catch (RejectedExecutionException e) {
+			freeNumbers.add(number);
+			this.releaseHost(host);
+			return false;
+		}
+	}
+
+	/**
+	 * 下载上传一张图片, 失败时返回的图片 id 为空; 完成后归还域名许可
+	 */
+	private GrabResult grab(int index, int number, String host, String fileUrl, PictureUploadRequest pictureUploadRequest, User loginUser) {
+		GrabResult result = new GrabResult(index, number);
+		try {
+			result.pictureId = pictureService.uploadPicture(fileUrl, pictureUploadRequest, loginUser).getId();
+			log.info("图片上传成功, id = {}", result.pictureId);
+		} catch (Exception e) {
+			log.error("图片上传失败, url = {}", fileUrl, e);
+		} finally {
+			this.releaseHost(host);
+		}
+		return result;
+	}
+
+	/**
+	 * 获取域名下载许可, 不等待
+	 */
+	private boolean tryAcquireHost(String host) {
+		boolean[] acquired = new boolean[1];
+		hostRunning.compute(host, (key, running) -> {
+			int current = running == null ? 0 : running;
+			if (current >= HOST_PARALLELISM) {
+				return running;
+			}
+			acquired[0] = true;
+			return current + 1;
+		});
+		return acquired[0];
+	}
+
+	/**
+	 * 归还域名下载许可, 全部归还后移除
+	 */
+	private void releaseHost(String host) {
+		hostRunning.computeIfPresent(host, (key, running) -> running > 1 ? running - 1 : null);
+	}
+
+	private PictureUploadRequest buildUploadRequest(PictureUploadByBatchRequest pictureUploadByBatchRequest, int number) {
+		PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+		// 获取图片名称前缀, 如果没有则默认使用关键词
+		String namePrefix = StrUtil.blankToDefault(pictureUploadByBatchRequest.getNamePrefix(), pictureUploadByBatchRequest.getSearchText());
+		pictureUploadRequest.setPicName(namePrefix + number);
+		if (ObjUtil.isNotEmpty(pictureUploadByBatchRequest.getCategory())) {
+			pictureUploadRequest.setCategory(pictureUploadByBatchRequest.getCategory());
+		}
+		if (pictureUploadByBatchRequest.getTags() != null && !pictureUploadByBatchRequest.getTags().isEmpty()) {
+			pictureUploadRequest.setTags(String.join(",", pictureUploadByBatchRequest.getTags()));
+		}
+		return pictureUploadRequest;
+	}
+
+	private static String getHost(String fileUrl) {
+		try {
+			return StrUtil.blankToDefault(URLUtil.url(fileUrl).getHost(), "");
+		} catch (Exception e) {
+			return "";
+		}
+	}
+
+	private void saveJob(PictureGrabJobVO job) {
+		try {
+			stringRedisTemplate.opsForValue().set(JOB_KEY_PREFIX + job.getJobId(), JSONUtil.toJsonStr(job),
+					JOB_EXPIRE_HOURS, TimeUnit.HOURS);
+		} catch (Exception e) {
+			log.warn("保存批量抓取任务进度失败, jobId = {}", job.getJobId(), e);
+		}
+	}
+
+	/**
+	 * 单张图片的抓取结果
+	 */
+	private static class GrabResult {
+
+		/**
+		 * 候选序号
+		 */
+		private final int index;
+
+		/**
+		 * 图片名称序号
+		 */
+		private final int number;
+
+		/**
+		 * 图片 id, 失败为空
+		 */
+		private Long pictureId;
+
+		GrabResult(int index, int number) {
+			this.index = index;
+			this.number = number;
+		}
+	}
+}
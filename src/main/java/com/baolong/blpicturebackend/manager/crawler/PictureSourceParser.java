@@ -0,0 +1,25 @@
+package com.baolong.blpicturebackend.manager.crawler;
+
+import java.util.List;
+
+/**
+ * 批量抓取图片的来源解析器
+ * <p>
+ * 每个来源一个实现, 按 {@link #getSource()} 匹配请求中的来源
+ */
+public interface PictureSourceParser {
+
+	/**
+	 * 来源名称
+	 */
+	String getSource();
+
+	/**
+	 * 根据关键词获取候选图片地址
+	 *
+	 * @param searchText 关键词
+	 * @return 图片地址列表, 按来源给出的顺序
+	 * @throws Exception 获取页面失败
+	 */
+	List<String> search(String searchText) throws Exception;
+}
@@ -0,0 +1,63 @@
+package com.baolong.blpicturebackend.manager.image;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.json.JSONObject;
+import com.baolong.blpicturebackend.exception.BusinessException;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.manager.CosManager;
+import com.qcloud.cos.model.ciModel.persistence.CIObject;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 数据万象图片处理器
+ * <p>
+ * 使用数据万象规则处理已上传的原图, 不读取原图内容
+ */
+@Component
+@ConditionalOnProperty(prefix = "picture.process", name = "engine", havingValue = "cos", matchIfMissing = true)
+public class CosImageProcessor implements ImageProcessor {
+
+	@Resource
+	private CosManager cosManager;
+
+	@Override
+	public ImageProcessResult process(String originKey, long originSize, ImageSource source) {
+		CIUploadResult ciUploadResult = cosManager.processPictureObject(originKey, originSize);
+		List<CIObject> objectList = ciUploadResult.getProcessResults() == null ? null
+				: ciUploadResult.getProcessResults().getObjectList();
+		if (CollUtil.isEmpty(objectList)) {
+			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理结果为空");
+		}
+		// 根据图片处理规则的顺序获取即可
+		CIObject compressedCiObject = objectList.get(0);
+		// 有生成缩略图，才得到缩略图
+		CIObject thumbnailCiObject = objectList.size() > 1 ? objectList.get(1) : compressedCiObject;
+		ImageProcessResult result = new ImageProcessResult();
+		result.setCompressedKey(compressedCiObject.getKey());
+		result.setThumbnailKey(thumbnailCiObject.getKey());
+		result.setPicWidth(compressedCiObject.getWidth());
+		result.setPicHeight(compressedCiObject.getHeight());
+		result.setPicFormat(compressedCiObject.getFormat());
+		result.setPicSize(compressedCiObject.getSize().longValue());
+		return result;
+	}
+
+	@Override
+	public ImageProcessResult getImageInfo(String originKey, long originSize, ImageSource source) {
+		JSONObject imageInfo = cosManager.getImageInfo(originKey);
+		ImageProcessResult result = new ImageProcessResult();
+		result.setCompressedKey(originKey);
+		result.setThumbnailKey(originKey);
+		result.setPicWidth(imageInfo.getInt("width"));
+		result.setPicHeight(imageInfo.getInt("height"));
+		result.setPicFormat(imageInfo.getStr("format"));
+		result.setPicSize(originSize);
+		result.setPicColor(cosManager.getImageAve(originKey));
+		return result;
+	}
+}
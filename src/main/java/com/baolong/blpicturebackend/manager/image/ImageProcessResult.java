@@ -0,0 +1,45 @@
+package com.baolong.blpicturebackend.manager.image;
+
+import lombok.Data;
+
+/**
+ * 图片处理结果
+ */
+@Data
+public class ImageProcessResult {
+
+	/**
+	 * 压缩图 key
+	 */
+	private String compressedKey;
+
+	/**
+	 * 缩略图 key（没有生成缩略图时与压缩图相同）
+	 */
+	private String thumbnailKey;
+
+	/**
+	 * 压缩图宽度
+	 */
+	private int picWidth;
+
+	/**
+	 * 压缩图高度
+	 */
+	private int picHeight;
+
+	/**
+	 * 压缩图格式
+	 */
+	private String picFormat;
+
+	/**
+	 * 压缩图大小
+	 */
+	private long picSize;
+
+	/**
+	 * 图片主色调（未计算时为 null）
+	 */
+	private String picColor;
+}
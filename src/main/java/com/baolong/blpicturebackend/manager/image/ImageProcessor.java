@@ -0,0 +1,44 @@
+package com.baolong.blpicturebackend.manager.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 图片处理器
+ * <p>
+ * 对已上传的原图进行格式转换（压缩图）、生成缩略图, 并将结果保存到对象存储;
+ * 通过 picture.process.engine 选择实现: cos（数据万象, 默认, 需要使用腾讯云对象存储）或 local（本地处理）
+ */
+public interface ImageProcessor {
+
+	/**
+	 * 处理图片
+	 *
+	 * @param originKey  原图 key
+	 * @param originSize 原图大小
+	 * @param source     原图内容（本地处理时读取, 数据万象直接处理已上传的原图）
+	 * @return 处理结果
+	 * @throws Exception 处理失败
+	 */
+	ImageProcessResult process(String originKey, long originSize, ImageSource source) throws Exception;
+
+	/**
+	 * 获取原图基本信息, 用于上传时本地无法解码的图片
+	 *
+	 * @param originKey  原图 key
+	 * @param originSize 原图大小
+	 * @param source     原图内容
+	 * @return 原图信息（压缩图和缩略图 key 均为原图 key）
+	 * @throws Exception 获取失败
+	 */
+	ImageProcessResult getImageInfo(String originKey, long originSize, ImageSource source) throws Exception;
+
+	/**
+	 * 原图内容, 每次调用返回新的输入流
+	 */
+	@FunctionalInterface
+	interface ImageSource {
+
+		InputStream open() throws IOException;
+	}
+}
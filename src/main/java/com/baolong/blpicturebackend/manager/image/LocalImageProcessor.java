@@ -0,0 +1,310 @@
+package com.baolong.blpicturebackend.manager.image;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.exception.BusinessException;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.manager.storage.ObjectStore;
+import com.baolong.blpicturebackend.utils.ImageColorUtils;
+import com.baolong.blpicturebackend.utils.ImageHeaderUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地图片处理器
+ * <p>
+ * 在本机解码原图, 重新编码为压缩图（有 WebP 编码器时使用 WebP, 否则 JPEG, 带透明通道的使用 PNG）,
+ * 按区域平均算法缩放生成缩略图并计算主色调, 再上传到对象存储; 不依赖数据万象, 可配合本地存储离线测试, 也可节省处理费用。
+ * 解码大图占用内存较多, 处理在按 CPU 核数创建的线程池中执行, 队列满时拒绝; 解码前按文件头中的宽高校验像素数, 超过上限的图片不解码。
+ * ImageIO 没有解码器的格式（如 WebP）从文件头读取宽高, 保留原图作为压缩图和缩略图
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "picture.process", name = "engine", havingValue = "local")
+public class LocalImageProcessor implements ImageProcessor {
+
+	/**
+	 * 缩略图最长边（像素）, 与数据万象规则一致
+	 */
+	private static final int THUMBNAIL_SIZE = 256;
+
+	/**
+	 * 超过该大小（字节）的原图才生成缩略图, 与数据万象规则一致
+	 */
+	private static final long THUMBNAIL_MIN_SIZE = 2 * 1024;
+
+	/**
+	 * 单张图片处理超时时间（秒）
+	 */
+	private static final long PROCESS_TIMEOUT_SECONDS = 60;
+
+	@Resource
+	private ObjectStore objectStore;
+
+	/**
+	 * 压缩图质量（0 ~ 1）
+	 */
+	@Value("${picture.process.quality:0.8}")
+	private float quality;
+
+	/**
+	 * 允许解码的最大像素数（宽 x 高）, 解码后按每像素 4 字节占用内存
+	 */
+	@Value("${picture.process.max-pixels:50000000}")
+	private long maxPixels;
+
+	/**
+	 * 处理线程池, 线程数与 CPU 核数相同
+	 */
+	private final ThreadPoolExecutor processExecutor = new ThreadPoolExecutor(
+			Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(),
+			0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 4),
+			ThreadFactoryBuilder.create().setNamePrefix("image-process-").setDaemon(true).build(),
+			new ThreadPoolExecutor.AbortPolicy());
+
+	@PreDestroy
+	public void destroy() {
+		processExecutor.shutdown();
+	}
+
+	@Override
+	public ImageProcessResult process(String originKey, long originSize, ImageSource source) throws Exception {
+		return submit(() -> this.doProcess(originKey, originSize, source));
+	}
+
+	@Override
+	public ImageProcessResult getImageInfo(String originKey, long originSize, ImageSource source) throws Exception {
+		return submit(() -> {
+			BufferedImage image = read(source);
+			if (image == null) {
+				return readHeaderInfo(originKey, originSize, source);
+			}
+			ImageProcessResult result = new ImageProcessResult();
+			result.setCompressedKey(originKey);
+			result.setThumbnailKey(originKey);
+			result.setPicWidth(image.getWidth());
+			result.setPicHeight(image.getHeight());
+			result.setPicFormat(FileUtil.getSuffix(originKey));
+			result.setPicSize(originSize);
+			Integer averageColor = ImageColorUtils.averageColor(scale(image, THUMBNAIL_SIZE, image.getColorModel().hasAlpha()));
+			if (averageColor != null) {
+				result.setPicColor(ImageColorUtils.toHex(averageColor));
+			}
+			return result;
+		});
+	}
+
+	/**
+	 * 在处理线程池中执行并等待结果
+	 */
+	private ImageProcessResult submit(Callable<ImageProcessResult> task) throws Exception {
+		Future<ImageProcessResult> future;
+		try {
+			future = processExecutor.submit(task);
+		} catch (RejectedExecutionException e) {
+			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理繁忙, 请稍后重试");
+		}
+		try {
+			return future.get(PROCESS_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} finally {
+			future.cancel(true);
+		}
+	}
+
+	/**
+	 * 解码图片, 没有对应的解码器时返回 null
+	 */
+	private BufferedImage read(ImageSource source) throws IOException {
+		try (InputStream inputStream = source.open();
+			 ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+			if (!readers.hasNext()) {
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(imageInputStream, true, true);
+				// 只读取文件头中的宽高, 超过上限时不解码, 避免超大分辨率的图片耗尽内存
+				long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+				if (pixels > maxPixels) {
+					throw new BusinessException(ErrorCode.PARAMS_ERROR, "图片分辨率过大");
+				}
+				return reader.read(0);
+			} finally {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * 无法解码的图片从文件头读取宽高, 压缩图和缩略图均使用原图
+	 */
+	private ImageProcessResult readHeaderInfo(String originKey, long originSize, ImageSource source) throws IOException {
+		int[] size;
+		try (InputStream inputStream = source.open()) {
+			size = ImageHeaderUtils.readSize(inputStream);
+		}
+		if (size == null) {
+			throw new BusinessException(ErrorCode.PARAMS_ERROR, "不支持的图片格式");
+		}
+		ImageProcessResult result = new ImageProcessResult();
+		result.setCompressedKey(originKey);
+		result.setThumbnailKey(originKey);
+		result.setPicWidth(size[0]);
+		result.setPicHeight(size[1]);
+		result.setPicFormat(FileUtil.getSuffix(originKey));
+		result.setPicSize(originSize);
+		return result;
+	}
+
+	private ImageProcessResult doProcess(String originKey, long originSize, ImageSource source) throws IOException {
+		BufferedImage image = read(source);
+		if (image == null) {
+			log.info("本地无法解码图片, 保留原图, originKey = {}", originKey);
+			return readHeaderInfo(originKey, originSize, source);
+		}
+		// 处理结果与原图放在同一目录, 命名与数据万象规则一致
+		String keyPrefix = ObjectStore.normalizeKey(StrUtil.subBefore(originKey, "/", true)) + "/" + FileUtil.mainName(originKey);
+		boolean alpha = image.getColorModel().hasAlpha();
+		ImageProcessResult result = new ImageProcessResult();
+
+		// 1. 压缩图
+		String compressedFormat = hasWriter("webp") ? "webp" : (alpha ? "png" : "jpg");
+		byte[] compressed = encode(image, compressedFormat);
+		String compressedKey = keyPrefix + "." + compressedFormat;
+		// 原图与压缩图格式相同（如 jpg 原图、带透明通道的 png 原图）时加后缀, 避免覆盖原图
+		if (compressedKey.equalsIgnoreCase(ObjectStore.normalizeKey(originKey))) {
+			compressedKey = keyPrefix + "_compressed." + compressedFormat;
+		}
+		result.setCompressedKey(compressedKey);
+		result.setPicWidth(image.getWidth());
+		result.setPicHeight(image.getHeight());
+		result.setPicFormat(compressedFormat);
+		result.setPicSize(compressed.length);
+		objectStore.putObject(result.getCompressedKey(), new ByteArrayInputStream(compressed), compressed.length);
+
+		// 2. 缩略图（只缩小不放大）, 使用原图格式, 无法编码时使用压缩图格式
+		BufferedImage thumbnail = scale(image, THUMBNAIL_SIZE, alpha);
+		if (originSize > THUMBNAIL_MIN_SIZE) {
+			String thumbnailFormat = StrUtil.blankToDefault(FileUtil.getSuffix(originKey), compressedFormat).toLowerCase();
+			if (!hasWriter(thumbnailFormat)) {
+				thumbnailFormat = alpha ? "png" : "jpg";
+			}
+			byte[] thumbnailBytes = encode(thumbnail, thumbnailFormat);
+			result.setThumbnailKey(keyPrefix + "_thumbnail." + thumbnailFormat);
+			objectStore.putObject(result.getThumbnailKey(), new ByteArrayInputStream(thumbnailBytes), thumbnailBytes.length);
+		} else {
+			result.setThumbnailKey(result.getCompressedKey());
+		}
+
+		// 3. 主色调
+		Integer averageColor = ImageColorUtils.averageColor(thumbnail);
+		if (averageColor != null) {
+			result.setPicColor(ImageColorUtils.toHex(averageColor));
+		}
+		return result;
+	}
+
+	/**
+	 * 按区域平均算法缩放到最长边不超过 maxSide
+	 */
+	private BufferedImage scale(BufferedImage image, int maxSide, boolean alpha) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		if (Math.max(width, height) <= maxSide) {
+			return image;
+		}
+		double ratio = (double) maxSide / Math.max(width, height);
+		int targetWidth = Math.max(1, (int) Math.round(width * ratio));
+		int targetHeight = Math.max(1, (int) Math.round(height * ratio));
+		Image scaled = image.getScaledInstance(targetWidth, targetHeight, Image.SCALE_AREA_AVERAGING);
+		BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+				alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = target.createGraphics();
+		try {
+			graphics.drawImage(scaled, 0, 0, null);
+		} finally {
+			graphics.dispose();
+		}
+		return target;
+	}
+
+	/**
+	 * 编码图片, 有损格式按配置的质量压缩
+	 */
+	private byte[] encode(BufferedImage image, String format) throws IOException {
+		Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+		if (!writers.hasNext()) {
+			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的图片格式: " + format);
+		}
+		// JPEG 不支持透明通道, 转换为白色背景的 RGB 图片
+		if (("jpg".equals(format) || "jpeg".equals(format)) && image.getType() != BufferedImage.TYPE_INT_RGB) {
+			BufferedImage rgbImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+			Graphics2D graphics = rgbImage.createGraphics();
+			try {
+				graphics.drawImage(image, 0, 0, Color.WHITE, null);
+			} finally {
+				graphics.dispose();
+			}
+			image = rgbImage;
+		}
+		ImageWriter writer = writers.next();
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+			writer.setOutput(imageOutputStream);
+			ImageWriteParam writeParam = writer.getDefaultWriteParam();
+			if (writeParam.canWriteCompressed()) {
+				writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				if (writeParam.getCompressionType() == null && writeParam.getCompressionTypes() != null) {
+					writeParam.setCompressionType(writeParam.getCompressionTypes()[0]);
+				}
+				if (!writeParam.isCompressionLossless()) {
+					writeParam.setCompressionQuality(quality);
+				}
+			}
+			writer.write(null, new IIOImage(image, null, null), writeParam);
+		} finally {
+			writer.dispose();
+		}
+		return outputStream.toByteArray();
+	}
+
+	private static boolean hasWriter(String format) {
+		return ImageIO.getImageWritersByFormatName(format).hasNext();
+	}
+}
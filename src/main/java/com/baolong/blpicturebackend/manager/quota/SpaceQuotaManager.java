@@ -0,0 +1,463 @@
+package com.baolong.blpicturebackend.manager.quota;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ObjUtil;
+import com.baolong.blpicturebackend.exception.BusinessException;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.mapper.PictureMapper;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baolong.blpicturebackend.model.entity.Space;
+import com.baolong.blpicturebackend.service.SpaceService;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 空间额度管理
+ * <p>
+ * 额度计数器保存在 Redis 中（首次使用时按 space 表初始化）, 上传前通过 Lua 脚本原子地检查并预留额度,
+ * 图片入库的事务提交后按实际大小提交预留, 失败时释放; 上传不直接更新 space 表, 避免所有上传争抢空间的行锁,
+ * 已用额度变化的空间记录到待同步集合, 由定时任务合并后写回 space 表的 totalSize、totalCount（延迟数秒）;
+ * 定时按 picture 表的 SUM(picSize) 对账, 同时校正 Redis 计数器和 space 表
+ */
+@Slf4j
+@Component
+public class SpaceQuotaManager {
+
+	/**
+	 * 额度计数器 key 前缀（hash: usedSize、usedCount、reservedSize、reservedCount、maxSize、maxCount、version）
+	 */
+	private static final String QUOTA_KEY_PREFIX = "baolong:spaceQuota:";
+
+	/**
+	 * 预留记录 key 后缀（hash: 预留标识 -> "大小,条数,过期时间"）
+	 */
+	private static final String RESERVATION_KEY_SUFFIX = ":reservations";
+
+	/**
+	 * 对账锁, 多节点同一时间只有一个节点对账
+	 */
+	private static final String RECONCILE_LOCK_KEY = "baolong:spaceQuota:reconcileLock";
+
+	/**
+	 * 已用额度有变化、等待写回 space 表的空间 id 集合
+	 */
+	private static final String DIRTY_KEY = "baolong:spaceQuota:dirty";
+
+	/**
+	 * 每次写回 space 表的最大空间数
+	 */
+	private static final int FLUSH_BATCH_SIZE = 500;
+
+	/**
+	 * 服务端上传预留额度的有效期（分钟）, 节点异常时预留在对账时过期释放
+	 */
+	private static final int DEFAULT_RESERVE_MINUTES = 10;
+
+	/**
+	 * 每批对账的空间数
+	 */
+	private static final int RECONCILE_BATCH_SIZE = 100;
+
+	private static final RedisScript<Long> SEED_SCRIPT = loadScript("lua/space_quota_seed.lua");
+
+	private static final RedisScript<Long> RESERVE_SCRIPT = loadScript("lua/space_quota_reserve.lua");
+
+	private static final RedisScript<Long> SETTLE_SCRIPT = loadScript("lua/space_quota_settle.lua");
+
+	private static final RedisScript<Long> ADJUST_SCRIPT = loadScript("lua/space_quota_adjust.lua");
+
+	private static final RedisScript<Long> RECONCILE_SCRIPT = loadScript("lua/space_quota_reconcile.lua");
+
+	private static final RedisScript<Long> LIMIT_SCRIPT = loadScript("lua/space_quota_limit.lua");
+
+	private static final RedisScript<Long> UNLOCK_SCRIPT = loadScript("lua/space_quota_unlock.lua");
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private SpaceService spaceService;
+
+	@Resource
+	private PictureMapper pictureMapper;
+
+	private static RedisScript<Long> loadScript(String path) {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+		script.setLocation(new ClassPathResource(path));
+		script.setResultType(Long.class);
+		return script;
+	}
+
+	// region 额度预留
+
+	/**
+	 * 获取空间额度使用情况
+	 *
+	 * @param spaceId 空间 id
+	 * @return 额度使用情况
+	 */
+	public SpaceQuotaUsage getUsage(Long spaceId) {
+		String quotaKey = getQuotaKey(spaceId);
+		List<Object> values = stringRedisTemplate.opsForHash().multiGet(quotaKey, Arrays.asList(
+				"usedSize", "usedCount", "reservedSize", "reservedCount", "maxSize", "maxCount"));
+		if (values.get(0) == null) {
+			seed(spaceId);
+			values = stringRedisTemplate.opsForHash().multiGet(quotaKey, Arrays.asList(
+					"usedSize", "usedCount", "reservedSize", "reservedCount", "maxSize", "maxCount"));
+		}
+		SpaceQuotaUsage usage = new SpaceQuotaUsage();
+		usage.setUsedSize(toLong(values.get(0)));
+		usage.setUsedCount(toLong(values.get(1)));
+		usage.setReservedSize(toLong(values.get(2)));
+		usage.setReservedCount(toLong(values.get(3)));
+		usage.setMaxSize(toLong(values.get(4)));
+		usage.setMaxCount(toLong(values.get(5)));
+		return usage;
+	}
+
+	/**
+	 * 预留额度（服务端上传）, 额度不足时抛出异常
+	 *
+	 * @param spaceId 空间 id
+	 * @param token   预留标识, 用于提交或释放
+	 * @param size    预留大小
+	 * @param count   预留条数
+	 */
+	public void reserve(Long spaceId, String token, long size, long count) {
+		reserve(spaceId, token, size, count, DateUtil.offsetMinute(new Date(), DEFAULT_RESERVE_MINUTES));
+	}
+
+	/**
+	 * 预留额度, 额度不足时抛出异常; 同一个预留标识重复预留视为成功
+	 *
+	 * @param spaceId    空间 id
+	 * @param token      预留标识
+	 * @param size       预留大小
+	 * @param count      预留条数
+	 * @param expireTime 过期时间, 过期未提交的预留在对账时释放
+	 */
+	public void reserve(Long spaceId, String token, long size, long count, Date expireTime) {
+		List<String> keys = Arrays.asList(getQuotaKey(spaceId), getReservationKey(spaceId));
+		String[] args = {token, String.valueOf(size), String.valueOf(count), String.valueOf(expireTime.getTime())};
+		Long result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys, (Object[]) args);
+		if (result != null && result == -1) {
+			seed(spaceId);
+			result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys, (Object[]) args);
+		}
+		ThrowUtils.throwIf(result == null || result < 0, ErrorCode.SYSTEM_ERROR, "额度预留失败");
+		if (result == 1) {
+			throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
+		}
+		if (result == 2) {
+			throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
+		}
+	}
+
+	/**
+	 * 提交预留, 按实际变化量更新已用额度; 在事务中调用时等事务提交后执行, 事务回滚时释放预留
+	 *
+	 * @param spaceId    空间 id
+	 * @param token      预留标识
+	 * @param sizeDelta  已用大小变化量
+	 * @param countDelta 已用条数变化量
+	 */
+	public void commit(Long spaceId, String token, long sizeDelta, long countDelta) {
+		runAfterTransaction(committed -> {
+			if (!committed) {
+				settle(spaceId, token, 0, 0);
+				return;
+			}
+			// 预留已过期被清理时, 直接更新已用额度
+			if (!settle(spaceId, token, sizeDelta, countDelta)) {
+				adjust(spaceId, sizeDelta, countDelta);
+			}
+		});
+	}
+
+	/**
+	 * 释放预留（重复释放无影响）
+	 *
+	 * @param spaceId 空间 id
+	 * @param token   预留标识
+	 */
+	public void release(Long spaceId, String token) {
+		try {
+			settle(spaceId, token, 0, 0);
+		} catch (Exception e) {
+			// 预留过期后由对账释放
+			log.error("空间额度预留释放失败, spaceId = {}, token = {}", spaceId, token, e);
+		}
+	}
+
+	/**
+	 * 更新已用额度（删除图片、图片处理后大小变化）, 在事务中调用时等事务提交后执行
+	 *
+	 * @param spaceId    空间 id
+	 * @param sizeDelta  已用大小变化量
+	 * @param countDelta 已用条数变化量
+	 */
+	public void adjustAfterCommit(Long spaceId, long sizeDelta, long countDelta) {
+		runAfterTransaction(committed -> {
+			if (committed) {
+				adjust(spaceId, sizeDelta, countDelta);
+			}
+		});
+	}
+
+	/**
+	 * 空间级别变化后更新额度上限
+	 *
+	 * @param spaceId 空间 id
+	 */
+	public void refreshLimit(Long spaceId) {
+		Space space = spaceService.getById(spaceId);
+		if (space == null) {
+			return;
+		}
+		stringRedisTemplate.execute(LIMIT_SCRIPT, Arrays.asList(getQuotaKey(spaceId)),
+				String.valueOf(space.getMaxSize()), String.valueOf(space.getMaxCount()));
+	}
+
+	/**
+	 * 删除空间后清除额度计数器
+	 *
+	 * @param spaceId 空间 id
+	 */
+	public void evict(Long spaceId) {
+		stringRedisTemplate.delete(Arrays.asList(getQuotaKey(spaceId), getReservationKey(spaceId)));
+	}
+
+	// endregion
+
+	// region 写回 space 表
+
+	/**
+	 * 定时将有变化的已用额度写回 space 表, 同一空间多次上传合并为一次更新
+	 */
+	@Scheduled(fixedDelayString = "${picture.quota.flush-interval:5000}", initialDelay = 10 * 1000L)
+	public void flushUsage() {
+		List<String> spaceIdList;
+		try {
+			spaceIdList = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, FLUSH_BATCH_SIZE);
+		} catch (Exception e) {
+			log.error("获取待同步的空间额度失败", e);
+			return;
+		}
+		if (CollUtil.isEmpty(spaceIdList)) {
+			return;
+		}
+		for (String spaceId : spaceIdList) {
+			try {
+				List<Object> values = stringRedisTemplate.opsForHash().multiGet(getQuotaKey(Long.valueOf(spaceId)),
+						Arrays.asList("usedSize", "usedCount"));
+				if (values.get(0) == null) {
+					continue;
+				}
+				spaceService.lambdaUpdate()
+						.eq(Space::getId, Long.valueOf(spaceId))
+						.set(Space::getTotalSize, toLong(values.get(0)))
+						.set(Space::getTotalCount, toLong(values.get(1)))
+						.update();
+			} catch (Exception e) {
+				log.error("空间额度写回失败, spaceId = {}", spaceId, e);
+				markDirty(Long.valueOf(spaceId));
+			}
+		}
+	}
+
+	// endregion
+
+	// region 对账
+
+	/**
+	 * 定时对账: 按 picture 表汇总已用额度, 校正 space 表和 Redis 计数器, 并清理过期的预留
+	 */
+	@Scheduled(fixedDelayString = "${picture.quota.reconcile-interval:600000}", initialDelay = 60 * 1000L)
+	public void reconcile() {
+		// 锁的值为本次对账的标识, 释放时只删除自己的锁, 避免超时后删除其他节点的锁
+		String lockToken = IdUtil.fastSimpleUUID();
+		Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK_KEY, lockToken, Duration.ofMinutes(5));
+		if (!Boolean.TRUE.equals(locked)) {
+			return;
+		}
+		try {
+			long lastId = 0;
+			while (true) {
+				List<Space> spaceList = spaceService.lambdaQuery()
+						.select(Space::getId, Space::getMaxSize, Space::getMaxCount, Space::getTotalSize, Space::getTotalCount)
+						.gt(Space::getId, lastId)
+						.orderByAsc(Space::getId)
+						.last("limit " + RECONCILE_BATCH_SIZE)
+						.list();
+				if (CollUtil.isEmpty(spaceList)) {
+					break;
+				}
+				lastId = spaceList.get(spaceList.size() - 1).getId();
+				reconcile(spaceList);
+			}
+		} catch (Exception e) {
+			log.error("空间额度对账失败", e);
+		} finally {
+			stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(RECONCILE_LOCK_KEY), lockToken);
+		}
+	}
+
+	/**
+	 * 对账一批空间
+	 */
+	private void reconcile(List<Space> spaceList) {
+		// 版本号必须在查询数据库之前读取: 查询期间已用额度有变化时版本号不一致, 本次跳过
+		Map<Long, String> versionMap = new HashMap<>();
+		for (Space space : spaceList) {
+			Object version = stringRedisTemplate.opsForHash().get(getQuotaKey(space.getId()), "version");
+			if (version != null) {
+				versionMap.put(space.getId(), version.toString());
+			}
+		}
+		List<Long> spaceIdList = spaceList.stream().map(Space::getId).collect(Collectors.toList());
+		Map<Long, long[]> usedMap = pictureMapper.selectMaps(new QueryWrapper<Picture>()
+						.select("spaceId", "COUNT(*) AS usedCount", "IFNULL(SUM(picSize), 0) AS usedSize")
+						.in("spaceId", spaceIdList)
+						.groupBy("spaceId"))
+				.stream()
+				.collect(Collectors.toMap(row -> ((Number) row.get("spaceId")).longValue(),
+						row -> new long[]{((Number) row.get("usedSize")).longValue(), ((Number) row.get("usedCount")).longValue()}));
+		long now = System.currentTimeMillis();
+		for (Space space : spaceList) {
+			long[] used = usedMap.getOrDefault(space.getId(), new long[]{0, 0});
+			try {
+				// 校正 space 表
+				if (ObjUtil.notEqual(space.getTotalSize(), used[0]) || ObjUtil.notEqual(space.getTotalCount(), used[1])) {
+					spaceService.lambdaUpdate()
+							.eq(Space::getId, space.getId())
+							.set(Space::getTotalSize, used[0])
+							.set(Space::getTotalCount, used[1])
+							.update();
+				}
+				// 校正 Redis 计数器（未初始化的空间在使用时按 space 表初始化）
+				String version = versionMap.get(space.getId());
+				if (version != null) {
+					Long result = stringRedisTemplate.execute(RECONCILE_SCRIPT,
+							Arrays.asList(getQuotaKey(space.getId()), getReservationKey(space.getId())),
+							version, String.valueOf(used[0]), String.valueOf(used[1]),
+							String.valueOf(space.getMaxSize()), String.valueOf(space.getMaxCount()), String.valueOf(now));
+					if (result != null && result == 0) {
+						log.info("空间额度对账期间有变化, 下次再校正, spaceId = {}", space.getId());
+					}
+				}
+			} catch (Exception e) {
+				log.error("空间额度对账失败, spaceId = {}", space.getId(), e);
+			}
+		}
+	}
+
+	// endregion
+
+	/**
+	 * 按 space 表初始化计数器
+	 */
+	private void seed(Long spaceId) {
+		Space space = spaceService.getById(spaceId);
+		ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+		stringRedisTemplate.execute(SEED_SCRIPT, Arrays.asList(getQuotaKey(spaceId)),
+				String.valueOf(ObjUtil.defaultIfNull(space.getTotalSize(), 0L)),
+				String.valueOf(ObjUtil.defaultIfNull(space.getTotalCount(), 0L)),
+				String.valueOf(space.getMaxSize()), String.valueOf(space.getMaxCount()));
+	}
+
+	/**
+	 * 结束预留
+	 *
+	 * @return 预留是否存在
+	 */
+	private boolean settle(Long spaceId, String token, long sizeDelta, long countDelta) {
+		Long result = stringRedisTemplate.execute(SETTLE_SCRIPT,
+				Arrays.asList(getQuotaKey(spaceId), getReservationKey(spaceId)),
+				token, String.valueOf(sizeDelta), String.valueOf(countDelta));
+		boolean settled = result != null && result == 1;
+		if (settled && (sizeDelta != 0 || countDelta != 0)) {
+			markDirty(spaceId);
+		}
+		return settled;
+	}
+
+	private void adjust(Long spaceId, long sizeDelta, long countDelta) {
+		if (sizeDelta == 0 && countDelta == 0) {
+			return;
+		}
+		Long result = stringRedisTemplate.execute(ADJUST_SCRIPT, Arrays.asList(getQuotaKey(spaceId)),
+				String.valueOf(sizeDelta), String.valueOf(countDelta));
+		if (result != null && result == 1) {
+			markDirty(spaceId);
+		}
+	}
+
+	/**
+	 * 记录已用额度有变化的空间, 等待写回 space 表; 失败时由对账校正
+	 */
+	private void markDirty(Long spaceId) {
+		try {
+			stringRedisTemplate.opsForSet().add(DIRTY_KEY, String.valueOf(spaceId));
+		} catch (Exception e) {
+			log.warn("记录待同步的空间额度失败, spaceId = {}", spaceId, e);
+		}
+	}
+
+	/**
+	 * 在事务中调用时等事务结束后执行（参数为事务是否提交）, 否则立即执行; Redis 异常只记录日志, 由对账校正
+	 */
+	private void runAfterTransaction(Consumer<Boolean> action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			runQuietly(action, true);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				runQuietly(action, status == STATUS_COMMITTED);
+			}
+		});
+	}
+
+	private void runQuietly(Consumer<Boolean> action, boolean committed) {
+		try {
+			action.accept(committed);
+		} catch (Exception e) {
+			log.error("空间额度更新失败, 等待对账校正", e);
+		}
+	}
+
+	private static String getQuotaKey(Long spaceId) {
+		return QUOTA_KEY_PREFIX + spaceId;
+	}
+
+	private static String getReservationKey(Long spaceId) {
+		return QUOTA_KEY_PREFIX + spaceId + RESERVATION_KEY_SUFFIX;
+	}
+
+	private static long toLong(Object value) {
+		return value == null ? 0 : Long.parseLong(value.toString());
+	}
+}
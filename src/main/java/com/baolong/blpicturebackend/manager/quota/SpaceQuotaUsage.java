@@ -0,0 +1,44 @@
+package com.baolong.blpicturebackend.manager.quota;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 空间额度使用情况
+ */
+@Data
+public class SpaceQuotaUsage implements Serializable {
+
+	/**
+	 * 已用大小
+	 */
+	private long usedSize;
+
+	/**
+	 * 已用条数
+	 */
+	private long usedCount;
+
+	/**
+	 * 上传中预留的大小
+	 */
+	private long reservedSize;
+
+	/**
+	 * 上传中预留的条数
+	 */
+	private long reservedCount;
+
+	/**
+	 * 最大大小
+	 */
+	private long maxSize;
+
+	/**
+	 * 最大条数
+	 */
+	private long maxCount;
+
+	private static final long serialVersionUID = 1L;
+}
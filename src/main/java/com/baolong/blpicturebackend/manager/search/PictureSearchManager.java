@@ -0,0 +1,376 @@
+package com.baolong.blpicturebackend.manager.search;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HtmlUtil;
+import com.baolong.blpicturebackend.mapper.PictureMapper;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baolong.blpicturebackend.model.event.PictureChangeEvent;
+import com.baolong.blpicturebackend.model.vo.PictureVO;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 图片搜索
+ * <p>
+ * 名称和简介使用 MySQL 全文索引（ngram 分词, 支持中文）, 以布尔模式把整个搜索词作为短语匹配, 与模糊查询的结果一致;
+ * 分页查询没有指定排序时按相关度从高到低返回, 指定排序字段或游标分页时按排序字段返回, 不再考虑相关度;
+ * 索引随事务同步更新, 提交后即可搜到; 索引不存在或搜索词短于分词长度时退化为模糊查询;
+ * 搜索结果中命中的词按同样的 ngram 规则高亮
+ */
+@Slf4j
+@Component
+public class PictureSearchManager {
+
+	/**
+	 * 全文索引名称
+	 */
+	public static final String FULL_TEXT_INDEX = "ft_name_introduction";
+
+	/**
+	 * 重建任务锁, 多个节点同时只执行一个
+	 */
+	private static final String REBUILD_LOCK_KEY = "baolong:pictureSearch:rebuildLock";
+
+	/**
+	 * 上次重建信息（time: 完成时间戳, millis: 耗时）
+	 */
+	private static final String REBUILD_INFO_KEY = "baolong:pictureSearch:rebuild";
+
+	/**
+	 * 上次重建以来的图片变更次数
+	 */
+	private static final String CHANGED_COUNT_KEY = "baolong:pictureSearch:changed";
+
+	/**
+	 * 简介高亮片段的最大长度
+	 */
+	private static final int SNIPPET_LENGTH = 80;
+
+	private static final String HIGHLIGHT_PRE_TAG = "<em>";
+
+	private static final String HIGHLIGHT_POST_TAG = "</em>";
+
+	/**
+	 * 按相关度排序时搜索短语在查询参数中的名称
+	 */
+	private static final String PHRASE_PARAM = "searchPhrase";
+
+	/**
+	 * 是否使用全文索引
+	 */
+	@Value("${picture.search.full-text-enabled:true}")
+	private boolean fullTextEnabled;
+
+	/**
+	 * 分词长度, 与 MySQL 参数 ngram_token_size 一致
+	 */
+	@Value("${picture.search.min-token-size:2}")
+	private int minTokenSize;
+
+	@Resource
+	private PictureMapper pictureMapper;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	/**
+	 * 全文索引是否存在, 定时检查
+	 */
+	private volatile boolean indexReady;
+
+	/**
+	 * 重建线程, 同时只执行一个重建任务
+	 */
+	private final ThreadPoolExecutor rebuildExecutor = new ThreadPoolExecutor(
+			1, 1, 0L, TimeUnit.MILLISECONDS,
+			new SynchronousQueue<>(),
+			ThreadFactoryBuilder.create().setNamePrefix("picture-search-rebuild-").setDaemon(true).build(),
+			new ThreadPoolExecutor.AbortPolicy());
+
+	private final LongAdder fullTextCount = new LongAdder();
+
+	private final LongAdder fallbackCount = new LongAdder();
+
+	private final LongAdder queryCount = new LongAdder();
+
+	private final LongAdder queryTotalNanos = new LongAdder();
+
+	private final AtomicLong queryMaxNanos = new AtomicLong();
+
+	@PreDestroy
+	public void destroy() {
+		rebuildExecutor.shutdownNow();
+	}
+
+	/**
+	 * 拼接搜索条件: 全文索引可用时使用 MATCH ... AGAINST（搜索短语以参数传入）, 否则模糊查询名称和简介
+	 *
+	 * @param queryWrapper 查询条件对象
+	 * @param searchText   搜索词
+	 */
+	public void fillSearchQueryWrapper(QueryWrapper<Picture> queryWrapper, String searchText) {
+		String keyword = StrUtil.trim(searchText);
+		if (this.useFullText(keyword)) {
+			queryWrapper.apply("MATCH (name, introduction) AGAINST ({0} IN BOOLEAN MODE)", toPhrase(keyword));
+			return;
+		}
+		queryWrapper.and(qw -> qw.like("name", keyword)
+				.or()
+				.like("introduction", keyword)
+		);
+	}
+
+	/**
+	 * 按相关度从高到低排序（布尔模式不会自动排序）, 只在使用全文索引且没有指定排序字段时调用;
+	 * ORDER BY 中不能使用 apply 的参数占位, 搜索短语直接放入查询参数, 由 MyBatis 预编译
+	 *
+	 * @param queryWrapper 查询条件对象
+	 * @param searchText   搜索词
+	 */
+	public void orderByRelevance(QueryWrapper<Picture> queryWrapper, String searchText) {
+		String keyword = StrUtil.trim(searchText);
+		if (!this.useFullText(keyword)) {
+			return;
+		}
+		queryWrapper.getParamNameValuePairs().put(PHRASE_PARAM, toPhrase(keyword));
+		queryWrapper.orderByDesc("MATCH (name, introduction) AGAINST (#{"
+				+ queryWrapper.getParamAlias() + ".paramNameValuePairs." + PHRASE_PARAM + "} IN BOOLEAN MODE)");
+	}
+
+	/**
+	 * 记录一次搜索（每个请求只记录一次, 不包括总条数查询）
+	 *
+	 * @param searchText 搜索词
+	 * @param nanos      数据查询耗时（纳秒）
+	 */
+	public void recordQuery(String searchText, long nanos) {
+		if (this.useFullText(StrUtil.trim(searchText))) {
+			fullTextCount.increment();
+		} else {
+			fallbackCount.increment();
+		}
+		queryCount.increment();
+		queryTotalNanos.add(nanos);
+		queryMaxNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * 填充搜索结果的高亮名称和简介片段
+	 *
+	 * @param pictureVOList 图片封装类列表
+	 * @param searchText    搜索词
+	 */
+	public void highlight(List<PictureVO> pictureVOList, String searchText) {
+		if (StrUtil.isBlank(searchText) || pictureVOList == null) {
+			return;
+		}
+		List<String> termList = this.getHighlightTerms(searchText);
+		for (PictureVO pictureVO : pictureVOList) {
+			pictureVO.setNameHighlight(highlight(pictureVO.getName(), termList, 0));
+			pictureVO.setIntroductionHighlight(highlight(pictureVO.getIntroduction(), termList, SNIPPET_LENGTH));
+		}
+	}
+
+	/**
+	 * 图片变更后（事务提交后）累计变更次数, 变更的旧分词要等重建后才会从索引中清理
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onPictureChange(PictureChangeEvent event) {
+		try {
+			stringRedisTemplate.opsForValue().increment(CHANGED_COUNT_KEY);
+		} catch (Exception e) {
+			log.warn("图片搜索变更计数失败, message = {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 定时检查全文索引是否存在
+	 */
+	@Scheduled(fixedDelay = 60 * 1000L)
+	public void refreshIndexState() {
+		try {
+			indexReady = pictureMapper.countIndex(FULL_TEXT_INDEX) > 0;
+		} catch (Exception e) {
+			log.warn("检查图片全文索引失败, message = {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * 提交重建任务: 索引不存在时创建, 已存在时重建表（同时重建全文索引, 清理已删除和已修改的旧分词）
+	 *
+	 * @return 是否提交成功, 已有重建任务在执行时返回 false
+	 */
+	public boolean startRebuild() {
+		Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, "1", Duration.ofHours(2));
+		if (!Boolean.TRUE.equals(locked)) {
+			return false;
+		}
+		try {
+			rebuildExecutor.execute(() -> {
+				long startTime = System.currentTimeMillis();
+				try {
+					if (pictureMapper.countIndex(FULL_TEXT_INDEX) == 0) {
+						pictureMapper.createFullTextIndex();
+					} else {
+						pictureMapper.optimizeTable();
+					}
+					long millis = System.currentTimeMillis() - startTime;
+					Map<String, String> rebuildInfo = new HashMap<>();
+					rebuildInfo.put("time", String.valueOf(System.currentTimeMillis()));
+					rebuildInfo.put("millis", String.valueOf(millis));
+					stringRedisTemplate.opsForHash().putAll(REBUILD_INFO_KEY, rebuildInfo);
+					stringRedisTemplate.opsForValue().set(CHANGED_COUNT_KEY, "0");
+					log.info("图片全文索引重建完成, 耗时 = {}ms", millis);
+				} catch (Exception e) {
+					log.error("图片全文索引重建失败", e);
+				} finally {
+					stringRedisTemplate.delete(REBUILD_LOCK_KEY);
+					this.refreshIndexState();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			stringRedisTemplate.delete(REBUILD_LOCK_KEY);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 获取搜索统计信息
+	 */
+	public PictureSearchStats getStats() {
+		PictureSearchStats stats = new PictureSearchStats();
+		stats.setIndexReady(indexReady);
+		stats.setRebuilding(Boolean.TRUE.equals(stringRedisTemplate.hasKey(REBUILD_LOCK_KEY)));
+		Map<Object, Object> rebuildInfo = stringRedisTemplate.opsForHash().entries(REBUILD_INFO_KEY);
+		if (rebuildInfo.get("time") != null) {
+			stats.setLastRebuildTime(new Date(Long.parseLong(rebuildInfo.get("time").toString())));
+			stats.setLastRebuildMillis(Long.parseLong(rebuildInfo.get("millis").toString()));
+		}
+		String changedCount = stringRedisTemplate.opsForValue().get(CHANGED_COUNT_KEY);
+		stats.setChangedSinceRebuild(changedCount == null ? 0 : Long.parseLong(changedCount));
+		stats.setFullTextCount(fullTextCount.sum());
+		stats.setFallbackCount(fallbackCount.sum());
+		long count = queryCount.sum();
+		double nanosPerMillis = TimeUnit.MILLISECONDS.toNanos(1);
+		stats.setAvgQueryMillis(count == 0 ? 0 : queryTotalNanos.sum() / nanosPerMillis / count);
+		stats.setMaxQueryMillis(queryMaxNanos.get() / nanosPerMillis);
+		return stats;
+	}
+
+	/**
+	 * 高亮的词: 搜索词中的每个词, 以及按分词长度切出的片段（与 ngram 索引的匹配规则一致）
+	 */
+	private List<String> getHighlightTerms(String searchText) {
+		Set<String> termSet = new LinkedHashSet<>();
+		for (String word : StrUtil.splitTrim(searchText, ' ')) {
+			termSet.add(word);
+			for (int i = 0; minTokenSize > 0 && i + minTokenSize <= word.length(); i++) {
+				termSet.add(word.substring(i, i + minTokenSize));
+			}
+		}
+		return new ArrayList<>(termSet);
+	}
+
+	/**
+	 * 高亮文本中命中的词, 其余内容转义
+	 *
+	 * @param text      文本
+	 * @param termList  高亮的词
+	 * @param maxLength 最大长度, 超过时截取第一个命中位置附近的片段; 0 表示不截取
+	 * @return 高亮后的文本
+	 */
+	private static String highlight(String text, List<String> termList, int maxLength) {
+		if (StrUtil.isEmpty(text)) {
+			return text;
+		}
+		// 标记命中的字符
+		boolean[] hit = new boolean[text.length()];
+		int firstHit = -1;
+		for (int i = 0; i < text.length(); i++) {
+			for (String term : termList) {
+				if (!term.isEmpty() && text.regionMatches(true, i, term, 0, term.length())) {
+					for (int j = i; j < i + term.length(); j++) {
+						hit[j] = true;
+					}
+					if (firstHit < 0) {
+						firstHit = i;
+					}
+				}
+			}
+		}
+		// 截取片段, 命中位置前保留四分之一的上下文
+		int start = 0;
+		int end = text.length();
+		if (maxLength > 0 && text.length() > maxLength) {
+			start = Math.max(0, firstHit - maxLength / 4);
+			end = Math.min(text.length(), start + maxLength);
+			start = Math.max(0, end - maxLength);
+		}
+		StringBuilder result = new StringBuilder();
+		if (start > 0) {
+			result.append("...");
+		}
+		int segmentStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i == end || (i > segmentStart && hit[i] != hit[segmentStart])) {
+				String segment = HtmlUtil.escape(text.substring(segmentStart, i));
+				if (hit[segmentStart]) {
+					result.append(HIGHLIGHT_PRE_TAG).append(segment).append(HIGHLIGHT_POST_TAG);
+				} else {
+					result.append(segment);
+				}
+				segmentStart = i;
+			}
+		}
+		if (end < text.length()) {
+			result.append("...");
+		}
+		return result.toString();
+	}
+
+	/**
+	 * 全文索引可用且搜索词中至少有一个词不短于分词长度时使用全文索引
+	 */
+	private boolean useFullText(String keyword) {
+		return fullTextEnabled && indexReady && getLongestWordLength(keyword) >= minTokenSize;
+	}
+
+	/**
+	 * 转为布尔模式的短语（去掉搜索词中的双引号）, 按 ngram 分词后要求连续出现
+	 */
+	private static String toPhrase(String keyword) {
+		return "\"" + keyword.replace('"', ' ').trim() + "\"";
+	}
+
+	private static int getLongestWordLength(String keyword) {
+		int longest = 0;
+		for (String word : StrUtil.splitTrim(keyword, ' ')) {
+			longest = Math.max(longest, word.length());
+		}
+		return longest;
+	}
+}
@@ -0,0 +1,60 @@
+package com.baolong.blpicturebackend.manager.search;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片搜索统计信息
+ */
+@Data
+public class PictureSearchStats implements Serializable {
+
+	/**
+	 * 全文索引是否可用, 不可用时搜索退化为模糊查询
+	 */
+	private boolean indexReady;
+
+	/**
+	 * 是否正在重建索引
+	 */
+	private boolean rebuilding;
+
+	/**
+	 * 上次重建完成时间
+	 */
+	private Date lastRebuildTime;
+
+	/**
+	 * 上次重建耗时（毫秒）
+	 */
+	private Long lastRebuildMillis;
+
+	/**
+	 * 上次重建以来的图片变更次数（所有节点）, 变更前的旧分词在重建前仍留在索引中
+	 */
+	private long changedSinceRebuild;
+
+	/**
+	 * 使用全文索引的搜索次数（本节点启动以来, 下同）
+	 */
+	private long fullTextCount;
+
+	/**
+	 * 退化为模糊查询的搜索次数（索引不可用或搜索词过短）
+	 */
+	private long fallbackCount;
+
+	/**
+	 * 平均查询耗时（毫秒）
+	 */
+	private double avgQueryMillis;
+
+	/**
+	 * 最大查询耗时（毫秒）
+	 */
+	private double maxQueryMillis;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,284 @@
+package com.baolong.blpicturebackend.manager.storage;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.mapper.ObjectDeleteTaskMapper;
+import com.baolong.blpicturebackend.mapper.PictureMapper;
+import com.baolong.blpicturebackend.model.entity.ObjectDeleteTask;
+import com.baolong.blpicturebackend.model.enums.ObjectDeleteTaskStatusEnum;
+import com.baolong.blpicturebackend.model.enums.PictureResourceStatusEnum;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * 对象删除队列
+ * <p>
+ * 要删除的文件先写入 object_delete_task 表（可以和业务数据在同一个事务中）, 由后台线程按批调用存储的批量删除接口;
+ * 失败的对象按指数退避重试, 超过重试次数标记为删除失败; 图片的文件全部删除后更新图片资源状态为已删除。
+ * 多节点同时处理同一批任务时只会重复删除, 删除本身是幂等的
+ */
+@Slf4j
+@Component
+public class ObjectDeleteQueue {
+
+	/**
+	 * 每批处理的任务数
+	 */
+	private static final int BATCH_SIZE = 500;
+
+	/**
+	 * 最大重试次数
+	 */
+	private static final int MAX_RETRY_COUNT = 8;
+
+	/**
+	 * 首次重试间隔（秒）, 之后每次翻倍
+	 */
+	private static final long BASE_RETRY_SECONDS = 10;
+
+	/**
+	 * 最大重试间隔（秒）
+	 */
+	private static final long MAX_RETRY_SECONDS = 3600;
+
+	@Resource
+	private ObjectDeleteTaskMapper objectDeleteTaskMapper;
+
+	@Resource
+	private PictureMapper pictureMapper;
+
+	@Resource
+	private ObjectStore objectStore;
+
+	/**
+	 * 处理线程, 队列长度为 1, 处理期间的多次触发合并为一次
+	 */
+	private final ThreadPoolExecutor drainExecutor = new ThreadPoolExecutor(
+			1, 1, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(1),
+			ThreadFactoryBuilder.create().setNamePrefix("object-delete-").setDaemon(true).build(),
+			new ThreadPoolExecutor.DiscardPolicy());
+
+	/**
+	 * 避免定时任务和触发的处理同时执行
+	 */
+	private final ReentrantLock drainLock = new ReentrantLock();
+
+	private final AtomicLong deletedCount = new AtomicLong();
+
+	private final AtomicLong retryCount = new AtomicLong();
+
+	private final AtomicLong batchCount = new AtomicLong();
+
+	private volatile long lastDrainTime;
+
+	@PreDestroy
+	public void destroy() {
+		drainExecutor.shutdown();
+	}
+
+	/**
+	 * 添加要删除的对象, 在事务中调用时等事务提交后再处理
+	 *
+	 * @param keys      对象 key 列表
+	 * @param pictureId 图片 id, 不为空时在文件全部删除后更新图片资源状态（图片本身被删除时传入）
+	 */
+	public void enqueue(Collection<String> keys, Long pictureId) {
+		Set<String> keySet = keys.stream()
+				.filter(StrUtil::isNotBlank)
+				.map(ObjectStore::normalizeKey)
+				.collect(Collectors.toSet());
+		if (keySet.isEmpty()) {
+			return;
+		}
+		Date now = new Date();
+		for (String key : keySet) {
+			ObjectDeleteTask task = new ObjectDeleteTask();
+			task.setObjectKey(key);
+			task.setPictureId(pictureId);
+			task.setStatus(ObjectDeleteTaskStatusEnum.PENDING.getValue());
+			task.setRetryCount(0);
+			task.setNextRetryTime(now);
+			objectDeleteTaskMapper.insert(task);
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					trigger();
+				}
+			});
+		} else {
+			this.trigger();
+		}
+	}
+
+	/**
+	 * 定时处理队列（兜底触发丢失和等待重试的任务）
+	 */
+	@Scheduled(fixedDelay = 10 * 1000L, initialDelay = 10 * 1000L)
+	public void scheduledDrain() {
+		this.trigger();
+	}
+
+	/**
+	 * 获取队列统计信息
+	 */
+	public ObjectDeleteQueueStats getStats() {
+		ObjectDeleteQueueStats stats = new ObjectDeleteQueueStats();
+		List<Map<String, Object>> rows = objectDeleteTaskMapper.selectMaps(new QueryWrapper<ObjectDeleteTask>()
+				.select("status", "count(*) as total", "timestampdiff(second, min(createTime), now()) as lag")
+				.in("status", ObjectDeleteTaskStatusEnum.PENDING.getValue(), ObjectDeleteTaskStatusEnum.FAILED.getValue())
+				.groupBy("status"));
+		for (Map<String, Object> row : rows) {
+			int status = ((Number) row.get("status")).intValue();
+			long total = ((Number) row.get("total")).longValue();
+			if (status == ObjectDeleteTaskStatusEnum.PENDING.getValue()) {
+				stats.setPendingCount(total);
+				Object lag = row.get("lag");
+				stats.setLagSeconds(lag == null ? 0 : Math.max(0, ((Number) lag).longValue()));
+			} else {
+				stats.setFailedCount(total);
+			}
+		}
+		stats.setDeletedCount(deletedCount.get());
+		stats.setRetryCount(retryCount.get());
+		stats.setBatchCount(batchCount.get());
+		stats.setLastDrainTime(lastDrainTime);
+		return stats;
+	}
+
+	private void trigger() {
+		try {
+			drainExecutor.execute(this::drain);
+		} catch (Exception e) {
+			log.warn("对象删除队列触发失败", e);
+		}
+	}
+
+	/**
+	 * 处理到期的任务, 直到没有到期任务
+	 */
+	private void drain() {
+		if (!drainLock.tryLock()) {
+			return;
+		}
+		try {
+			List<ObjectDeleteTask> taskList;
+			do {
+				taskList = objectDeleteTaskMapper.selectList(new LambdaQueryWrapper<ObjectDeleteTask>()
+						.eq(ObjectDeleteTask::getStatus, ObjectDeleteTaskStatusEnum.PENDING.getValue())
+						.le(ObjectDeleteTask::getNextRetryTime, new Date())
+						.orderByAsc(ObjectDeleteTask::getId)
+						.last("limit " + BATCH_SIZE));
+				if (!taskList.isEmpty()) {
+					this.deleteBatch(taskList);
+				}
+			} while (taskList.size() == BATCH_SIZE);
+		} catch (Exception e) {
+			log.error("对象删除队列处理失败", e);
+		} finally {
+			lastDrainTime = System.currentTimeMillis();
+			drainLock.unlock();
+		}
+	}
+
+	private void deleteBatch(List<ObjectDeleteTask> taskList) {
+		Set<String> failedKeys;
+		String errorMessage;
+		try {
+			failedKeys = new HashSet<>(objectStore.deleteObjects(taskList.stream()
+					.map(ObjectDeleteTask::getObjectKey)
+					.collect(Collectors.toList())));
+			errorMessage = "存储服务删除失败";
+		} catch (Exception e) {
+			log.error("批量删除对象失败, size = {}", taskList.size(), e);
+			failedKeys = taskList.stream().map(ObjectDeleteTask::getObjectKey).collect(Collectors.toSet());
+			errorMessage = StrUtil.maxLength(e.getMessage(), 500);
+		}
+		batchCount.incrementAndGet();
+
+		// 删除成功
+		Set<String> finalFailedKeys = failedKeys;
+		List<ObjectDeleteTask> succeedList = taskList.stream()
+				.filter(task -> !finalFailedKeys.contains(task.getObjectKey()))
+				.collect(Collectors.toList());
+		if (!succeedList.isEmpty()) {
+			objectDeleteTaskMapper.update(null, new LambdaUpdateWrapper<ObjectDeleteTask>()
+					.set(ObjectDeleteTask::getStatus, ObjectDeleteTaskStatusEnum.SUCCEED.getValue())
+					.set(ObjectDeleteTask::getErrorMessage, null)
+					.in(ObjectDeleteTask::getId, succeedList.stream().map(ObjectDeleteTask::getId).collect(Collectors.toList())));
+			deletedCount.addAndGet(succeedList.size());
+			this.markPictureDeleted(succeedList);
+		}
+
+		// 删除失败, 按指数退避重试
+		for (ObjectDeleteTask task : taskList) {
+			if (!failedKeys.contains(task.getObjectKey())) {
+				continue;
+			}
+			int taskRetryCount = task.getRetryCount() + 1;
+			boolean retry = taskRetryCount < MAX_RETRY_COUNT;
+			long delaySeconds = Math.min(BASE_RETRY_SECONDS << Math.min(taskRetryCount - 1, 20), MAX_RETRY_SECONDS);
+			objectDeleteTaskMapper.update(null, new LambdaUpdateWrapper<ObjectDeleteTask>()
+					.set(ObjectDeleteTask::getStatus, retry ? ObjectDeleteTaskStatusEnum.PENDING.getValue() : ObjectDeleteTaskStatusEnum.FAILED.getValue())
+					.set(ObjectDeleteTask::getRetryCount, taskRetryCount)
+					.set(ObjectDeleteTask::getNextRetryTime, DateUtil.offsetSecond(new Date(), (int) delaySeconds))
+					.set(ObjectDeleteTask::getErrorMessage, errorMessage)
+					.eq(ObjectDeleteTask::getId, task.getId()));
+			retryCount.incrementAndGet();
+			if (!retry) {
+				log.error("对象删除失败, 超过重试次数, key = {}", task.getObjectKey());
+			}
+		}
+	}
+
+	/**
+	 * 图片的文件全部删除后, 更新图片资源状态为已删除
+	 */
+	private void markPictureDeleted(List<ObjectDeleteTask> succeedList) {
+		Set<Long> pictureIds = succeedList.stream()
+				.map(ObjectDeleteTask::getPictureId)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toSet());
+		if (pictureIds.isEmpty()) {
+			return;
+		}
+		// 还有未删除成功的文件的图片
+		Set<Long> remainingPictureIds = objectDeleteTaskMapper.selectList(new LambdaQueryWrapper<ObjectDeleteTask>()
+						.select(ObjectDeleteTask::getPictureId)
+						.in(ObjectDeleteTask::getPictureId, pictureIds)
+						.ne(ObjectDeleteTask::getStatus, ObjectDeleteTaskStatusEnum.SUCCEED.getValue()))
+				.stream()
+				.map(ObjectDeleteTask::getPictureId)
+				.collect(Collectors.toSet());
+		pictureIds.removeAll(remainingPictureIds);
+		if (CollUtil.isNotEmpty(pictureIds)) {
+			pictureMapper.updateResourceStatusIncludeDeleted(pictureIds, PictureResourceStatusEnum.DELETED.getValue());
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package com.baolong.blpicturebackend.manager.storage;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 对象删除队列统计信息
+ */
+@Data
+public class ObjectDeleteQueueStats implements Serializable {
+
+	/**
+	 * 待删除的对象数（队列深度）
+	 */
+	private long pendingCount;
+
+	/**
+	 * 超过重试次数、删除失败的对象数
+	 */
+	private long failedCount;
+
+	/**
+	 * 最早的待删除对象已等待的时间（秒）
+	 */
+	private long lagSeconds;
+
+	/**
+	 * 本节点启动以来删除成功的对象数
+	 */
+	private long deletedCount;
+
+	/**
+	 * 本节点启动以来删除失败（等待重试）的次数
+	 */
+	private long retryCount;
+
+	/**
+	 * 本节点启动以来调用批量删除的次数
+	 */
+	private long batchCount;
+
+	/**
+	 * 本节点最后一次处理队列的时间（毫秒时间戳）
+	 */
+	private long lastDrainTime;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,195 @@
+package com.baolong.blpicturebackend.manager.storage;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对象下载
+ * <p>
+ * 从对象存储边读边写到响应, 每个请求只占用固定大小的缓冲区;
+ * 支持协商缓存（ETag / If-None-Match / If-Modified-Since）和单个范围请求（Range / If-Range）,
+ * 多个范围时返回完整内容
+ */
+@Slf4j
+@Component
+public class ObjectDownloadManager {
+
+	/**
+	 * 读写缓冲区大小
+	 */
+	private static final int BUFFER_SIZE = 8192;
+
+	@Resource
+	private ObjectStore objectStore;
+
+	private final LongAdder requestCount = new LongAdder();
+
+	private final LongAdder notModifiedCount = new LongAdder();
+
+	private final LongAdder partialCount = new LongAdder();
+
+	private final LongAdder abortedCount = new LongAdder();
+
+	private final LongAdder bytesServed = new LongAdder();
+
+	private final LongAdder ttfbCount = new LongAdder();
+
+	private final LongAdder ttfbTotalNanos = new LongAdder();
+
+	private final AtomicLong ttfbMaxNanos = new AtomicLong();
+
+	/**
+	 * 下载对象到响应
+	 *
+	 * @param key          唯一键
+	 * @param fileName     下载文件名, 为空时浏览器直接展示
+	 * @param cacheControl Cache-Control 响应头
+	 * @param request      请求
+	 * @param response     响应
+	 */
+	public void download(String key, String fileName, String cacheControl,
+						 HttpServletRequest request, HttpServletResponse response) {
+		long startTime = System.nanoTime();
+		requestCount.increment();
+		ObjectStat objectStat = objectStore.statObject(key);
+		String etag = "\"" + objectStat.getEtag() + "\"";
+		long lastModified = objectStat.getLastModified() == null ? -1 : objectStat.getLastModified().getTime();
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		if (StrUtil.isNotBlank(cacheControl)) {
+			response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+		}
+		// 协商缓存, 命中时返回 304, 同时写入 ETag 和 Last-Modified 响应头
+		if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+			notModifiedCount.increment();
+			return;
+		}
+
+		// 计算范围
+		long size = objectStat.getSize();
+		HttpRange range = getRange(request, etag, lastModified);
+		long start = 0;
+		long end = size - 1;
+		if (range != null) {
+			try {
+				start = range.getRangeStart(size);
+				end = range.getRangeEnd(size);
+			} catch (IllegalArgumentException e) {
+				response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+				return;
+			}
+		}
+		long length = size == 0 ? 0 : end - start + 1;
+
+		// 响应头
+		if (range != null) {
+			partialCount.increment();
+			response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			response.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", start, end, size));
+		}
+		response.setContentType(StrUtil.blankToDefault(objectStat.getContentType(),
+				StrUtil.blankToDefault(FileUtil.getMimeType(key), "application/octet-stream")));
+		response.setContentLengthLong(length);
+		if (StrUtil.isNotBlank(fileName)) {
+			response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+					ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString());
+		}
+		if ("HEAD".equalsIgnoreCase(request.getMethod()) || length == 0) {
+			return;
+		}
+
+		// 边读边写
+		try (InputStream inputStream = range != null ? objectStore.getObject(key, start, end) : objectStore.getObject(key)) {
+			OutputStream outputStream = response.getOutputStream();
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long remaining = length;
+			boolean firstByte = true;
+			int read;
+			while (remaining > 0 && (read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+				outputStream.write(buffer, 0, read);
+				if (firstByte) {
+					outputStream.flush();
+					recordTtfb(System.nanoTime() - startTime);
+					firstByte = false;
+				}
+				remaining -= read;
+				bytesServed.add(read);
+			}
+			outputStream.flush();
+		} catch (IOException e) {
+			// 响应已经开始写出, 无法再返回错误信息, 通常是客户端中断了下载
+			abortedCount.increment();
+			log.warn("对象下载中断, key = {}, message = {}", key, e.getMessage());
+		}
+	}
+
+	/**
+	 * 解析请求的范围, 不是单个有效范围或 If-Range 不匹配时返回 null（返回完整内容）
+	 */
+	private HttpRange getRange(HttpServletRequest request, String etag, long lastModified) {
+		String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+		if (StrUtil.isBlank(rangeHeader)) {
+			return null;
+		}
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if (StrUtil.isNotBlank(ifRange) && !ifRange.equals(etag)) {
+			long ifRangeDate = -1;
+			try {
+				ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+			} catch (IllegalArgumentException ignored) {
+				// 既不是 ETag 也不是日期
+			}
+			// 日期精确到秒
+			if (ifRangeDate == -1 || lastModified / 1000 != ifRangeDate / 1000) {
+				return null;
+			}
+		}
+		try {
+			List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+			return ranges.size() == 1 ? ranges.get(0) : null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private void recordTtfb(long nanos) {
+		ttfbCount.increment();
+		ttfbTotalNanos.add(nanos);
+		ttfbMaxNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * 获取下载统计信息
+	 */
+	public ObjectDownloadStats getStats() {
+		ObjectDownloadStats stats = new ObjectDownloadStats();
+		stats.setRequestCount(requestCount.sum());
+		stats.setNotModifiedCount(notModifiedCount.sum());
+		stats.setPartialCount(partialCount.sum());
+		stats.setAbortedCount(abortedCount.sum());
+		stats.setBytesServed(bytesServed.sum());
+		long count = ttfbCount.sum();
+		double nanosPerMillis = TimeUnit.MILLISECONDS.toNanos(1);
+		stats.setAvgTtfbMillis(count == 0 ? 0 : ttfbTotalNanos.sum() / nanosPerMillis / count);
+		stats.setMaxTtfbMillis(ttfbMaxNanos.get() / nanosPerMillis);
+		return stats;
+	}
+}
@@ -0,0 +1,49 @@
+package com.baolong.blpicturebackend.manager.storage;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 对象下载统计信息（本节点启动以来）
+ */
+@Data
+public class ObjectDownloadStats implements Serializable {
+
+	/**
+	 * 下载请求数
+	 */
+	private long requestCount;
+
+	/**
+	 * 命中协商缓存（304）的请求数
+	 */
+	private long notModifiedCount;
+
+	/**
+	 * 范围请求（206）数
+	 */
+	private long partialCount;
+
+	/**
+	 * 客户端中断或读取存储失败的请求数
+	 */
+	private long abortedCount;
+
+	/**
+	 * 已发送的字节数
+	 */
+	private long bytesServed;
+
+	/**
+	 * 平均首字节时间（毫秒）, 从收到请求到写出第一个字节
+	 */
+	private double avgTtfbMillis;
+
+	/**
+	 * 最大首字节时间（毫秒）
+	 */
+	private double maxTtfbMillis;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,40 @@
+package com.baolong.blpicturebackend.manager.storage;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 对象元信息
+ */
+@Data
+public class ObjectStat implements Serializable {
+
+	/**
+	 * 唯一键
+	 */
+	private String key;
+
+	/**
+	 * 对象大小（字节）
+	 */
+	private long size;
+
+	/**
+	 * 实体标签（不含引号）, 对象内容变化后随之变化
+	 */
+	private String etag;
+
+	/**
+	 * 最后修改时间
+	 */
+	private Date lastModified;
+
+	/**
+	 * 内容类型, 可能为空
+	 */
+	private String contentType;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,235 @@
+package com.baolong.blpicturebackend.manager.tag;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.manager.cache.PictureTagIndex;
+import com.baolong.blpicturebackend.mapper.PictureMapper;
+import com.baolong.blpicturebackend.mapper.PictureTagMapper;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baolong.blpicturebackend.model.entity.PictureTag;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 图片标签关联管理
+ * <p>
+ * picture.tags 仍保存逗号分隔的标签 id 用于展示, 按标签筛选和统计使用 picture_tag 表;
+ * 所有修改标签的地方在同一个事务中同步关联, 存量数据由回填任务按 id 分批补齐
+ */
+@Slf4j
+@Component
+public class PictureTagManager {
+
+	/**
+	 * 回填任务每批处理的图片数
+	 */
+	private static final int BACKFILL_BATCH_SIZE = 200;
+
+	/**
+	 * 回填任务锁, 多个节点同时只执行一个
+	 */
+	private static final String BACKFILL_LOCK_KEY = "baolong:pictureTag:backfillLock";
+
+	/**
+	 * 回填任务锁的过期时间, 每处理一批续期
+	 */
+	private static final Duration BACKFILL_LOCK_EXPIRE = Duration.ofMinutes(10);
+
+	@Resource
+	private PictureTagMapper pictureTagMapper;
+
+	@Resource
+	private PictureMapper pictureMapper;
+
+	@Resource
+	private PictureTagIndex pictureTagIndex;
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * 回填线程, 同时只执行一个回填任务
+	 */
+	private final ThreadPoolExecutor backfillExecutor = new ThreadPoolExecutor(
+			1, 1, 0L, TimeUnit.MILLISECONDS,
+			new SynchronousQueue<>(),
+			ThreadFactoryBuilder.create().setNamePrefix("picture-tag-backfill-").setDaemon(true).build(),
+			new ThreadPoolExecutor.AbortPolicy());
+
+	@PreDestroy
+	public void destroy() {
+		backfillExecutor.shutdownNow();
+	}
+
+	/**
+	 * 同步单张图片的标签关联, 需要在更新图片的事务中调用
+	 *
+	 * @param pictureId 图片 id
+	 * @param spaceId   图片所属空间 id
+	 * @param tags      逗号分隔的标签 id, 为 null 表示标签未修改
+	 */
+	public void syncTags(Long pictureId, Long spaceId, String tags) {
+		Picture picture = new Picture();
+		picture.setId(pictureId);
+		picture.setSpaceId(spaceId);
+		picture.setTags(tags);
+		this.syncTags(Collections.singletonList(picture));
+	}
+
+	/**
+	 * 批量同步图片的标签关联（只新增缺少的、删除多余的）, 需要在更新图片的事务中调用
+	 *
+	 * @param pictureList 图片列表（需要 id、spaceId、tags）, tags 为 null 的图片跳过
+	 */
+	public void syncTags(Collection<Picture> pictureList) {
+		Map<Long, Picture> pictureMap = pictureList.stream()
+				.filter(picture -> picture.getId() != null && picture.getTags() != null)
+				.collect(Collectors.toMap(Picture::getId, picture -> picture, (a, b) -> b));
+		if (pictureMap.isEmpty()) {
+			return;
+		}
+		// 一次查询这批图片现有的关联
+		Map<Long, List<PictureTag>> existingMap = pictureTagMapper.selectList(new LambdaQueryWrapper<PictureTag>()
+						.select(PictureTag::getId, PictureTag::getPictureId, PictureTag::getTagId)
+						.in(PictureTag::getPictureId, pictureMap.keySet()))
+				.stream()
+				.collect(Collectors.groupingBy(PictureTag::getPictureId));
+		List<Long> removeIdList = new ArrayList<>();
+		List<PictureTag> addList = new ArrayList<>();
+		pictureMap.values().forEach(picture -> {
+			Set<Long> tagIdSet = parseTagIds(picture.getTags());
+			Set<Long> existingTagIdSet = new HashSet<>();
+			for (PictureTag pictureTag : existingMap.getOrDefault(picture.getId(), Collections.emptyList())) {
+				if (tagIdSet.contains(pictureTag.getTagId())) {
+					existingTagIdSet.add(pictureTag.getTagId());
+				} else {
+					removeIdList.add(pictureTag.getId());
+				}
+			}
+			tagIdSet.stream()
+					.filter(tagId -> !existingTagIdSet.contains(tagId))
+					.forEach(tagId -> {
+						PictureTag pictureTag = new PictureTag();
+						pictureTag.setPictureId(picture.getId());
+						pictureTag.setTagId(tagId);
+						pictureTag.setSpaceId(picture.getSpaceId());
+						addList.add(pictureTag);
+					});
+		});
+		if (!removeIdList.isEmpty()) {
+			pictureTagMapper.deleteByIds(removeIdList);
+		}
+		if (!addList.isEmpty()) {
+			pictureTagMapper.insertIgnoreBatch(addList);
+		}
+	}
+
+	/**
+	 * 删除图片的标签关联, 需要在删除图片的事务中调用
+	 *
+	 * @param pictureId 图片 id
+	 */
+	public void removeTags(Long pictureId) {
+		pictureTagMapper.delete(new LambdaQueryWrapper<PictureTag>().eq(PictureTag::getPictureId, pictureId));
+	}
+
+	/**
+	 * 提交回填任务, 按 picture.tags 补齐所有图片的标签关联（可重复执行）
+	 *
+	 * @return 是否提交成功, 已有回填任务在执行时返回 false
+	 */
+	public boolean startBackfill() {
+		Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(BACKFILL_LOCK_KEY, "1", BACKFILL_LOCK_EXPIRE);
+		if (!Boolean.TRUE.equals(locked)) {
+			return false;
+		}
+		try {
+			backfillExecutor.execute(() -> {
+				long startTime = System.currentTimeMillis();
+				try {
+					long count = this.backfill();
+					log.info("图片标签关联回填完成, 图片数 = {}, 耗时 = {}ms", count, System.currentTimeMillis() - startTime);
+				} catch (Exception e) {
+					log.error("图片标签关联回填失败", e);
+				} finally {
+					stringRedisTemplate.delete(BACKFILL_LOCK_KEY);
+					pictureTagIndex.invalidateAll();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			stringRedisTemplate.delete(BACKFILL_LOCK_KEY);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 按 id 分批回填, 每批在事务中锁定图片行, 与编辑图片标签互斥, 不会写回旧标签
+	 *
+	 * @return 处理的图片数
+	 */
+	private long backfill() {
+		long lastId = 0;
+		long count = 0;
+		while (true) {
+			long startId = lastId;
+			List<Picture> pictureList = transactionTemplate.execute(status -> {
+				List<Picture> batch = pictureMapper.selectList(new LambdaQueryWrapper<Picture>()
+						.select(Picture::getId, Picture::getSpaceId, Picture::getTags)
+						.gt(Picture::getId, startId)
+						.orderByAsc(Picture::getId)
+						.last("limit " + BACKFILL_BATCH_SIZE + " for update"));
+				// 没有标签的图片也要同步, 清理多余的关联
+				batch.forEach(picture -> picture.setTags(StrUtil.nullToEmpty(picture.getTags())));
+				this.syncTags(batch);
+				return batch;
+			});
+			if (pictureList == null || pictureList.isEmpty()) {
+				return count;
+			}
+			lastId = pictureList.get(pictureList.size() - 1).getId();
+			count += pictureList.size();
+			stringRedisTemplate.expire(BACKFILL_LOCK_KEY, BACKFILL_LOCK_EXPIRE);
+		}
+	}
+
+	/**
+	 * 解析逗号分隔的标签 id, 忽略非法值
+	 *
+	 * @param tags 逗号分隔的标签 id
+	 * @return 标签 id 集合
+	 */
+	public static Set<Long> parseTagIds(String tags) {
+		if (StrUtil.isBlank(tags)) {
+			return Collections.emptySet();
+		}
+		return StrUtil.split(tags, ",", true, true).stream()
+				.filter(NumberUtil::isLong)
+				.map(Long::valueOf)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+	}
+}
@@ -6,7 +6,7 @@ import com.baolong.blpicturebackend.exception.ThrowUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 
@@ -52,15 +52,15 @@ public class FilePictureUpload extends PictureUploadTemplate {
 	}
 
 	/**
-	 * 处理输入源并生成本地临时文件
+	 * 打开输入源的输入流
 	 *
 	 * @param inputSource 文件输入源
-	 * @param file        文件对象
+	 * @return 输入流
 	 * @throws Exception e
 	 */
 	@Override
-	protected void processFile(Object inputSource, File file) throws Exception {
+	protected InputStream openInputStream(Object inputSource) throws Exception {
 		MultipartFile multipartFile = (MultipartFile) inputSource;
-		multipartFile.transferTo(file);
+		return multipartFile.getInputStream();
 	}
 }
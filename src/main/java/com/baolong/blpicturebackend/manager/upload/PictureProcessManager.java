@@ -0,0 +1,297 @@
+package com.baolong.blpicturebackend.manager.upload;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.manager.cache.PictureColorIndex;
+import com.baolong.blpicturebackend.manager.image.ImageProcessResult;
+import com.baolong.blpicturebackend.manager.image.ImageProcessor;
+import com.baolong.blpicturebackend.manager.quota.SpaceQuotaManager;
+import com.baolong.blpicturebackend.manager.storage.ObjectDeleteQueue;
+import com.baolong.blpicturebackend.manager.storage.ObjectStore;
+import com.baolong.blpicturebackend.manager.websocket.PictureEditHandler;
+import com.baolong.blpicturebackend.manager.websocket.PictureProcessHandler;
+import com.baolong.blpicturebackend.mapper.PictureMapper;
+import com.baolong.blpicturebackend.mapper.PictureProcessJobMapper;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baolong.blpicturebackend.model.entity.PictureProcessJob;
+import com.baolong.blpicturebackend.model.enums.PictureProcessJobStatusEnum;
+import com.baolong.blpicturebackend.model.enums.PictureResourceStatusEnum;
+import com.baolong.blpicturebackend.model.event.PictureChangeEvent;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图片后台处理
+ * <p>
+ * 上传时只保存原图并写入处理任务, 由后台线程池对原图进行格式转换、生成缩略图, 完成后更新图片信息和资源状态;
+ * 任务保存在数据库中, 多节点通过更新任务状态抢占, 定时扫描未完成和超时的任务重新执行;
+ * 处理进度通过图片编辑 WebSocket 通知正在编辑的用户, 同时通过处理进度 WebSocket 通知上传者
+ */
+@Slf4j
+@Component
+public class PictureProcessManager {
+
+	/**
+	 * 最大重试次数
+	 */
+	private static final int MAX_RETRY_COUNT = 3;
+
+	/**
+	 * 处理中的任务超过该时间（分钟）未完成视为节点异常, 重新执行
+	 */
+	private static final int RUNNING_TIMEOUT_MINUTES = 10;
+
+	@Resource
+	private PictureProcessJobMapper pictureProcessJobMapper;
+
+	@Resource
+	private PictureMapper pictureMapper;
+
+	@Resource
+	private SpaceQuotaManager spaceQuotaManager;
+
+	@Resource
+	private ObjectStore objectStore;
+
+	@Resource
+	private ObjectDeleteQueue objectDeleteQueue;
+
+	@Resource
+	private ImageProcessor imageProcessor;
+
+	@Resource
+	private TransactionTemplate transactionTemplate;
+
+	@Resource
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@Resource
+	private PictureColorIndex pictureColorIndex;
+
+	@Resource
+	private PictureEditHandler pictureEditHandler;
+
+	@Resource
+	private PictureProcessHandler pictureProcessHandler;
+
+	/**
+	 * 处理线程池, 队列满时任务留在数据库中等待定时扫描
+	 */
+	private final ThreadPoolExecutor processExecutor = new ThreadPoolExecutor(
+			4, 4, 0L, TimeUnit.MILLISECONDS,
+			new LinkedBlockingQueue<>(1000),
+			ThreadFactoryBuilder.create().setNamePrefix("picture-process-").setDaemon(true).build(),
+			new ThreadPoolExecutor.AbortPolicy());
+
+	/**
+	 * 已提交到线程池的任务 id, 避免重复提交
+	 */
+	private final Set<Long> queuedJobIds = ConcurrentHashMap.newKeySet();
+
+	@PreDestroy
+	public void destroy() {
+		processExecutor.shutdown();
+	}
+
+	/**
+	 * 创建图片处理任务, 在事务中调用时等事务提交后再执行
+	 *
+	 * @param picture   图片（已入库）
+	 * @param originKey 原图在存储服务器中的 key
+	 */
+	public void createJob(Picture picture, String originKey) {
+		PictureProcessJob job = new PictureProcessJob();
+		job.setPictureId(picture.getId());
+		job.setOriginKey(originKey);
+		job.setStatus(PictureProcessJobStatusEnum.PENDING.getValue());
+		job.setRetryCount(0);
+		pictureProcessJobMapper.insert(job);
+		Long jobId = job.getId();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					submit(jobId);
+				}
+			});
+		} else {
+			this.submit(jobId);
+		}
+	}
+
+	/**
+	 * 定时重新提交未完成的任务（线程池已满、节点重启、处理超时）
+	 */
+	@Scheduled(fixedDelay = 30 * 1000L, initialDelay = 30 * 1000L)
+	public void resubmitJobs() {
+		try {
+			// 处理中但超时的任务, 重置为待处理
+			pictureProcessJobMapper.update(null, new LambdaUpdateWrapper<PictureProcessJob>()
+					.set(PictureProcessJob::getStatus, PictureProcessJobStatusEnum.PENDING.getValue())
+					.eq(PictureProcessJob::getStatus, PictureProcessJobStatusEnum.RUNNING.getValue())
+					.lt(PictureProcessJob::getUpdateTime, DateUtil.offsetMinute(new Date(), -RUNNING_TIMEOUT_MINUTES)));
+			List<PictureProcessJob> jobList = pictureProcessJobMapper.selectList(new LambdaQueryWrapper<PictureProcessJob>()
+					.select(PictureProcessJob::getId)
+					.eq(PictureProcessJob::getStatus, PictureProcessJobStatusEnum.PENDING.getValue())
+					.orderByAsc(PictureProcessJob::getId)
+					.last("limit 100"));
+			jobList.forEach(job -> this.submit(job.getId()));
+		} catch (Exception e) {
+			log.error("图片处理任务扫描失败", e);
+		}
+	}
+
+	private void submit(Long jobId) {
+		if (!queuedJobIds.add(jobId)) {
+			return;
+		}
+		try {
+			processExecutor.execute(() -> {
+				try {
+					this.process(jobId);
+				} finally {
+					queuedJobIds.remove(jobId);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			queuedJobIds.remove(jobId);
+			log.warn("图片处理线程池已满, 等待定时扫描, jobId = {}", jobId);
+		}
+	}
+
+	/**
+	 * 执行图片处理任务
+	 */
+	private void process(Long jobId) {
+		// 抢占任务, 多节点下只有一个节点能执行
+		int claimed = pictureProcessJobMapper.update(null, new LambdaUpdateWrapper<PictureProcessJob>()
+				.set(PictureProcessJob::getStatus, PictureProcessJobStatusEnum.RUNNING.getValue())
+				.eq(PictureProcessJob::getId, jobId)
+				.eq(PictureProcessJob::getStatus, PictureProcessJobStatusEnum.PENDING.getValue()));
+		if (claimed == 0) {
+			return;
+		}
+		PictureProcessJob job = pictureProcessJobMapper.selectById(jobId);
+		Long pictureId = job.getPictureId();
+		String originUrl = objectStore.getUrl(job.getOriginKey());
+		Picture picture = pictureMapper.selectById(pictureId);
+		// 图片已删除或已重新上传, 任务不再需要执行
+		if (picture == null || !originUrl.equals(picture.getOriginUrl())) {
+			this.finishJob(jobId, PictureProcessJobStatusEnum.CANCELLED, "图片已删除或已重新上传");
+			return;
+		}
+		this.sendProcessMessage(picture, "图片处理中");
+		try {
+			// 格式转换、生成缩略图
+			String originKey = job.getOriginKey();
+			ImageProcessResult processResult = imageProcessor.process(originKey, picture.getOriginSize(),
+					() -> objectStore.getObject(originKey));
+			// 构造更新后的图片信息
+			Picture processedPicture = new Picture();
+			processedPicture.setUrl(objectStore.getUrl(processResult.getCompressedKey()));
+			processedPicture.setThumbnailUrl(objectStore.getUrl(processResult.getThumbnailKey()));
+			processedPicture.setPicWidth(processResult.getPicWidth());
+			processedPicture.setPicHeight(processResult.getPicHeight());
+			processedPicture.setPicScale(NumberUtil.round(processResult.getPicWidth() * 1.0 / processResult.getPicHeight(), 2).doubleValue());
+			processedPicture.setPicFormat(processResult.getPicFormat());
+			processedPicture.setPicSize(processResult.getPicSize());
+			// 上传时没有得到主色调的图片, 使用处理结果
+			if (StrUtil.isBlank(picture.getPicColor())) {
+				processedPicture.setPicColor(processResult.getPicColor());
+			}
+			processedPicture.setResourceStatus(PictureResourceStatusEnum.EXIST.getValue());
+			Boolean updated = transactionTemplate.execute(status -> {
+				// 只更新仍在处理中的同一张原图, 避免覆盖删除或重新上传后的数据
+				int rows = pictureMapper.update(processedPicture, new LambdaUpdateWrapper<Picture>()
+						.eq(Picture::getId, pictureId)
+						.eq(Picture::getOriginUrl, originUrl)
+						.eq(Picture::getResourceStatus, PictureResourceStatusEnum.PROCESSING.getValue()));
+				if (rows > 0 && picture.getSpaceId() != null) {
+					// 空间额度按压缩后的大小计算
+					long sizeDelta = processedPicture.getPicSize() - picture.getPicSize();
+					spaceQuotaManager.adjustAfterCommit(picture.getSpaceId(), sizeDelta, 0);
+				}
+				if (rows > 0) {
+					this.finishJob(jobId, PictureProcessJobStatusEnum.SUCCEED, null);
+				} else {
+					this.finishJob(jobId, PictureProcessJobStatusEnum.CANCELLED, "处理期间图片已删除或已重新上传");
+				}
+				return rows > 0;
+			});
+			if (!Boolean.TRUE.equals(updated)) {
+				// 处理期间图片被删除或重新上传, 清理生成的文件
+				objectDeleteQueue.enqueue(Arrays.asList(processResult.getCompressedKey(), processResult.getThumbnailKey()), null);
+				this.sendProcessMessage(picture, "图片已删除或已重新上传, 处理已取消");
+				return;
+			}
+			// 发布图片变更事件, 失效图片列表缓存
+			applicationEventPublisher.publishEvent(PictureChangeEvent.of(picture.getSpaceId(), picture));
+			if (processedPicture.getPicColor() != null) {
+				picture.setPicColor(processedPicture.getPicColor());
+				pictureColorIndex.put(picture);
+			}
+			this.sendProcessMessage(picture, "图片处理完成");
+		} catch (Exception e) {
+			log.error("图片处理失败, jobId = {}, pictureId = {}", jobId, pictureId, e);
+			this.handleFailure(job, picture, e);
+		}
+	}
+
+	/**
+	 * 处理失败, 未超过重试次数时重新等待执行, 否则标记图片处理失败（仍可使用原图）
+	 */
+	private void handleFailure(PictureProcessJob job, Picture picture, Exception e) {
+		int retryCount = job.getRetryCount() + 1;
+		boolean retry = retryCount < MAX_RETRY_COUNT;
+		PictureProcessJobStatusEnum status = retry ? PictureProcessJobStatusEnum.PENDING : PictureProcessJobStatusEnum.FAILED;
+		pictureProcessJobMapper.update(null, new LambdaUpdateWrapper<PictureProcessJob>()
+				.set(PictureProcessJob::getStatus, status.getValue())
+				.set(PictureProcessJob::getRetryCount, retryCount)
+				.set(PictureProcessJob::getErrorMessage, StrUtil.maxLength(e.getMessage(), 500))
+				.eq(PictureProcessJob::getId, job.getId()));
+		if (retry) {
+			return;
+		}
+		pictureMapper.update(null, new LambdaUpdateWrapper<Picture>()
+				.set(Picture::getResourceStatus, PictureResourceStatusEnum.PROCESS_FAILED.getValue())
+				.eq(Picture::getId, job.getPictureId())
+				.eq(Picture::getResourceStatus, PictureResourceStatusEnum.PROCESSING.getValue()));
+		this.sendProcessMessage(picture, "图片处理失败");
+	}
+
+	/**
+	 * 发送处理进度: 正在编辑该图片的用户 + 上传者
+	 */
+	private void sendProcessMessage(Picture picture, String message) {
+		pictureEditHandler.sendProcessMessage(picture.getId(), message);
+		pictureProcessHandler.sendProcessMessage(picture.getUserId(), picture.getId(), message);
+	}
+
+	private void finishJob(Long jobId, PictureProcessJobStatusEnum status, String errorMessage) {
+		pictureProcessJobMapper.update(null, new LambdaUpdateWrapper<PictureProcessJob>()
+				.set(PictureProcessJob::getStatus, status.getValue())
+				.set(PictureProcessJob::getErrorMessage, errorMessage)
+				.eq(PictureProcessJob::getId, jobId));
+	}
+}
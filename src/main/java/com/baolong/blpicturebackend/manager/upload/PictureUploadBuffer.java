@@ -0,0 +1,183 @@
+package com.baolong.blpicturebackend.manager.upload;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 图片上传暂存区
+ * <p>
+ * 读取输入流时同时统计大小、记录文件头用于识别格式; 不超过阈值的图片只保存在内存中,
+ * 超过阈值时才写入临时文件, 避免每次上传都落盘
+ */
+@Slf4j
+public class PictureUploadBuffer implements Closeable {
+
+	/**
+	 * 识别格式需要的文件头长度
+	 */
+	private static final int HEADER_LENGTH = 12;
+
+	private final byte[] header = new byte[HEADER_LENGTH];
+
+	private int headerLength;
+
+	private long size;
+
+	/**
+	 * 内存中的内容, 写入临时文件后为 null
+	 */
+	private MemoryBuffer memory = new MemoryBuffer();
+
+	/**
+	 * 临时文件, 未超过阈值时为 null
+	 */
+	private File file;
+
+	private PictureUploadBuffer() {
+	}
+
+	/**
+	 * 读取输入流到暂存区
+	 *
+	 * @param inputStream    输入流
+	 * @param spillThreshold 超过该大小（字节）时写入临时文件
+	 * @return 暂存区
+	 */
+	public static PictureUploadBuffer from(InputStream inputStream, long spillThreshold) throws IOException {
+		PictureUploadBuffer buffer = new PictureUploadBuffer();
+		try {
+			buffer.read(inputStream, spillThreshold);
+		} catch (IOException | RuntimeException e) {
+			buffer.close();
+			throw e;
+		}
+		return buffer;
+	}
+
+	private void read(InputStream inputStream, long spillThreshold) throws IOException {
+		OutputStream fileOutputStream = null;
+		try {
+			byte[] bytes = new byte[8192];
+			int len;
+			while ((len = inputStream.read(bytes)) != -1) {
+				// 记录文件头
+				if (headerLength < HEADER_LENGTH) {
+					int copyLength = Math.min(len, HEADER_LENGTH - headerLength);
+					System.arraycopy(bytes, 0, header, headerLength, copyLength);
+					headerLength += copyLength;
+				}
+				// 超过阈值, 将已读取的内容写入临时文件, 后续内容直接写文件
+				if (fileOutputStream == null && size + len > spillThreshold) {
+					file = File.createTempFile("picture_upload_", null);
+					fileOutputStream = new FileOutputStream(file);
+					memory.writeTo(fileOutputStream);
+					memory = null;
+				}
+				if (fileOutputStream != null) {
+					fileOutputStream.write(bytes, 0, len);
+				} else {
+					memory.write(bytes, 0, len);
+				}
+				size += len;
+			}
+		} finally {
+			if (fileOutputStream != null) {
+				fileOutputStream.close();
+			}
+		}
+	}
+
+	/**
+	 * 内容大小（字节）
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * 是否只保存在内存中
+	 */
+	public boolean isInMemory() {
+		return file == null;
+	}
+
+	/**
+	 * 打开内容的输入流, 可多次调用
+	 */
+	public InputStream openStream() throws IOException {
+		if (file != null) {
+			return new FileInputStream(file);
+		}
+		return memory.toInputStream();
+	}
+
+	/**
+	 * 根据文件头识别图片格式
+	 *
+	 * @return jpeg/png/gif/webp/bmp, 无法识别返回 null
+	 */
+	public String sniffFormat() {
+		if (matches(0, 0xFF, 0xD8, 0xFF)) {
+			return "jpeg";
+		}
+		if (matches(0, 0x89, 'P', 'N', 'G')) {
+			return "png";
+		}
+		if (matches(0, 'G', 'I', 'F', '8')) {
+			return "gif";
+		}
+		if (matches(0, 'R', 'I', 'F', 'F') && matches(8, 'W', 'E', 'B', 'P')) {
+			return "webp";
+		}
+		if (matches(0, 'B', 'M')) {
+			return "bmp";
+		}
+		return null;
+	}
+
+	private boolean matches(int offset, int... signature) {
+		if (headerLength < offset + signature.length) {
+			return false;
+		}
+		for (int i = 0; i < signature.length; i++) {
+			if ((header[offset + i] & 0xFF) != signature[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 释放内存并删除临时文件
+	 */
+	@Override
+	public void close() {
+		memory = null;
+		if (file != null && file.exists() && !file.delete()) {
+			log.error("file delete error, filepath = {}", file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * 可直接基于内部数组创建输入流的字节输出流, 避免复制
+	 */
+	private static class MemoryBuffer extends ByteArrayOutputStream {
+
+		MemoryBuffer() {
+			super(64 * 1024);
+		}
+
+		InputStream toInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+	}
+}
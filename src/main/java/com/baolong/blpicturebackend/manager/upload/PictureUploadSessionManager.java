@@ -0,0 +1,223 @@
+package com.baolong.blpicturebackend.manager.upload;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.quota.SpaceQuotaManager;
+import com.baolong.blpicturebackend.manager.storage.ObjectDeleteQueue;
+import com.baolong.blpicturebackend.mapper.PictureUploadSessionMapper;
+import com.baolong.blpicturebackend.model.entity.PictureUploadSession;
+import com.baolong.blpicturebackend.model.enums.PictureUploadSessionStatusEnum;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 图片直传会话管理
+ * <p>
+ * 申请预签名地址时预留空间额度并创建会话, 确认时先抢占会话（待上传 -> 确认中）, 图片入库的事务中标记为已确认;
+ * 确认失败或超时未确认的会话释放预留的额度, 并删除已上传的文件
+ */
+@Slf4j
+@Component
+public class PictureUploadSessionManager {
+
+	/**
+	 * 确认中的会话超过该时间（分钟）未完成视为节点异常, 按过期处理
+	 */
+	private static final int CONFIRMING_TIMEOUT_MINUTES = 10;
+
+	/**
+	 * 每次扫描处理的过期会话数
+	 */
+	private static final int EXPIRE_BATCH_SIZE = 100;
+
+	@Resource
+	private PictureUploadSessionMapper pictureUploadSessionMapper;
+
+	@Resource
+	private SpaceQuotaManager spaceQuotaManager;
+
+	@Resource
+	private ObjectDeleteQueue objectDeleteQueue;
+
+	@Resource
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * 创建会话, 上传到空间时先预留额度（预留失败不创建会话）
+	 *
+	 * @param userId     上传用户 id
+	 * @param spaceId    空间 id
+	 * @param pictureId  图片 id（重新上传时）
+	 * @param objectKey  对象 key
+	 * @param fileSize   申请上传的文件大小
+	 * @param expireTime 过期时间
+	 * @return 会话
+	 */
+	public PictureUploadSession create(Long userId, Long spaceId, Long pictureId, String objectKey, long fileSize, Date expireTime) {
+		PictureUploadSession session = new PictureUploadSession();
+		session.setId(IdWorker.getId());
+		session.setUserId(userId);
+		session.setSpaceId(spaceId);
+		session.setPictureId(pictureId);
+		session.setObjectKey(objectKey);
+		session.setFileSize(fileSize);
+		session.setStatus(PictureUploadSessionStatusEnum.PENDING.getValue());
+		session.setExpireTime(expireTime);
+		if (spaceId == null) {
+			pictureUploadSessionMapper.insert(session);
+			return session;
+		}
+		// 预留到确认超时之后, 确认过程中不会被对账释放
+		spaceQuotaManager.reserve(spaceId, getQuotaToken(session), fileSize, getReservedCount(session),
+				DateUtil.offsetMinute(expireTime, CONFIRMING_TIMEOUT_MINUTES * 2));
+		try {
+			pictureUploadSessionMapper.insert(session);
+		} catch (RuntimeException e) {
+			spaceQuotaManager.release(spaceId, getQuotaToken(session));
+			throw e;
+		}
+		return session;
+	}
+
+	/**
+	 * 获取待上传的会话
+	 *
+	 * @param sessionId 会话 id
+	 * @param userId    当前用户 id
+	 * @return 会话
+	 */
+	public PictureUploadSession getPendingSession(Long sessionId, Long userId) {
+		PictureUploadSession session = pictureUploadSessionMapper.selectById(sessionId);
+		ThrowUtils.throwIf(session == null, ErrorCode.NOT_FOUND_ERROR, "上传会话不存在");
+		ThrowUtils.throwIf(!session.getUserId().equals(userId), ErrorCode.NO_AUTH_ERROR);
+		ThrowUtils.throwIf(session.getStatus() != PictureUploadSessionStatusEnum.PENDING.getValue()
+				|| session.getExpireTime().before(new Date()), ErrorCode.OPERATION_ERROR, "上传已确认或已过期");
+		return session;
+	}
+
+	/**
+	 * 抢占会话（待上传 -> 确认中）, 同一个会话只能确认一次
+	 *
+	 * @param session 会话
+	 */
+	public void claim(PictureUploadSession session) {
+		int rows = pictureUploadSessionMapper.update(null, new LambdaUpdateWrapper<PictureUploadSession>()
+				.eq(PictureUploadSession::getId, session.getId())
+				.eq(PictureUploadSession::getStatus, PictureUploadSessionStatusEnum.PENDING.getValue())
+				.gt(PictureUploadSession::getExpireTime, new Date())
+				.set(PictureUploadSession::getStatus, PictureUploadSessionStatusEnum.CONFIRMING.getValue()));
+		ThrowUtils.throwIf(rows == 0, ErrorCode.OPERATION_ERROR, "上传已确认或已过期");
+	}
+
+	/**
+	 * 标记会话已确认（确认中 -> 已确认）, 需要在图片入库的事务中调用
+	 *
+	 * @param session 会话
+	 */
+	public void markConfirmed(PictureUploadSession session) {
+		int rows = pictureUploadSessionMapper.update(null, new LambdaUpdateWrapper<PictureUploadSession>()
+				.eq(PictureUploadSession::getId, session.getId())
+				.eq(PictureUploadSession::getStatus, PictureUploadSessionStatusEnum.CONFIRMING.getValue())
+				.set(PictureUploadSession::getStatus, PictureUploadSessionStatusEnum.CONFIRMED.getValue()));
+		ThrowUtils.throwIf(rows == 0, ErrorCode.OPERATION_ERROR, "上传已过期");
+	}
+
+	/**
+	 * 确认失败（确认中 -> 确认失败）, 释放额度并删除文件
+	 *
+	 * @param session      会话
+	 * @param errorMessage 错误信息
+	 */
+	public void fail(PictureUploadSession session, String errorMessage) {
+		try {
+			close(session, PictureUploadSessionStatusEnum.CONFIRMING, PictureUploadSessionStatusEnum.FAILED, errorMessage);
+		} catch (Exception e) {
+			// 由定时任务按超时处理
+			log.error("图片直传会话关闭失败, sessionId = {}", session.getId(), e);
+		}
+	}
+
+	/**
+	 * 定时处理超时未确认的会话
+	 */
+	@Scheduled(fixedDelay = 60 * 1000L, initialDelay = 60 * 1000L)
+	public void expireSessions() {
+		Date now = new Date();
+		List<PictureUploadSession> sessionList;
+		try {
+			sessionList = pictureUploadSessionMapper.selectList(new LambdaQueryWrapper<PictureUploadSession>()
+					.and(wrapper -> wrapper
+							.eq(PictureUploadSession::getStatus, PictureUploadSessionStatusEnum.PENDING.getValue())
+							.lt(PictureUploadSession::getExpireTime, now)
+							.or()
+							.eq(PictureUploadSession::getStatus, PictureUploadSessionStatusEnum.CONFIRMING.getValue())
+							.lt(PictureUploadSession::getUpdateTime, DateUtil.offsetMinute(now, -CONFIRMING_TIMEOUT_MINUTES)))
+					.last("limit " + EXPIRE_BATCH_SIZE));
+		} catch (Exception e) {
+			log.error("扫描过期的图片直传会话失败", e);
+			return;
+		}
+		for (PictureUploadSession session : sessionList) {
+			try {
+				close(session, PictureUploadSessionStatusEnum.getEnumByValue(session.getStatus()),
+						PictureUploadSessionStatusEnum.EXPIRED, null);
+			} catch (Exception e) {
+				log.error("图片直传会话过期处理失败, sessionId = {}", session.getId(), e);
+			}
+		}
+	}
+
+	/**
+	 * 关闭会话, 状态更新成功（多节点只有一个成功）时释放预留的额度, 删除已上传的文件
+	 */
+	private void close(PictureUploadSession session, PictureUploadSessionStatusEnum fromStatus,
+					   PictureUploadSessionStatusEnum toStatus, String errorMessage) {
+		Boolean closed = transactionTemplate.execute(status -> {
+			int rows = pictureUploadSessionMapper.update(null, new LambdaUpdateWrapper<PictureUploadSession>()
+					.eq(PictureUploadSession::getId, session.getId())
+					.eq(PictureUploadSession::getStatus, fromStatus.getValue())
+					.set(PictureUploadSession::getStatus, toStatus.getValue())
+					.set(PictureUploadSession::getErrorMessage, StrUtil.maxLength(errorMessage, 500)));
+			if (rows == 0) {
+				return false;
+			}
+			objectDeleteQueue.enqueue(Collections.singletonList(session.getObjectKey()), null);
+			return true;
+		});
+		if (Boolean.TRUE.equals(closed) && session.getSpaceId() != null) {
+			spaceQuotaManager.release(session.getSpaceId(), getQuotaToken(session));
+		}
+	}
+
+	/**
+	 * 会话预留额度的标识
+	 *
+	 * @param session 会话
+	 * @return 预留标识
+	 */
+	public static String getQuotaToken(PictureUploadSession session) {
+		return "session:" + session.getId();
+	}
+
+	/**
+	 * 会话预留的图片条数, 重新上传不占用条数
+	 *
+	 * @param session 会话
+	 * @return 条数
+	 */
+	public static long getReservedCount(PictureUploadSession session) {
+		return session.getPictureId() == null ? 1 : 0;
+	}
+}
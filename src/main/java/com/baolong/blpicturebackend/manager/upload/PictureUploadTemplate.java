@@ -1,25 +1,33 @@
 package com.baolong.blpicturebackend.manager.upload;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.RandomUtil;
-import com.baolong.blpicturebackend.config.CosClientConfig;
+import cn.hutool.core.util.StrUtil;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
-import com.baolong.blpicturebackend.manager.CosManager;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.image.ImageProcessResult;
+import com.baolong.blpicturebackend.manager.image.ImageProcessor;
+import com.baolong.blpicturebackend.manager.storage.ObjectStore;
 import com.baolong.blpicturebackend.model.dto.picture.UploadPictureResult;
-import com.qcloud.cos.model.PutObjectResult;
-import com.qcloud.cos.model.ciModel.persistence.CIObject;
-import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
-import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
+import com.baolong.blpicturebackend.utils.ImageColorUtils;
+import com.baolong.blpicturebackend.utils.ImageHashUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 
 import javax.annotation.Resource;
-import java.io.File;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Date;
-import java.util.List;
+import java.util.Iterator;
+import java.util.stream.Collectors;
 
 /**
  * 图片上传模板抽象类
@@ -32,64 +40,118 @@ import java.util.List;
 public abstract class PictureUploadTemplate {
 
 	@Resource
-	protected CosManager cosManager;
+	protected ObjectStore objectStore;
 
 	@Resource
-	protected CosClientConfig cosClientConfig;
+	protected ImageProcessor imageProcessor;
+
+	/**
+	 * 超过该大小（字节）的图片才写入临时文件，默认 2MB
+	 */
+	@Value("${picture.upload.spill-threshold:2097152}")
+	protected long spillThreshold;
+
+	/**
+	 * 是否异步处理图片（格式转换、生成缩略图），开启后上传只保存原图
+	 */
+	@Value("${picture.upload.async-process:true}")
+	protected boolean asyncProcess;
+
+	/**
+	 * 调色板颜色数量，0 表示不计算调色板
+	 */
+	@Value("${picture.upload.palette-size:5}")
+	protected int paletteSize;
+
+	/**
+	 * 本地解码缩略图的最长边（像素）
+	 */
+	private static final int THUMBNAIL_SIZE = 256;
 
 	/**
 	 * 模板方法，定义上传流程
 	 */
 	public final UploadPictureResult uploadPicture(Object inputSource, String uploadPathPrefix) {
+		return uploadPicture(inputSource, uploadPathPrefix, null);
+	}
+
+	/**
+	 * 模板方法，定义上传流程
+	 *
+	 * @param beforeStore 读取文件之后、上传到对象存储之前执行（如重复图片判断、按文件大小预留空间额度），可为空
+	 */
+	public final UploadPictureResult uploadPicture(Object inputSource, String uploadPathPrefix, BeforeStore beforeStore) {
 		// 1. 校验图片
 		validPicture(inputSource);
 
 		// 2. 图片上传地址
-		String uuid = RandomUtil.randomString(16);
 		String originFilename = getOriginFilename(inputSource);
-		String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid,
-				FileUtil.getSuffix(originFilename));
-		String uploadPath = String.format("/%s/%s", uploadPathPrefix, uploadFilename);
-
-		File file = null;
-		try {
-			// 3. 创建临时文件
-			file = File.createTempFile(uploadPath, null);
-			// 处理文件来源（本地或 URL）
-			processFile(inputSource, file);
-
-			// 4. 上传图片到对象存储
-			PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, file);
-			// 图片原图信息
-			ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
-			// 获取处理后的结果信息
-			ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
-			List<CIObject> objectList = processResults.getObjectList();
-			if (CollUtil.isNotEmpty(objectList)) {
-				// 根据图片处理规则的顺序获取即可
-				CIObject compressedCiObject = objectList.get(0);
-
-				// 让缩略图默认为压缩后的图片
-				CIObject thumbnailCiObject = compressedCiObject;
-				// 有生成缩略图，才得到缩略图
-				if (objectList.size() > 1) {
-					thumbnailCiObject = objectList.get(1);
-				}
-				// 封装压缩图返回结果
-				return buildResult(originFilename, file, uploadPath, compressedCiObject, thumbnailCiObject, imageInfo);
+		String uploadPath = getUploadPath(inputSource, uploadPathPrefix);
+
+		// 3. 读取文件来源（本地或 URL）到暂存区，较小的图片不落盘
+		try (InputStream inputStream = openInputStream(inputSource);
+			 PictureUploadBuffer buffer = PictureUploadBuffer.from(inputStream, spillThreshold)) {
+			// 根据文件头校验是否为图片
+			ThrowUtils.throwIf(buffer.sniffFormat() == null, ErrorCode.PARAMS_ERROR, "文件类型错误");
+			// 解码缩略图，用于读取宽高、计算感知哈希和主色调（无法解码时为 null）
+			DecodedImage decodedImage = readThumbnail(buffer);
+			BufferedImage thumbnail = decodedImage == null ? null : decodedImage.thumbnail;
+			// 计算感知哈希
+			Long picHash = thumbnail == null ? null : ImageHashUtils.dHash(thumbnail);
+			// 在占用存储空间之前执行
+			if (beforeStore != null) {
+				beforeStore.accept(buffer.getSize(), picHash);
 			}
 
+			// 4. 上传原图到对象存储
+			storeObject(uploadPath, buffer);
+
 			// 5. 封装返回结果
-			return buildResult(originFilename, file, uploadPath, imageInfo);
+			UploadPictureResult uploadPictureResult;
+			if (decodedImage != null) {
+				uploadPictureResult = buildResult(originFilename, buffer.getSize(), uploadPath,
+						decodedImage.width, decodedImage.height, buffer.sniffFormat());
+			} else {
+				// 本地无法解码（如 webp），由图片处理器获取原图信息
+				ImageProcessResult imageInfo = imageProcessor.getImageInfo(uploadPath, buffer.getSize(), buffer::openStream);
+				uploadPictureResult = buildResult(originFilename, buffer.getSize(), uploadPath,
+						imageInfo.getPicWidth(), imageInfo.getPicHeight(), imageInfo.getPicFormat());
+				uploadPictureResult.setPicColor(imageInfo.getPicColor());
+			}
+			uploadPictureResult.setPicHash(picHash);
+			if (asyncProcess) {
+				// 异步处理时先返回原图信息, 格式转换和缩略图由后台任务完成
+				uploadPictureResult.setOriginKey(uploadPath);
+				uploadPictureResult.setProcessing(true);
+			} else {
+				ImageProcessResult processResult = imageProcessor.process(uploadPath, buffer.getSize(), buffer::openStream);
+				fillProcessResult(uploadPictureResult, processResult);
+			}
+			fillPicColor(uploadPictureResult, thumbnail);
+			return uploadPictureResult;
+		} catch (BusinessException e) {
+			throw e;
 		} catch (Exception e) {
 			log.error("图片上传到对象存储失败", e);
 			throw new BusinessException(ErrorCode.SYSTEM_ERROR, "上传失败");
-		} finally {
-			// 6. 清理临时文件
-			deleteTempFile(file);
 		}
 	}
 
+	/**
+	 * 上传到对象存储之前的回调
+	 */
+	@FunctionalInterface
+	public interface BeforeStore {
+
+		/**
+		 * 读取文件之后、上传到对象存储之前执行, 抛出异常则不上传
+		 *
+		 * @param fileSize 文件大小
+		 * @param picHash  图片感知哈希, 无法解码时为空
+		 */
+		void accept(long fileSize, Long picHash);
+	}
+
 	/**
 	 * 校验输入源（本地文件或 URL）
 	 *
@@ -106,75 +168,160 @@ public abstract class PictureUploadTemplate {
 	protected abstract String getOriginFilename(Object inputSource);
 
 	/**
-	 * 处理输入源并生成本地临时文件
+	 * 打开输入源的输入流
 	 *
 	 * @param inputSource 文件输入源
-	 * @param file        文件对象
+	 * @return 输入流
 	 * @throws Exception e
 	 */
-	protected abstract void processFile(Object inputSource, File file) throws Exception;
+	protected abstract InputStream openInputStream(Object inputSource) throws Exception;
 
 	/**
-	 * 封装返回结果
+	 * 生成图片上传地址（以 "/" 开头）
+	 *
+	 * @param inputSource      文件输入源
+	 * @param uploadPathPrefix 上传路径前缀
+	 * @return 上传地址
 	 */
-	private UploadPictureResult buildResult(String originFilename, File file, String uploadPath, CIObject compressedCiObject, CIObject thumbnailCiObject, ImageInfo imageInfo) {
-		UploadPictureResult uploadPictureResult = new UploadPictureResult();
-		int picWidth = compressedCiObject.getWidth();
-		int picHeight = compressedCiObject.getHeight();
-		double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
-		uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+	protected String getUploadPath(Object inputSource, String uploadPathPrefix) {
+		return buildUploadPath(uploadPathPrefix, getOriginFilename(inputSource));
+	}
+
+	/**
+	 * 保存原图到对象存储
+	 *
+	 * @param uploadPath 上传地址
+	 * @param buffer     图片暂存区
+	 * @throws IOException e
+	 */
+	protected void storeObject(String uploadPath, PictureUploadBuffer buffer) throws IOException {
+		try (InputStream uploadStream = buffer.openStream()) {
+			objectStore.putObject(uploadPath, uploadStream, buffer.getSize());
+		}
+	}
+
+	/**
+	 * 生成图片上传地址: /前缀/日期_随机串.后缀
+	 *
+	 * @param uploadPathPrefix 上传路径前缀
+	 * @param originFilename   原始文件名
+	 * @return 上传地址
+	 */
+	public static String buildUploadPath(String uploadPathPrefix, String originFilename) {
+		String uuid = RandomUtil.randomString(16);
+		String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid,
+				FileUtil.getSuffix(originFilename));
+		return String.format("/%s/%s", uploadPathPrefix, uploadFilename);
+	}
+
+	/**
+	 * 解码图片的缩略图（按比例抽样读取，不解码完整的大图），无法解码（如 webp）时返回 null，不影响上传
+	 */
+	private DecodedImage readThumbnail(PictureUploadBuffer buffer) {
+		try (InputStream inputStream = buffer.openStream();
+			 ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+			if (!readers.hasNext()) {
+				return null;
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(imageInputStream, true, true);
+				int width = reader.getWidth(0);
+				int height = reader.getHeight(0);
+				int step = Math.max(1, Math.max(width, height) / THUMBNAIL_SIZE);
+				ImageReadParam readParam = reader.getDefaultReadParam();
+				readParam.setSourceSubsampling(step, step, 0, 0);
+				return new DecodedImage(reader.read(0, readParam), width, height);
+			} finally {
+				reader.dispose();
+			}
+		} catch (Exception e) {
+			log.warn("图片缩略图解码失败", e);
+			return null;
+		}
+	}
+
+	/**
+	 * 填充图片主色调和调色板
+	 * <p>
+	 * 优先从本地解码的缩略图计算；无法解码时保留图片处理器返回的主色调
+	 */
+	private void fillPicColor(UploadPictureResult uploadPictureResult, BufferedImage thumbnail) {
+		Integer averageColor = thumbnail == null ? null : ImageColorUtils.averageColor(thumbnail);
+		if (averageColor == null) {
+			return;
+		}
+		uploadPictureResult.setPicColor(ImageColorUtils.toHex(averageColor));
+		if (paletteSize > 0) {
+			uploadPictureResult.setPicPalette(ImageColorUtils.palette(thumbnail, paletteSize).stream()
+					.map(ImageColorUtils::toHex)
+					.collect(Collectors.joining(",")));
+		}
+	}
+
+	/**
+	 * 使用图片处理结果（压缩图、缩略图）替换原图信息
+	 */
+	private void fillProcessResult(UploadPictureResult uploadPictureResult, ImageProcessResult processResult) {
+		int picWidth = processResult.getPicWidth();
+		int picHeight = processResult.getPicHeight();
 		uploadPictureResult.setPicWidth(picWidth);
 		uploadPictureResult.setPicHeight(picHeight);
-		uploadPictureResult.setPicScale(picScale);
-		uploadPictureResult.setPicFormat(compressedCiObject.getFormat());
-		uploadPictureResult.setPicSize(compressedCiObject.getSize().longValue());
-		uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + compressedCiObject.getKey());
-		// 设置缩略图
-		uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + thumbnailCiObject.getKey());
-		// 原图大小/原图 url/缩略图 url
-		uploadPictureResult.setOriginSize(FileUtil.size(file));
-		uploadPictureResult.setOriginUrl(cosClientConfig.getHost() + "/" + uploadPath);
-		// 存储图片主色调
-		// uploadPictureResult.setPicColor(imageInfo.getAve());
-		uploadPictureResult.setPicColor(cosManager.getImageAve(uploadPath));
-		return uploadPictureResult;
+		uploadPictureResult.setPicScale(NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue());
+		uploadPictureResult.setPicFormat(processResult.getPicFormat());
+		uploadPictureResult.setPicSize(processResult.getPicSize());
+		uploadPictureResult.setUrl(objectStore.getUrl(processResult.getCompressedKey()));
+		uploadPictureResult.setThumbnailUrl(objectStore.getUrl(processResult.getThumbnailKey()));
+		if (StrUtil.isNotBlank(processResult.getPicColor())) {
+			uploadPictureResult.setPicColor(processResult.getPicColor());
+		}
 	}
 
 	/**
 	 * 封装返回结果
 	 */
-	private UploadPictureResult buildResult(String originFilename, File file, String uploadPath, ImageInfo imageInfo) {
+	private UploadPictureResult buildResult(String originFilename, long originSize, String uploadPath, int picWidth, int picHeight, String picFormat) {
 		UploadPictureResult uploadPictureResult = new UploadPictureResult();
-		int picWidth = imageInfo.getWidth();
-		int picHeight = imageInfo.getHeight();
 		double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
 		uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
 		uploadPictureResult.setPicWidth(picWidth);
 		uploadPictureResult.setPicHeight(picHeight);
 		uploadPictureResult.setPicScale(picScale);
-		uploadPictureResult.setPicFormat(imageInfo.getFormat());
-		uploadPictureResult.setPicSize(FileUtil.size(file));
-		uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+		uploadPictureResult.setPicFormat(picFormat);
+		uploadPictureResult.setPicSize(originSize);
+		uploadPictureResult.setUrl(objectStore.getUrl(uploadPath));
 		// 原图大小/原图 url/缩略图 url
-		uploadPictureResult.setOriginSize(FileUtil.size(file));
-		uploadPictureResult.setOriginUrl(cosClientConfig.getHost() + "/" + uploadPath);
-		uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + uploadPath);
-		// 存储图片主色调
-		// uploadPictureResult.setPicColor(imageInfo.getAve());
-		uploadPictureResult.setPicColor(cosManager.getImageAve(uploadPath));
+		uploadPictureResult.setOriginSize(originSize);
+		uploadPictureResult.setOriginUrl(objectStore.getUrl(uploadPath));
+		uploadPictureResult.setThumbnailUrl(objectStore.getUrl(uploadPath));
 		return uploadPictureResult;
 	}
 
 	/**
-	 * 删除临时文件
+	 * 本地解码的图片
 	 */
-	public void deleteTempFile(File file) {
-		if (file == null) {
-			return;
-		}
-		boolean deleteResult = file.delete();
-		if (!deleteResult) {
-			log.error("file delete error, filepath = {}", file.getAbsolutePath());
+	private static class DecodedImage {
+
+		/**
+		 * 缩略图
+		 */
+		private final BufferedImage thumbnail;
+
+		/**
+		 * 原图宽度
+		 */
+		private final int width;
+
+		/**
+		 * 原图高度
+		 */
+		private final int height;
+
+		DecodedImage(BufferedImage thumbnail, int width, int height) {
+			this.thumbnail = thumbnail;
+			this.width = width;
+			this.height = height;
 		}
 	}
 }
@@ -0,0 +1,77 @@
+package com.baolong.blpicturebackend.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.storage.ObjectStat;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 已直传到对象存储的图片上传实现
+ * <p>
+ * 输入源为对象元信息, 图片已在存储中, 只读取图片信息, 不再重复上传
+ */
+@Service
+public class StoredPictureUpload extends PictureUploadTemplate {
+
+	/**
+	 * 校验输入源
+	 *
+	 * @param inputSource 文件输入源
+	 */
+	@Override
+	protected void validPicture(Object inputSource) {
+		ObjectStat objectStat = (ObjectStat) inputSource;
+		ThrowUtils.throwIf(objectStat == null, ErrorCode.PARAMS_ERROR, "文件不能为空");
+		ThrowUtils.throwIf(objectStat.getSize() <= 0, ErrorCode.PARAMS_ERROR, "文件不能为空");
+		// 校验文件后缀
+		String fileSuffix = FileUtil.getSuffix(objectStat.getKey());
+		// 允许上传的文件后缀
+		final List<String> ALLOW_FORMAT_LIST = Arrays.asList("jpeg", "jpg", "png", "webp", "gif");
+		ThrowUtils.throwIf(!ALLOW_FORMAT_LIST.contains(fileSuffix), ErrorCode.PARAMS_ERROR, "文件类型错误");
+	}
+
+	/**
+	 * 获取输入源的原始文件名
+	 *
+	 * @param inputSource 文件输入源
+	 * @return 原始文件名
+	 */
+	@Override
+	protected String getOriginFilename(Object inputSource) {
+		ObjectStat objectStat = (ObjectStat) inputSource;
+		return FileUtil.getName(objectStat.getKey());
+	}
+
+	/**
+	 * 打开输入源的输入流
+	 *
+	 * @param inputSource 文件输入源
+	 * @return 输入流
+	 */
+	@Override
+	protected InputStream openInputStream(Object inputSource) {
+		ObjectStat objectStat = (ObjectStat) inputSource;
+		return objectStore.getObject(objectStat.getKey());
+	}
+
+	/**
+	 * 使用对象已有的地址
+	 */
+	@Override
+	protected String getUploadPath(Object inputSource, String uploadPathPrefix) {
+		ObjectStat objectStat = (ObjectStat) inputSource;
+		return "/" + objectStat.getKey();
+	}
+
+	/**
+	 * 图片已在对象存储中, 不需要上传
+	 */
+	@Override
+	protected void storeObject(String uploadPath, PictureUploadBuffer buffer) {
+	}
+}
@@ -11,7 +11,9 @@ import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Arrays;
@@ -94,16 +96,30 @@ public class UrlPictureUpload extends PictureUploadTemplate {
 	}
 
 	/**
-	 * 处理输入源并生成本地临时文件
+	 * 打开输入源的输入流
 	 *
 	 * @param inputSource 文件输入源
-	 * @param file        文件对象
+	 * @return 输入流, 关闭时释放连接
 	 * @throws Exception e
 	 */
 	@Override
-	protected void processFile(Object inputSource, File file) throws Exception {
+	protected InputStream openInputStream(Object inputSource) throws Exception {
 		String fileUrl = (String) inputSource;
-		// 下载文件到临时目录
-		HttpUtil.downloadFile(fileUrl, file);
+		// 以流的方式读取响应体, 不再下载到临时文件
+		HttpResponse response = HttpUtil.createGet(fileUrl).setFollowRedirects(true).executeAsync();
+		if (!response.isOk()) {
+			response.close();
+			throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件下载失败");
+		}
+		return new FilterInputStream(response.bodyStream()) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					response.close();
+				}
+			}
+		};
 	}
 }
@@ -12,6 +12,7 @@ import com.baolong.blpicturebackend.service.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -26,6 +27,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * WebSocket 处理器（图片处理器）
  */
+@Slf4j
 @Component
 public class PictureEditHandler extends TextWebSocketHandler {
 	@Resource
@@ -214,6 +216,23 @@ public class PictureEditHandler extends TextWebSocketHandler {
 		}
 	}
 
+	/**
+	 * 发送图片处理进度（上传后的后台处理）
+	 *
+	 * @param pictureId 图片 ID
+	 * @param message   进度信息
+	 */
+	public void sendProcessMessage(Long pictureId, String message) {
+		PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
+		pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.PROCESS.getValue());
+		pictureEditResponseMessage.setMessage(message);
+		try {
+			broadcastToPicture(pictureId, pictureEditResponseMessage);
+		} catch (Exception e) {
+			log.warn("图片处理进度发送失败, pictureId = {}", pictureId, e);
+		}
+	}
+
 	/**
 	 * 全部广播
 	 *
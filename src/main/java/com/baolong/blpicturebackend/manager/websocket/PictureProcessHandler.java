@@ -0,0 +1,131 @@
+package com.baolong.blpicturebackend.manager.websocket;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.baolong.blpicturebackend.manager.websocket.model.PictureEditMessageTypeEnum;
+import com.baolong.blpicturebackend.manager.websocket.model.PictureEditResponseMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket 处理器（图片处理进度）
+ * <p>
+ * 上传者连接后按用户保存会话, 后台处理任务可能在任意节点执行, 进度通过 Redis 发布订阅转发到用户连接的节点
+ */
+@Slf4j
+@Component
+public class PictureProcessHandler extends TextWebSocketHandler implements MessageListener {
+
+	/**
+	 * 处理进度通知频道
+	 */
+	private static final String CHANNEL = "baolong:pictureProcess:progress";
+
+	@Resource
+	private StringRedisTemplate stringRedisTemplate;
+
+	@Resource
+	private RedisMessageListenerContainer redisMessageListenerContainer;
+
+	// 保存所有连接的会话，key: userId, value: 用户会话集合
+	private final Map<Long, Set<WebSocketSession>> userSessions = new ConcurrentHashMap<>();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@PostConstruct
+	public void init() {
+		// 将 Long 类型转为 String，解决丢失精度问题
+		SimpleModule module = new SimpleModule();
+		module.addSerializer(Long.class, ToStringSerializer.instance);
+		module.addSerializer(Long.TYPE, ToStringSerializer.instance);
+		objectMapper.registerModule(module);
+		redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+	}
+
+	@Override
+	public void afterConnectionEstablished(WebSocketSession session) {
+		Long userId = (Long) session.getAttributes().get("userId");
+		userSessions.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(session);
+	}
+
+	@Override
+	public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+		Long userId = (Long) session.getAttributes().get("userId");
+		userSessions.computeIfPresent(userId, (key, sessionSet) -> {
+			sessionSet.remove(session);
+			return sessionSet.isEmpty() ? null : sessionSet;
+		});
+	}
+
+	/**
+	 * 发送图片处理进度给上传者（所有节点）
+	 *
+	 * @param userId    上传者 id
+	 * @param pictureId 图片 id
+	 * @param message   进度信息
+	 */
+	public void sendProcessMessage(Long userId, Long pictureId, String message) {
+		if (userId == null) {
+			return;
+		}
+		JSONObject body = new JSONObject();
+		body.set("userId", userId);
+		body.set("pictureId", pictureId);
+		body.set("message", message);
+		try {
+			stringRedisTemplate.convertAndSend(CHANNEL, body.toString());
+		} catch (Exception e) {
+			log.warn("图片处理进度发送失败, pictureId = {}", pictureId, e);
+		}
+	}
+
+	/**
+	 * 收到处理进度, 发送给本节点上该用户的连接
+	 */
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String body = new String(message.getBody(), StandardCharsets.UTF_8);
+		try {
+			JSONObject progress = JSONUtil.parseObj(body);
+			Set<WebSocketSession> sessionSet = userSessions.get(progress.getLong("userId"));
+			if (CollUtil.isEmpty(sessionSet)) {
+				return;
+			}
+			PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
+			pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.PROCESS.getValue());
+			pictureEditResponseMessage.setMessage(progress.getStr("message"));
+			pictureEditResponseMessage.setPictureId(progress.getLong("pictureId"));
+			TextMessage textMessage = new TextMessage(objectMapper.writeValueAsString(pictureEditResponseMessage));
+			for (WebSocketSession session : sessionSet) {
+				if (session.isOpen()) {
+					// 同一个会话不能并发发送
+					synchronized (session) {
+						session.sendMessage(textMessage);
+					}
+				}
+			}
+		} catch (Exception e) {
+			log.warn("图片处理进度推送失败, body = {}", body, e);
+		}
+	}
+}
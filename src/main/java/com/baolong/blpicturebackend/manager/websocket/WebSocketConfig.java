@@ -20,11 +20,21 @@ public class WebSocketConfig implements WebSocketConfigurer {
 	@Resource
 	private WsHandshakeInterceptor wsHandshakeInterceptor;
 
+	@Resource
+	private PictureProcessHandler pictureProcessHandler;
+
+	@Resource
+	private WsLoginHandshakeInterceptor wsLoginHandshakeInterceptor;
+
 	@Override
 	public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
 		// websocket
 		registry.addHandler(pictureEditHandler, "/ws/picture/edit")
 				.addInterceptors(wsHandshakeInterceptor)
 				.setAllowedOrigins("*");
+		// 图片处理进度（上传者）
+		registry.addHandler(pictureProcessHandler, "/ws/picture/process")
+				.addInterceptors(wsLoginHandshakeInterceptor)
+				.setAllowedOrigins("*");
 	}
 }
@@ -21,7 +21,6 @@ import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -77,8 +76,7 @@ public class WsHandshakeInterceptor implements HandshakeInterceptor {
 					return false;
 				}
 			}
-			List<String> permissionList = spaceUserAuthManager.getPermissionList(space, loginUser);
-			if (!permissionList.contains(SpaceUserPermissionConstant.PICTURE_EDIT)) {
+			if (!spaceUserAuthManager.hasPermission(space, loginUser, SpaceUserPermissionConstant.PICTURE_EDIT)) {
 				log.error("没有图片编辑权限，拒绝握手");
 				return false;
 			}
@@ -0,0 +1,49 @@
+package com.baolong.blpicturebackend.manager.websocket;
+
+import cn.hutool.core.util.ObjUtil;
+import com.baolong.blpicturebackend.model.entity.User;
+import com.baolong.blpicturebackend.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import javax.annotation.Resource;
+import java.util.Map;
+
+/**
+ * WebSocket 握手拦截器（只需要登录, 用于接收自己的通知）
+ */
+@Component
+@Slf4j
+public class WsLoginHandshakeInterceptor implements HandshakeInterceptor {
+
+	@Resource
+	private UserService userService;
+
+	@Override
+	public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Map<String, Object> attributes) {
+		if (!(request instanceof ServletServerHttpRequest)) {
+			return false;
+		}
+		User loginUser;
+		try {
+			loginUser = userService.getLoginUser(((ServletServerHttpRequest) request).getServletRequest());
+		} catch (Exception e) {
+			loginUser = null;
+		}
+		if (ObjUtil.isEmpty(loginUser)) {
+			log.error("用户未登录，拒绝握手");
+			return false;
+		}
+		attributes.put("userId", loginUser.getId());
+		return true;
+	}
+
+	@Override
+	public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response, WebSocketHandler wsHandler, Exception exception) {
+	}
+}
@@ -13,7 +13,8 @@ public enum PictureEditMessageTypeEnum {
     ENTER_EDIT("进入编辑状态", "ENTER_EDIT"),
     EXIT_EDIT("退出编辑状态", "EXIT_EDIT"),
     EDIT_ACTION("执行编辑操作", "EDIT_ACTION"),
-    COMPLETE("操作完成", "COMPLETE");
+    COMPLETE("操作完成", "COMPLETE"),
+    PROCESS("图片处理进度", "PROCESS");
 
     private final String text;
     private final String value;
@@ -37,4 +37,9 @@ public class PictureEditResponseMessage {
      * 当前编辑的用户
      */
     private UserVO inUser;
+
+    /**
+     * 图片 id（图片处理进度消息）
+     */
+    private Long pictureId;
 }
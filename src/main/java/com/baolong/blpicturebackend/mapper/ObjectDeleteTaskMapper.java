@@ -0,0 +1,13 @@
+package com.baolong.blpicturebackend.mapper;
+
+import com.baolong.blpicturebackend.model.entity.ObjectDeleteTask;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * 针对表【object_delete_task(对象删除任务)】的数据库操作Mapper
+ *
+ * @Entity com.baolong.blpicturebackend.model.entity.ObjectDeleteTask
+ */
+public interface ObjectDeleteTaskMapper extends BaseMapper<ObjectDeleteTask> {
+
+}
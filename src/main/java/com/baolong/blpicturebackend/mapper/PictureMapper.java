@@ -1,7 +1,14 @@
 package com.baolong.blpicturebackend.mapper;
 
 import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
 * @author ADMIN
@@ -11,6 +18,43 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 */
 public interface PictureMapper extends BaseMapper<Picture> {
 
+	/**
+	 * 更新图片资源状态, 包括已逻辑删除的图片
+	 *
+	 * @param ids            图片 id 列表
+	 * @param resourceStatus 资源状态
+	 * @return 更新条数
+	 */
+	int updateResourceStatusIncludeDeleted(@Param("ids") Collection<Long> ids, @Param("resourceStatus") Integer resourceStatus);
+
+	/**
+	 * 查询 picture 表上指定名称的索引数量
+	 *
+	 * @param indexName 索引名称
+	 * @return 索引包含的列数, 不存在时为 0
+	 */
+	int countIndex(@Param("indexName") String indexName);
+
+	/**
+	 * 创建名称和简介的全文索引（ngram 分词）
+	 */
+	void createFullTextIndex();
+
+	/**
+	 * 重建 picture 表, 同时重建全文索引并清理已删除的分词
+	 *
+	 * @return 执行结果
+	 */
+	List<Map<String, Object>> optimizeTable();
+
+	/**
+	 * 统计条数, 最多数到 limit 条（只扫描前 limit 条满足条件的数据）
+	 *
+	 * @param queryWrapper 查询条件（自定义 SQL 不会自动拼接逻辑删除条件）
+	 * @param limit        最多统计的条数
+	 * @return 条数, 不超过 limit
+	 */
+	long selectCountLimited(@Param(Constants.WRAPPER) Wrapper<Picture> queryWrapper, @Param("limit") long limit);
 }
 
 
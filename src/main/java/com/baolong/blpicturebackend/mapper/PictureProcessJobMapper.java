@@ -0,0 +1,13 @@
+package com.baolong.blpicturebackend.mapper;
+
+import com.baolong.blpicturebackend.model.entity.PictureProcessJob;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * 针对表【picture_process_job(图片处理任务)】的数据库操作Mapper
+ *
+ * @Entity com.baolong.blpicturebackend.model.entity.PictureProcessJob
+ */
+public interface PictureProcessJobMapper extends BaseMapper<PictureProcessJob> {
+
+}
@@ -0,0 +1,35 @@
+package com.baolong.blpicturebackend.mapper;
+
+import com.baolong.blpicturebackend.model.entity.PictureTag;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 针对表【picture_tag(图片标签关联)】的数据库操作Mapper
+ *
+ * @Entity com.baolong.blpicturebackend.model.entity.PictureTag
+ */
+public interface PictureTagMapper extends BaseMapper<PictureTag> {
+
+	/**
+	 * 批量新增关联, 已存在的关联忽略
+	 *
+	 * @param pictureTagList 关联列表
+	 * @return 新增条数
+	 */
+	int insertIgnoreBatch(@Param("list") Collection<PictureTag> pictureTagList);
+
+	/**
+	 * 查询公共图库中带有指定标签、指定审核状态的图片 id（升序）
+	 *
+	 * @param tagId        标签 id
+	 * @param reviewStatus 审核状态
+	 * @param limit        最多返回条数
+	 * @return 图片 id 列表
+	 */
+	List<Long> listPublicPictureIdByTag(@Param("tagId") Long tagId, @Param("reviewStatus") Integer reviewStatus,
+										@Param("limit") int limit);
+}
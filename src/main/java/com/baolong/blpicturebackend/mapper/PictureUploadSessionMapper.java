@@ -0,0 +1,13 @@
+package com.baolong.blpicturebackend.mapper;
+
+import com.baolong.blpicturebackend.model.entity.PictureUploadSession;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+
+/**
+ * 针对表【picture_upload_session(图片直传会话)】的数据库操作Mapper
+ *
+ * @Entity com.baolong.blpicturebackend.model.entity.PictureUploadSession
+ */
+public interface PictureUploadSessionMapper extends BaseMapper<PictureUploadSession> {
+
+}
@@ -0,0 +1,28 @@
+package com.baolong.blpicturebackend.model.dto.picture;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+
+/**
+ * 图片游标分页查询请求
+ * <p>
+ * 排序字段只支持 id（默认）、createTime、editTime, current 参数不生效
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class PictureCursorQueryRequest extends PictureQueryRequest implements Serializable {
+
+	/**
+	 * 上一页返回的游标, 第一页为空
+	 */
+	private String cursor;
+
+	/**
+	 * 是否统计总条数（默认不统计）
+	 */
+	private boolean needTotal;
+
+	private static final long serialVersionUID = 1L;
+}
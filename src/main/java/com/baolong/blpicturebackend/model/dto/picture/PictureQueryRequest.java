@@ -40,6 +40,11 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
 	 */
 	private List<String> tags;
 
+	/**
+	 * 是否需要同时包含所有标签（默认包含任一标签即可）
+	 */
+	private boolean tagMatchAll;
+
 	/**
 	 * 文件体积
 	 */
@@ -15,6 +15,11 @@ public class PictureUploadByBatchRequest {
 	 */
 	private String searchText;
 
+	/**
+	 * 图片来源, 默认必应
+	 */
+	private String source = "bing";
+
 	/**
 	 * 抓取数量
 	 */
@@ -0,0 +1,34 @@
+package com.baolong.blpicturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 确认图片直传请求
+ */
+@Data
+public class PictureUploadConfirmRequest implements Serializable {
+
+	/**
+	 * 上传会话 id
+	 */
+	private Long uploadId;
+
+	/**
+	 * 图片名称
+	 */
+	private String picName;
+
+	/**
+	 * 分类
+	 */
+	private String category;
+
+	/**
+	 * 标签
+	 */
+	private String tags;
+
+	private static final long serialVersionUID = 1L;
+}
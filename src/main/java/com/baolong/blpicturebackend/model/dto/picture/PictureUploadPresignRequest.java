@@ -0,0 +1,34 @@
+package com.baolong.blpicturebackend.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 申请图片直传地址请求
+ */
+@Data
+public class PictureUploadPresignRequest implements Serializable {
+
+	/**
+	 * 图片 id（用于修改）
+	 */
+	private Long id;
+
+	/**
+	 * 空间 id
+	 */
+	private Long spaceId;
+
+	/**
+	 * 文件名
+	 */
+	private String fileName;
+
+	/**
+	 * 文件大小（字节）
+	 */
+	private Long fileSize;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -28,6 +28,16 @@ public class UploadPictureResult {
 	 */
 	private String originUrl;
 
+	/**
+	 * 原图在存储服务器中的 key
+	 */
+	private String originKey;
+
+	/**
+	 * 是否等待后台处理（格式转换、生成缩略图）
+	 */
+	private boolean processing;
+
 	/**
 	 * 图片名称
 	 */
@@ -62,4 +72,14 @@ public class UploadPictureResult {
 	 * 图片主色调
 	 */
 	private String picColor;
+
+	/**
+	 * 图片调色板（逗号分隔的十六进制颜色, 按占比从高到低）
+	 */
+	private String picPalette;
+
+	/**
+	 * 图片感知哈希（dHash）
+	 */
+	private Long picHash;
 }
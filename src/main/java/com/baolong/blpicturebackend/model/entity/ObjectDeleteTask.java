@@ -0,0 +1,68 @@
+package com.baolong.blpicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 对象删除任务
+ *
+ * @TableName object_delete_task
+ */
+@TableName(value = "object_delete_task")
+@Data
+public class ObjectDeleteTask implements Serializable {
+	/**
+	 * id
+	 */
+	@TableId(type = IdType.AUTO)
+	private Long id;
+
+	/**
+	 * 对象在存储服务器中的 key
+	 */
+	private String objectKey;
+
+	/**
+	 * 图片 id（图片被删除时记录, 文件全部删除后更新图片资源状态）
+	 */
+	private Long pictureId;
+
+	/**
+	 * 任务状态：0-待删除 1-已删除 2-删除失败
+	 */
+	private Integer status;
+
+	/**
+	 * 重试次数
+	 */
+	private Integer retryCount;
+
+	/**
+	 * 下次执行时间
+	 */
+	private Date nextRetryTime;
+
+	/**
+	 * 错误信息
+	 */
+	private String errorMessage;
+
+	/**
+	 * 创建时间
+	 */
+	private Date createTime;
+
+	/**
+	 * 更新时间
+	 */
+	private Date updateTime;
+
+	@TableField(exist = false)
+	private static final long serialVersionUID = 1L;
+}
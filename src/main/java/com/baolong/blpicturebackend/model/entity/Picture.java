@@ -93,6 +93,16 @@ public class Picture implements Serializable {
 	 */
 	private String picColor;
 
+	/**
+	 * 图片调色板（逗号分隔的十六进制颜色, 按占比从高到低）
+	 */
+	private String picPalette;
+
+	/**
+	 * 图片感知哈希（dHash）
+	 */
+	private Long picHash;
+
 	/**
 	 * 创建用户 id
 	 */
@@ -144,7 +154,7 @@ public class Picture implements Serializable {
 	private Integer isDelete;
 
 	/**
-	 * 资源状态：0-存在存储服务器中、1-从存储服务器中删除
+	 * 资源状态：0-存在存储服务器中、1-从存储服务器中删除、2-处理中、3-处理失败
 	 */
 	private Integer resourceStatus;
 
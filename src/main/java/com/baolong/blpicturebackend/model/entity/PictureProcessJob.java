@@ -0,0 +1,63 @@
+package com.baolong.blpicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片处理任务
+ *
+ * @TableName picture_process_job
+ */
+@TableName(value = "picture_process_job")
+@Data
+public class PictureProcessJob implements Serializable {
+	/**
+	 * id
+	 */
+	@TableId(type = IdType.AUTO)
+	private Long id;
+
+	/**
+	 * 图片 id
+	 */
+	private Long pictureId;
+
+	/**
+	 * 原图在存储服务器中的 key
+	 */
+	private String originKey;
+
+	/**
+	 * 任务状态：0-待处理 1-处理中 2-成功 3-失败
+	 */
+	private Integer status;
+
+	/**
+	 * 重试次数
+	 */
+	private Integer retryCount;
+
+	/**
+	 * 错误信息
+	 */
+	private String errorMessage;
+
+	/**
+	 * 创建时间
+	 */
+	private Date createTime;
+
+	/**
+	 * 更新时间
+	 */
+	private Date updateTime;
+
+	@TableField(exist = false)
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,48 @@
+package com.baolong.blpicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片标签关联
+ *
+ * @TableName picture_tag
+ */
+@TableName(value = "picture_tag")
+@Data
+public class PictureTag implements Serializable {
+	/**
+	 * id
+	 */
+	@TableId(type = IdType.AUTO)
+	private Long id;
+
+	/**
+	 * 图片 id
+	 */
+	private Long pictureId;
+
+	/**
+	 * 标签 id（分类标签表中的标签）
+	 */
+	private Long tagId;
+
+	/**
+	 * 图片所属空间 id（为空表示公共图库）
+	 */
+	private Long spaceId;
+
+	/**
+	 * 创建时间
+	 */
+	private Date createTime;
+
+	@TableField(exist = false)
+	private static final long serialVersionUID = 1L;
+}
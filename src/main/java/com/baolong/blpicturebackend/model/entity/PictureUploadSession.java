@@ -0,0 +1,78 @@
+package com.baolong.blpicturebackend.model.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片直传会话
+ *
+ * @TableName picture_upload_session
+ */
+@TableName(value = "picture_upload_session")
+@Data
+public class PictureUploadSession implements Serializable {
+	/**
+	 * id
+	 */
+	@TableId(type = IdType.ASSIGN_ID)
+	private Long id;
+
+	/**
+	 * 对象在存储服务器中的 key
+	 */
+	private String objectKey;
+
+	/**
+	 * 上传用户 id
+	 */
+	private Long userId;
+
+	/**
+	 * 空间 id（为空表示公共图库）
+	 */
+	private Long spaceId;
+
+	/**
+	 * 图片 id（重新上传时记录）
+	 */
+	private Long pictureId;
+
+	/**
+	 * 申请上传的文件大小（预留的空间额度）
+	 */
+	private Long fileSize;
+
+	/**
+	 * 会话状态：0-待上传 1-确认中 2-已确认 3-确认失败 4-已过期
+	 */
+	private Integer status;
+
+	/**
+	 * 过期时间
+	 */
+	private Date expireTime;
+
+	/**
+	 * 错误信息
+	 */
+	private String errorMessage;
+
+	/**
+	 * 创建时间
+	 */
+	private Date createTime;
+
+	/**
+	 * 更新时间
+	 */
+	private Date updateTime;
+
+	@TableField(exist = false)
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,37 @@
+package com.baolong.blpicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 对象删除任务状态枚举
+ */
+@Getter
+public enum ObjectDeleteTaskStatusEnum {
+	PENDING("待删除", 0),
+	SUCCEED("已删除", 1),
+	FAILED("删除失败", 2);
+
+	private final String text;
+	private final int value;
+
+	ObjectDeleteTaskStatusEnum(String text, int value) {
+		this.text = text;
+		this.value = value;
+	}
+
+	/**
+	 * 根据 value 获取枚举
+	 */
+	public static ObjectDeleteTaskStatusEnum getEnumByValue(Integer value) {
+		if (ObjUtil.isEmpty(value)) {
+			return null;
+		}
+		for (ObjectDeleteTaskStatusEnum objectDeleteTaskStatusEnum : ObjectDeleteTaskStatusEnum.values()) {
+			if (objectDeleteTaskStatusEnum.value == value) {
+				return objectDeleteTaskStatusEnum;
+			}
+		}
+		return null;
+	}
+}
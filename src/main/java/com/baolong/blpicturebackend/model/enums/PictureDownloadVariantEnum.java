@@ -0,0 +1,42 @@
+package com.baolong.blpicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片下载的版本
+ */
+@Getter
+public enum PictureDownloadVariantEnum {
+
+	ORIGIN("原图", "origin"),
+	COMPRESSED("压缩图", "compressed"),
+	THUMBNAIL("缩略图", "thumbnail");
+
+	private final String text;
+
+	private final String value;
+
+	PictureDownloadVariantEnum(String text, String value) {
+		this.text = text;
+		this.value = value;
+	}
+
+	/**
+	 * 根据 value 获取枚举
+	 *
+	 * @param value 枚举值的value
+	 * @return 枚举值
+	 */
+	public static PictureDownloadVariantEnum getEnumByValue(String value) {
+		if (ObjUtil.isEmpty(value)) {
+			return null;
+		}
+		for (PictureDownloadVariantEnum anEnum : PictureDownloadVariantEnum.values()) {
+			if (anEnum.value.equals(value)) {
+				return anEnum;
+			}
+		}
+		return null;
+	}
+}
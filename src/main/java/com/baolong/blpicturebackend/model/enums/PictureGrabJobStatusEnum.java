@@ -0,0 +1,38 @@
+package com.baolong.blpicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 批量抓取图片任务状态枚举
+ */
+@Getter
+public enum PictureGrabJobStatusEnum {
+	PENDING("等待中", 0),
+	RUNNING("抓取中", 1),
+	SUCCEED("已完成", 2),
+	FAILED("失败", 3);
+
+	private final String text;
+	private final int value;
+
+	PictureGrabJobStatusEnum(String text, int value) {
+		this.text = text;
+		this.value = value;
+	}
+
+	/**
+	 * 根据 value 获取枚举
+	 */
+	public static PictureGrabJobStatusEnum getEnumByValue(Integer value) {
+		if (ObjUtil.isEmpty(value)) {
+			return null;
+		}
+		for (PictureGrabJobStatusEnum pictureGrabJobStatusEnum : PictureGrabJobStatusEnum.values()) {
+			if (pictureGrabJobStatusEnum.value == value) {
+				return pictureGrabJobStatusEnum;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,39 @@
+package com.baolong.blpicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片处理任务状态枚举
+ */
+@Getter
+public enum PictureProcessJobStatusEnum {
+	PENDING("待处理", 0),
+	RUNNING("处理中", 1),
+	SUCCEED("成功", 2),
+	FAILED("失败", 3),
+	CANCELLED("已取消", 4);
+
+	private final String text;
+	private final int value;
+
+	PictureProcessJobStatusEnum(String text, int value) {
+		this.text = text;
+		this.value = value;
+	}
+
+	/**
+	 * 根据 value 获取枚举
+	 */
+	public static PictureProcessJobStatusEnum getEnumByValue(Integer value) {
+		if (ObjUtil.isEmpty(value)) {
+			return null;
+		}
+		for (PictureProcessJobStatusEnum pictureProcessJobStatusEnum : PictureProcessJobStatusEnum.values()) {
+			if (pictureProcessJobStatusEnum.value == value) {
+				return pictureProcessJobStatusEnum;
+			}
+		}
+		return null;
+	}
+}
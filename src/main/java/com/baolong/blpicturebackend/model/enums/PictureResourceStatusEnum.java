@@ -0,0 +1,38 @@
+package com.baolong.blpicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片资源状态枚举
+ */
+@Getter
+public enum PictureResourceStatusEnum {
+	EXIST("存在存储服务器中", 0),
+	DELETED("从存储服务器中删除", 1),
+	PROCESSING("处理中", 2),
+	PROCESS_FAILED("处理失败", 3);
+
+	private final String text;
+	private final int value;
+
+	PictureResourceStatusEnum(String text, int value) {
+		this.text = text;
+		this.value = value;
+	}
+
+	/**
+	 * 根据 value 获取枚举
+	 */
+	public static PictureResourceStatusEnum getEnumByValue(Integer value) {
+		if (ObjUtil.isEmpty(value)) {
+			return null;
+		}
+		for (PictureResourceStatusEnum pictureResourceStatusEnum : PictureResourceStatusEnum.values()) {
+			if (pictureResourceStatusEnum.value == value) {
+				return pictureResourceStatusEnum;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,39 @@
+package com.baolong.blpicturebackend.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片直传会话状态枚举
+ */
+@Getter
+public enum PictureUploadSessionStatusEnum {
+	PENDING("待上传", 0),
+	CONFIRMING("确认中", 1),
+	CONFIRMED("已确认", 2),
+	FAILED("确认失败", 3),
+	EXPIRED("已过期", 4);
+
+	private final String text;
+	private final int value;
+
+	PictureUploadSessionStatusEnum(String text, int value) {
+		this.text = text;
+		this.value = value;
+	}
+
+	/**
+	 * 根据 value 获取枚举
+	 */
+	public static PictureUploadSessionStatusEnum getEnumByValue(Integer value) {
+		if (ObjUtil.isEmpty(value)) {
+			return null;
+		}
+		for (PictureUploadSessionStatusEnum pictureUploadSessionStatusEnum : PictureUploadSessionStatusEnum.values()) {
+			if (pictureUploadSessionStatusEnum.value == value) {
+				return pictureUploadSessionStatusEnum;
+			}
+		}
+		return null;
+	}
+}
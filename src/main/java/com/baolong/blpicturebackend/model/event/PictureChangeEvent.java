@@ -0,0 +1,82 @@
+package com.baolong.blpicturebackend.model.event;
+
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 图片变更事件
+ * <p>
+ * 图片新增、编辑、删除、审核后发布, 记录受影响的空间、分类和标签, 用于精确失效图片列表缓存
+ */
+@Getter
+public class PictureChangeEvent {
+
+	/**
+	 * 受影响的空间 ID（null 表示公共图库）
+	 */
+	private final Long spaceId;
+
+	/**
+	 * 受影响的分类 ID（变更前和变更后）
+	 */
+	private final Set<String> categories = new HashSet<>();
+
+	/**
+	 * 受影响的标签 ID（变更前和变更后）
+	 */
+	private final Set<String> tags = new HashSet<>();
+
+	private PictureChangeEvent(Long spaceId) {
+		this.spaceId = spaceId;
+	}
+
+	/**
+	 * 构建图片变更事件
+	 *
+	 * @param spaceId  图片所属空间 ID
+	 * @param pictures 变更前后的图片（可以为 null）
+	 * @return 图片变更事件
+	 */
+	public static PictureChangeEvent of(Long spaceId, Picture... pictures) {
+		return of(spaceId, pictures == null ? Collections.emptyList() : Arrays.asList(pictures));
+	}
+
+	/**
+	 * 构建图片变更事件
+	 *
+	 * @param spaceId     图片所属空间 ID
+	 * @param pictureList 变更前后的图片
+	 * @return 图片变更事件
+	 */
+	public static PictureChangeEvent of(Long spaceId, Collection<Picture> pictureList) {
+		return new PictureChangeEvent(spaceId).addPictures(pictureList);
+	}
+
+	/**
+	 * 追加受影响的图片（例如批量修改后的图片）
+	 *
+	 * @param pictureList 图片列表
+	 * @return 图片变更事件
+	 */
+	public PictureChangeEvent addPictures(Collection<Picture> pictureList) {
+		for (Picture picture : pictureList) {
+			if (picture == null) {
+				continue;
+			}
+			if (StrUtil.isNotBlank(picture.getCategory())) {
+				this.categories.add(picture.getCategory());
+			}
+			if (StrUtil.isNotBlank(picture.getTags())) {
+				this.tags.addAll(StrUtil.split(picture.getTags(), ",", true, true));
+			}
+		}
+		return this;
+	}
+}
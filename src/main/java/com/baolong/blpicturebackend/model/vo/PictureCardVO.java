@@ -0,0 +1,96 @@
+package com.baolong.blpicturebackend.model.vo;
+
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.model.entity.Picture;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 图片卡片（列表展示用的精简封装类）
+ */
+@Data
+public class PictureCardVO implements Serializable {
+
+	/**
+	 * id
+	 */
+	private Long id;
+
+	/**
+	 * 图片名称
+	 */
+	private String name;
+
+	/**
+	 * 缩略图 url, 还没有缩略图时为图片 url
+	 */
+	private String thumbnailUrl;
+
+	/**
+	 * 图片宽度
+	 */
+	private Integer picWidth;
+
+	/**
+	 * 图片高度
+	 */
+	private Integer picHeight;
+
+	/**
+	 * 图片比例
+	 */
+	private Double picScale;
+
+	/**
+	 * 用户 id
+	 */
+	private Long userId;
+
+	/**
+	 * 创建用户名称
+	 */
+	private String userName;
+
+	/**
+	 * 创建用户头像
+	 */
+	private String userAvatar;
+
+	/**
+	 * 标签
+	 */
+	private List<String> tags;
+
+	/**
+	 * 标签 id 列表
+	 */
+	private List<Long> tagIds;
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 对象转封装类
+	 */
+	public static PictureCardVO objToVo(Picture picture) {
+		if (picture == null) {
+			return null;
+		}
+		PictureCardVO pictureCardVO = new PictureCardVO();
+		pictureCardVO.setId(picture.getId());
+		pictureCardVO.setName(picture.getName());
+		pictureCardVO.setThumbnailUrl(StrUtil.blankToDefault(picture.getThumbnailUrl(), picture.getUrl()));
+		pictureCardVO.setPicWidth(picture.getPicWidth());
+		pictureCardVO.setPicHeight(picture.getPicHeight());
+		pictureCardVO.setPicScale(picture.getPicScale());
+		pictureCardVO.setUserId(picture.getUserId());
+		// 把原来标签格式转为List
+		if (StrUtil.isNotBlank(picture.getTags())) {
+			pictureCardVO.setTags(Arrays.stream(picture.getTags().split(",")).collect(Collectors.toList()));
+		}
+		return pictureCardVO;
+	}
+}
@@ -0,0 +1,77 @@
+package com.baolong.blpicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 批量抓取图片任务
+ */
+@Data
+public class PictureGrabJobVO implements Serializable {
+
+	/**
+	 * 任务 id
+	 */
+	private String jobId;
+
+	/**
+	 * 创建用户 id
+	 */
+	private Long userId;
+
+	/**
+	 * 关键词
+	 */
+	private String searchText;
+
+	/**
+	 * 抓取数量
+	 */
+	private Integer count;
+
+	/**
+	 * 任务状态：0-等待中 1-抓取中 2-已完成 3-失败
+	 */
+	private Integer status;
+
+	/**
+	 * 候选图片数
+	 */
+	private Integer candidateCount;
+
+	/**
+	 * 上传成功数
+	 */
+	private Integer succeedCount;
+
+	/**
+	 * 上传失败数
+	 */
+	private Integer failedCount;
+
+	/**
+	 * 上传成功的图片 id, 按来源顺序
+	 */
+	private List<Long> pictureIds = new ArrayList<>();
+
+	/**
+	 * 错误信息
+	 */
+	private String errorMessage;
+
+	/**
+	 * 创建时间
+	 */
+	private Date createTime;
+
+	/**
+	 * 完成时间
+	 */
+	private Date finishTime;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,35 @@
+package com.baolong.blpicturebackend.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 图片直传地址
+ */
+@Data
+public class PictureUploadPresignVO implements Serializable {
+
+	/**
+	 * 上传会话 id, 上传完成后用于确认
+	 */
+	private Long uploadId;
+
+	/**
+	 * 预签名上传地址（PUT 请求）
+	 */
+	private String uploadUrl;
+
+	/**
+	 * 对象在存储服务器中的 key
+	 */
+	private String objectKey;
+
+	/**
+	 * 过期时间
+	 */
+	private Date expireTime;
+
+	private static final long serialVersionUID = 1L;
+}
@@ -138,6 +138,21 @@ public class PictureVO implements Serializable {
 	 */
 	private List<String> permissionList = new ArrayList<>();
 
+	/**
+	 * 搜索时高亮的名称（命中的词用 em 标签包裹, 其余内容已转义）
+	 */
+	private String nameHighlight;
+
+	/**
+	 * 搜索时高亮的简介片段
+	 */
+	private String introductionHighlight;
+
+	/**
+	 * 上传时返回: 空间中可能已存在相同的图片（仅提示, 不影响上传）
+	 */
+	private Boolean duplicateWarning;
+
 	private static final long serialVersionUID = 1L;
 
 	/**
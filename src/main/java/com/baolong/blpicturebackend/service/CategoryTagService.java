@@ -3,6 +3,10 @@ package com.baolong.blpicturebackend.service;
 import com.baolong.blpicturebackend.model.entity.CategoryTag;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
 * @author ADMIN
 * @description 针对表【category_tag(分类标签表)】的数据库操作Service
@@ -10,4 +14,20 @@ import com.baomidou.mybatisplus.extension.service.IService;
 */
 public interface CategoryTagService extends IService<CategoryTag> {
 
+	/**
+	 * 根据 id 批量获取分类标签
+	 *
+	 * @param ids 分类标签 id 集合
+	 * @return 分类标签 id => 分类标签
+	 */
+	Map<Long, CategoryTag> getCategoryTagMapByIds(Collection<Long> ids);
+
+	/**
+	 * 新增用户输入的标签（已存在的同名标签直接复用）
+	 *
+	 * @param inputTagList 输入的标签名称列表
+	 * @param userId       创建用户 ID
+	 * @return 标签 id 列表
+	 */
+	List<String> saveInputTags(List<String> inputTagList, Long userId);
 }
@@ -1,15 +1,20 @@
 package com.baolong.blpicturebackend.service;
 
 import com.baolong.blpicturebackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.baolong.blpicturebackend.comment.CursorPage;
 import com.baolong.blpicturebackend.model.dto.picture.CreatePictureOutPaintingTaskRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureCursorQueryRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureEditByBatchRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureEditRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureQueryRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureReviewRequest;
-import com.baolong.blpicturebackend.model.dto.picture.PictureUploadByBatchRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureUploadConfirmRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureUploadPresignRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureUploadRequest;
 import com.baolong.blpicturebackend.model.entity.Picture;
 import com.baolong.blpicturebackend.model.entity.User;
+import com.baolong.blpicturebackend.model.vo.PictureUploadPresignVO;
+import com.baolong.blpicturebackend.model.vo.PictureCardVO;
 import com.baolong.blpicturebackend.model.vo.PictureVO;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -37,6 +42,24 @@ public interface PictureService extends IService<Picture> {
 							PictureUploadRequest pictureUploadRequest,
 							User loginUser);
 
+	/**
+	 * 申请图片直传地址: 校验权限和额度后预留空间额度, 返回预签名上传地址
+	 *
+	 * @param pictureUploadPresignRequest 申请直传地址请求
+	 * @param loginUser                   登录的用户
+	 * @return 直传地址
+	 */
+	PictureUploadPresignVO presignUpload(PictureUploadPresignRequest pictureUploadPresignRequest, User loginUser);
+
+	/**
+	 * 确认图片直传: 校验已上传的文件后保存图片信息
+	 *
+	 * @param pictureUploadConfirmRequest 确认直传请求
+	 * @param loginUser                   登录的用户
+	 * @return PictureVO
+	 */
+	PictureVO confirmUpload(PictureUploadConfirmRequest pictureUploadConfirmRequest, User loginUser);
+
 	/**
 	 * 填充审核参数
 	 *
@@ -70,6 +93,23 @@ public interface PictureService extends IService<Picture> {
 	 */
 	Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request);
 
+	/**
+	 * 分页获取图片卡片（按 id 回表, 只查询卡片需要的列）
+	 *
+	 * @param pictureIdPage 只包含图片 id 的分页对象（已排序）
+	 * @return Page<PictureCardVO>
+	 */
+	Page<PictureCardVO> getPictureCardPage(Page<Picture> pictureIdPage);
+
+	/**
+	 * 游标分页获取图片封装（按排序字段和 id 定位, 不使用 offset）
+	 *
+	 * @param pictureCursorQueryRequest 游标查询请求
+	 * @param request                   HttpServletRequest
+	 * @return CursorPage<PictureVO>
+	 */
+	CursorPage<PictureVO> listPictureVOByCursor(PictureCursorQueryRequest pictureCursorQueryRequest, HttpServletRequest request);
+
 	/**
 	 * 获取查询条件
 	 *
@@ -86,21 +126,13 @@ public interface PictureService extends IService<Picture> {
 	 */
 	void doPictureReview(PictureReviewRequest pictureReviewRequest, User loginUser);
 
-	/**
-	 * 批量抓取和创建图片
-	 *
-	 * @param pictureUploadByBatchRequest 图片批量上传请求对象
-	 * @param loginUser                   登录用户
-	 * @return 成功创建的图片数
-	 */
-	Integer uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser);
-
 	/**
 	 * 清理图片文件
 	 *
 	 * @param oldPicture 图片对象
+	 * @param deleted    图片是否已删除（文件全部删除后更新资源状态）, 重新上传时为 false
 	 */
-	void clearPictureFile(Picture oldPicture);
+	void clearPictureFile(Picture oldPicture, boolean deleted);
 
 	/**
 	 * 编辑图片
@@ -136,6 +168,15 @@ public interface PictureService extends IService<Picture> {
 	 */
 	List<PictureVO> searchPictureByColor(Long spaceId, String picColor, User loginUser);
 
+	/**
+	 * 根据感知哈希搜索同一空间（或公共图库）中的相似图片
+	 *
+	 * @param picture 图片
+	 * @param limit   返回数量
+	 * @return 图片列表，按相似度从高到低排序
+	 */
+	List<Picture> listSimilarPicture(Picture picture, int limit);
+
 	/**
 	 * 批量编辑图片
 	 *
@@ -1,11 +1,25 @@
 package com.baolong.blpicturebackend.service.impl;
 
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.cache.CategoryTagDictionary;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.baolong.blpicturebackend.model.entity.CategoryTag;
+import com.baolong.blpicturebackend.model.enums.CategoryTagEnum;
 import com.baolong.blpicturebackend.service.CategoryTagService;
 import com.baolong.blpicturebackend.mapper.CategoryTagMapper;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
 * @author ADMIN
 * @description 针对表【category_tag(分类标签表)】的数据库操作Service实现
@@ -15,6 +29,68 @@ import org.springframework.stereotype.Service;
 public class CategoryTagServiceImpl extends ServiceImpl<CategoryTagMapper, CategoryTag>
     implements CategoryTagService{
 
+	@Resource
+	private CategoryTagDictionary categoryTagDictionary;
+
+	/**
+	 * 根据 id 批量获取分类标签
+	 *
+	 * @param ids 分类标签 id 集合
+	 * @return 分类标签 id => 分类标签
+	 */
+	@Override
+	public Map<Long, CategoryTag> getCategoryTagMapByIds(Collection<Long> ids) {
+		if (CollUtil.isEmpty(ids)) {
+			return Collections.emptyMap();
+		}
+		// 从本地字典中获取, 不再查询数据库
+		Map<Long, CategoryTag> categoryTagMap = new HashMap<>(ids.size() * 2);
+		for (Long id : ids) {
+			CategoryTag categoryTag = categoryTagDictionary.getById(id);
+			if (categoryTag != null) {
+				categoryTagMap.put(id, categoryTag);
+			}
+		}
+		return categoryTagMap;
+	}
+
+	/**
+	 * 新增用户输入的标签（已存在的同名标签直接复用）
+	 *
+	 * @param inputTagList 输入的标签名称列表
+	 * @param userId       创建用户 ID
+	 * @return 标签 id 列表
+	 */
+	@Override
+	public List<String> saveInputTags(List<String> inputTagList, Long userId) {
+		List<String> tagIdList = new ArrayList<>();
+		if (CollUtil.isEmpty(inputTagList)) {
+			return tagIdList;
+		}
+		boolean changed = false;
+		for (String tag : inputTagList) {
+			if (StrUtil.isBlank(tag)) {
+				continue;
+			}
+			Long tagId = categoryTagDictionary.getIdByName(CategoryTagEnum.TAG.getValue(), tag);
+			if (tagId == null) {
+				CategoryTag categoryTag = new CategoryTag();
+				categoryTag.setName(tag);
+				categoryTag.setType(CategoryTagEnum.TAG.getValue());
+				categoryTag.setUserId(userId);
+				boolean result = this.save(categoryTag);
+				ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "标签新增失败");
+				tagId = categoryTag.getId();
+				changed = true;
+			}
+			tagIdList.add(String.valueOf(tagId));
+		}
+		// 有新增的标签则刷新字典
+		if (changed) {
+			categoryTagDictionary.refresh();
+		}
+		return tagIdList;
+	}
 }
 
 
@@ -2,73 +2,98 @@ package com.baolong.blpicturebackend.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.baolong.blpicturebackend.api.aliyunai.AliYunAiApi;
 import com.baolong.blpicturebackend.api.aliyunai.model.CreateOutPaintingTaskRequest;
 import com.baolong.blpicturebackend.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.baolong.blpicturebackend.comment.ApproximatePage;
+import com.baolong.blpicturebackend.comment.CursorPage;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
-import com.baolong.blpicturebackend.manager.CosManager;
 import com.baolong.blpicturebackend.manager.FileManager;
+import com.baolong.blpicturebackend.manager.cache.PictureColorIndex;
+import com.baolong.blpicturebackend.manager.cache.PictureCount;
+import com.baolong.blpicturebackend.manager.cache.PictureCountCache;
+import com.baolong.blpicturebackend.manager.cache.PictureHashIndex;
+import com.baolong.blpicturebackend.manager.cache.PictureTagIndex;
+import com.baolong.blpicturebackend.manager.quota.SpaceQuotaManager;
+import com.baolong.blpicturebackend.manager.search.PictureSearchManager;
+import com.baolong.blpicturebackend.manager.storage.ObjectDeleteQueue;
+import com.baolong.blpicturebackend.manager.storage.ObjectStat;
+import com.baolong.blpicturebackend.manager.storage.ObjectStore;
+import com.baolong.blpicturebackend.manager.tag.PictureTagManager;
 import com.baolong.blpicturebackend.manager.upload.FilePictureUpload;
+import com.baolong.blpicturebackend.manager.upload.PictureProcessManager;
+import com.baolong.blpicturebackend.manager.upload.PictureUploadSessionManager;
 import com.baolong.blpicturebackend.manager.upload.PictureUploadTemplate;
+import com.baolong.blpicturebackend.manager.upload.StoredPictureUpload;
 import com.baolong.blpicturebackend.manager.upload.UrlPictureUpload;
 import com.baolong.blpicturebackend.mapper.PictureMapper;
 import com.baolong.blpicturebackend.model.dto.picture.CreatePictureOutPaintingTaskRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureCursor;
+import com.baolong.blpicturebackend.model.dto.picture.PictureCursorQueryRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureEditByBatchRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureEditRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureQueryRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureReviewRequest;
-import com.baolong.blpicturebackend.model.dto.picture.PictureUploadByBatchRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureUploadConfirmRequest;
+import com.baolong.blpicturebackend.model.dto.picture.PictureUploadPresignRequest;
 import com.baolong.blpicturebackend.model.dto.picture.PictureUploadRequest;
 import com.baolong.blpicturebackend.model.dto.picture.UploadPictureResult;
 import com.baolong.blpicturebackend.model.entity.CategoryTag;
 import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baolong.blpicturebackend.model.entity.PictureUploadSession;
 import com.baolong.blpicturebackend.model.entity.Space;
 import com.baolong.blpicturebackend.model.entity.User;
 import com.baolong.blpicturebackend.model.enums.CategoryTagEnum;
+import com.baolong.blpicturebackend.model.event.PictureChangeEvent;
 import com.baolong.blpicturebackend.model.enums.PictureReviewStatusEnum;
+import com.baolong.blpicturebackend.model.enums.PictureResourceStatusEnum;
+import com.baolong.blpicturebackend.model.vo.PictureUploadPresignVO;
+import com.baolong.blpicturebackend.model.vo.PictureCardVO;
 import com.baolong.blpicturebackend.model.vo.PictureVO;
 import com.baolong.blpicturebackend.model.vo.UserVO;
 import com.baolong.blpicturebackend.service.CategoryTagService;
 import com.baolong.blpicturebackend.service.PictureService;
 import com.baolong.blpicturebackend.service.SpaceService;
 import com.baolong.blpicturebackend.service.UserService;
-import com.baolong.blpicturebackend.utils.ColorSimilarUtils;
+import com.baolong.blpicturebackend.utils.ImageHashUtils;
+import com.baolong.blpicturebackend.utils.PictureCursorUtils;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.springframework.beans.BeanUtils;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.awt.*;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * @author ADMIN
@@ -91,7 +116,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 	@Resource
 	private UrlPictureUpload urlPictureUpload;
 	@Resource
-	private CosManager cosManager;
+	private ObjectStore objectStore;
+
+	@Resource
+	private ObjectDeleteQueue objectDeleteQueue;
 	@Resource
 	private SpaceService spaceService;
 
@@ -101,6 +129,51 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 	@Resource
 	private AliYunAiApi aliYunAiApi;
 
+	@Resource
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@Resource
+	private PictureColorIndex pictureColorIndex;
+
+	@Resource
+	private PictureHashIndex pictureHashIndex;
+
+	@Resource
+	private PictureProcessManager pictureProcessManager;
+
+	@Resource
+	private StoredPictureUpload storedPictureUpload;
+
+	@Resource
+	private PictureUploadSessionManager pictureUploadSessionManager;
+
+	@Resource
+	private SpaceQuotaManager spaceQuotaManager;
+
+	@Resource
+	private PictureTagManager pictureTagManager;
+
+	@Resource
+	private PictureTagIndex pictureTagIndex;
+
+	@Resource
+	private PictureSearchManager pictureSearchManager;
+
+	@Resource
+	private PictureCountCache pictureCountCache;
+
+	/**
+	 * 直传文件的最大大小（字节）, 默认 10MB
+	 */
+	@Value("${picture.upload.direct.max-file-size:10485760}")
+	private long directUploadMaxFileSize;
+
+	/**
+	 * 直传地址的有效期（秒）, 超时未确认的上传释放预留的额度
+	 */
+	@Value("${picture.upload.direct.expire-seconds:900}")
+	private int directUploadExpireSeconds;
+
 	/**
 	 * 上传图片
 	 *
@@ -122,15 +195,6 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 			// if (!loginUser.getId().equals(space.getUserId())) {
 			// 	throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间权限");
 			// }
-
-			// 校验额度
-			if (space.getTotalCount() >= space.getMaxCount()) {
-				throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间条数不足");
-			}
-			if (space.getTotalSize() >= space.getMaxSize()) {
-				throw new BusinessException(ErrorCode.OPERATION_ERROR, "空间大小不足");
-			}
-
 		}
 
 		// 用于判断是新增还是更新图片
@@ -139,8 +203,9 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 			pictureId = pictureUploadRequest.getId();
 		}
 		// 如果是更新图片，需要校验图片是否存在
+		Picture oldPicture = null;
 		if (pictureId != null) {
-			Picture oldPicture = this.getById(pictureId);
+			oldPicture = this.getById(pictureId);
 			ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
 			// // 仅本人或管理员可编辑  这里改为了注解校验
 			// if (!oldPicture.getUserId().equals(loginUser.getId()) && !userService.isAdmin(loginUser)) {
@@ -159,9 +224,6 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 					throw new BusinessException(ErrorCode.PARAMS_ERROR, "空间 id 不一致");
 				}
 			}
-
-			// 删除 COS 的文件
-			this.clearPictureFile(oldPicture);
 		}
 
 		// 上传图片，得到信息
@@ -178,7 +240,196 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		if (inputSource instanceof String) {
 			pictureUploadTemplate = urlPictureUpload;
 		}
-		UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+		// 读取文件后、上传到对象存储之前判断重复图片, 并按文件大小原子地预留空间额度, 额度不足时不占用存储; 重新上传不占用条数
+		Long finalSpaceId = spaceId;
+		Long finalPictureId = pictureId;
+		String finalQuotaToken = spaceId == null ? null : IdUtil.fastSimpleUUID();
+		long reserveCount = oldPicture == null ? 1 : 0;
+		Picture finalOldPicture = oldPicture;
+		AtomicBoolean duplicate = new AtomicBoolean();
+		try {
+			UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix, (fileSize, picHash) -> {
+				// 重复图片只做提示, 重新上传时排除原图片
+				duplicate.set(this.hasDuplicatePicture(finalSpaceId, picHash, finalPictureId));
+				if (finalSpaceId != null) {
+					spaceQuotaManager.reserve(finalSpaceId, finalQuotaToken, fileSize, reserveCount);
+				}
+			});
+			// 保存图片信息, 事务提交后按实际大小提交预留的额度
+			PictureVO pictureVO = this.savePicture(uploadPictureResult, pictureUploadRequest, spaceId, oldPicture, loginUser, picture -> {
+				if (finalSpaceId != null) {
+					commitQuota(finalSpaceId, finalQuotaToken, picture, finalOldPicture);
+				}
+			});
+			pictureVO.setDuplicateWarning(duplicate.get());
+			return pictureVO;
+		} catch (RuntimeException e) {
+			// 上传或保存失败时释放预留（未预留或已提交的预留不受影响）
+			if (finalSpaceId != null) {
+				spaceQuotaManager.release(finalSpaceId, finalQuotaToken);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * 申请图片直传地址
+	 *
+	 * @param pictureUploadPresignRequest 申请直传地址请求
+	 * @param loginUser                   登录的用户
+	 * @return 直传地址
+	 */
+	@Override
+	public PictureUploadPresignVO presignUpload(PictureUploadPresignRequest pictureUploadPresignRequest, User loginUser) {
+		ThrowUtils.throwIf(pictureUploadPresignRequest == null, ErrorCode.PARAMS_ERROR);
+		ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+		// 校验文件
+		String fileName = pictureUploadPresignRequest.getFileName();
+		Long fileSize = pictureUploadPresignRequest.getFileSize();
+		ThrowUtils.throwIf(StrUtil.isBlank(fileName) || fileSize == null || fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件不能为空");
+		ThrowUtils.throwIf(fileSize > directUploadMaxFileSize, ErrorCode.PARAMS_ERROR,
+				"文件大小不能超过 " + FileUtil.readableFileSize(directUploadMaxFileSize));
+		final List<String> ALLOW_FORMAT_LIST = Arrays.asList("jpeg", "jpg", "png", "webp", "gif");
+		ThrowUtils.throwIf(!ALLOW_FORMAT_LIST.contains(FileUtil.getSuffix(fileName)), ErrorCode.PARAMS_ERROR, "文件类型错误");
+
+		// 校验空间是否存在
+		Long spaceId = pictureUploadPresignRequest.getSpaceId();
+		if (spaceId != null) {
+			Space space = spaceService.getById(spaceId);
+			ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+		}
+		// 如果是重新上传, 需要校验图片是否存在, 空间必须和原有图片一致
+		Long pictureId = pictureUploadPresignRequest.getId();
+		if (pictureId != null) {
+			Picture oldPicture = this.getById(pictureId);
+			ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+			if (spaceId == null) {
+				spaceId = oldPicture.getSpaceId();
+			} else if (ObjUtil.notEqual(spaceId, oldPicture.getSpaceId())) {
+				throw new BusinessException(ErrorCode.PARAMS_ERROR, "空间 id 不一致");
+			}
+		}
+
+		// 按照空间划分目录, 和服务端上传一致
+		String uploadPathPrefix = spaceId == null
+				? String.format("public/%s", loginUser.getId())
+				: String.format("space/%s", spaceId);
+		String objectKey = ObjectStore.normalizeKey(PictureUploadTemplate.buildUploadPath(uploadPathPrefix, fileName));
+		Date expireTime = DateUtil.offsetSecond(new Date(), directUploadExpireSeconds);
+		// 预留额度并创建会话
+		PictureUploadSession session = pictureUploadSessionManager.create(loginUser.getId(), spaceId,
+				pictureId, objectKey, fileSize, expireTime);
+
+		PictureUploadPresignVO pictureUploadPresignVO = new PictureUploadPresignVO();
+		pictureUploadPresignVO.setUploadId(session.getId());
+		pictureUploadPresignVO.setUploadUrl(objectStore.presignPutUrl(objectKey, directUploadExpireSeconds));
+		pictureUploadPresignVO.setObjectKey(objectKey);
+		pictureUploadPresignVO.setExpireTime(expireTime);
+		return pictureUploadPresignVO;
+	}
+
+	/**
+	 * 确认图片直传
+	 *
+	 * @param pictureUploadConfirmRequest 确认直传请求
+	 * @param loginUser                   登录的用户
+	 * @return PictureVO
+	 */
+	@Override
+	public PictureVO confirmUpload(PictureUploadConfirmRequest pictureUploadConfirmRequest, User loginUser) {
+		ThrowUtils.throwIf(pictureUploadConfirmRequest == null || pictureUploadConfirmRequest.getUploadId() == null,
+				ErrorCode.PARAMS_ERROR);
+		ThrowUtils.throwIf(loginUser == null, ErrorCode.NO_AUTH_ERROR);
+		PictureUploadSession session = pictureUploadSessionManager.getPendingSession(
+				pictureUploadConfirmRequest.getUploadId(), loginUser.getId());
+		// 文件未上传完成时会话保持不变, 可以稍后重试
+		ObjectStat objectStat;
+		try {
+			objectStat = objectStore.statObject(session.getObjectKey());
+		} catch (BusinessException e) {
+			throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件未上传");
+		}
+		pictureUploadSessionManager.claim(session);
+		try {
+			ThrowUtils.throwIf(objectStat.getSize() > session.getFileSize(), ErrorCode.PARAMS_ERROR, "文件大小超过申请的大小");
+			Long spaceId = session.getSpaceId();
+			Picture oldPicture = null;
+			if (session.getPictureId() != null) {
+				oldPicture = this.getById(session.getPictureId());
+				ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR, "图片不存在");
+			}
+			// 读取已上传的文件, 在生成缩略图等处理之前判断重复图片（额度在申请直传地址时已预留）
+			// 重复图片只做提示, 重新上传时排除原图片
+			AtomicBoolean duplicate = new AtomicBoolean();
+			UploadPictureResult uploadPictureResult = storedPictureUpload.uploadPicture(objectStat, null,
+					(fileSize, picHash) -> duplicate.set(this.hasDuplicatePicture(spaceId, picHash, session.getPictureId())));
+			PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+			BeanUtils.copyProperties(pictureUploadConfirmRequest, pictureUploadRequest);
+			pictureUploadRequest.setId(session.getPictureId());
+			pictureUploadRequest.setSpaceId(spaceId);
+			// 保存图片信息, 在同一个事务中标记会话已确认, 事务提交后按实际大小提交预留的额度
+			Picture finalOldPicture = oldPicture;
+			PictureVO pictureVO = this.savePicture(uploadPictureResult, pictureUploadRequest, spaceId, oldPicture, loginUser, picture -> {
+				pictureUploadSessionManager.markConfirmed(session);
+				if (spaceId != null) {
+					commitQuota(spaceId, PictureUploadSessionManager.getQuotaToken(session), picture, finalOldPicture);
+				}
+			});
+			pictureVO.setDuplicateWarning(duplicate.get());
+			return pictureVO;
+		} catch (RuntimeException e) {
+			pictureUploadSessionManager.fail(session, e.getMessage());
+			throw e;
+		}
+	}
+
+	/**
+	 * 判断空间中是否已有重复的图片（公共图库只比较已过审的图片）
+	 * <p>
+	 * 纯色、渐变等细节过少的图片哈希几乎相同, 不做判断, 避免误报
+	 *
+	 * @param spaceId          空间 id, 为空表示公共图库
+	 * @param picHash          图片感知哈希, 可为空
+	 * @param excludePictureId 排除的图片 id（重新上传时为原图片 id）, 可为空
+	 * @return 是否存在重复图片
+	 */
+	private boolean hasDuplicatePicture(Long spaceId, Long picHash, Long excludePictureId) {
+		if (picHash == null || ImageHashUtils.isLowDetail(picHash)) {
+			return false;
+		}
+		return pictureHashIndex.findDuplicate(spaceId, picHash, excludePictureId) != null;
+	}
+
+	/**
+	 * 提交预留的空间额度: 新增图片占用大小和条数, 重新上传只计算和原图片的大小差
+	 *
+	 * @param spaceId    空间 id
+	 * @param quotaToken 预留标识
+	 * @param picture    入库的图片
+	 * @param oldPicture 重新上传时的原图片
+	 */
+	private void commitQuota(Long spaceId, String quotaToken, Picture picture, Picture oldPicture) {
+		if (oldPicture == null) {
+			spaceQuotaManager.commit(spaceId, quotaToken, picture.getPicSize(), 1);
+		} else {
+			spaceQuotaManager.commit(spaceId, quotaToken, picture.getPicSize() - oldPicture.getPicSize(), 0);
+		}
+	}
+
+	/**
+	 * 保存上传的图片信息（新增或重新上传）
+	 *
+	 * @param uploadPictureResult  上传结果
+	 * @param pictureUploadRequest 上传图片的请求对象
+	 * @param spaceId              空间 id
+	 * @param oldPicture           重新上传时的原图片
+	 * @param loginUser            登录的用户
+	 * @param quotaUpdater         更新空间额度, 在保存图片的事务中执行
+	 * @return PictureVO
+	 */
+	private PictureVO savePicture(UploadPictureResult uploadPictureResult, PictureUploadRequest pictureUploadRequest,
+								  Long spaceId, Picture oldPicture, User loginUser, Consumer<Picture> quotaUpdater) {
+		Long pictureId = oldPicture == null ? null : oldPicture.getId();
 		// 构造要入库的图片信息
 		Picture picture = new Picture();
 		picture.setUrl(uploadPictureResult.getUrl());
@@ -208,6 +459,13 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		picture.setPicFormat(uploadPictureResult.getPicFormat());
 		// 存储图片主色调
 		picture.setPicColor(uploadPictureResult.getPicColor());
+		picture.setPicPalette(uploadPictureResult.getPicPalette());
+		// 存储图片感知哈希
+		picture.setPicHash(uploadPictureResult.getPicHash());
+		// 异步处理时先保存原图, 处理完成后再更新为正常状态
+		picture.setResourceStatus(uploadPictureResult.isProcessing()
+				? PictureResourceStatusEnum.PROCESSING.getValue()
+				: PictureResourceStatusEnum.EXIST.getValue());
 
 		picture.setUserId(loginUser.getId());
 		// 补充审核参数
@@ -220,20 +478,26 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		}
 
 		// 开启事务
-		Long finalSpaceId = spaceId;
 		transactionTemplate.execute(status -> {
 			boolean result = this.saveOrUpdate(picture);
 			ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR, "图片上传失败");
-			if (finalSpaceId != null) {
-				boolean update = spaceService.lambdaUpdate()
-						.eq(Space::getId, finalSpaceId)
-						.setSql("totalSize = totalSize + " + picture.getPicSize())
-						.setSql("totalCount = totalCount + 1")
-						.update();
-				ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
+			pictureTagManager.syncTags(picture.getId(), spaceId, picture.getTags());
+			quotaUpdater.accept(picture);
+			// 创建后台处理任务, 事务提交后执行
+			if (uploadPictureResult.isProcessing()) {
+				pictureProcessManager.createJob(picture, uploadPictureResult.getOriginKey());
+			}
+			// 新图片入库后再删除原图片在存储服务器中的文件
+			if (oldPicture != null) {
+				this.clearPictureFile(oldPicture, false);
 			}
 			return picture;
 		});
+		// 发布图片变更事件, 失效图片列表缓存
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(spaceId, oldPicture, picture));
+		// 更新空间主色调索引和感知哈希索引
+		pictureColorIndex.put(picture);
+		pictureHashIndex.put(picture);
 
 		return PictureVO.objToVo(picture);
 	}
@@ -299,33 +563,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 			pictureVO.setUser(userVO);
 		}
 		// 查询当前图片的分类和标签的信息
-		List<String> ctIds = new ArrayList<>();
-		if (StrUtil.isNotBlank(picture.getTags())) {
-			ctIds.addAll(Arrays.stream(picture.getTags().split(",")).collect(Collectors.toList()));
-		}
-		if (StrUtil.isNotBlank(picture.getCategory())) {
-			ctIds.add(picture.getCategory());
-		}
-		if (!ctIds.isEmpty()) {
-			List<CategoryTag> categoryTagList = categoryTagService.list(new LambdaQueryWrapper<CategoryTag>()
-					.in(CategoryTag::getId, ctIds)
-			);
-			Map<Integer, List<CategoryTag>> typeMap = categoryTagList.stream().collect(Collectors.groupingBy(CategoryTag::getType));
-			if (typeMap.get(CategoryTagEnum.CATEGORY.getValue()) != null) {
-				pictureVO.setCategory(typeMap.get(CategoryTagEnum.CATEGORY.getValue()).get(0).getName());
-				pictureVO.setCategoryId(typeMap.get(CategoryTagEnum.CATEGORY.getValue()).get(0).getId());
-			}
-			if (typeMap.get(CategoryTagEnum.TAG.getValue()) != null) {
-				pictureVO.setTags(typeMap.get(CategoryTagEnum.TAG.getValue())
-						.stream()
-						.map(CategoryTag::getName)
-						.collect(Collectors.toList()));
-				pictureVO.setTagIds(typeMap.get(CategoryTagEnum.TAG.getValue())
-						.stream()
-						.map(CategoryTag::getId)
-						.collect(Collectors.toList()));
-			}
-		}
+		this.fillPictureCategoryTag(Collections.singletonList(pictureVO));
 		return pictureVO;
 	}
 
@@ -339,7 +577,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 	@Override
 	public Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request) {
 		List<Picture> pictureList = picturePage.getRecords();
-		Page<PictureVO> pictureVOPage = new Page<>(picturePage.getCurrent(), picturePage.getSize(), picturePage.getTotal());
+		Page<PictureVO> pictureVOPage = ApproximatePage.of(picturePage);
 		if (CollUtil.isEmpty(pictureList)) {
 			return pictureVOPage;
 		}
@@ -357,32 +595,199 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 				user = userIdUserListMap.get(userId).get(0);
 			}
 			pictureVO.setUser(userService.getUserVO(user));
-			// 查询当前图片的分类和标签信息
-			List<String> ctIds = new ArrayList<>();
-			if (pictureVO.getTags() != null && !pictureVO.getTags().isEmpty()) {
-				ctIds.addAll(pictureVO.getTags());
+		});
+		// 3. 整页统一查询分类和标签信息
+		this.fillPictureCategoryTag(pictureVOList);
+		pictureVOPage.setRecords(pictureVOList);
+		return pictureVOPage;
+	}
+
+	/**
+	 * 分页获取图片卡片
+	 * <p>
+	 * 第一步只查询图片 id（条件和排序列都在索引中时不需要回表）, 这里再按主键查询这一页卡片需要的列,
+	 * 不读取简介、审核信息和原图、压缩图地址等列
+	 *
+	 * @param pictureIdPage 只包含图片 id 的分页对象（已排序）
+	 * @return Page<PictureCardVO>
+	 */
+	@Override
+	public Page<PictureCardVO> getPictureCardPage(Page<Picture> pictureIdPage) {
+		Page<PictureCardVO> pictureCardPage = ApproximatePage.of(pictureIdPage);
+		List<Long> pictureIdList = pictureIdPage.getRecords().stream().map(Picture::getId).collect(Collectors.toList());
+		if (pictureIdList.isEmpty()) {
+			return pictureCardPage;
+		}
+		// 1. 按主键查询卡片需要的列, 保持第一步的顺序
+		Map<Long, Picture> pictureMap = this.list(new LambdaQueryWrapper<Picture>()
+						.select(Picture::getId, Picture::getName, Picture::getUrl, Picture::getThumbnailUrl,
+								Picture::getPicWidth, Picture::getPicHeight, Picture::getPicScale,
+								Picture::getUserId, Picture::getTags)
+						.in(Picture::getId, pictureIdList))
+				.stream()
+				.collect(Collectors.toMap(Picture::getId, picture -> picture));
+		List<PictureCardVO> pictureCardList = pictureIdList.stream()
+				.map(pictureMap::get)
+				.filter(Objects::nonNull)
+				.map(PictureCardVO::objToVo)
+				.collect(Collectors.toList());
+		// 2. 只查询用户名称和头像
+		Set<Long> userIdSet = pictureCardList.stream().map(PictureCardVO::getUserId).collect(Collectors.toSet());
+		Map<Long, User> userMap = userService.list(new LambdaQueryWrapper<User>()
+						.select(User::getId, User::getUserName, User::getUserAvatar)
+						.in(User::getId, userIdSet))
+				.stream()
+				.collect(Collectors.toMap(User::getId, user -> user));
+		// 3. 整页统一查询标签信息
+		Set<Long> tagIdSet = pictureCardList.stream()
+				.filter(pictureCardVO -> CollUtil.isNotEmpty(pictureCardVO.getTags()))
+				.flatMap(pictureCardVO -> pictureCardVO.getTags().stream())
+				.filter(NumberUtil::isLong)
+				.map(Long::valueOf)
+				.collect(Collectors.toSet());
+		Map<Long, CategoryTag> tagMap = tagIdSet.isEmpty() ? Collections.emptyMap()
+				: categoryTagService.getCategoryTagMapByIds(tagIdSet);
+		pictureCardList.forEach(pictureCardVO -> {
+			User user = userMap.get(pictureCardVO.getUserId());
+			if (user != null) {
+				pictureCardVO.setUserName(user.getUserName());
+				pictureCardVO.setUserAvatar(user.getUserAvatar());
 			}
-			if (StrUtil.isNotBlank(pictureVO.getCategory())) {
-				ctIds.add(pictureVO.getCategory());
+			if (CollUtil.isNotEmpty(pictureCardVO.getTags())) {
+				List<CategoryTag> tagList = pictureCardVO.getTags().stream()
+						.filter(NumberUtil::isLong)
+						.map(tagId -> tagMap.get(Long.valueOf(tagId)))
+						.filter(tag -> tag != null && CategoryTagEnum.TAG.getValue().equals(tag.getType()))
+						.collect(Collectors.toList());
+				// 标签已删除等无法解析时不返回原始 id, 避免被当作标签名称展示
+				pictureCardVO.setTags(tagList.stream().map(CategoryTag::getName).collect(Collectors.toList()));
+				pictureCardVO.setTagIds(tagList.stream().map(CategoryTag::getId).collect(Collectors.toList()));
 			}
-			if (!ctIds.isEmpty()) {
-				List<CategoryTag> categoryTagList = categoryTagService.list(new LambdaQueryWrapper<CategoryTag>()
-						.in(CategoryTag::getId, ctIds)
-				);
-				Map<Integer, List<CategoryTag>> typeMap = categoryTagList.stream().collect(Collectors.groupingBy(CategoryTag::getType));
-				if (typeMap.get(CategoryTagEnum.CATEGORY.getValue()) != null) {
-					pictureVO.setCategory(typeMap.get(CategoryTagEnum.CATEGORY.getValue()).get(0).getName());
+		});
+		pictureCardPage.setRecords(pictureCardList);
+		return pictureCardPage;
+	}
+
+	/**
+	 * 游标分页获取图片封装
+	 * <p>
+	 * 按 (排序字段, id) 定位到上一页最后一条之后, 多查一条判断是否还有下一页, 默认不统计总条数
+	 *
+	 * @param pictureCursorQueryRequest 游标查询请求
+	 * @param request                   HttpServletRequest
+	 * @return CursorPage<PictureVO>
+	 */
+	@Override
+	public CursorPage<PictureVO> listPictureVOByCursor(PictureCursorQueryRequest pictureCursorQueryRequest, HttpServletRequest request) {
+		int size = pictureCursorQueryRequest.getPageSize();
+		ThrowUtils.throwIf(size <= 0 || size > 20, ErrorCode.PARAMS_ERROR);
+		// 排序字段只能是非空且有索引的列
+		String sortField = StrUtil.blankToDefault(pictureCursorQueryRequest.getSortField(), "id");
+		ThrowUtils.throwIf(!PictureCursorUtils.SORT_FIELDS.contains(sortField), ErrorCode.PARAMS_ERROR, "不支持的排序字段");
+		boolean asc = "ascend".equals(pictureCursorQueryRequest.getSortOrder());
+		PictureCursor cursor = PictureCursorUtils.decode(pictureCursorQueryRequest.getCursor());
+		ThrowUtils.throwIf(cursor != null && (!sortField.equals(cursor.getSortField()) || asc != cursor.isAsc()),
+				ErrorCode.PARAMS_ERROR, "游标与排序条件不匹配");
+
+		// 排序由游标条件决定, 不使用查询条件中的排序
+		pictureCursorQueryRequest.setSortField(null);
+		QueryWrapper<Picture> queryWrapper = this.getQueryWrapper(pictureCursorQueryRequest);
+		CursorPage<PictureVO> cursorPage = new CursorPage<>();
+		if (pictureCursorQueryRequest.isNeedTotal()) {
+			PictureCount pictureCount = pictureCountCache.get(pictureCursorQueryRequest, this::getQueryWrapper);
+			cursorPage.setTotal(pictureCount.getTotal());
+			cursorPage.setTotalApproximate(pictureCount.isApproximate());
+		}
+		if (cursor != null) {
+			if ("id".equals(sortField)) {
+				queryWrapper.gt(asc, "id", cursor.getId());
+				queryWrapper.lt(!asc, "id", cursor.getId());
+			} else {
+				// 行比较可以直接使用 (spaceId, 排序字段) 索引（隐含 id）定位
+				queryWrapper.apply("(" + sortField + ", id) " + (asc ? ">" : "<") + " ({0}, {1})",
+						new Date(cursor.getValue()), cursor.getId());
+			}
+		}
+		queryWrapper.orderBy(!"id".equals(sortField), asc, sortField);
+		queryWrapper.orderBy(true, asc, "id");
+		queryWrapper.last("limit " + (size + 1));
+		// 带搜索词时按游标的排序字段返回, 不按相关度排序
+		long startTime = System.nanoTime();
+		List<Picture> pictureList = this.list(queryWrapper);
+		if (StrUtil.isNotBlank(pictureCursorQueryRequest.getSearchText())) {
+			pictureSearchManager.recordQuery(pictureCursorQueryRequest.getSearchText(), System.nanoTime() - startTime);
+		}
+
+		// 多查的一条只用于判断是否还有下一页
+		boolean hasMore = pictureList.size() > size;
+		if (hasMore) {
+			pictureList = pictureList.subList(0, size);
+			Picture last = pictureList.get(size - 1);
+			PictureCursor nextCursor = new PictureCursor();
+			nextCursor.setSortField(sortField);
+			nextCursor.setAsc(asc);
+			nextCursor.setId(last.getId());
+			if ("createTime".equals(sortField)) {
+				nextCursor.setValue(last.getCreateTime().getTime());
+			} else if ("editTime".equals(sortField)) {
+				nextCursor.setValue(last.getEditTime().getTime());
+			}
+			cursorPage.setNextCursor(PictureCursorUtils.encode(nextCursor));
+		}
+		cursorPage.setHasMore(hasMore);
+		Page<Picture> picturePage = new Page<>(1, size, 0, false);
+		picturePage.setRecords(pictureList);
+		cursorPage.setRecords(this.getPictureVOPage(picturePage, request).getRecords());
+		return cursorPage;
+	}
+
+	/**
+	 * 批量填充图片的分类和标签信息
+	 * <p>
+	 * 先收集整页图片的分类和标签 id, 只查询一次分类标签表, 再按 id 回填名称
+	 *
+	 * @param pictureVOList 图片封装类列表（category、tags 为分类标签 id）
+	 */
+	private void fillPictureCategoryTag(List<PictureVO> pictureVOList) {
+		// 1. 收集分类和标签 id
+		Set<Long> ctIdSet = new HashSet<>();
+		pictureVOList.forEach(pictureVO -> {
+			if (CollUtil.isNotEmpty(pictureVO.getTags())) {
+				pictureVO.getTags().stream()
+						.filter(NumberUtil::isLong)
+						.map(Long::valueOf)
+						.forEach(ctIdSet::add);
+			}
+			if (NumberUtil.isLong(pictureVO.getCategory())) {
+				ctIdSet.add(Long.valueOf(pictureVO.getCategory()));
+			}
+		});
+		if (ctIdSet.isEmpty()) {
+			return;
+		}
+		// 2. 一次查询所有分类和标签
+		Map<Long, CategoryTag> categoryTagMap = categoryTagService.getCategoryTagMapByIds(ctIdSet);
+		// 3. 回填分类和标签信息
+		pictureVOList.forEach(pictureVO -> {
+			if (NumberUtil.isLong(pictureVO.getCategory())) {
+				CategoryTag category = categoryTagMap.get(Long.valueOf(pictureVO.getCategory()));
+				if (category != null && CategoryTagEnum.CATEGORY.getValue().equals(category.getType())) {
+					pictureVO.setCategory(category.getName());
+					pictureVO.setCategoryId(category.getId());
 				}
-				if (typeMap.get(CategoryTagEnum.TAG.getValue()) != null) {
-					pictureVO.setTags(typeMap.get(CategoryTagEnum.TAG.getValue())
-							.stream()
-							.map(CategoryTag::getName)
-							.collect(Collectors.toList()));
+			}
+			if (CollUtil.isNotEmpty(pictureVO.getTags())) {
+				List<CategoryTag> tagList = pictureVO.getTags().stream()
+						.filter(NumberUtil::isLong)
+						.map(tagId -> categoryTagMap.get(Long.valueOf(tagId)))
+						.filter(tag -> tag != null && CategoryTagEnum.TAG.getValue().equals(tag.getType()))
+						.collect(Collectors.toList());
+				if (!tagList.isEmpty()) {
+					pictureVO.setTags(tagList.stream().map(CategoryTag::getName).collect(Collectors.toList()));
+					pictureVO.setTagIds(tagList.stream().map(CategoryTag::getId).collect(Collectors.toList()));
 				}
 			}
 		});
-		pictureVOPage.setRecords(pictureVOList);
-		return pictureVOPage;
 	}
 
 	/**
@@ -409,16 +814,13 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		Double picScale = pictureQueryRequest.getPicScale();
 		String picFormat = pictureQueryRequest.getPicFormat();
 		String searchText = pictureQueryRequest.getSearchText();
+		boolean tagMatchAll = pictureQueryRequest.isTagMatchAll();
 		Long userId = pictureQueryRequest.getUserId();
 		String sortField = pictureQueryRequest.getSortField();
 		String sortOrder = pictureQueryRequest.getSortOrder();
-		// 从多字段中搜索
+		// 从名称和简介中搜索（全文索引）
 		if (StrUtil.isNotBlank(searchText)) {
-			// 需要拼接查询条件
-			queryWrapper.and(qw -> qw.like("name", searchText)
-					.or()
-					.like("introduction", searchText)
-			);
+			pictureSearchManager.fillSearchQueryWrapper(queryWrapper, searchText);
 		}
 		queryWrapper.eq(ObjUtil.isNotEmpty(id), "id", id);
 		queryWrapper.eq(ObjUtil.isNotEmpty(userId), "userId", userId);
@@ -454,18 +856,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		queryWrapper.ge(ObjUtil.isNotEmpty(startEditTime), "editTime", startEditTime);
 		queryWrapper.lt(ObjUtil.isNotEmpty(endEditTime), "editTime", endEditTime);
 
-		// 拼接 分类标签列表的SQL
+		// 按标签筛选, 标签倒排索引只包含公共图库中已过审的图片
 		if (CollUtil.isNotEmpty(tags)) {
-			StringBuilder FIND_IN_SET_SQL = new StringBuilder(" (");
-			for (String tag : tags) {
-				FIND_IN_SET_SQL.append(" FIND_IN_SET (").append(tag).append(", tags) > 0 OR");
-			}
-			// 去掉字符串 FIND_IN_SET_SQL 末尾的 OR
-			if (FIND_IN_SET_SQL.length() > 0 && FIND_IN_SET_SQL.lastIndexOf("OR") != -1) {
-				FIND_IN_SET_SQL.setLength(FIND_IN_SET_SQL.lastIndexOf("OR"));
-			}
-			FIND_IN_SET_SQL.append(") ");
-			queryWrapper.apply(FIND_IN_SET_SQL.toString());
+			boolean publicPassOnly = nullSpaceId && ObjUtil.equals(reviewStatus, PictureReviewStatusEnum.PASS.getValue());
+			fillTagQueryWrapper(queryWrapper, tags, tagMatchAll, publicPassOnly);
 		}
 
 		// 排序
@@ -473,6 +867,52 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		return queryWrapper;
 	}
 
+	/**
+	 * 拼接按标签筛选的条件
+	 * <p>
+	 * 只查询公共图库中已过审的图片时优先使用内存中的标签倒排索引得到图片 id 列表; 否则使用 picture_tag 子查询（走 tagId 索引）,
+	 * 标签 id 都以参数传入
+	 *
+	 * @param queryWrapper   查询条件对象
+	 * @param tags           标签 id 列表
+	 * @param matchAll       是否需要同时包含所有标签
+	 * @param publicPassOnly 是否只查询公共图库中已过审的图片
+	 */
+	private void fillTagQueryWrapper(QueryWrapper<Picture> queryWrapper, List<String> tags, boolean matchAll, boolean publicPassOnly) {
+		List<Long> tagIdList = tags.stream()
+				.filter(NumberUtil::isLong)
+				.map(Long::valueOf)
+				.distinct()
+				.collect(Collectors.toList());
+		if (tagIdList.isEmpty()) {
+			// 没有合法的标签 id, 不会有匹配的图片
+			queryWrapper.apply("1 = 0");
+			return;
+		}
+		List<Long> pictureIdList = publicPassOnly ? pictureTagIndex.matchPublic(tagIdList, matchAll) : null;
+		if (pictureIdList != null) {
+			if (pictureIdList.isEmpty()) {
+				queryWrapper.apply("1 = 0");
+			} else {
+				queryWrapper.in("id", pictureIdList);
+			}
+			return;
+		}
+		// 占位符 {0}、{1} ... 由 MyBatis-Plus 转为预编译参数
+		List<Object> params = new ArrayList<>(tagIdList);
+		String placeholders = IntStream.range(0, tagIdList.size())
+				.mapToObj(i -> "{" + i + "}")
+				.collect(Collectors.joining(","));
+		StringBuilder subQuery = new StringBuilder("id IN (SELECT pictureId FROM picture_tag WHERE tagId IN (")
+				.append(placeholders).append(")");
+		if (matchAll && tagIdList.size() > 1) {
+			subQuery.append(" GROUP BY pictureId HAVING COUNT(*) = {").append(params.size()).append("}");
+			params.add(tagIdList.size());
+		}
+		subQuery.append(")");
+		queryWrapper.apply(subQuery.toString(), params.toArray());
+	}
+
 	/**
 	 * 图片审核
 	 *
@@ -501,141 +941,31 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		updatePicture.setReviewTime(new Date());
 		boolean result = this.updateById(updatePicture);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
-	}
-
-	/**
-	 * 批量抓取和创建图片
-	 *
-	 * @param pictureUploadByBatchRequest 图片批量上传请求对象
-	 * @param loginUser                   登录用户
-	 * @return 成功创建的图片数
-	 */
-	@Override
-	public Integer uploadPictureByBatch(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
-		String searchText = pictureUploadByBatchRequest.getSearchText();
-		// 格式化数量
-		Integer count = pictureUploadByBatchRequest.getCount();
-		// 获取图片名称前缀, 如果没有则默认使用关键词
-		String namePrefix = pictureUploadByBatchRequest.getNamePrefix();
-		if (StrUtil.isBlank(namePrefix)) {
-			namePrefix = searchText;
-		}
-		ThrowUtils.throwIf(count > 30, ErrorCode.PARAMS_ERROR, "最多 30 条");
-		// 要抓取的地址
-		String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", searchText);
-		Document document;
-		try {
-			document = Jsoup.connect(fetchUrl).get();
-		} catch (IOException e) {
-			log.error("获取页面失败", e);
-			throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
-		}
-		Element div = document.getElementsByClass("dgControl").first();
-		if (ObjUtil.isNull(div)) {
-			throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取元素失败");
-		}
-		// TODO 获取高清的图片
-		// Elements imgElementList = div.select("img.mimg");
-		Elements imgElementList = div.select(".iusc");
-		int uploadCount = 0;
-		for (Element imgElement : imgElementList) {
-			// TODO 获取高清的图片 START
-			// String fileUrl = imgElement.attr("src");
-			String dataM = imgElement.attr("m");
-			String fileUrl;
-			try {
-				fileUrl = JSONUtil.parseObj(dataM).getStr("murl");
-			} catch (Exception e) {
-				log.error("解析图片数据失败", e);
-				continue;
-			}
-			// TODO 获取高清的图片 END
-
-			if (StrUtil.isBlank(fileUrl)) {
-				log.info("当前链接为空，已跳过: {}", fileUrl);
-				continue;
-			}
-			// 处理图片上传地址，防止出现转义问题
-			int questionMarkIndex = fileUrl.indexOf("?");
-			if (questionMarkIndex > -1) {
-				fileUrl = fileUrl.substring(0, questionMarkIndex);
-			}
-			// 上传图片
-			PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
-			if (StrUtil.isNotBlank(namePrefix)) {
-				// 设置图片名称，序号连续递增
-				pictureUploadRequest.setPicName(namePrefix + (uploadCount + 1));
-			}
-			if (ObjUtil.isNotEmpty(pictureUploadByBatchRequest.getCategory())) {
-				pictureUploadRequest.setCategory(pictureUploadByBatchRequest.getCategory());
-			}
-			if (pictureUploadByBatchRequest.getTags() != null && !pictureUploadByBatchRequest.getTags().isEmpty()) {
-				pictureUploadRequest.setTags(String.join(",", pictureUploadByBatchRequest.getTags()));
-			}
-
-			try {
-				PictureVO pictureVO = this.uploadPicture(fileUrl, pictureUploadRequest, loginUser);
-				log.info("图片上传成功, id = {}", pictureVO.getId());
-				uploadCount++;
-			} catch (Exception e) {
-				log.error("图片上传失败", e);
-				continue;
-			}
-			if (uploadCount >= count) {
-				break;
-			}
-		}
-		return uploadCount;
+		// 发布图片变更事件, 失效图片列表缓存
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(oldPicture.getSpaceId(), oldPicture));
+		// 公共图库的哈希索引只包含已过审的图片
+		pictureHashIndex.updateReviewStatus(oldPicture, reviewStatus);
 	}
 
 	/**
 	 * 清理图片文件
 	 *
 	 * @param oldPicture 图片对象
+	 * @param deleted    图片是否已删除（文件全部删除后更新资源状态）, 重新上传时为 false
 	 */
-	@Async
 	@Override
-	public void clearPictureFile(Picture oldPicture) {
+	public void clearPictureFile(Picture oldPicture, boolean deleted) {
 		// TODO 判断该图片是否被多条记录使用, 我觉得不会出现这种情况
 		if (oldPicture == null) {
 			return;
 		}
-		// FIXME 注意，这里的 url 包含了域名，实际上只要传 key 值（存储路径）就够了
-		String url = oldPicture.getUrl();
-		if (StrUtil.isNotBlank(url)) {
-			cosManager.deleteObject(urlPath(url));
-		}
-		// 清理缩略图
-		String thumbnailUrl = oldPicture.getThumbnailUrl();
-		if (StrUtil.isNotBlank(thumbnailUrl)) {
-			cosManager.deleteObject(urlPath(thumbnailUrl));
-		}
-		// 清理原图
-		String originUrl = oldPicture.getOriginUrl();
-		if (StrUtil.isNotBlank(originUrl)) {
-			cosManager.deleteObject(urlPath(originUrl));
-		}
-		// TODO 这里有问题, MyBatisPlus 默认会拼接 idDelete=0 的条件; 更新当前图片在数据库中 resourceStatus
-		// boolean result = this.update(null, new LambdaUpdateWrapper<Picture>()
-		// 		.set(Picture::getResourceStatus, 1)
-		// 		.eq(Picture::getId, oldPicture.getId())
-		// 		.eq(Picture::getIsDelete,0)
-		// );
-		// if (!result) {
-		// 	log.error("更新资源状态失败, id = {}", oldPicture.getId());
-		// }
-	}
-
-	private String urlPath(String url) {
-		// 定义正则表达式，匹配协议和域名后面的路径部分
-		String regex = "https?://[^/]+(/.*)";
-		Pattern pattern = Pattern.compile(regex);
-		Matcher matcher = pattern.matcher(url);
-		if (matcher.find()) {
-			// 获取匹配的路径部分
-			return matcher.group(1);
-		}
-		return "";
+		// 压缩图、缩略图、原图, 由存储根据地址解析出 key 后加入删除队列, 在事务中调用时随事务提交
+		List<String> keyList = Stream.of(oldPicture.getUrl(), oldPicture.getThumbnailUrl(), oldPicture.getOriginUrl())
+				.filter(StrUtil::isNotBlank)
+				.map(objectStore::getKey)
+				.filter(StrUtil::isNotBlank)
+				.collect(Collectors.toList());
+		objectDeleteQueue.enqueue(keyList, deleted ? oldPicture.getId() : null);
 	}
 
 	/**
@@ -654,15 +984,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		// 使用分类标签表的方式
 		if (pictureEditRequest.getInputTagList() != null && !pictureEditRequest.getInputTagList().isEmpty()) {
 			// 需要把这个里面的标签新增到数据库中
-			for (String tag : pictureEditRequest.getInputTagList()) {
-				CategoryTag categoryTag = new CategoryTag();
-				categoryTag.setName(tag);
-				categoryTag.setType(CategoryTagEnum.TAG.getValue());
-				categoryTag.setUserId(loginUser.getId());
-				categoryTagService.save(categoryTag);
-				// 把新增的id放到 inputTagList 中
-				inputTagList.add(String.valueOf(categoryTag.getId()));
-			}
+			inputTagList.addAll(categoryTagService.saveInputTags(pictureEditRequest.getInputTagList(), loginUser.getId()));
 		}
 		// 把 inputTagList 转为逗号分隔的字符串
 		String inputTagListStr = String.join(",", inputTagList);
@@ -680,9 +1002,16 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		checkPictureAuth(loginUser, oldPicture);
 		// 补充审核参数
 		this.fillReviewParams(picture, loginUser);
-		// 操作数据库
-		boolean result = this.updateById(picture);
-		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		// 操作数据库, 同时同步标签关联
+		transactionTemplate.execute(status -> {
+			boolean result = this.updateById(picture);
+			ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+			pictureTagManager.syncTags(id, oldPicture.getSpaceId(), picture.getTags());
+			return true;
+		});
+		// 发布图片变更事件, 失效图片列表缓存
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(oldPicture.getSpaceId(), oldPicture, picture));
+		pictureHashIndex.updateReviewStatus(oldPicture, picture.getReviewStatus());
 	}
 
 	/**
@@ -706,20 +1035,21 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 			// 操作数据库
 			boolean result = this.removeById(pictureId);
 			ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
-			// 释放额度
+			pictureTagManager.removeTags(pictureId);
+			// 释放额度, 事务提交后执行
 			Long spaceId = oldPicture.getSpaceId();
 			if (spaceId != null) {
-				boolean update = spaceService.lambdaUpdate()
-						.eq(Space::getId, spaceId)
-						.setSql("totalSize = totalSize - " + oldPicture.getPicSize())
-						.setSql("totalCount = totalCount - 1")
-						.update();
-				ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
+				spaceQuotaManager.adjustAfterCommit(spaceId, -oldPicture.getPicSize(), -1);
 			}
+			// 清理文件, 随事务加入删除队列
+			this.clearPictureFile(oldPicture, true);
 			return true;
 		});
-		// 异步清理文件
-		this.clearPictureFile(oldPicture);
+		// 发布图片变更事件, 失效图片列表缓存
+		applicationEventPublisher.publishEvent(PictureChangeEvent.of(oldPicture.getSpaceId(), oldPicture));
+		// 更新空间主色调索引和感知哈希索引
+		pictureColorIndex.remove(oldPicture.getSpaceId(), pictureId);
+		pictureHashIndex.remove(oldPicture.getSpaceId(), pictureId);
 	}
 
 	/**
@@ -755,37 +1085,49 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		if (!loginUser.getId().equals(space.getUserId())) {
 			throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "没有空间访问权限");
 		}
-		// 3. 查询该空间下所有图片（必须有主色调）
-		List<Picture> pictureList = this.lambdaQuery()
-				.eq(Picture::getSpaceId, spaceId)
-				.isNotNull(Picture::getPicColor)
-				.list();
+		// 3. 从空间主色调索引中取出最相似的 12 张图片
+		Integer targetColor = PictureColorIndex.parseColor(picColor);
+		ThrowUtils.throwIf(targetColor == null, ErrorCode.PARAMS_ERROR, "颜色格式错误");
+		List<Long> pictureIdList = pictureColorIndex.searchTopK(spaceId, targetColor, 12);
 		// 如果没有图片，直接返回空列表
-		if (CollUtil.isEmpty(pictureList)) {
+		if (CollUtil.isEmpty(pictureIdList)) {
 			return Collections.emptyList();
 		}
-		// 将目标颜色转为 Color 对象
-		Color targetColor = Color.decode(picColor);
-		// 4. 计算相似度并排序
-		List<Picture> sortedPictures = pictureList.stream()
-				.sorted(Comparator.comparingDouble(picture -> {
-					// 提取图片主色调
-					String hexColor = picture.getPicColor();
-					// 没有主色调的图片放到最后
-					if (StrUtil.isBlank(hexColor)) {
-						return Double.MAX_VALUE;
-					}
-					Color pictureColor = Color.decode(hexColor);
-					// 越大越相似
-					return -ColorSimilarUtils.calculateSimilarity(targetColor, pictureColor);
-				}))
-				// 取前 12 个
-				.limit(12)
+		// 4. 只查询命中的图片，按相似度顺序转换为 PictureVO
+		Map<Long, Picture> pictureMap = this.listByIds(pictureIdList).stream()
+				.collect(Collectors.toMap(Picture::getId, picture -> picture));
+		return pictureIdList.stream()
+				.map(pictureMap::get)
+				.filter(Objects::nonNull)
+				.map(PictureVO::objToVo)
 				.collect(Collectors.toList());
+	}
 
-		// 转换为 PictureVO
-		return sortedPictures.stream()
-				.map(PictureVO::objToVo)
+	/**
+	 * 根据感知哈希搜索同一空间（或公共图库）中的相似图片
+	 *
+	 * @param picture 图片
+	 * @param limit   返回数量
+	 * @return 图片列表，按相似度从高到低排序
+	 */
+	@Override
+	public List<Picture> listSimilarPicture(Picture picture, int limit) {
+		if (picture == null || picture.getPicHash() == null) {
+			return Collections.emptyList();
+		}
+		List<Long> pictureIdList = pictureHashIndex.search(picture.getSpaceId(), picture.getPicHash(),
+				PictureHashIndex.SIMILAR_DISTANCE, picture.getId(), limit);
+		if (CollUtil.isEmpty(pictureIdList)) {
+			return Collections.emptyList();
+		}
+		Map<Long, Picture> pictureMap = this.listByIds(pictureIdList).stream()
+				.collect(Collectors.toMap(Picture::getId, p -> p));
+		return pictureIdList.stream()
+				.map(pictureMap::get)
+				.filter(Objects::nonNull)
+				// 公共图库只返回审核通过的图片
+				.filter(p -> p.getSpaceId() != null
+						|| Objects.equals(p.getReviewStatus(), PictureReviewStatusEnum.PASS.getValue()))
 				.collect(Collectors.toList());
 	}
 
@@ -817,22 +1159,14 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		// 使用分类标签表的方式
 		if (pictureEditByBatchRequest.getInputTagList() != null && !pictureEditByBatchRequest.getInputTagList().isEmpty()) {
 			// 需要把这个里面的标签新增到数据库中
-			for (String tag : pictureEditByBatchRequest.getInputTagList()) {
-				CategoryTag categoryTag = new CategoryTag();
-				categoryTag.setName(tag);
-				categoryTag.setType(CategoryTagEnum.TAG.getValue());
-				categoryTag.setUserId(loginUser.getId());
-				categoryTagService.save(categoryTag);
-				// 把新增的id放到 inputTagList 中
-				inputTagList.add(String.valueOf(categoryTag.getId()));
-			}
+			inputTagList.addAll(categoryTagService.saveInputTags(pictureEditByBatchRequest.getInputTagList(), loginUser.getId()));
 		}
 		// 把 inputTagList 转为逗号分隔的字符串
 		String inputTagListStr = String.join(",", inputTagList);
 
 		// 3. 查询指定图片，仅选择需要的字段
 		List<Picture> pictureList = this.lambdaQuery()
-				.select(Picture::getId, Picture::getSpaceId)
+				.select(Picture::getId, Picture::getSpaceId, Picture::getCategory, Picture::getTags)
 				.eq(Picture::getSpaceId, spaceId)
 				.in(Picture::getId, pictureIdList)
 				.list();
@@ -840,6 +1174,8 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		if (pictureList.isEmpty()) {
 			return;
 		}
+		// 记录变更前的分类和标签, 用于失效图片列表缓存
+		PictureChangeEvent pictureChangeEvent = PictureChangeEvent.of(spaceId, pictureList);
 		// 4. 更新分类和标签
 		pictureList.forEach(picture -> {
 			if (StrUtil.isNotBlank(category)) {
@@ -857,6 +1193,11 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 		// 5. 批量更新
 		boolean result = this.updateBatchById(pictureList);
 		ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+		if (StrUtil.isNotBlank(inputTagListStr)) {
+			pictureTagManager.syncTags(pictureList);
+		}
+		// 发布图片变更事件（事务提交后失效图片列表缓存）
+		applicationEventPublisher.publishEvent(pictureChangeEvent.addPictures(pictureList));
 	}
 
 	/**
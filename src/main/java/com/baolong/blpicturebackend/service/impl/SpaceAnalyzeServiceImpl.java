@@ -5,6 +5,9 @@ import cn.hutool.core.util.ObjUtil;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.quota.SpaceQuotaManager;
+import com.baolong.blpicturebackend.manager.quota.SpaceQuotaUsage;
+import com.baolong.blpicturebackend.mapper.PictureTagMapper;
 import com.baolong.blpicturebackend.model.dto.analyze.SpaceAnalyzeRequest;
 import com.baolong.blpicturebackend.model.dto.analyze.SpaceCategoryAnalyzeRequest;
 import com.baolong.blpicturebackend.model.dto.analyze.SpaceRankAnalyzeRequest;
@@ -14,6 +17,7 @@ import com.baolong.blpicturebackend.model.dto.analyze.SpaceUsageAnalyzeRequest;
 import com.baolong.blpicturebackend.model.dto.analyze.SpaceUserAnalyzeRequest;
 import com.baolong.blpicturebackend.model.entity.CategoryTag;
 import com.baolong.blpicturebackend.model.entity.Picture;
+import com.baolong.blpicturebackend.model.entity.PictureTag;
 import com.baolong.blpicturebackend.model.entity.Space;
 import com.baolong.blpicturebackend.model.entity.User;
 import com.baolong.blpicturebackend.model.vo.analyze.SpaceCategoryAnalyzeResponse;
@@ -26,17 +30,15 @@ import com.baolong.blpicturebackend.service.PictureService;
 import com.baolong.blpicturebackend.service.SpaceAnalyzeService;
 import com.baolong.blpicturebackend.service.SpaceService;
 import com.baolong.blpicturebackend.service.UserService;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -57,6 +59,10 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
 	private PictureService pictureService;
 	@Resource
 	private CategoryTagService categoryTagService;
+	@Resource
+	private SpaceQuotaManager spaceQuotaManager;
+	@Resource
+	private PictureTagMapper pictureTagMapper;
 
 	/**
 	 * 获取空间使用分析数据
@@ -103,16 +109,18 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
 			// 权限校验：仅空间所有者或管理员可访问
 			spaceService.checkSpaceAuth(loginUser, space);
 
+			// 从额度计数器读取实时用量（space 表中的用量由定时对账更新）
+			SpaceQuotaUsage quotaUsage = spaceQuotaManager.getUsage(spaceId);
 			// 构造返回结果
 			SpaceUsageAnalyzeResponse response = new SpaceUsageAnalyzeResponse();
-			response.setUsedSize(space.getTotalSize());
-			response.setMaxSize(space.getMaxSize());
+			response.setUsedSize(quotaUsage.getUsedSize());
+			response.setMaxSize(quotaUsage.getMaxSize());
 			// 后端直接算好百分比，这样前端可以直接展示
-			double sizeUsageRatio = NumberUtil.round(space.getTotalSize() * 100.0 / space.getMaxSize(), 2).doubleValue();
+			double sizeUsageRatio = NumberUtil.round(quotaUsage.getUsedSize() * 100.0 / quotaUsage.getMaxSize(), 2).doubleValue();
 			response.setSizeUsageRatio(sizeUsageRatio);
-			response.setUsedCount(space.getTotalCount());
-			response.setMaxCount(space.getMaxCount());
-			double countUsageRatio = NumberUtil.round(space.getTotalCount() * 100.0 / space.getMaxCount(), 2).doubleValue();
+			response.setUsedCount(quotaUsage.getUsedCount());
+			response.setMaxCount(quotaUsage.getMaxCount());
+			double countUsageRatio = NumberUtil.round(quotaUsage.getUsedCount() * 100.0 / quotaUsage.getMaxCount(), 2).doubleValue();
 			response.setCountUsageRatio(countUsageRatio);
 			return response;
 		}
@@ -169,33 +177,30 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
 		// 检查权限
 		checkSpaceAnalyzeAuth(spaceTagAnalyzeRequest, loginUser);
 
-		// 构造查询条件
-		QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+		// 在标签关联表中按标签分组统计（走 spaceId、tagId 索引）
+		QueryWrapper<PictureTag> queryWrapper = new QueryWrapper<>();
 		fillAnalyzeQueryWrapper(spaceTagAnalyzeRequest, queryWrapper);
-
-		// 查询所有符合条件的标签
-		queryWrapper.select("tags");
-		List<String> tagsList = pictureService.getBaseMapper().selectObjs(queryWrapper)
+		queryWrapper.select("tagId AS tagId", "COUNT(*) AS count")
+				.groupBy("tagId")
+				.orderByDesc("count");
+		Map<Long, Long> tagCountMap = pictureTagMapper.selectMaps(queryWrapper)
 				.stream()
-				.filter(ObjUtil::isNotNull)
-				.map(Object::toString)
-				.collect(Collectors.toList());
-
-		// 合并所有标签并统计使用次数
-		Map<String, Long> tagCountMap = tagsList.stream()
-				.flatMap(tag -> Arrays.stream(tag.split(",")))
-				.collect(Collectors.groupingBy(tag -> tag, Collectors.counting()));
+				.collect(Collectors.toMap(result -> ((Number) result.get("tagId")).longValue(),
+						result -> ((Number) result.get("count")).longValue(),
+						(a, b) -> a, LinkedHashMap::new));
+		if (tagCountMap.isEmpty()) {
+			return new ArrayList<>();
+		}
 
 		// 查询所有标签对应的名字
-		Map<String, String> tagMap = categoryTagService.list(new LambdaQueryWrapper<CategoryTag>().in(CategoryTag::getId, tagCountMap.keySet()))
-				.stream()
-				.filter(Objects::nonNull)
-				.collect(Collectors.toMap(tag -> tag.getId().toString(), CategoryTag::getName));
+		Map<Long, CategoryTag> tagMap = categoryTagService.getCategoryTagMapByIds(tagCountMap.keySet());
 
-		// 转换为响应对象，按使用次数降序排序
+		// 转换为响应对象，已按使用次数降序排序
 		return tagCountMap.entrySet().stream()
-				.sorted((e1, e2) -> Long.compare(e2.getValue(), e1.getValue())) // 降序排列
-				.map(entry -> new SpaceTagAnalyzeResponse(tagMap.get(entry.getKey()), entry.getValue()))
+				.map(entry -> {
+					CategoryTag tag = tagMap.get(entry.getKey());
+					return new SpaceTagAnalyzeResponse(tag == null ? null : tag.getName(), entry.getValue());
+				})
 				.collect(Collectors.toList());
 	}
 
@@ -337,7 +342,7 @@ public class SpaceAnalyzeServiceImpl implements SpaceAnalyzeService {
 	 * @param spaceAnalyzeRequest 空间分析请求
 	 * @param queryWrapper        QueryWrapper
 	 */
-	private static void fillAnalyzeQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, QueryWrapper<Picture> queryWrapper) {
+	private static void fillAnalyzeQueryWrapper(SpaceAnalyzeRequest spaceAnalyzeRequest, QueryWrapper<?> queryWrapper) {
 		if (spaceAnalyzeRequest.isQueryAll()) {
 			return;
 		}
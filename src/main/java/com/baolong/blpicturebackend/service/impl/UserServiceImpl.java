@@ -12,6 +12,7 @@ import com.baolong.blpicturebackend.constant.UserConstant;
 import com.baolong.blpicturebackend.exception.BusinessException;
 import com.baolong.blpicturebackend.exception.ErrorCode;
 import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.manager.cache.LoginUserCache;
 import com.baolong.blpicturebackend.manager.upload.FilePictureUpload;
 import com.baolong.blpicturebackend.manager.upload.PictureUploadTemplate;
 import com.baolong.blpicturebackend.mapper.UserMapper;
@@ -57,6 +58,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 	@Autowired
 	private FilePictureUpload filePictureUpload;
 
+	@Autowired
+	private LoginUserCache loginUserCache;
+
 	/**
 	 * 用户注册
 	 *
@@ -186,9 +190,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 		if (currentUser == null || currentUser.getId() == null) {
 			throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
 		}
-		// 从数据库查询（追求性能的话可以注释，直接返回上述结果）
+		// 从本地缓存中获取, 不存在再查询数据库（用户信息修改后会清除缓存）
 		long userId = currentUser.getId();
-		currentUser = this.getById(userId);
+		currentUser = loginUserCache.get(userId, this::getById);
 		if (currentUser == null) {
 			throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
 		}
@@ -398,6 +402,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 		if (!updated) {
 			throw new BusinessException(ErrorCode.OPERATION_ERROR, "开通会员失败，操作数据库失败");
 		}
+		loginUserCache.invalidate(user.getId());
 	}
 
 	// endregion ------- 以下代码为用户兑换会员功能 --------
@@ -429,6 +434,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
 		if (!updated) {
 			throw new BusinessException(ErrorCode.OPERATION_ERROR, "更新用户头像失败");
 		}
+		loginUserCache.invalidate(user.getId());
 		return originUrl;
 	}
 }
@@ -0,0 +1,100 @@
+package com.baolong.blpicturebackend.utils;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 工具类：提取图片颜色
+ * <p>
+ * 主色调为所有像素的平均色（与数据万象 imageAve 一致）; 调色板将 RGB 各量化为 4 位后统计像素数, 取像素最多的颜色
+ */
+public class ImageColorUtils {
+
+	/**
+	 * 透明度低于该值的像素不参与统计
+	 */
+	private static final int MIN_ALPHA = 128;
+
+	private ImageColorUtils() {
+		// 工具类不需要实例化
+	}
+
+	/**
+	 * 计算图片的平均色
+	 *
+	 * @param image 图片（建议使用缩略图）
+	 * @return RGB 值, 没有可统计的像素返回 null
+	 */
+	public static Integer averageColor(BufferedImage image) {
+		long r = 0, g = 0, b = 0, count = 0;
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				int argb = image.getRGB(x, y);
+				if ((argb >>> 24) < MIN_ALPHA) {
+					continue;
+				}
+				r += (argb >> 16) & 0xFF;
+				g += (argb >> 8) & 0xFF;
+				b += argb & 0xFF;
+				count++;
+			}
+		}
+		if (count == 0) {
+			return null;
+		}
+		return (int) (r / count) << 16 | (int) (g / count) << 8 | (int) (b / count);
+	}
+
+	/**
+	 * 计算图片的调色板
+	 *
+	 * @param image 图片（建议使用缩略图）
+	 * @param size  颜色数量
+	 * @return RGB 值列表, 按像素数从多到少排序
+	 */
+	public static List<Integer> palette(BufferedImage image, int size) {
+		// 每个量化颜色的像素数和 RGB 累加值
+		int[] counts = new int[4096];
+		long[] sums = new long[4096 * 3];
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				int argb = image.getRGB(x, y);
+				if ((argb >>> 24) < MIN_ALPHA) {
+					continue;
+				}
+				int r = (argb >> 16) & 0xFF;
+				int g = (argb >> 8) & 0xFF;
+				int b = argb & 0xFF;
+				int bucket = (r >> 4) << 8 | (g >> 4) << 4 | (b >> 4);
+				counts[bucket]++;
+				sums[bucket * 3] += r;
+				sums[bucket * 3 + 1] += g;
+				sums[bucket * 3 + 2] += b;
+			}
+		}
+		Integer[] buckets = new Integer[counts.length];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = i;
+		}
+		Arrays.sort(buckets, (a, b) -> Integer.compare(counts[b], counts[a]));
+		List<Integer> colors = new ArrayList<>(size);
+		for (int i = 0; i < size && counts[buckets[i]] > 0; i++) {
+			int bucket = buckets[i];
+			int count = counts[bucket];
+			// 取量化颜色内像素的平均值作为代表色
+			colors.add((int) (sums[bucket * 3] / count) << 16
+					| (int) (sums[bucket * 3 + 1] / count) << 8
+					| (int) (sums[bucket * 3 + 2] / count));
+		}
+		return colors;
+	}
+
+	/**
+	 * 将 RGB 值转换为十六进制颜色（如 0xFF0000）
+	 */
+	public static String toHex(int rgb) {
+		return String.format("0x%06X", rgb & 0xFFFFFF);
+	}
+}
@@ -0,0 +1,75 @@
+package com.baolong.blpicturebackend.utils;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * 工具类：计算图片感知哈希
+ * <p>
+ * 差值哈希（dHash）：缩放为 9x8 的灰度图, 比较每行相邻像素的亮度得到 64 位哈希, 汉明距离越小图片越相似
+ */
+public class ImageHashUtils {
+
+	private static final int HASH_WIDTH = 9;
+
+	private static final int HASH_HEIGHT = 8;
+
+	/**
+	 * 哈希中 1 的个数不超过该值（或 0 的个数不超过该值）时视为细节过少
+	 */
+	private static final int LOW_DETAIL_BITS = 4;
+
+	private ImageHashUtils() {
+		// 工具类不需要实例化
+	}
+
+	/**
+	 * 计算图片的差值哈希
+	 *
+	 * @param image 图片
+	 * @return 64 位哈希
+	 */
+	public static long dHash(BufferedImage image) {
+		// 缩放为 9x8 的灰度图
+		BufferedImage gray = new BufferedImage(HASH_WIDTH, HASH_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D graphics = gray.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(image, 0, 0, HASH_WIDTH, HASH_HEIGHT, null);
+		} finally {
+			graphics.dispose();
+		}
+		// 左边像素比右边亮则该位为 1
+		long hash = 0L;
+		for (int y = 0; y < HASH_HEIGHT; y++) {
+			for (int x = 0; x < HASH_WIDTH - 1; x++) {
+				int left = gray.getRaster().getSample(x, y, 0);
+				int right = gray.getRaster().getSample(x + 1, y, 0);
+				hash = (hash << 1) | (left > right ? 1L : 0L);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * 计算两个哈希的汉明距离
+	 *
+	 * @param hash1 第一个哈希
+	 * @param hash2 第二个哈希
+	 * @return 不同的位数（0 到 64）
+	 */
+	public static int hammingDistance(long hash1, long hash2) {
+		return Long.bitCount(hash1 ^ hash2);
+	}
+
+	/**
+	 * 判断哈希是否来自细节过少的图片（纯色、单向渐变等）, 这类图片的哈希几乎全 0 或全 1, 不能用于判断重复
+	 *
+	 * @param hash 图片哈希
+	 * @return 是否细节过少
+	 */
+	public static boolean isLowDetail(long hash) {
+		int bits = Long.bitCount(hash);
+		return bits <= LOW_DETAIL_BITS || bits >= Long.SIZE - LOW_DETAIL_BITS;
+	}
+}
@@ -0,0 +1,85 @@
+package com.baolong.blpicturebackend.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 工具类：从文件头读取图片尺寸
+ * <p>
+ * 用于 ImageIO 没有解码器的格式（WebP）, 只读取文件开头的少量字节, 不解码图片
+ */
+public class ImageHeaderUtils {
+
+	/**
+	 * 读取尺寸需要的文件头长度
+	 */
+	public static final int HEADER_LENGTH = 30;
+
+	private ImageHeaderUtils() {
+		// 工具类不需要实例化
+	}
+
+	/**
+	 * 读取图片尺寸
+	 *
+	 * @param inputStream 图片输入流（不负责关闭）
+	 * @return {宽, 高}, 无法识别返回 null
+	 */
+	public static int[] readSize(InputStream inputStream) throws IOException {
+		return readSize(inputStream.readNBytes(HEADER_LENGTH));
+	}
+
+	/**
+	 * 读取图片尺寸
+	 *
+	 * @param header 文件头
+	 * @return {宽, 高}, 无法识别返回 null
+	 */
+	public static int[] readSize(byte[] header) {
+		if (header == null || header.length < HEADER_LENGTH
+				|| !matches(header, 0, "RIFF") || !matches(header, 8, "WEBP")) {
+			return null;
+		}
+		// 有损格式: 帧头之后是起始码 9D 01 2A 和 14 位的宽高
+		if (matches(header, 12, "VP8 ")) {
+			if ((header[23] & 0xFF) != 0x9D || (header[24] & 0xFF) != 0x01 || (header[25] & 0xFF) != 0x2A) {
+				return null;
+			}
+			return size(littleEndian(header, 26, 2) & 0x3FFF, littleEndian(header, 28, 2) & 0x3FFF);
+		}
+		// 无损格式: 签名 0x2F 之后是 14 位的宽 - 1 和 14 位的高 - 1
+		if (matches(header, 12, "VP8L")) {
+			if ((header[20] & 0xFF) != 0x2F) {
+				return null;
+			}
+			int bits = littleEndian(header, 21, 4);
+			return size((bits & 0x3FFF) + 1, ((bits >>> 14) & 0x3FFF) + 1);
+		}
+		// 扩展格式（动图、透明通道）: 24 位的宽 - 1 和 24 位的高 - 1
+		if (matches(header, 12, "VP8X")) {
+			return size(littleEndian(header, 24, 3) + 1, littleEndian(header, 27, 3) + 1);
+		}
+		return null;
+	}
+
+	private static int[] size(int width, int height) {
+		return width > 0 && height > 0 ? new int[]{width, height} : null;
+	}
+
+	private static boolean matches(byte[] header, int offset, String signature) {
+		for (int i = 0; i < signature.length(); i++) {
+			if (header[offset + i] != signature.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int littleEndian(byte[] header, int offset, int length) {
+		int value = 0;
+		for (int i = length - 1; i >= 0; i--) {
+			value = (value << 8) | (header[offset + i] & 0xFF);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,63 @@
+package com.baolong.blpicturebackend.utils;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baolong.blpicturebackend.exception.BusinessException;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.exception.ThrowUtils;
+import com.baolong.blpicturebackend.model.dto.picture.PictureCursor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 工具类：图片游标的编码和解析
+ * <p>
+ * 游标是 URL 安全的 Base64 JSON, 前端原样传回; 解析时校验排序字段和必填值, 排序字段会拼接到 SQL 中, 只能是白名单中的列
+ */
+public class PictureCursorUtils {
+
+	/**
+	 * 游标分页支持的排序字段（非空且有索引的列）
+	 */
+	public static final List<String> SORT_FIELDS = Collections.unmodifiableList(Arrays.asList("id", "createTime", "editTime"));
+
+	private PictureCursorUtils() {
+		// 工具类不需要实例化
+	}
+
+	/**
+	 * 编码游标
+	 *
+	 * @param pictureCursor 游标
+	 * @return 返回给前端的游标字符串
+	 */
+	public static String encode(PictureCursor pictureCursor) {
+		return Base64.encodeUrlSafe(JSONUtil.toJsonStr(pictureCursor));
+	}
+
+	/**
+	 * 解析前端传回的游标
+	 *
+	 * @param cursor 游标字符串
+	 * @return 游标, 为空时返回 null
+	 */
+	public static PictureCursor decode(String cursor) {
+		if (StrUtil.isBlank(cursor)) {
+			return null;
+		}
+		PictureCursor pictureCursor;
+		try {
+			pictureCursor = JSONUtil.toBean(Base64.decodeStr(cursor), PictureCursor.class);
+		} catch (Exception e) {
+			throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标格式错误");
+		}
+		ThrowUtils.throwIf(!SORT_FIELDS.contains(pictureCursor.getSortField()), ErrorCode.PARAMS_ERROR, "不支持的排序字段");
+		ThrowUtils.throwIf(pictureCursor.getId() == null
+						|| (!"id".equals(pictureCursor.getSortField()) && pictureCursor.getValue() == null),
+				ErrorCode.PARAMS_ERROR, "游标格式错误");
+		return pictureCursor;
+	}
+}
@@ -0,0 +1,10 @@
+-- 更新已用额度（删除图片、图片处理后大小变化）
+-- KEYS[1] 额度计数器
+-- ARGV 已用大小变化量, 已用条数变化量
+if redis.call('exists', KEYS[1]) == 0 then
+    return 0
+end
+redis.call('hincrby', KEYS[1], 'usedSize', ARGV[1])
+redis.call('hincrby', KEYS[1], 'usedCount', ARGV[2])
+redis.call('hincrby', KEYS[1], 'version', 1)
+return 1
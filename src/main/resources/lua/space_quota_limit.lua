@@ -0,0 +1,8 @@
+-- 更新额度上限（空间级别变化）
+-- KEYS[1] 额度计数器
+-- ARGV 最大大小, 最大条数
+if redis.call('exists', KEYS[1]) == 0 then
+    return 0
+end
+redis.call('hset', KEYS[1], 'maxSize', ARGV[1], 'maxCount', ARGV[2])
+return 1
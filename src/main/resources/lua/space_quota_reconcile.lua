@@ -0,0 +1,27 @@
+-- 对账: 清理过期的预留并重新汇总, 更新额度上限; 对账期间已用额度没有变化时以数据库为准
+-- KEYS[1] 额度计数器, KEYS[2] 预留记录
+-- ARGV 查询数据库前读取的版本号, 已用大小, 已用条数, 最大大小, 最大条数, 当前时间（毫秒时间戳）
+-- 返回 1-已校正已用额度 0-已用额度有变化, 跳过 -1-计数器未初始化
+if redis.call('exists', KEYS[1]) == 0 then
+    return -1
+end
+local reservedSize = 0
+local reservedCount = 0
+local entries = redis.call('hgetall', KEYS[2])
+for i = 1, #entries, 2 do
+    local size, count, expireAt = string.match(entries[i + 1], '^(%-?%d+),(%-?%d+),(%d+)$')
+    if tonumber(expireAt) < tonumber(ARGV[6]) then
+        redis.call('hdel', KEYS[2], entries[i])
+    else
+        reservedSize = reservedSize + tonumber(size)
+        reservedCount = reservedCount + tonumber(count)
+    end
+end
+redis.call('hset', KEYS[1],
+        'reservedSize', string.format('%d', reservedSize), 'reservedCount', string.format('%d', reservedCount),
+        'maxSize', ARGV[4], 'maxCount', ARGV[5])
+if redis.call('hget', KEYS[1], 'version') ~= ARGV[1] then
+    return 0
+end
+redis.call('hset', KEYS[1], 'usedSize', ARGV[2], 'usedCount', ARGV[3])
+return 1
@@ -0,0 +1,23 @@
+-- 预留空间额度
+-- KEYS[1] 额度计数器, KEYS[2] 预留记录
+-- ARGV 预留标识, 大小, 条数, 过期时间（毫秒时间戳）
+-- 返回 0-成功（重复预留视为成功） 1-大小不足 2-条数不足 -1-计数器未初始化
+if redis.call('exists', KEYS[1]) == 0 then
+    return -1
+end
+if redis.call('hexists', KEYS[2], ARGV[1]) == 1 then
+    return 0
+end
+local quota = redis.call('hmget', KEYS[1], 'usedSize', 'usedCount', 'reservedSize', 'reservedCount', 'maxSize', 'maxCount')
+local size = tonumber(ARGV[2])
+local count = tonumber(ARGV[3])
+if tonumber(quota[2]) + tonumber(quota[4]) + count > tonumber(quota[6]) then
+    return 2
+end
+if tonumber(quota[1]) + tonumber(quota[3]) + size > tonumber(quota[5]) then
+    return 1
+end
+redis.call('hincrby', KEYS[1], 'reservedSize', ARGV[2])
+redis.call('hincrby', KEYS[1], 'reservedCount', ARGV[3])
+redis.call('hset', KEYS[2], ARGV[1], ARGV[2] .. ',' .. ARGV[3] .. ',' .. ARGV[4])
+return 0
@@ -0,0 +1,12 @@
+-- 初始化空间额度计数器（已存在时不覆盖）
+-- KEYS[1] 额度计数器
+-- ARGV 已用大小, 已用条数, 最大大小, 最大条数
+if redis.call('exists', KEYS[1]) == 1 then
+    return 0
+end
+redis.call('hset', KEYS[1],
+        'usedSize', ARGV[1], 'usedCount', ARGV[2],
+        'reservedSize', 0, 'reservedCount', 0,
+        'maxSize', ARGV[3], 'maxCount', ARGV[4],
+        'version', 0)
+return 1
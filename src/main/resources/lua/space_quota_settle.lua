@@ -0,0 +1,21 @@
+-- 结束预留: 释放预留的额度, 并按实际变化量更新已用额度（释放时变化量为 0）
+-- KEYS[1] 额度计数器, KEYS[2] 预留记录
+-- ARGV 预留标识, 已用大小变化量, 已用条数变化量
+-- 返回 1-成功 0-预留不存在（已结束或已过期）
+local reservation = redis.call('hget', KEYS[2], ARGV[1])
+if not reservation then
+    return 0
+end
+redis.call('hdel', KEYS[2], ARGV[1])
+if redis.call('exists', KEYS[1]) == 0 then
+    return 0
+end
+local size, count = string.match(reservation, '^(%-?%d+),(%-?%d+),')
+redis.call('hincrby', KEYS[1], 'reservedSize', string.format('%d', -tonumber(size)))
+redis.call('hincrby', KEYS[1], 'reservedCount', string.format('%d', -tonumber(count)))
+if tonumber(ARGV[2]) ~= 0 or tonumber(ARGV[3]) ~= 0 then
+    redis.call('hincrby', KEYS[1], 'usedSize', ARGV[2])
+    redis.call('hincrby', KEYS[1], 'usedCount', ARGV[3])
+    redis.call('hincrby', KEYS[1], 'version', 1)
+end
+return 1
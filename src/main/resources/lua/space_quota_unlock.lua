@@ -0,0 +1,8 @@
+-- 释放对账锁: 只删除自己持有的锁, 锁已过期被其他节点获取时不删除
+-- KEYS[1] 锁
+-- ARGV 加锁时写入的标识
+-- 返回 1-已释放 0-不是自己的锁
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    return redis.call('del', KEYS[1])
+end
+return 0
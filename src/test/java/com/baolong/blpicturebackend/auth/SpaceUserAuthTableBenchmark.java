@@ -0,0 +1,110 @@
+package com.baolong.blpicturebackend.auth;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.baolong.blpicturebackend.auth.model.SpaceUserAuthConfig;
+import com.baolong.blpicturebackend.auth.model.SpaceUserAuthTable;
+import com.baolong.blpicturebackend.auth.model.SpaceUserRole;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 空间权限校验基准测试: 原来的按角色线性查找 + List.contains 与编译后的权限掩码表对比
+ * <p>
+ * 运行: mvn -B test-compile 后执行 main 方法（IDE 中直接运行即可）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpaceUserAuthTableBenchmark {
+
+	/**
+	 * 角色, 管理员排在配置的最后, 是线性查找最慢的情况
+	 */
+	@Param({"viewer", "admin"})
+	private String role;
+
+	/**
+	 * 校验的权限, 删除图片在权限列表的最后
+	 */
+	@Param({"picture:view", "picture:delete"})
+	private String permission;
+
+	private SpaceUserAuthConfig config;
+
+	private SpaceUserAuthTable authTable;
+
+	@Setup
+	public void setup() {
+		String json = ResourceUtil.readUtf8Str("biz/spaceUserAuthConfig.json");
+		config = JSONUtil.toBean(json, SpaceUserAuthConfig.class);
+		authTable = SpaceUserAuthTable.compile(config);
+	}
+
+	/**
+	 * 原来的实现: 每次遍历角色列表找到角色, 再在权限列表中查找
+	 */
+	@Benchmark
+	public boolean legacyLookup() {
+		return this.legacyGetPermissionsByRole(role).contains(permission);
+	}
+
+	/**
+	 * 编译后的权限表: 两次 map 查找 + 一次位运算
+	 */
+	@Benchmark
+	public boolean compiledTable() {
+		return authTable.hasPermission(role, permission);
+	}
+
+	/**
+	 * 编译后的权限表获取权限列表（只读列表, 不复制）
+	 */
+	@Benchmark
+	public List<String> compiledPermissionList() {
+		return authTable.getPermissions(role);
+	}
+
+	/**
+	 * 原来 SpaceUserAuthManager.getPermissionsByRole 的实现
+	 */
+	private List<String> legacyGetPermissionsByRole(String spaceUserRole) {
+		if (StrUtil.isBlank(spaceUserRole)) {
+			return new ArrayList<>();
+		}
+		SpaceUserRole role = config.getRoles().stream()
+				.filter(r -> spaceUserRole.equals(r.getKey()))
+				.findFirst()
+				.orElse(null);
+		if (role == null) {
+			return new ArrayList<>();
+		}
+		return role.getPermissions();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(SpaceUserAuthTableBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,73 @@
+package com.baolong.blpicturebackend.manager.cache;
+
+import com.baolong.blpicturebackend.utils.ImageHashUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PictureHashIndexBkTreeTest {
+
+	@Test
+	void searchByDistance() {
+		Map<Long, Long> hashMap = Map.of(1L, 0b0000L, 2L, 0b0001L, 3L, 0b0011L, 4L, 0b1111L);
+		PictureHashIndex.BkTree tree = new PictureHashIndex.BkTree();
+		hashMap.forEach(tree::put);
+		assertEquals(Set.of(1L), ids(tree.search(0L, 0)));
+		assertEquals(Set.of(1L, 2L, 3L), ids(tree.search(0L, 2)));
+		assertEquals(Set.of(1L, 2L, 3L, 4L), ids(tree.search(0L, 4)));
+		// 返回的距离正确
+		for (long[] match : tree.search(0L, 4)) {
+			assertEquals(Long.bitCount(hashMap.get(match[0])), match[1]);
+		}
+	}
+
+	@Test
+	void removeAndUpdate() {
+		PictureHashIndex.BkTree tree = new PictureHashIndex.BkTree();
+		tree.put(1L, 0L);
+		tree.put(2L, 1L);
+		tree.remove(1L);
+		assertEquals(Set.of(2L), ids(tree.search(0L, 1)));
+		// 更新哈希后旧哈希不再命中
+		tree.put(2L, -1L);
+		assertTrue(tree.search(0L, 1).isEmpty());
+		assertEquals(Set.of(2L), ids(tree.search(-1L, 0)));
+		// 删除后重新加入
+		tree.put(1L, 0L);
+		assertEquals(Set.of(1L), ids(tree.search(0L, 1)));
+	}
+
+	@Test
+	void matchesLinearScan() {
+		Random random = new Random(42);
+		Map<Long, Long> hashMap = new HashMap<>();
+		PictureHashIndex.BkTree tree = new PictureHashIndex.BkTree();
+		long base = random.nextLong();
+		for (long id = 1; id <= 2000; id++) {
+			// 一部分哈希集中在 base 附近, 保证有命中
+			long hash = id % 4 == 0 ? base ^ (1L << random.nextInt(64)) ^ (1L << random.nextInt(64)) : random.nextLong();
+			hashMap.put(id, hash);
+			tree.put(id, hash);
+		}
+		for (int maxDistance : new int[]{0, 2, 10, 20}) {
+			long query = base;
+			Set<Long> expected = hashMap.entrySet().stream()
+					.filter(entry -> ImageHashUtils.hammingDistance(entry.getValue(), query) <= maxDistance)
+					.map(Map.Entry::getKey)
+					.collect(Collectors.toSet());
+			assertEquals(expected, ids(tree.search(query, maxDistance)), "maxDistance = " + maxDistance);
+		}
+	}
+
+	private static Set<Long> ids(List<long[]> matches) {
+		return matches.stream().map(match -> match[0]).collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,119 @@
+package com.baolong.blpicturebackend.manager.image;
+
+import com.baolong.blpicturebackend.manager.storage.LocalObjectStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 本地图片处理器测试, 使用临时目录中的本地对象存储
+ */
+class LocalImageProcessorTest {
+
+	@TempDir
+	Path root;
+
+	private LocalObjectStore objectStore;
+
+	private LocalImageProcessor imageProcessor;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		objectStore = new LocalObjectStore();
+		ReflectionTestUtils.setField(objectStore, "root", root.toString());
+		ReflectionTestUtils.setField(objectStore, "urlPrefix", "http://localhost/storage");
+		objectStore.init();
+		imageProcessor = new LocalImageProcessor();
+		ReflectionTestUtils.setField(imageProcessor, "objectStore", objectStore);
+		ReflectionTestUtils.setField(imageProcessor, "quality", 0.8f);
+		ReflectionTestUtils.setField(imageProcessor, "maxPixels", 50_000_000L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		imageProcessor.destroy();
+	}
+
+	@Test
+	void jpegOriginIsNotOverwritten() throws Exception {
+		byte[] origin = encode(image(false), "jpg");
+		String originKey = "/public/1/2025-01-01_abc.jpg";
+		objectStore.putObject(originKey, new ByteArrayInputStream(origin), origin.length);
+
+		ImageProcessResult result = imageProcessor.process(originKey, origin.length, () -> new ByteArrayInputStream(origin));
+
+		assertNotEquals("public/1/2025-01-01_abc.jpg", result.getCompressedKey());
+		assertEquals("jpg", result.getPicFormat());
+		assertArrayEquals(origin, read(originKey));
+	}
+
+	@Test
+	void pngWithAlphaOriginIsNotOverwritten() throws Exception {
+		byte[] origin = encode(image(true), "png");
+		String originKey = "public/1/2025-01-01_abc.png";
+		objectStore.putObject(originKey, new ByteArrayInputStream(origin), origin.length);
+
+		ImageProcessResult result = imageProcessor.process(originKey, origin.length, () -> new ByteArrayInputStream(origin));
+
+		assertNotEquals(originKey, result.getCompressedKey());
+		assertEquals("png", result.getPicFormat());
+		assertArrayEquals(origin, read(originKey));
+	}
+
+	@Test
+	void pngWithoutAlphaKeepsCompressedName() throws Exception {
+		byte[] origin = encode(image(false), "png");
+		String originKey = "public/1/2025-01-01_abc.png";
+		objectStore.putObject(originKey, new ByteArrayInputStream(origin), origin.length);
+
+		ImageProcessResult result = imageProcessor.process(originKey, origin.length, () -> new ByteArrayInputStream(origin));
+
+		assertEquals("public/1/2025-01-01_abc.jpg", result.getCompressedKey());
+		assertArrayEquals(origin, read(originKey));
+	}
+
+	/**
+	 * 带有渐变的图片, 大于缩略图阈值
+	 */
+	private static BufferedImage image(boolean alpha) {
+		BufferedImage image = new BufferedImage(400, 300, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		try {
+			for (int x = 0; x < image.getWidth(); x++) {
+				graphics.setColor(new Color(x % 256, (x * 3) % 256, 128, alpha ? 200 : 255));
+				graphics.drawLine(x, 0, x, image.getHeight());
+			}
+		} finally {
+			graphics.dispose();
+		}
+		return image;
+	}
+
+	private static byte[] encode(BufferedImage image, String format) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		ImageIO.write(image, format, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	private byte[] read(String key) throws IOException {
+		try (InputStream inputStream = objectStore.getObject(key)) {
+			return inputStream.readAllBytes();
+		}
+	}
+}
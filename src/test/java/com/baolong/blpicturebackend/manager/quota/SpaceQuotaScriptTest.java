@@ -0,0 +1,208 @@
+package com.baolong.blpicturebackend.manager.quota;
+
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 空间额度 Lua 脚本测试, 在内存 Redis 中执行
+ */
+class SpaceQuotaScriptTest {
+
+	private static final String QUOTA_KEY = "baolong:spaceQuota:1";
+
+	private static final String RESERVATION_KEY = QUOTA_KEY + ":reservations";
+
+	private static final List<String> KEYS = Arrays.asList(QUOTA_KEY, RESERVATION_KEY);
+
+	private static final RedisScript<Long> SEED_SCRIPT = loadScript("lua/space_quota_seed.lua");
+
+	private static final RedisScript<Long> RESERVE_SCRIPT = loadScript("lua/space_quota_reserve.lua");
+
+	private static final RedisScript<Long> SETTLE_SCRIPT = loadScript("lua/space_quota_settle.lua");
+
+	private static final RedisScript<Long> RECONCILE_SCRIPT = loadScript("lua/space_quota_reconcile.lua");
+
+	private static final RedisScript<Long> UNLOCK_SCRIPT = loadScript("lua/space_quota_unlock.lua");
+
+	private static RedisServer redisServer;
+
+	private static LettuceConnectionFactory connectionFactory;
+
+	private static StringRedisTemplate redisTemplate;
+
+	@BeforeAll
+	static void startRedis() throws IOException {
+		redisServer = RedisServer.newRedisServer().start();
+		// 内存 Redis 只支持 RESP2 协议
+		LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+				.clientOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build())
+				.build();
+		connectionFactory = new LettuceConnectionFactory(
+				new RedisStandaloneConfiguration(redisServer.getHost(), redisServer.getBindPort()), clientConfiguration);
+		connectionFactory.afterPropertiesSet();
+		redisTemplate = new StringRedisTemplate(connectionFactory);
+	}
+
+	@AfterAll
+	static void stopRedis() throws IOException {
+		connectionFactory.destroy();
+		redisServer.stop();
+	}
+
+	@BeforeEach
+	void clear() {
+		redisTemplate.delete(Arrays.asList(QUOTA_KEY, RESERVATION_KEY, "lock"));
+	}
+
+	@Test
+	void reserveRequiresSeed() {
+		assertEquals(-1L, reserve("a", 100, 1, Long.MAX_VALUE));
+		assertEquals(1L, seed(0, 0, 1000, 2));
+		// 已初始化时不覆盖
+		assertEquals(0L, seed(500, 1, 1000, 2));
+		assertEquals("0", field("usedSize"));
+	}
+
+	@Test
+	void reserveChecksLimits() {
+		seed(600, 1, 1000, 2);
+		// 条数先于大小校验
+		assertEquals(0L, reserve("a", 100, 1, Long.MAX_VALUE));
+		assertEquals(2L, reserve("b", 100, 1, Long.MAX_VALUE));
+		// 重新上传不占用条数, 只校验大小（已用 600 + 预留 100）
+		assertEquals(1L, reserve("c", 301, 0, Long.MAX_VALUE));
+		assertEquals(0L, reserve("c", 300, 0, Long.MAX_VALUE));
+		assertEquals("400", field("reservedSize"));
+		assertEquals("1", field("reservedCount"));
+	}
+
+	@Test
+	void repeatedReserveIsIdempotent() {
+		seed(0, 0, 1000, 10);
+		assertEquals(0L, reserve("a", 100, 1, Long.MAX_VALUE));
+		assertEquals(0L, reserve("a", 100, 1, Long.MAX_VALUE));
+		assertEquals("100", field("reservedSize"));
+		assertEquals("1", field("reservedCount"));
+	}
+
+	@Test
+	void settleCommitsActualSize() {
+		seed(0, 0, 1000, 10);
+		reserve("a", 300, 1, Long.MAX_VALUE);
+		// 按实际大小提交（处理后变小）
+		assertEquals(1L, settle("a", 200, 1));
+		assertEquals("0", field("reservedSize"));
+		assertEquals("0", field("reservedCount"));
+		assertEquals("200", field("usedSize"));
+		assertEquals("1", field("usedCount"));
+		assertEquals("1", field("version"));
+		// 重复提交无影响
+		assertEquals(0L, settle("a", 200, 1));
+		assertEquals("200", field("usedSize"));
+	}
+
+	@Test
+	void releaseKeepsVersion() {
+		seed(0, 0, 1000, 10);
+		reserve("a", 300, 1, Long.MAX_VALUE);
+		assertEquals(1L, settle("a", 0, 0));
+		assertEquals("0", field("reservedSize"));
+		assertEquals("0", field("usedSize"));
+		assertEquals("0", field("version"));
+		assertEquals(0L, settle("missing", 0, 0));
+	}
+
+	@Test
+	void reconcileDropsExpiredReservations() {
+		seed(100, 1, 1000, 10);
+		reserve("expired", 200, 1, 1000);
+		reserve("active", 300, 1, 5000);
+		String version = field("version");
+		assertEquals(1L, reconcile(version, 150, 2, 2000, 20, 2000));
+		assertFalse(redisTemplate.opsForHash().hasKey(RESERVATION_KEY, "expired"));
+		assertTrue(redisTemplate.opsForHash().hasKey(RESERVATION_KEY, "active"));
+		assertEquals("300", field("reservedSize"));
+		assertEquals("1", field("reservedCount"));
+		assertEquals("150", field("usedSize"));
+		assertEquals("2", field("usedCount"));
+		assertEquals("2000", field("maxSize"));
+		assertEquals("20", field("maxCount"));
+	}
+
+	@Test
+	void reconcileSkipsWhenUsageChanged() {
+		seed(100, 1, 1000, 10);
+		String version = field("version");
+		// 查询数据库期间有上传提交
+		reserve("a", 50, 1, Long.MAX_VALUE);
+		settle("a", 50, 1);
+		assertEquals(0L, reconcile(version, 100, 1, 1000, 10, 0));
+		assertEquals("150", field("usedSize"));
+		assertEquals("2", field("usedCount"));
+		assertEquals(-1L, redisTemplate.execute(RECONCILE_SCRIPT,
+				Arrays.asList("baolong:spaceQuota:2", "baolong:spaceQuota:2:reservations"),
+				"0", "0", "0", "0", "0", "0"));
+	}
+
+	@Test
+	void unlockOnlyOwnLock() {
+		redisTemplate.opsForValue().set("lock", "owner");
+		assertEquals(0L, redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList("lock"), "other"));
+		assertEquals("owner", redisTemplate.opsForValue().get("lock"));
+		assertEquals(1L, redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList("lock"), "owner"));
+		assertNull(redisTemplate.opsForValue().get("lock"));
+	}
+
+	private Long seed(long usedSize, long usedCount, long maxSize, long maxCount) {
+		return redisTemplate.execute(SEED_SCRIPT, Collections.singletonList(QUOTA_KEY),
+				String.valueOf(usedSize), String.valueOf(usedCount), String.valueOf(maxSize), String.valueOf(maxCount));
+	}
+
+	private Long reserve(String token, long size, long count, long expireAt) {
+		return redisTemplate.execute(RESERVE_SCRIPT, KEYS,
+				token, String.valueOf(size), String.valueOf(count), String.valueOf(expireAt));
+	}
+
+	private Long settle(String token, long sizeDelta, long countDelta) {
+		return redisTemplate.execute(SETTLE_SCRIPT, KEYS, token, String.valueOf(sizeDelta), String.valueOf(countDelta));
+	}
+
+	private Long reconcile(String version, long usedSize, long usedCount, long maxSize, long maxCount, long now) {
+		return redisTemplate.execute(RECONCILE_SCRIPT, KEYS, version, String.valueOf(usedSize), String.valueOf(usedCount),
+				String.valueOf(maxSize), String.valueOf(maxCount), String.valueOf(now));
+	}
+
+	private String field(String name) {
+		Object value = redisTemplate.opsForHash().get(QUOTA_KEY, name);
+		return value == null ? null : value.toString();
+	}
+
+	private static RedisScript<Long> loadScript(String path) {
+		DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+		script.setLocation(new ClassPathResource(path));
+		script.setResultType(Long.class);
+		return script;
+	}
+}
@@ -0,0 +1,92 @@
+package com.baolong.blpicturebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageHashUtilsTest {
+
+	@Test
+	void hammingDistance() {
+		assertEquals(0, ImageHashUtils.hammingDistance(0x1234L, 0x1234L));
+		assertEquals(1, ImageHashUtils.hammingDistance(0b1000L, 0b0000L));
+		assertEquals(64, ImageHashUtils.hammingDistance(0L, -1L));
+		assertEquals(ImageHashUtils.hammingDistance(0xF0F0L, 0x0FF0L), ImageHashUtils.hammingDistance(0x0FF0L, 0xF0F0L));
+	}
+
+	@Test
+	void dHashOfGradients() {
+		// 从左到右变暗: 每个像素都比右边亮, 所有位为 1
+		assertEquals(-1L, ImageHashUtils.dHash(gradient(90, 80, true)));
+		// 从左到右变亮: 所有位为 0
+		assertEquals(0L, ImageHashUtils.dHash(gradient(90, 80, false)));
+	}
+
+	@Test
+	void dHashIsStableAcrossScales() {
+		BufferedImage image = noise(360, 320, 1);
+		BufferedImage scaled = new BufferedImage(180, 160, BufferedImage.TYPE_INT_RGB);
+		scaled.createGraphics().drawImage(image, 0, 0, 180, 160, null);
+		long hash = ImageHashUtils.dHash(image);
+		assertEquals(hash, ImageHashUtils.dHash(noise(360, 320, 1)));
+		assertTrue(ImageHashUtils.hammingDistance(hash, ImageHashUtils.dHash(scaled)) <= 10);
+		// 不同的图片距离较大
+		assertTrue(ImageHashUtils.hammingDistance(hash, ImageHashUtils.dHash(noise(360, 320, 2))) > 10);
+	}
+
+	@Test
+	void lowDetailHashes() {
+		// 纯色图片
+		BufferedImage flat = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+		assertTrue(ImageHashUtils.isLowDetail(ImageHashUtils.dHash(flat)));
+		assertTrue(ImageHashUtils.isLowDetail(0L));
+		assertTrue(ImageHashUtils.isLowDetail(-1L));
+		assertTrue(ImageHashUtils.isLowDetail(0b1111L));
+		assertTrue(ImageHashUtils.isLowDetail(~0b1111L));
+		assertFalse(ImageHashUtils.isLowDetail(0b11111L));
+		assertFalse(ImageHashUtils.isLowDetail(0x5555_5555_5555_5555L));
+		assertFalse(ImageHashUtils.isLowDetail(ImageHashUtils.dHash(noise(360, 320, 1))));
+	}
+
+	/**
+	 * 水平灰度渐变
+	 */
+	private static BufferedImage gradient(int width, int height, boolean darkerToRight) {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < width; x++) {
+			int gray = 255 * x / (width - 1);
+			if (darkerToRight) {
+				gray = 255 - gray;
+			}
+			int rgb = (gray << 16) | (gray << 8) | gray;
+			for (int y = 0; y < height; y++) {
+				image.setRGB(x, y, rgb);
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * 由 40x40 的随机色块组成的图片, 缩放后色块仍然清晰
+	 */
+	private static BufferedImage noise(int width, int height, long seed) {
+		Random random = new Random(seed);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		for (int blockX = 0; blockX < width; blockX += 40) {
+			for (int blockY = 0; blockY < height; blockY += 40) {
+				int rgb = random.nextInt(0xFFFFFF);
+				for (int x = blockX; x < Math.min(blockX + 40, width); x++) {
+					for (int y = blockY; y < Math.min(blockY + 40, height); y++) {
+						image.setRGB(x, y, rgb);
+					}
+				}
+			}
+		}
+		return image;
+	}
+}
@@ -0,0 +1,73 @@
+package com.baolong.blpicturebackend.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ImageHeaderUtilsTest {
+
+	@Test
+	void lossyWebp() {
+		byte[] header = webp("VP8 ");
+		// 帧头 3 字节后是起始码
+		header[23] = (byte) 0x9D;
+		header[24] = 0x01;
+		header[25] = 0x2A;
+		putLittleEndian(header, 26, 1920, 2);
+		putLittleEndian(header, 28, 1080, 2);
+		assertArrayEquals(new int[]{1920, 1080}, ImageHeaderUtils.readSize(header));
+		// 起始码错误
+		header[23] = 0;
+		assertNull(ImageHeaderUtils.readSize(header));
+	}
+
+	@Test
+	void losslessWebp() {
+		byte[] header = webp("VP8L");
+		header[20] = 0x2F;
+		putLittleEndian(header, 21, (800 - 1) | ((600 - 1) << 14), 4);
+		assertArrayEquals(new int[]{800, 600}, ImageHeaderUtils.readSize(header));
+	}
+
+	@Test
+	void extendedWebp() throws IOException {
+		byte[] header = webp("VP8X");
+		putLittleEndian(header, 24, 20000 - 1, 3);
+		putLittleEndian(header, 27, 30000 - 1, 3);
+		assertArrayEquals(new int[]{20000, 30000}, ImageHeaderUtils.readSize(header));
+		assertArrayEquals(new int[]{20000, 30000}, ImageHeaderUtils.readSize(new ByteArrayInputStream(header)));
+	}
+
+	@Test
+	void unknownHeader() throws IOException {
+		assertNull(ImageHeaderUtils.readSize((byte[]) null));
+		assertNull(ImageHeaderUtils.readSize(new byte[10]));
+		assertNull(ImageHeaderUtils.readSize(new byte[ImageHeaderUtils.HEADER_LENGTH]));
+		assertNull(ImageHeaderUtils.readSize(webp("ALPH")));
+		assertNull(ImageHeaderUtils.readSize(new ByteArrayInputStream("RIFF".getBytes(StandardCharsets.US_ASCII))));
+	}
+
+	private static byte[] webp(String chunk) {
+		byte[] header = new byte[ImageHeaderUtils.HEADER_LENGTH];
+		put(header, 0, "RIFF");
+		put(header, 8, "WEBP");
+		put(header, 12, chunk);
+		return header;
+	}
+
+	private static void put(byte[] header, int offset, String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+		System.arraycopy(bytes, 0, header, offset, bytes.length);
+	}
+
+	private static void putLittleEndian(byte[] header, int offset, int value, int length) {
+		for (int i = 0; i < length; i++) {
+			header[offset + i] = (byte) (value >>> (8 * i));
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.baolong.blpicturebackend.utils;
+
+import cn.hutool.core.codec.Base64;
+import com.baolong.blpicturebackend.exception.BusinessException;
+import com.baolong.blpicturebackend.exception.ErrorCode;
+import com.baolong.blpicturebackend.model.dto.picture.PictureCursor;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PictureCursorUtilsTest {
+
+	@Test
+	void roundTrip() {
+		PictureCursor pictureCursor = cursor("createTime", 1700000000000L, 123L);
+		String encoded = PictureCursorUtils.encode(pictureCursor);
+		// URL 安全, 可以直接放在查询参数中
+		assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="));
+		assertEquals(pictureCursor, PictureCursorUtils.decode(encoded));
+		// 按 id 排序时不需要排序字段的值
+		PictureCursor idCursor = cursor("id", null, 456L);
+		idCursor.setAsc(true);
+		PictureCursor decoded = PictureCursorUtils.decode(PictureCursorUtils.encode(idCursor));
+		assertEquals(456L, decoded.getId());
+		assertTrue(decoded.isAsc());
+	}
+
+	@Test
+	void blankCursor() {
+		assertNull(PictureCursorUtils.decode(null));
+		assertNull(PictureCursorUtils.decode(" "));
+	}
+
+	@Test
+	void tamperedCursor() {
+		assertParamsError("not a cursor");
+		assertParamsError(Base64.encodeUrlSafe("{\"sortField\":"));
+		// 缺少 id
+		assertParamsError(Base64.encodeUrlSafe("{\"sortField\":\"id\",\"asc\":false}"));
+		// 按时间排序缺少排序字段的值
+		assertParamsError(PictureCursorUtils.encode(cursor("editTime", null, 1L)));
+	}
+
+	@Test
+	void unsupportedSortField() {
+		assertParamsError(PictureCursorUtils.encode(cursor("picSize", 1L, 1L)));
+		assertParamsError(PictureCursorUtils.encode(cursor("createTime) or (1=1", 1L, 1L)));
+		assertParamsError(PictureCursorUtils.encode(cursor(null, 1L, 1L)));
+	}
+
+	private static PictureCursor cursor(String sortField, Long value, Long id) {
+		PictureCursor pictureCursor = new PictureCursor();
+		pictureCursor.setSortField(sortField);
+		pictureCursor.setValue(value);
+		pictureCursor.setId(id);
+		return pictureCursor;
+	}
+
+	private static void assertParamsError(String cursor) {
+		BusinessException e = assertThrows(BusinessException.class, () -> PictureCursorUtils.decode(cursor));
+		assertEquals(ErrorCode.PARAMS_ERROR.getCode(), e.getCode());
+	}
+}